@@ -0,0 +1,64 @@
+package mjchao.mazenav.logic;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long it takes to find out if one square of the grid of
+ * Scenarios.safeSquares is safe, for grids of more and more squares. A
+ * BackwardChainer only looks at the rules and facts about that square,
+ * while a KnowledgeBase derives facts about every square by forward
+ * chaining until the square is found to be safe. Both start without
+ * any answers or facts derived by earlier queries.
+ *
+ * @author mjchao
+ *
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 , time = 1 )
+@Measurement( iterations = 5 , time = 1 )
+@Fork( 1 )
+public class BackwardChainerBenchmark {
+
+	/**
+	 * the number of squares on each side of the grid
+	 */
+	@Param( { "4" , "8" , "16" } )
+	public int size;
+
+	private Scenarios.Percepts percepts;
+	private StatementCNF[] kb;
+
+	@Setup( Level.Trial )
+	public void setUp() {
+		percepts = Scenarios.safeSquares( size );
+		kb = new StatementCNF[ percepts.rules.length + percepts.facts.length + 1 ];
+		System.arraycopy( percepts.rules , 0 , kb , 0 , percepts.rules.length );
+		System.arraycopy( percepts.facts , 0 , kb , percepts.rules.length , percepts.facts.length );
+		kb[ kb.length-1 ] = percepts.percepts;
+	}
+
+	@Benchmark
+	public boolean backwardChaining() {
+		return new BackwardChainer( kb ).ask( percepts.conclusion );
+	}
+
+	@Benchmark
+	public boolean forwardChaining() {
+		return new KnowledgeBase( percepts.tracker , kb ).ask( percepts.conclusion );
+	}
+}
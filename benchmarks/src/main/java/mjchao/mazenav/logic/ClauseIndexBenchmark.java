@@ -0,0 +1,152 @@
+package mjchao.mazenav.logic;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+import mjchao.mazenav.logic.StatementCNF.Disjunction.Term;
+import mjchao.mazenav.logic.structures.Function;
+import mjchao.mazenav.logic.structures.NumbersFOL;
+import mjchao.mazenav.logic.structures.SymbolTracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares one round of the resolution algorithm using the
+ * all-pairs nested loop against the same round using a
+ * ClauseIndex to select candidate pairs. The clauses are ground
+ * Wumpus World facts and rules, e.g.
+ * <pre>
+ * Breeze(1, 1)
+ * !Breeze(1, 1) OR Pit(2, 1) OR Pit(1, 2)
+ * !Stench(1, 1) OR Wumpus(2, 1) OR Wumpus(1, 2)
+ * </pre>
+ *
+ * @author mjchao
+ *
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5 , time = 1 )
+@Measurement( iterations = 5 , time = 1 )
+@Fork( 1 )
+public class ClauseIndexBenchmark {
+
+	/**
+	 * number of clauses that are resolved against the whole
+	 * knowledgebase in one round (i.e. the justAddedClauses)
+	 */
+	private static final int BATCH_SIZE = 100;
+
+	private static final Function BREEZE = new Function( "Breeze" );
+	private static final Function PIT = new Function( "Pit" );
+	private static final Function STENCH = new Function( "Stench" );
+	private static final Function WUMPUS = new Function( "Wumpus" );
+	private static final Function SAFE = new Function( "Safe" );
+	private static final Function[] PREDICATES = { BREEZE , PIT , STENCH , WUMPUS , SAFE };
+
+	/**
+	 * the number of clauses in the knowledgebase
+	 */
+	@Param( { "100" , "1000" , "10000" } )
+	public int size;
+
+	private List< Disjunction > clauses;
+	private List< Disjunction > justAdded;
+	private StatementCNF hypothesis;
+
+	private static Term square( Function f , boolean negated , int x , int y ) {
+		return new Term( f , negated , new Term( NumbersFOL.fromInt( x ) ) , new Term( NumbersFOL.fromInt( y ) ) );
+	}
+
+	/**
+	 * Builds a list of ground Wumpus World clauses
+	 *
+	 * @param numClauses
+	 * @return
+	 */
+	static List< Disjunction > buildWumpusClauses( int numClauses ) {
+		List< Disjunction > rtn = new ArrayList< Disjunction >();
+		int side = (int) Math.ceil( Math.sqrt( numClauses / 3.0 ) ) + 1;
+		for ( int x=1 ; x<=side && rtn.size() < numClauses ; ++x ) {
+			for ( int y=1 ; y<=side && rtn.size() < numClauses ; ++y ) {
+				Function percept = ((x + y) % 2 == 0) ? BREEZE : STENCH;
+				Function danger = (percept == BREEZE) ? PIT : WUMPUS;
+
+				Disjunction fact = new Disjunction();
+				fact.addTerm( square( percept , (x * y) % 3 == 0 , x , y ) );
+				rtn.add( fact );
+
+				Disjunction rule = new Disjunction();
+				rule.addTerm( square( percept , true , x , y ) );
+				rule.addTerm( square( danger , false , x+1 , y ) );
+				rule.addTerm( square( danger , false , x , y+1 ) );
+				rtn.add( rule );
+
+				Disjunction safe = new Disjunction();
+				safe.addTerm( square( SAFE , false , x , y ) );
+				safe.addTerm( square( PREDICATES[ (x + 2*y) % PREDICATES.length ] , false , x , y ) );
+				rtn.add( safe );
+			}
+		}
+		return rtn.subList( 0 , Math.min( numClauses , rtn.size() ) );
+	}
+
+	/**
+	 * The hypothesis only matters for clauses that contain
+	 * variables, so the clauses are resolved with a placeholder.
+	 * Both rounds must find the same resolvents.
+	 */
+	@Setup
+	public void setUp() {
+		clauses = buildWumpusClauses( size );
+		justAdded = clauses.subList( clauses.size() - Math.min( BATCH_SIZE , clauses.size() ) , clauses.size() );
+		hypothesis = StatementCNF.fromInfixString( "1" , new SymbolTracker() );
+		int nestedResolvents = nestedLoopRound();
+		int indexedResolvents = indexedRound();
+		if ( nestedResolvents != indexedResolvents ) {
+			throw new IllegalStateException( "Indexed round produced " + indexedResolvents +
+							" resolvents but nested loop produced " + nestedResolvents );
+		}
+	}
+
+	@Benchmark
+	public int nestedLoopRound() {
+		int numResolvents = 0;
+		for ( int i=0 ; i<clauses.size() ; ++i ) {
+			for ( int j=0 ; j<justAdded.size() ; ++j ) {
+				numResolvents += Resolver.resolve( clauses.get( i ) , justAdded.get( j ) , hypothesis ).size();
+			}
+		}
+		return numResolvents;
+	}
+
+	@Benchmark
+	public int indexedRound() {
+		ClauseIndex index = new ClauseIndex();
+		for ( int j=0 ; j<justAdded.size() ; ++j ) {
+			index.add( j , justAdded.get( j ) );
+		}
+		int numResolvents = 0;
+		for ( int i=0 ; i<clauses.size() ; ++i ) {
+			BitSet candidates = index.candidatesFor( clauses.get( i ) );
+			for ( int j=candidates.nextSetBit( 0 ) ; j>=0 ; j=candidates.nextSetBit( j+1 ) ) {
+				numResolvents += Resolver.resolve( clauses.get( i ) , justAdded.get( j ) , hypothesis ).size();
+			}
+		}
+		return numResolvents;
+	}
+}
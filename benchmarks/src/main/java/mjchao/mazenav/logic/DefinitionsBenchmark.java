@@ -0,0 +1,67 @@
+package mjchao.mazenav.logic;
+
+import java.util.concurrent.TimeUnit;
+
+import mjchao.mazenav.logic.structures.SymbolTracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares converting nested biconditionals to CNF by distributing
+ * ORs over ANDs with converting them by introducing definitions.
+ *
+ * @author mjchao
+ *
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 , time = 1 )
+@Measurement( iterations = 5 , time = 1 )
+@Fork( 1 )
+public class DefinitionsBenchmark {
+
+	/**
+	 * how many times the biconditional is nested
+	 */
+	@Param( { "2" , "4" , "6" } )
+	public int size;
+
+	@Param( { "false" , "true" } )
+	public boolean useDefinitions;
+
+	private String infix;
+	private SymbolTracker tracker;
+
+	/**
+	 * Converting to CNF creates new variables and predicates,
+	 * so the tracker is replaced every iteration to keep it from
+	 * growing for the whole run.
+	 */
+	@Setup( Level.Iteration )
+	public void setUp() {
+		infix = Scenarios.nestedBiconditional( size );
+		tracker = Scenarios.formulaTracker( size );
+	}
+
+	@Benchmark
+	public StatementCNF fromInfixString() {
+		if ( useDefinitions ) {
+			return StatementCNF.fromInfixStringWithDefinitions( infix , tracker );
+		}
+		else {
+			return StatementCNF.fromInfixString( infix , tracker );
+		}
+	}
+}
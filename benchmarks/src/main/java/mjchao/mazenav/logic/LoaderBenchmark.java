@@ -0,0 +1,63 @@
+package mjchao.mazenav.logic;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import mjchao.mazenav.logic.structures.SymbolTracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long it takes to load a knowledgebase of ground
+ * facts with KnowledgeBaseLoader on one or more threads.
+ *
+ * @author mjchao
+ *
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5 , time = 1 )
+@Measurement( iterations = 5 , time = 1 )
+@Fork( 1 )
+public class LoaderBenchmark {
+
+	/**
+	 * the number of statements in the file
+	 */
+	@Param( { "1000" , "100000" } )
+	public int numFacts;
+
+	@Param( { "1" , "4" } )
+	public int numThreads;
+
+	private String file;
+
+	@Setup
+	public void setUp() {
+		file = Scenarios.groundFacts( numFacts );
+	}
+
+	/**
+	 * The file is read from memory so that the benchmark measures
+	 * the loader rather than the disk.
+	 */
+	@Benchmark
+	public KnowledgeBase load() throws IOException {
+		SymbolTracker tracker = new SymbolTracker();
+		KnowledgeBase rtn = new KnowledgeBase( tracker );
+		new KnowledgeBaseLoader( tracker , numThreads ).load( new StringReader( file ) , "benchmark" , rtn );
+		return rtn;
+	}
+}
@@ -0,0 +1,86 @@
+package mjchao.mazenav.logic;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import mjchao.mazenav.logic.structures.Symbol;
+import mjchao.mazenav.logic.structures.SymbolTracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long it takes to turn an infix statement into clauses:
+ * tokenizing it, converting its expression tree to CNF, and both steps
+ * together through StatementCNF.fromInfixString.
+ *
+ * @author mjchao
+ *
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 , time = 1 )
+@Measurement( iterations = 5 , time = 1 )
+@Fork( 1 )
+public class ParsingBenchmark {
+
+	/**
+	 * the number of relations in the statement
+	 */
+	@Param( { "4" , "16" , "64" } )
+	public int size;
+
+	/**
+	 * how deeply the relations are nested in operators and quantifiers
+	 */
+	@Param( { "1" , "3" , "5" } )
+	public int depth;
+
+	private String infix;
+	private SymbolTracker tracker;
+	private List< Symbol > tokens;
+
+	/**
+	 * Converting to CNF creates new variables and skolem functions,
+	 * so the tracker is replaced every iteration to keep it from
+	 * growing for the whole run.
+	 */
+	@Setup( Level.Iteration )
+	public void setUp() {
+		infix = Scenarios.formula( size , depth );
+		tracker = Scenarios.formulaTracker( size );
+		tokens = new Tokenizer( infix , tracker ).tokenize();
+	}
+
+	@Benchmark
+	public List< Symbol > tokenize() {
+		return new Tokenizer( infix , tracker ).tokenize();
+	}
+
+	/**
+	 * Converting a tree to CNF modifies it, so this also includes
+	 * building a new tree from the tokens.
+	 */
+	@Benchmark
+	public ExpressionTree convertToCNF() {
+		ExpressionTree rtn = new ExpressionTree( tokens );
+		rtn.convertToCNF( tracker );
+		return rtn;
+	}
+
+	@Benchmark
+	public StatementCNF fromInfixString() {
+		return StatementCNF.fromInfixString( infix , tracker );
+	}
+}
@@ -0,0 +1,80 @@
+package mjchao.mazenav.logic;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long it takes a new KnowledgeBase to prove the hypothesis
+ * of the curiosity scenario with each resolution strategy, with more and
+ * more facts added to the knowledgebase. The knowledgebase isn't made
+ * of definite clauses, so every strategy proves it by resolution.
+ *
+ * @author mjchao
+ *
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5 , time = 1 )
+@Measurement( iterations = 5 , time = 1 )
+@Fork( 1 )
+public class ResolutionStrategyBenchmark {
+
+	@Param( { "unrestricted" , "setOfSupport" , "ordered" , "hyperresolution" , "unitPreference" } )
+	public String strategyName;
+
+	/**
+	 * the number of facts added to the scenario's knowledgebase
+	 */
+	@Param( { "0" , "8" , "32" } )
+	public int extraFacts;
+
+	private Scenarios.Proof proof;
+	private ResolutionStrategy strategy;
+
+	/**
+	 * Each proof converts the negated hypothesis to CNF, which creates
+	 * new variables, so the tracker is replaced every iteration to
+	 * keep it from growing for the whole run.
+	 */
+	@Setup( Level.Iteration )
+	public void setUp() {
+		proof = Scenarios.curiosity( extraFacts );
+		if ( strategyName.equals( "unrestricted" ) ) {
+			strategy = new UnrestrictedResolution();
+		}
+		else if ( strategyName.equals( "setOfSupport" ) ) {
+			strategy = new SetOfSupport();
+		}
+		else if ( strategyName.equals( "ordered" ) ) {
+			strategy = new OrderedResolution( "Kills" , "Loves" , "Animal" , "Cat" );
+		}
+		else if ( strategyName.equals( "hyperresolution" ) ) {
+			strategy = new Hyperresolution();
+		}
+		else if ( strategyName.equals( "unitPreference" ) ) {
+			strategy = new UnitPreference();
+		}
+		else {
+			throw new IllegalArgumentException( "Unknown strategy: " + strategyName );
+		}
+	}
+
+	@Benchmark
+	public ProofResult ask() {
+		KnowledgeBase kb = new KnowledgeBase( proof.tracker , proof.kb );
+		return kb.ask( proof.hypothesis , new ProofBudget() , new ProofMetrics() , strategy );
+	}
+}
@@ -0,0 +1,83 @@
+package mjchao.mazenav.logic;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long it takes to prove a hypothesis from a knowledgebase
+ * with Resolver.proveHypothesis, for the integration scenarios in
+ * ResolverTest with more and more facts added to the knowledgebase.
+ * The given-clause algorithm is measured on Disjunction objects and
+ * on clauses stored in a ClauseArena for comparison. The wumpus scenario
+ * is ground, so proveHypothesis answers it with a GroundSolver.
+ *
+ * @author mjchao
+ *
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5 , time = 1 )
+@Measurement( iterations = 5 , time = 1 )
+@Fork( 1 )
+public class ResolverBenchmark {
+
+	@Param( { "crime" , "curiosity" , "wumpus" } )
+	public String scenario;
+
+	/**
+	 * the number of facts added to the scenario's knowledgebase
+	 */
+	@Param( { "0" , "8" , "32" } )
+	public int extraFacts;
+
+	private Scenarios.Proof proof;
+
+	/**
+	 * Each proof converts the negated hypothesis to CNF, which creates
+	 * new variables, so the tracker is replaced every iteration to
+	 * keep it from growing for the whole run.
+	 */
+	@Setup( Level.Iteration )
+	public void setUp() {
+		if ( scenario.equals( "crime" ) ) {
+			proof = Scenarios.crime( extraFacts );
+		}
+		else if ( scenario.equals( "curiosity" ) ) {
+			proof = Scenarios.curiosity( extraFacts );
+		}
+		else if ( scenario.equals( "wumpus" ) ) {
+			proof = Scenarios.wumpus( extraFacts );
+		}
+		else {
+			throw new IllegalArgumentException( "Unknown scenario: " + scenario );
+		}
+	}
+
+	@Benchmark
+	public boolean proveHypothesis() {
+		return Resolver.proveHypothesis( proof.tracker , proof.hypothesis , proof.kb );
+	}
+
+	@Benchmark
+	public boolean proveHypothesisGivenClause() {
+		return Resolver.proveHypothesisGivenClause( proof.tracker , proof.hypothesis , proof.kb );
+	}
+
+	@Benchmark
+	public boolean proveHypothesisArena() {
+		return Resolver.proveHypothesisArena( proof.tracker , proof.hypothesis , proof.kb );
+	}
+}
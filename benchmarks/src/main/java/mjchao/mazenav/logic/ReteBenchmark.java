@@ -0,0 +1,74 @@
+package mjchao.mazenav.logic;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long it takes to update the facts that follow from the
+ * rules of Scenarios.safeSquares after the percepts of one more square
+ * are received, for grids of more and more squares. A ReteNetwork asserts
+ * and then retracts the percepts, while a KnowledgeBase has to be built
+ * again with the percepts and match every rule from scratch.
+ *
+ * @author mjchao
+ *
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5 , time = 1 )
+@Measurement( iterations = 5 , time = 1 )
+@Fork( 1 )
+public class ReteBenchmark {
+
+	/**
+	 * the number of squares on each side of the grid
+	 */
+	@Param( { "4" , "8" , "16" } )
+	public int size;
+
+	private Scenarios.Percepts percepts;
+	private ReteNetwork network;
+	private StatementCNF[] withPercepts;
+
+	@Setup( Level.Trial )
+	public void setUp() {
+		percepts = Scenarios.safeSquares( size );
+		network = new ReteNetwork();
+		for ( StatementCNF rule : percepts.rules ) {
+			network.addRules( rule );
+		}
+		for ( StatementCNF fact : percepts.facts ) {
+			network.assertFacts( fact );
+		}
+		withPercepts = new StatementCNF[ percepts.rules.length + percepts.facts.length + 1 ];
+		System.arraycopy( percepts.rules , 0 , withPercepts , 0 , percepts.rules.length );
+		System.arraycopy( percepts.facts , 0 , withPercepts , percepts.rules.length , percepts.facts.length );
+		withPercepts[ withPercepts.length-1 ] = percepts.percepts;
+	}
+
+	@Benchmark
+	public boolean assertAndRetract() {
+		network.assertFacts( percepts.percepts );
+		boolean rtn = network.holds( percepts.conclusion );
+		network.retractFacts( percepts.percepts );
+		return rtn;
+	}
+
+	@Benchmark
+	public boolean rebuildKnowledgeBase() {
+		return new KnowledgeBase( percepts.tracker , withPercepts ).ask( percepts.conclusion );
+	}
+}
@@ -0,0 +1,314 @@
+package mjchao.mazenav.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mjchao.mazenav.logic.structures.SymbolTracker;
+
+/**
+ * Builds the inputs for the benchmarks. The resolution scenarios are
+ * the knowledgebases in the tests' Fixtures, grown by adding more facts
+ * of the same kind. The formulas use the same operators and quantifiers
+ * as the statements in ExpressionTreeTest, nested as deep as requested.
+ *
+ * @author mjchao
+ *
+ */
+class Scenarios {
+
+	/**
+	 * the number of constants that appear in generated formulas
+	 */
+	private static final int NUM_CONSTANTS = 3;
+
+	/**
+	 * Builds a tracker that knows every symbol used by a
+	 * formula built by <code>formula( size , depth )</code>
+	 *
+	 * @param size
+	 * @return
+	 */
+	static SymbolTracker formulaTracker( int size ) {
+		SymbolTracker rtn = new SymbolTracker();
+		for ( int i=0 ; i<size ; ++i ) {
+			rtn.addFunctions( "P" + i );
+		}
+		for ( int i=0 ; i<NUM_CONSTANTS ; ++i ) {
+			rtn.addConstants( "C" + i );
+		}
+		return rtn;
+	}
+
+	/**
+	 * Builds a formula with the given number of relations, e.g. for a size
+	 * of 4 and a depth of 2:
+	 * <pre>
+	 * FORALL(x0) ((EXISTS(x1) ((P0(x1, C0)) AND (P1(x1, C1)))) =&gt; (EXISTS(x1) ((P2(x1, C2)) AND (P3(x1, C0)))))
+	 * </pre>
+	 * Each level of nesting alternates between an implication under a
+	 * universal quantifier, a conjunction under an existential quantifier
+	 * and a disjunction.
+	 *
+	 * @param size		the number of relations in the formula
+	 * @param depth		how many levels of operators and quantifiers
+	 * 					the relations are nested in
+	 * @return			the formula in infix
+	 */
+	static String formula( int size , int depth ) {
+		StringBuilder rtn = new StringBuilder();
+		appendFormula( rtn , 0 , size , depth , 0 );
+		return rtn.toString();
+	}
+
+	private static void appendFormula( StringBuilder rtn , int first , int count , int depth , int level ) {
+		if ( depth == 0 || count == 1 ) {
+			String var = "x" + Math.max( level-1 , 0 );
+			for ( int i=first ; i<first+count ; ++i ) {
+				if ( i > first ) {
+					rtn.append( " AND " );
+				}
+				rtn.append( "P" ).append( i ).append( "(" ).append( var ).append( ", C" ).append( i % NUM_CONSTANTS ).append( ")" );
+			}
+			return;
+		}
+		int half = count / 2;
+		String var = "x" + level;
+		String operator;
+		switch( level % 3 ) {
+			case 0:
+				rtn.append( "FORALL(" ).append( var ).append( ") " );
+				operator = " => ";
+				break;
+			case 1:
+				rtn.append( "EXISTS(" ).append( var ).append( ") " );
+				operator = " AND ";
+				break;
+			default:
+				operator = " OR ";
+				break;
+		}
+		rtn.append( "((" );
+		appendFormula( rtn , first , half , depth-1 , level+1 );
+		rtn.append( ")" ).append( operator ).append( "(" );
+		appendFormula( rtn , first+half , count-half , depth-1 , level+1 );
+		rtn.append( "))" );
+	}
+
+	/**
+	 * Builds a biconditional nested as many times as there are relations
+	 * in a formula of the given size, e.g. for a size of 3:
+	 * <pre>
+	 * P0(C0) &lt;=&gt; (P1(C1) &lt;=&gt; P2(C2))
+	 * </pre>
+	 * The relations are the ones known by <code>formulaTracker( size )</code>.
+	 *
+	 * @param size		the number of relations in the formula
+	 * @return			the formula in infix
+	 */
+	static String nestedBiconditional( int size ) {
+		StringBuilder rtn = new StringBuilder();
+		for ( int i=0 ; i<size ; ++i ) {
+			if ( i > 0 ) {
+				rtn.append( " <=> (" );
+			}
+			rtn.append( "P" ).append( i ).append( "(C" ).append( i % NUM_CONSTANTS ).append( ")" );
+		}
+		for ( int i=1 ; i<size ; ++i ) {
+			rtn.append( ")" );
+		}
+		return rtn.toString();
+	}
+
+	/**
+	 * Builds a knowledgebase file of ground facts about a row of
+	 * squares in the Wumpus World, in the format read by
+	 * KnowledgeBaseLoader, e.g. for 2 facts:
+	 * <pre>
+	 * FUNCTION: Adjacent, Breeze
+	 * CONSTANT: Sq0, Sq1
+	 * STATEMENT: Adjacent(Sq0, Sq1)
+	 * STATEMENT: Adjacent(Sq1, Sq0) OR !Breeze(Sq1)
+	 * </pre>
+	 *
+	 * @param numFacts		the number of statements in the file
+	 * @return				the contents of the file
+	 */
+	static String groundFacts( int numFacts ) {
+		StringBuilder rtn = new StringBuilder();
+		rtn.append( "FUNCTION: Adjacent, Breeze\n" );
+		rtn.append( "CONSTANT: " );
+		for ( int i=0 ; i<numFacts ; ++i ) {
+			rtn.append( i == 0 ? "Sq" : ", Sq" ).append( i );
+		}
+		rtn.append( "\n" );
+		for ( int i=0 ; i<numFacts ; ++i ) {
+			int next = (i+1) % numFacts;
+			if ( i % 2 == 0 ) {
+				rtn.append( "STATEMENT: Adjacent(Sq" ).append( i ).append( ", Sq" ).append( next ).append( ")\n" );
+			}
+			else {
+				rtn.append( "STATEMENT: Adjacent(Sq" ).append( i ).append( ", Sq" ).append( next ).append( ")" );
+				rtn.append( " OR !Breeze(Sq" ).append( i ).append( ")\n" );
+			}
+		}
+		return rtn.toString();
+	}
+
+	/**
+	 * A knowledgebase and a hypothesis that follows from it
+	 */
+	static class Proof {
+
+		public final SymbolTracker tracker;
+		public final StatementCNF[] kb;
+		public final StatementCNF hypothesis;
+
+		public Proof( SymbolTracker tracker , List< String > kb , String hypothesis ) {
+			this.tracker = tracker;
+			this.kb = new StatementCNF[ kb.size() ];
+			for ( int i=0 ; i<kb.size() ; ++i ) {
+				this.kb[ i ] = StatementCNF.fromInfixString( kb.get( i ) , tracker );
+			}
+			this.hypothesis = StatementCNF.fromInfixString( hypothesis , tracker );
+		}
+	}
+
+	/**
+	 * The crime example used by Russell and Norvig on page 330-331
+	 * (Fixtures.CRIME), with <code>extraFacts</code> more missiles
+	 * that Nono owns. America is a variable, as in
+	 * ResolverTest.integration1T.
+	 *
+	 * @param extraFacts
+	 * @return
+	 */
+	static Proof crime( int extraFacts ) {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addConstants( "Nono" , "M1" , "West" );
+		tracker.addFunctions( "American" , "Missile" , "Weapon" , "Sells" ,
+				"Hostile" , "Criminal" , "Owns" , "Enemy" );
+		List< String > kb = new ArrayList< String >( Arrays.asList( Fixtures.CRIME ) );
+		for ( int i=0 ; i<extraFacts ; ++i ) {
+			String missile = "Extra" + i;
+			tracker.addConstants( missile );
+			kb.add( (i % 2 == 0) ? "Missile(" + missile + ")" : "Owns(Nono," + missile + ")" );
+		}
+		return new Proof( tracker , kb , "Criminal(West)" );
+	}
+
+	/**
+	 * The curiosity example used by Russell and Norvig on page 348-349
+	 * (Fixtures.CURIOSITY), with <code>extraFacts</code> more cats.
+	 *
+	 * @param extraFacts
+	 * @return
+	 */
+	static Proof curiosity( int extraFacts ) {
+		SymbolTracker tracker = Fixtures.curiosityTracker();
+		List< String > kb = new ArrayList< String >( Arrays.asList( Fixtures.CURIOSITY ) );
+		for ( int i=0 ; i<extraFacts ; ++i ) {
+			String cat = "Extra" + i;
+			tracker.addConstants( cat );
+			kb.add( "Cat(" + cat + ")" );
+		}
+		return new Proof( tracker , kb , "Kills(Curiosity, Tuna)" );
+	}
+
+	/**
+	 * The ground Wumpus World knowledgebase used by Russell and Norvig
+	 * on page 246-247, from which it follows that there is no pit in
+	 * [1,2], with <code>extraFacts</code> more squares to the right of
+	 * [2,1] that do not have a breeze.
+	 *
+	 * @param extraFacts
+	 * @return
+	 */
+	static Proof wumpus( int extraFacts ) {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "Pit" , "Breeze" );
+		List< String > kb = new ArrayList< String >();
+		kb.add( "!Pit(1,1)" );
+		kb.add( "Breeze(1,1) <=> (Pit(1,2) OR Pit(2,1))" );
+		kb.add( "Breeze(2,1) <=> (Pit(1,1) OR Pit(2,2) OR Pit(3,1))" );
+		kb.add( "!Breeze(1,1)" );
+		kb.add( "Breeze(2,1)" );
+		for ( int i=0 ; i<extraFacts ; ++i ) {
+			int x = 3+i;
+			kb.add( "Breeze(" + x + ",1) <=> (Pit(" + (x-1) + ",1) OR Pit(" + x + ",2) OR Pit(" + (x+1) + ",1))" );
+			kb.add( "!Breeze(" + (x+1) + ",1)" );
+		}
+		return new Proof( tracker , kb , "!Pit(1,2)" );
+	}
+
+	/**
+	 * Rules and facts about a grid of squares, and the percepts
+	 * received in one more square
+	 */
+	static class Percepts {
+
+		public final SymbolTracker tracker;
+		public final StatementCNF[] rules;
+		public final StatementCNF[] facts;
+		public final StatementCNF percepts;
+
+		/**
+		 * a fact that follows from the percepts
+		 */
+		public final StatementCNF conclusion;
+
+		public Percepts( SymbolTracker tracker , List< String > rules , List< String > facts , String percepts , String conclusion ) {
+			this.tracker = tracker;
+			this.rules = new StatementCNF[ rules.size() ];
+			for ( int i=0 ; i<rules.size() ; ++i ) {
+				this.rules[ i ] = StatementCNF.fromInfixString( rules.get( i ) , tracker );
+			}
+			this.facts = new StatementCNF[ facts.size() ];
+			for ( int i=0 ; i<facts.size() ; ++i ) {
+				this.facts[ i ] = StatementCNF.fromInfixString( facts.get( i ) , tracker );
+			}
+			this.percepts = StatementCNF.fromInfixString( percepts , tracker );
+			this.conclusion = StatementCNF.fromInfixString( conclusion , tracker );
+		}
+	}
+
+	/**
+	 * Definite rules that find the squares of a size by size grid that
+	 * have no pit and no wumpus, with the percepts of every square of
+	 * the grid but [1,1] and [size,size] visited so far. The percepts
+	 * are those received on visiting [size,size], from which it follows
+	 * that [size-1,size] is safe. The body of each rule starts with the
+	 * square that its head is about, so that working backwards from the
+	 * head only looks at the squares next to it.
+	 *
+	 * @param size
+	 * @return
+	 */
+	static Percepts safeSquares( int size ) {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "Adjacent" , "Visited" , "NoBreeze" , "NoStench" , "NoPit" , "NoWumpus" , "Safe" );
+		List< String > rules = new ArrayList< String >();
+		rules.add( "Adjacent(x,y,u,v) AND Visited(x,y) AND NoBreeze(x,y) => NoPit(u,v)" );
+		rules.add( "Adjacent(x,y,u,v) AND Visited(x,y) AND NoStench(x,y) => NoWumpus(u,v)" );
+		rules.add( "NoPit(x,y) AND NoWumpus(x,y) => Safe(x,y)" );
+		List< String > facts = new ArrayList< String >();
+		for ( int x=1 ; x<=size ; ++x ) {
+			for ( int y=1 ; y<=size ; ++y ) {
+				if ( x < size ) {
+					facts.add( "Adjacent(" + x + "," + y + "," + (x+1) + "," + y + ")" );
+					facts.add( "Adjacent(" + (x+1) + "," + y + "," + x + "," + y + ")" );
+				}
+				if ( y < size ) {
+					facts.add( "Adjacent(" + x + "," + y + "," + x + "," + (y+1) + ")" );
+					facts.add( "Adjacent(" + x + "," + (y+1) + "," + x + "," + y + ")" );
+				}
+				if ( (x+y) % 3 != 0 && !(x == 1 && y == 1) && !(x == size && y == size) ) {
+					facts.add( "Visited(" + x + "," + y + ")" );
+					facts.add( (x % 2 == 0) ? "NoBreeze(" + x + "," + y + ")" : "NoStench(" + x + "," + y + ")" );
+				}
+			}
+		}
+		String percepts = "Visited(" + size + "," + size + ") AND NoBreeze(" + size + "," + size + ") AND NoStench(" + size + "," + size + ")";
+		return new Percepts( tracker , rules , facts , percepts , "Safe(" + (size-1) + "," + size + ")" );
+	}
+}
@@ -0,0 +1,438 @@
+package mjchao.mazenav.logic;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import mjchao.mazenav.logic.ClauseArena.IntList;
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+
+/**
+ * Performs the given-clause algorithm, like the GivenClauseResolver, on
+ * clauses stored in a ClauseArena. Clauses, the passive and active sets
+ * and every index are arrays of ints, so resolving the given clause with
+ * the active clauses does not allocate any objects, and discarded
+ * resolvents are simply cut off the end of the arena.
+ * <p>
+ * New clauses are discarded if they duplicate or are subsumed by a clause
+ * that has already been kept, and kept clauses that a new clause subsumes
+ * are retired, the same way the other resolution algorithms do it.
+ *
+ * @author mjchao
+ *
+ */
+class ArenaResolver {
+
+	/**
+	 * Applies the given-clause algorithm combined with factoring
+	 * to try and prove a hypothesis by contradiction
+	 *
+	 * @param statement		a single statement that is KB AND !Hypothesis
+	 * @param hypothesis	the hypothesis we're trying to prove. this is
+	 * 						required because we need to check that terms
+	 * 						we unify do not appear in the hypothesis
+	 * @return				true if KB AND !Hypothesis is always false (i.e.
+	 * 						the proof by contradiction succeeds). false if
+	 * 						we could not complete the proof by contradiction
+	 */
+	static boolean applyResolution( StatementCNF statement , StatementCNF hypothesis ) {
+		ClauseArena arena = new ClauseArena( hypothesis );
+		for ( Disjunction d : statement.getDisjunctions() ) {
+			arena.addClause( d );
+			arena.factorLastClause();
+			if ( arena.numLiterals( arena.numClauses()-1 ) == 0 ) {
+				return true;
+			}
+		}
+		return new ArenaResolver( arena ).saturate();
+	}
+
+	private final ClauseArena arena;
+
+	/**
+	 * passive clauses in a binary heap ordered by weight and then by age.
+	 * clauses are numbered in the order they are kept, so the id of a
+	 * clause is also its age.
+	 */
+	private final IntList passiveByWeight = new IntList( 64 );
+
+	/**
+	 * the oldest clause that might still be passive
+	 */
+	private int nextByAge = 0;
+	private int numPassive = 0;
+	private final BitSet selected = new BitSet();
+
+	/**
+	 * clauses that have been discarded because another
+	 * clause subsumes them
+	 */
+	private final BitSet retired = new BitSet();
+
+	/**
+	 * active clauses, indexed by the symbol and sign of each of their
+	 * literals. Clauses with a literal that is a variable or skolem
+	 * function could resolve with any literal, so they are kept in
+	 * a separate list.
+	 */
+	private final IntList active = new IntList( 64 );
+	private final IntList[] activeByLiteral;
+	private final IntList activeWithVariables = new IntList( 16 );
+
+	/**
+	 * the last given clause for which each active
+	 * clause was picked as a candidate
+	 */
+	private int[] candidateStamps = new int[ 64 ];
+	private final IntList candidates = new IntList( 64 );
+
+	/**
+	 * kept clauses in an open-addressing hash table by their
+	 * literals, and indexed by the symbol of their first literal
+	 */
+	private int[] keptTable = new int[ 64 ];
+	private int numKept = 0;
+	private final IntList[] keptByFirstSymbol;
+	private final IntList keptWithVariableFirst = new IntList( 16 );
+
+	/**
+	 * signatures of every clause, for ruling out most
+	 * pairs of clauses before checking for subsumption
+	 */
+	private long[] literalSignatures = new long[ 64 ];
+	private long[] argumentSignatures = new long[ 64 ];
+
+	private ArenaResolver( ClauseArena arena ) {
+		this.arena = arena;
+		this.activeByLiteral = new IntList[ 2*arena.numSymbols() ];
+		this.keptByFirstSymbol = new IntList[ arena.numSymbols() ];
+		Arrays.fill( keptTable , -1 );
+		Arrays.fill( candidateStamps , -1 );
+
+		//the input clauses are only checked for subsumption, not
+		//for duplicates, just like the other resolution algorithms
+		for ( int clause=0 ; clause<arena.numClauses() ; ++clause ) {
+			if ( !keep( clause , true ) ) {
+				retired.set( clause );
+				selected.set( clause );
+			}
+		}
+	}
+
+	/**
+	 * @return		if the empty clause was derived
+	 */
+	private boolean saturate() {
+		int numPicked = 0;
+		while( numPassive > 0 ) {
+			int given = selectGiven( numPicked % (GivenClauseResolver.PICK_GIVEN_RATIO + 1) == GivenClauseResolver.PICK_GIVEN_RATIO );
+			++numPicked;
+			if ( retired.get( given ) ) {
+				continue;
+			}
+			if ( activate( given ) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the next given clause from the passive set
+	 *
+	 * @param byAge		if the oldest clause should be selected
+	 * 					instead of the lightest clause
+	 * @return
+	 */
+	private int selectGiven( boolean byAge ) {
+		int rtn;
+		if ( byAge ) {
+			while ( selected.get( nextByAge ) ) {
+				++nextByAge;
+			}
+			rtn = nextByAge;
+		}
+		else {
+			rtn = pollLightest();
+			while ( selected.get( rtn ) ) {
+				rtn = pollLightest();
+			}
+		}
+		selected.set( rtn );
+		--numPassive;
+		return rtn;
+	}
+
+	/**
+	 * Adds a clause to the passive set unless it duplicates or is
+	 * subsumed by a clause that has already been kept. Any kept
+	 * clauses that the new clause subsumes are retired.
+	 *
+	 * @param clause
+	 * @param input		if the clause is part of KB AND !Hypothesis
+	 * @return			if the clause was kept
+	 */
+	private boolean keep( int clause , boolean input ) {
+		if ( clause >= literalSignatures.length ) {
+			literalSignatures = Arrays.copyOf( literalSignatures , Math.max( 2*literalSignatures.length , clause+1 ) );
+			argumentSignatures = Arrays.copyOf( argumentSignatures , literalSignatures.length );
+		}
+		literalSignatures[ clause ] = arena.literalSignature( clause );
+		argumentSignatures[ clause ] = arena.argumentSignature( clause );
+		if ( !input && isDuplicate( clause ) ) {
+			return false;
+		}
+
+		//every clause before this one has been kept unless it
+		//has been retired
+		for ( int other=0 ; other<clause ; ++other ) {
+			if ( !retired.get( other ) && mightSubsume( other , clause ) && arena.subsumes( other , clause ) ) {
+				return false;
+			}
+		}
+		for ( int other=0 ; other<clause ; ++other ) {
+			if ( !retired.get( other ) && mightSubsume( clause , other ) && arena.subsumes( clause , other ) ) {
+				retired.set( other );
+			}
+		}
+
+		int hash = arena.hashClause( clause );
+		int slot = hash & (keptTable.length-1);
+		while ( keptTable[ slot ] >= 0 ) {
+			slot = (slot+1) & (keptTable.length-1);
+		}
+		keptTable[ slot ] = clause;
+		++numKept;
+		if ( 2*numKept > keptTable.length ) {
+			rehashKept();
+		}
+		if ( arena.numLiterals( clause ) > 0 ) {
+			int first = arena.firstLiteral( clause );
+			if ( arena.isVariable( first ) ) {
+				keptWithVariableFirst.add( clause );
+			}
+			else {
+				add( keptByFirstSymbol , arena.symbol( first ) , clause );
+			}
+		}
+		addLightest( clause );
+		++numPassive;
+		if ( clause >= candidateStamps.length ) {
+			int oldLength = candidateStamps.length;
+			candidateStamps = Arrays.copyOf( candidateStamps , Math.max( 2*oldLength , clause+1 ) );
+			Arrays.fill( candidateStamps , oldLength , candidateStamps.length , -1 );
+		}
+		return true;
+	}
+
+	/**
+	 * @param clause1
+	 * @param clause2
+	 * @return			false if the signatures of the clauses show that
+	 * 					the first clause cannot subsume the second
+	 */
+	private boolean mightSubsume( int clause1 , int clause2 ) {
+		return (literalSignatures[ clause1 ] & ~literalSignatures[ clause2 ]) == 0 &&
+				(argumentSignatures[ clause1 ] & ~argumentSignatures[ clause2 ]) == 0;
+	}
+
+	private void rehashKept() {
+		int[] oldTable = keptTable;
+		keptTable = new int[ 2*oldTable.length ];
+		Arrays.fill( keptTable , -1 );
+		for ( int clause : oldTable ) {
+			if ( clause >= 0 ) {
+				int slot = arena.hashClause( clause ) & (keptTable.length-1);
+				while ( keptTable[ slot ] >= 0 ) {
+					slot = (slot+1) & (keptTable.length-1);
+				}
+				keptTable[ slot ] = clause;
+			}
+		}
+	}
+
+	/**
+	 * @param clause		the last clause in the arena
+	 * @return				if a clause that has already been kept has the same
+	 * 						literals as the given clause, or is the same clause
+	 * 						up to renaming its variables
+	 * @see Resolver#isDuplicateClause
+	 */
+	private boolean isDuplicate( int clause ) {
+		int slot = arena.hashClause( clause ) & (keptTable.length-1);
+		while ( keptTable[ slot ] >= 0 ) {
+			if ( !retired.get( keptTable[ slot ] ) && arena.sameLiterals( keptTable[ slot ] , clause ) ) {
+				return true;
+			}
+			slot = (slot+1) & (keptTable.length-1);
+		}
+		if ( arena.numLiterals( clause ) == 0 ) {
+			return false;
+		}
+
+		//only clauses whose first literal could unify with the
+		//first literal of the new clause are checked
+		//for variants here. the subsumption check catches the rest
+		int first = arena.firstLiteral( clause );
+		if ( arena.isVariable( first ) ) {
+			for ( int kept=0 ; kept<clause ; ++kept ) {
+				if ( !retired.get( kept ) && arena.isVariant( kept , clause ) ) {
+					return true;
+				}
+			}
+			return false;
+		}
+		IntList sameSymbol = keptByFirstSymbol[ arena.symbol( first ) ];
+		return containsVariant( sameSymbol , clause ) || containsVariant( keptWithVariableFirst , clause );
+	}
+
+	private boolean containsVariant( IntList clauses , int clause ) {
+		if ( clauses == null ) {
+			return false;
+		}
+		for ( int i=0 ; i<clauses.size() ; ++i ) {
+			if ( !retired.get( clauses.get( i ) ) && arena.isVariant( clauses.get( i ) , clause ) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Moves the given clause into the active set and resolves it
+	 * with every active clause that it might resolve with.
+	 *
+	 * @param given
+	 * @return			if the empty clause was derived
+	 */
+	private boolean activate( int given ) {
+		active.add( given );
+		boolean givenHasVariables = false;
+		int end = arena.clauseEnd( given );
+		for ( int lit=arena.firstLiteral( given ) ; lit<end ; lit=arena.nextLiteral( lit ) ) {
+			if ( arena.isVariable( lit ) ) {
+				givenHasVariables = true;
+			}
+			else {
+				add( activeByLiteral , 2*arena.symbol( lit ) + (arena.negated( lit ) ? 1 : 0) , given );
+			}
+		}
+		if ( givenHasVariables ) {
+			activeWithVariables.add( given );
+		}
+
+		//a literal can only resolve with a literal of the same
+		//symbol and opposite sign, unless one of them is a variable
+		candidates.clear();
+		if ( givenHasVariables ) {
+			for ( int i=0 ; i<active.size() ; ++i ) {
+				addCandidate( active.get( i ) , given );
+			}
+		}
+		else {
+			for ( int lit=arena.firstLiteral( given ) ; lit<end ; lit=arena.nextLiteral( lit ) ) {
+				IntList complements = activeByLiteral[ 2*arena.symbol( lit ) + (arena.negated( lit ) ? 0 : 1) ];
+				for ( int i=0 ; complements != null && i<complements.size() ; ++i ) {
+					addCandidate( complements.get( i ) , given );
+				}
+			}
+			for ( int i=0 ; i<activeWithVariables.size() ; ++i ) {
+				addCandidate( activeWithVariables.get( i ) , given );
+			}
+		}
+		Arrays.sort( candidates.data , 0 , candidates.size() );
+
+		for ( int i=0 ; i<candidates.size() ; ++i ) {
+			if ( resolve( given , candidates.get( i ) ) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void addCandidate( int clause , int given ) {
+		if ( candidateStamps[ clause ] != given && !retired.get( clause ) ) {
+			candidateStamps[ clause ] = given;
+			candidates.add( clause );
+		}
+	}
+
+	/**
+	 * Resolves two clauses and keeps each resolvent that
+	 * is not a duplicate.
+	 *
+	 * @param clause1
+	 * @param clause2
+	 * @return				if the empty clause was derived
+	 */
+	private boolean resolve( int clause1 , int clause2 ) {
+		int end1 = arena.clauseEnd( clause1 );
+		int end2 = arena.clauseEnd( clause2 );
+		for ( int lit1=arena.firstLiteral( clause1 ) ; lit1<end1 ; lit1=arena.nextLiteral( lit1 ) ) {
+			for ( int lit2=arena.firstLiteral( clause2 ) ; lit2<end2 ; lit2=arena.nextLiteral( lit2 ) ) {
+				if ( !arena.isVariable( lit1 ) && !arena.isVariable( lit2 ) && arena.symbol( lit1 ) != arena.symbol( lit2 ) ) {
+					continue;
+				}
+				if ( !arena.unifyComplementary( lit1 , lit2 ) ) {
+					continue;
+				}
+				int resolvent = arena.addResolvent( clause1 , lit1 , clause2 , lit2 );
+				arena.factorLastClause();
+				if ( arena.numLiterals( resolvent ) == 0 ) {
+					return true;
+				}
+				if ( !keep( resolvent , false ) ) {
+					arena.removeLastClause();
+				}
+			}
+		}
+		return false;
+	}
+
+	private static void add( IntList[] lists , int idx , int value ) {
+		if ( lists[ idx ] == null ) {
+			lists[ idx ] = new IntList( 8 );
+		}
+		lists[ idx ].add( value );
+	}
+
+	private boolean lighter( int clause1 , int clause2 ) {
+		int weight1 = arena.weight( clause1 );
+		int weight2 = arena.weight( clause2 );
+		return (weight1 != weight2) ? weight1 < weight2 : clause1 < clause2;
+	}
+
+	private void addLightest( int clause ) {
+		int[] heap;
+		passiveByWeight.add( clause );
+		heap = passiveByWeight.data;
+		int i = passiveByWeight.size()-1;
+		while ( i > 0 && lighter( clause , heap[ (i-1)/2 ] ) ) {
+			heap[ i ] = heap[ (i-1)/2 ];
+			i = (i-1)/2;
+		}
+		heap[ i ] = clause;
+	}
+
+	private int pollLightest() {
+		int[] heap = passiveByWeight.data;
+		int rtn = heap[ 0 ];
+		int last = heap[ --passiveByWeight.size ];
+		int size = passiveByWeight.size();
+		int i = 0;
+		while ( 2*i+1 < size ) {
+			int child = 2*i+1;
+			if ( child+1 < size && lighter( heap[ child+1 ] , heap[ child ] ) ) {
+				++child;
+			}
+			if ( !lighter( heap[ child ] , last ) ) {
+				break;
+			}
+			heap[ i ] = heap[ child ];
+			i = child;
+		}
+		if ( size > 0 ) {
+			heap[ i ] = last;
+		}
+		return rtn;
+	}
+}
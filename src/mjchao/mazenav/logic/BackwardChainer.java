@@ -0,0 +1,616 @@
+package mjchao.mazenav.logic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import mjchao.mazenav.logic.Resolver.Bindings;
+import mjchao.mazenav.logic.Resolver.Substitution;
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+import mjchao.mazenav.logic.StatementCNF.Disjunction.Term;
+import mjchao.mazenav.logic.structures.Symbol;
+import mjchao.mazenav.logic.structures.Variable;
+
+/**
+ * Answers goals from definite clauses by working backwards from the
+ * goal, e.g. to find out if Safe(3,1) holds, only the rules that conclude
+ * Safe and the facts they need for [3,1] are looked at. Each goal is
+ * resolved with the heads of the clauses that unify with it, as in
+ * Resolver.unify, and the body literals of those clauses are then
+ * solved from left to right, depth first.
+ * <p>
+ * Plain depth-first search would never finish for recursive rules such
+ * as Adjacent(x,y) AND Reachable(y,z) => Reachable(x,z) if the squares
+ * are adjacent both ways, and would solve the same goal again every time
+ * it comes up. So the answers to every goal are kept in a table, keyed by
+ * the goal with its variables renamed in order. A goal that is already
+ * being solved further up the search only takes the answers found for it
+ * so far, and the goal that the search started the cycle from is solved
+ * again until no more answers are found. Goals are then marked as
+ * complete, and later queries only look up their answers.
+ * <p>
+ * Infinitely many answers may follow from rules with functions in
+ * their heads, e.g. Nat(x) => Nat(Succ(x)), in which case a goal is only
+ * solved until the budget runs out.
+ * <p>
+ * A BackwardChainer is not thread-safe.
+ *
+ * @author mjchao
+ *
+ */
+public class BackwardChainer {
+
+	/**
+	 * A definite clause
+	 */
+	private static class Rule {
+
+		public final Term head;
+
+		/**
+		 * the negated literals of the clause, without their negation
+		 */
+		public final Term[] body;
+
+		public Rule( Term head , Term[] body ) {
+			this.head = head;
+			this.body = body;
+		}
+	}
+
+	/**
+	 * The clauses whose heads have the same predicate and number of
+	 * arguments, indexed by each argument of their heads
+	 */
+	private static class Procedure {
+
+		public final List< Rule > rules = new ArrayList< Rule >();
+
+		/**
+		 * the clauses by each argument of their heads that has no variables,
+		 * and the clauses whose heads have variables in each argument
+		 */
+		public final List< HashMap< Term , List< Rule > > > rulesByArg = new ArrayList< HashMap< Term , List< Rule > > >();
+		public final List< List< Rule > > rulesWithVariables = new ArrayList< List< Rule > >();
+
+		public Procedure( int numArgs ) {
+			for ( int i=0 ; i<numArgs ; ++i ) {
+				rulesByArg.add( new HashMap< Term , List< Rule > >() );
+				rulesWithVariables.add( new ArrayList< Rule >() );
+			}
+		}
+
+		public void add( Rule rule ) {
+			rules.add( rule );
+			Term[] args = rule.head.getArgs();
+			for ( int i=0 ; i<args.length ; ++i ) {
+				if ( hasVariables( args[ i ] ) ) {
+					rulesWithVariables.get( i ).add( rule );
+				}
+				else {
+					List< Rule > withArg = rulesByArg.get( i ).get( args[ i ] );
+					if ( withArg == null ) {
+						withArg = new ArrayList< Rule >();
+						rulesByArg.get( i ).put( args[ i ] , withArg );
+					}
+					withArg.add( rule );
+				}
+			}
+		}
+
+		/**
+		 * @param goal
+		 * @return			the clauses whose heads may unify with the goal.
+		 * 					If the goal has an argument without variables, only
+		 * 					the clauses whose heads have the same argument there
+		 * 					or have variables in it are returned.
+		 */
+		public List< Rule > candidates( Term goal ) {
+			Term[] args = goal.getArgs();
+			for ( int i=0 ; i<args.length ; ++i ) {
+				if ( !hasVariables( args[ i ] ) ) {
+					List< Rule > withArg = rulesByArg.get( i ).get( args[ i ] );
+					List< Rule > withVariables = rulesWithVariables.get( i );
+					if ( withArg == null ) {
+						return withVariables;
+					}
+					if ( withVariables.isEmpty() ) {
+						return withArg;
+					}
+					List< Rule > rtn = new ArrayList< Rule >( withArg );
+					rtn.addAll( withVariables );
+					return rtn;
+				}
+			}
+			return rules;
+		}
+	}
+
+	/**
+	 * The answers found so far to a goal
+	 */
+	private static class Table {
+
+		/**
+		 * the goal, with its variables renamed to the canonical
+		 * variables in the order they appear
+		 */
+		public final Term goal;
+		public final List< Term > answers = new ArrayList< Term >();
+		public final HashSet< Term > answerSet = new HashSet< Term >();
+		public boolean complete = false;
+
+		/**
+		 * if the goal is being solved further up the search
+		 */
+		public boolean active = false;
+
+		/**
+		 * the position of this table on the stack of incomplete tables,
+		 * or -1, and the lowest position of a table that this table took
+		 * answers from before they were complete
+		 */
+		public int position = -1;
+		public int link;
+
+		/**
+		 * the last round in which the goal was solved
+		 */
+		public int round = -1;
+
+		public Table( Term goal ) {
+			this.goal = goal;
+		}
+	}
+
+	/**
+	 * Thrown to stop the search when the budget runs out
+	 */
+	private static class BudgetExhausted extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+	}
+
+	private static final int COMPLETE = Integer.MAX_VALUE;
+
+	/**
+	 * the variables that goals are renamed to. Their names start with a
+	 * digit, which the parser reserves for variables made by the system,
+	 * so they never clash with the variables of the clauses.
+	 */
+	private static Variable[] canonicalVariables = new Variable[ 0 ];
+
+	/**
+	 * the clauses by the predicate of their heads and by their number
+	 * of arguments, which is the index into each list
+	 */
+	private final HashMap< Symbol , List< Procedure > > procedures = new HashMap< Symbol , List< Procedure > >();
+	private int numRules = 0;
+
+	private final HashMap< Term , Table > tables = new HashMap< Term , Table >();
+
+	/**
+	 * tables that have been solved but can't be completed until a
+	 * table below them on the stack is complete
+	 */
+	private final List< Table > stack = new ArrayList< Table >();
+	private int round = 0;
+	private int numAnswers = 0;
+
+	/**
+	 * limits and counts the work done by the current query
+	 */
+	private ProofBudget budget;
+	private ProofMetrics metrics;
+
+	/**
+	 * @param statements		statements made of definite clauses
+	 * @throws IllegalArgumentException		if a clause of the given statements
+	 * 										is not a definite clause with a head
+	 * 										whose variables are all in its body
+	 */
+	public BackwardChainer( StatementCNF... statements ) {
+		for ( StatementCNF statement : statements ) {
+			tell( statement );
+		}
+	}
+
+	/**
+	 * Adds the definite clauses of a statement. The answers found to
+	 * earlier goals are forgotten, as the new clauses may add to them.
+	 *
+	 * @param statement
+	 * @throws IllegalArgumentException		if a clause of the given statement
+	 * 										is not a definite clause with a head
+	 * 										whose variables are all in its body
+	 */
+	public void tell( StatementCNF statement ) {
+		for ( Disjunction d : statement.getDisjunctions() ) {
+			if ( !ForwardChainer.isDefinite( d ) ) {
+				throw new IllegalArgumentException( "Not a definite clause: " + d );
+			}
+		}
+		for ( Disjunction d : statement.getDisjunctions() ) {
+			Term head = null;
+			List< Term > body = new ArrayList< Term >();
+			for ( int i=0 ; i<d.size() ; ++i ) {
+				Term t = d.getTerm( i );
+				if ( t.negated() ) {
+					body.add( t.negation() );
+				}
+				else {
+					head = t;
+				}
+			}
+			procedure( head , true ).add( new Rule( head , body.toArray( new Term[ body.size() ] ) ) );
+			++numRules;
+		}
+		tables.clear();
+		numAnswers = 0;
+	}
+
+	/**
+	 * @param head
+	 * @param create		if the procedure should be created if there isn't one
+	 * @return				the procedure for the predicate and number of
+	 * 						arguments of the given head, or null
+	 */
+	private Procedure procedure( Term head , boolean create ) {
+		int numArgs = head.getArgs().length;
+		List< Procedure > byNumArgs = procedures.get( head.getValue() );
+		if ( byNumArgs == null ) {
+			if ( !create ) {
+				return null;
+			}
+			byNumArgs = new ArrayList< Procedure >();
+			procedures.put( head.getValue() , byNumArgs );
+		}
+		while ( create && byNumArgs.size() <= numArgs ) {
+			byNumArgs.add( new Procedure( byNumArgs.size() ) );
+		}
+		return (numArgs < byNumArgs.size()) ? byNumArgs.get( numArgs ) : null;
+	}
+
+	private static boolean hasVariables( Term t ) {
+		if ( t.getValue() instanceof Variable ) {
+			return true;
+		}
+		for ( Term arg : t.getArgs() ) {
+			if ( hasVariables( arg ) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return		the number of clauses told to this BackwardChainer
+	 */
+	public int size() {
+		return numRules;
+	}
+
+	/**
+	 * Determines if the given hypothesis follows from the clauses
+	 *
+	 * @param hypothesis		a conjunction of disjunctions of facts
+	 * 							without variables
+	 * @return					if every clause of the hypothesis contains
+	 * 							a fact that follows from the clauses
+	 */
+	public boolean ask( StatementCNF hypothesis ) {
+		return ask( hypothesis , new ProofBudget() , new ProofMetrics() ) == ProofResult.PROVED;
+	}
+
+	/**
+	 * Tries to determine if the given hypothesis follows from the
+	 * clauses without exceeding the given budget, and counts the work
+	 * done to find out.
+	 *
+	 * @param hypothesis				a conjunction of disjunctions of facts
+	 * 									without variables
+	 * @param budget					limits the work done by the query
+	 * @param metrics					counts the work done by the query
+	 * @return							PROVED if every clause of the hypothesis
+	 * 									contains a fact that follows from the
+	 * 									clauses, NOT_PROVED if one doesn't, or
+	 * 									UNKNOWN if the budget ran out first
+	 * @throws IllegalArgumentException	if the hypothesis contains literals
+	 * 									that are negated or not ground atoms
+	 */
+	public ProofResult ask( StatementCNF hypothesis , ProofBudget budget , ProofMetrics metrics ) {
+		if ( !ForwardChainer.isGroundFacts( hypothesis.getDisjunctions() ) ) {
+			throw new IllegalArgumentException( "Not made of ground atoms: " + hypothesis );
+		}
+		ProofResult rtn = ProofResult.PROVED;
+		for ( Disjunction d : hypothesis.getDisjunctions() ) {
+			boolean found = false;
+			for ( int i=0 ; i<d.size() && !found ; ++i ) {
+				List< Term > answers = solve( d.getTerm( i ) , budget , metrics );
+				if ( answers == null ) {
+					rtn = ProofResult.UNKNOWN;
+					break;
+				}
+				found = !answers.isEmpty();
+			}
+			if ( rtn == ProofResult.UNKNOWN ) {
+				break;
+			}
+			if ( !found ) {
+				rtn = ProofResult.NOT_PROVED;
+				break;
+			}
+		}
+		metrics.finishProof();
+		return rtn;
+	}
+
+	/**
+	 * @param goal		an atom whose variables may be substituted
+	 * @return			the instances of the goal without variables that
+	 * 					follow from the clauses
+	 */
+	public List< Term > getAnswers( StatementCNF goal ) {
+		return getAnswers( goal , new ProofBudget() , new ProofMetrics() );
+	}
+
+	/**
+	 * Finds the instances of a goal that follow from the clauses without
+	 * exceeding the given budget, and counts the work done to find them.
+	 *
+	 * @param goal						an atom whose variables may be substituted
+	 * @param budget					limits the work done by the query
+	 * @param metrics					counts the work done by the query
+	 * @return							the instances of the goal without variables
+	 * 									that follow from the clauses, or null if the
+	 * 									budget ran out before all were found
+	 * @throws IllegalArgumentException	if the goal is not a single atom
+	 */
+	public List< Term > getAnswers( StatementCNF goal , ProofBudget budget , ProofMetrics metrics ) {
+		List< Disjunction > disjunctions = goal.getDisjunctions();
+		if ( disjunctions.size() != 1 || disjunctions.get( 0 ).size() != 1 || disjunctions.get( 0 ).getTerm( 0 ).negated() ) {
+			throw new IllegalArgumentException( "Not an atom: " + goal );
+		}
+		List< Term > rtn = solve( disjunctions.get( 0 ).getTerm( 0 ) , budget , metrics );
+		metrics.finishProof();
+		return (rtn == null) ? null : new ArrayList< Term >( rtn );
+	}
+
+	/**
+	 * @param goal
+	 * @param budget
+	 * @param metrics
+	 * @return			the answers to the goal, or null if
+	 * 					the budget ran out first
+	 */
+	private List< Term > solve( Term goal , ProofBudget budget , ProofMetrics metrics ) {
+		this.budget = budget;
+		this.metrics = metrics;
+		long start = System.nanoTime();
+		try {
+			Table table = table( goal );
+			solve( table );
+			return table.answers;
+		}
+		catch ( BudgetExhausted e ) {
+
+			//the answers of tables that aren't complete may be missing
+			//some that were found by the tables above them, so they
+			//are solved again from scratch by later queries
+			for ( Table t : stack ) {
+				tables.remove( t.goal );
+				numAnswers -= t.answers.size();
+			}
+			for ( Table t : tables.values() ) {
+				t.active = false;
+			}
+			stack.clear();
+			return null;
+		}
+		finally {
+			metrics.resolutionNanos.add( System.nanoTime() - start );
+		}
+	}
+
+	/**
+	 * @param goal
+	 * @return			the table for the given goal, which is
+	 * 					created if there isn't one yet
+	 */
+	private Table table( Term goal ) {
+		Term key = canonical( goal , new HashMap< Variable , Variable >() );
+		Table rtn = tables.get( key );
+		if ( rtn == null ) {
+			rtn = new Table( key );
+			tables.put( key , rtn );
+		}
+		return rtn;
+	}
+
+	/**
+	 * Finds answers to the goal of a table, if it isn't complete
+	 *
+	 * @param table
+	 * @return			the lowest position on the stack of a table whose
+	 * 					answers were taken before it was complete, or
+	 * 					COMPLETE if there is none
+	 */
+	private int solve( Table table ) {
+		if ( table.complete ) {
+			return COMPLETE;
+		}
+		if ( table.active || table.round == round ) {
+
+			//the goal is being solved further up, or was already solved
+			//in this round, so only the answers found so far are taken
+			return table.link;
+		}
+		if ( budget.isExhausted() || numAnswers > budget.getMaxClauses() ) {
+			throw new BudgetExhausted();
+		}
+		if ( table.position == -1 ) {
+			table.position = stack.size();
+			table.link = table.position;
+			stack.add( table );
+		}
+		table.active = true;
+		while ( true ) {
+			int before = numAnswers;
+			table.round = round;
+			Procedure procedure = procedure( table.goal , false );
+			if ( procedure != null ) {
+				for ( Rule rule : procedure.candidates( table.goal ) ) {
+					Bindings bindings = new Bindings( new ArrayList< Substitution >() );
+					metrics.unifyAttempts.increment();
+					if ( Resolver.unify( rule.head , table.goal , bindings ) ) {
+						metrics.unifySuccesses.increment();
+						table.link = Math.min( table.link , solveBody( table , rule , 0 , bindings ) );
+					}
+				}
+			}
+
+			//only the first table of a cycle is solved again until no
+			//more answers are found. The others are solved again when
+			//they come up while it is being solved.
+			if ( table.link < table.position || numAnswers == before ) {
+				break;
+			}
+			++round;
+			metrics.rounds.increment();
+		}
+		table.active = false;
+		if ( table.link < table.position ) {
+			return table.link;
+		}
+		int position = table.position;
+		for ( int i=stack.size()-1 ; i>=position ; --i ) {
+			Table t = stack.remove( i );
+			t.complete = true;
+			t.position = -1;
+		}
+		return COMPLETE;
+	}
+
+	/**
+	 * Solves the body literals of a rule from the given position on
+	 * and adds an answer to the table for every solution
+	 *
+	 * @param table
+	 * @param rule
+	 * @param position		the first body literal to solve
+	 * @param bindings		the substitutions made by unifying the head of
+	 * 						the rule with the goal and the body literals
+	 * 						before the position with their answers
+	 * @return				the lowest position on the stack of a table whose
+	 * 						answers were taken before it was complete, or
+	 * 						COMPLETE if there is none
+	 */
+	private int solveBody( Table table , Rule rule , int position , Bindings bindings ) {
+		if ( position == rule.body.length ) {
+			addAnswer( table , substitute( table.goal , bindings ) );
+			return COMPLETE;
+		}
+		Term literal = rule.body[ position ];
+		Table subgoal = table( substitute( literal , bindings ) );
+		int rtn = solve( subgoal );
+
+		//answers may be added to the subgoal while they are being
+		//used, e.g. if it is the goal of the table
+		for ( int i=0 ; i<subgoal.answers.size() ; ++i ) {
+			int mark = bindings.mark();
+			metrics.unifyAttempts.increment();
+			if ( Resolver.unify( literal , subgoal.answers.get( i ) , bindings ) ) {
+				metrics.unifySuccesses.increment();
+				rtn = Math.min( rtn , solveBody( table , rule , position+1 , bindings ) );
+			}
+			bindings.undo( mark );
+		}
+		return rtn;
+	}
+
+	private void addAnswer( Table table , Term answer ) {
+		metrics.clausesGenerated.increment();
+		if ( table.answerSet.add( answer ) ) {
+			table.answers.add( answer );
+			++numAnswers;
+			metrics.clausesKept.increment();
+
+			//a table that takes its own answers, as Nat(x) does, may
+			//keep adding answers without solving another goal
+			if ( budget.isExhausted() || numAnswers > budget.getMaxClauses() ) {
+				throw new BudgetExhausted();
+			}
+		}
+		else {
+			metrics.duplicatesRejected.increment();
+		}
+	}
+
+	/**
+	 * @param t
+	 * @param bindings
+	 * @return				the given term with its substituted variables
+	 * 						replaced by what they were substituted with
+	 */
+	private static Term substitute( Term t , Bindings bindings ) {
+		if ( t.getValue() instanceof Variable ) {
+			Term substitution = bindings.lookup( t );
+			return (substitution == null) ? t : substitute( substitution , bindings );
+		}
+		Term[] args = t.getArgs();
+		Term[] newArgs = null;
+		for ( int i=0 ; i<args.length ; ++i ) {
+			Term arg = substitute( args[ i ] , bindings );
+			if ( arg != args[ i ] ) {
+				if ( newArgs == null ) {
+					newArgs = args.clone();
+				}
+				newArgs[ i ] = arg;
+			}
+		}
+		return (newArgs == null) ? t : TermBank.intern( t.withArgs( newArgs ) );
+	}
+
+	/**
+	 * @param t
+	 * @param renamed		the canonical variables that the variables
+	 * 						of the term have been renamed to so far
+	 * @return				the given term with its variables renamed to
+	 * 						the canonical variables in the order they appear
+	 */
+	private static Term canonical( Term t , HashMap< Variable , Variable > renamed ) {
+		if ( t.getValue() instanceof Variable ) {
+			Variable rtn = renamed.get( t.getValue() );
+			if ( rtn == null ) {
+				rtn = canonicalVariable( renamed.size() );
+				renamed.put( (Variable) t.getValue() , rtn );
+			}
+			return TermBank.intern( new Term( rtn ) );
+		}
+		Term[] args = t.getArgs();
+		Term[] newArgs = null;
+		for ( int i=0 ; i<args.length ; ++i ) {
+			Term arg = canonical( args[ i ] , renamed );
+			if ( !arg.equals( args[ i ] ) ) {
+				if ( newArgs == null ) {
+					newArgs = args.clone();
+				}
+				newArgs[ i ] = arg;
+			}
+		}
+		return (newArgs == null) ? t : TermBank.intern( t.withArgs( newArgs ) );
+	}
+
+	private static synchronized Variable canonicalVariable( int id ) {
+		if ( id >= canonicalVariables.length ) {
+			Variable[] grown = new Variable[ Math.max( id+1 , 2*canonicalVariables.length ) ];
+			System.arraycopy( canonicalVariables , 0 , grown , 0 , canonicalVariables.length );
+			for ( int i=canonicalVariables.length ; i<grown.length ; ++i ) {
+				grown[ i ] = new Variable( i + "_" , i );
+			}
+			canonicalVariables = grown;
+		}
+		return canonicalVariables[ id ];
+	}
+}
@@ -0,0 +1,893 @@
+package mjchao.mazenav.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+import mjchao.mazenav.logic.StatementCNF.Disjunction.Term;
+import mjchao.mazenav.logic.structures.Function;
+import mjchao.mazenav.logic.structures.SkolemFunction;
+import mjchao.mazenav.logic.structures.Symbol;
+import mjchao.mazenav.logic.structures.Variable;
+
+/**
+ * Stores clauses as flat arrays of ints in a single shared arena instead
+ * of as Disjunction and Term objects, so that the resolution algorithm
+ * can unify and resolve clauses without allocating any objects.
+ * <p>
+ * Every symbol is given an int id. A term is stored as a node of
+ * <code>HEADER</code> ints (the id of its symbol, whether it is negated,
+ * its number of arguments and the number of ints the whole term takes
+ * up) followed directly by its arguments, which are stored the same way.
+ * A clause is its literals stored one after another, and clauses are
+ * appended to the end of the arena as they are built. Two terms are
+ * structurally equal exactly when the ints that store them are equal.
+ * <p>
+ * Terms are referred to by an int reference, which is the offset of the
+ * term in the arena shifted left by one. The lowest bit flips whether
+ * the term is negated, so the negation of a literal can be unified
+ * without copying it.
+ * <p>
+ * Unification and resolution follow the same rules as the Resolver,
+ * including the special treatment of skolem functions, propositional
+ * variables and the variables in the hypothesis being proved.
+ *
+ * @author mjchao
+ *
+ */
+class ClauseArena {
+
+	/**
+	 * offsets of the fields of a term node
+	 */
+	static final int SYMBOL = 0;
+	static final int SIGN = 1;
+	static final int ARITY = 2;
+	static final int SIZE = 3;
+	static final int HEADER = 4;
+
+	/**
+	 * kinds of symbols that the unifier treats differently
+	 */
+	private static final byte FUNCTION = 0;
+	private static final byte SKOLEM_FUNCTION = 1;
+	private static final byte VARIABLE = 2;
+	private static final byte OTHER = 3;
+
+	/**
+	 * A growable array of ints
+	 *
+	 * @author mjchao
+	 *
+	 */
+	static final class IntList {
+
+		int[] data;
+		int size = 0;
+
+		public IntList( int capacity ) {
+			this.data = new int[ capacity ];
+		}
+
+		/**
+		 * Makes sure the given number of ints can be added
+		 * without reallocating the array
+		 *
+		 * @param extra
+		 */
+		public void ensureCapacity( int extra ) {
+			if ( size + extra > data.length ) {
+				int[] newData = new int[ Math.max( 2*data.length , size + extra ) ];
+				System.arraycopy( data , 0 , newData , 0 , size );
+				data = newData;
+			}
+		}
+
+		public void add( int value ) {
+			ensureCapacity( 1 );
+			data[ size++ ] = value;
+		}
+
+		public int get( int idx ) {
+			return data[ idx ];
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public void clear() {
+			size = 0;
+		}
+	}
+
+	/**
+	 * symbols are numbered by name, just like they are
+	 * compared by the Term class
+	 */
+	private final HashMap< Symbol , Integer > symbolIds = new HashMap< Symbol , Integer >();
+	private final List< Symbol > symbols = new ArrayList< Symbol >();
+	private byte[] kinds = new byte[ 16 ];
+	private boolean[] universallyQuantified = new boolean[ 16 ];
+	private boolean[] inHypothesis = new boolean[ 16 ];
+
+	private final IntList arena = new IntList( 1024 );
+
+	/**
+	 * where each clause starts in the arena. clause i ends
+	 * where clause i+1 starts.
+	 */
+	private final IntList clauseStarts = new IntList( 64 );
+	private final IntList clauseSizes = new IntList( 64 );
+
+	/**
+	 * the substitutions made by the last unification, in the order
+	 * they were made, as references to the term being replaced and
+	 * the term replacing it
+	 */
+	private int[] originals = new int[ 16 ];
+	private int[] substitutions = new int[ 16 ];
+	private int numSubstitutions = 0;
+
+	/**
+	 * the variables bound while checking if one clause subsumes
+	 * another, and the offsets of the terms they are bound to
+	 */
+	private int[] matchedVariables = new int[ 16 ];
+	private int[] matchedTerms = new int[ 16 ];
+	private int numMatches = 0;
+
+	/**
+	 * buffers in which substitutions are applied to a literal
+	 * before it is copied into a resolvent
+	 */
+	private IntList scratch = new IntList( 64 );
+	private IntList scratch2 = new IntList( 64 );
+
+	/**
+	 * @param hypothesis	the hypothesis being proved. Variables in the
+	 * 						hypothesis are never substituted, just like
+	 * 						in the Resolver.
+	 */
+	public ClauseArena( StatementCNF hypothesis ) {
+		for ( Disjunction d : hypothesis.getDisjunctions() ) {
+			for ( int i=0 ; i<d.size() ; ++i ) {
+				markHypothesis( d.getTerm( i ) );
+			}
+		}
+	}
+
+	private void markHypothesis( Term t ) {
+		inHypothesis[ symbolId( t.getValue() ) ] = true;
+		for ( Term arg : t.getArgs() ) {
+			markHypothesis( arg );
+		}
+	}
+
+	/**
+	 * @param s
+	 * @return		the id of the given symbol
+	 */
+	private int symbolId( Symbol s ) {
+		Integer id = symbolIds.get( s );
+		if ( id != null ) {
+			return id;
+		}
+		int newId = symbols.size();
+		if ( newId == kinds.length ) {
+			kinds = Arrays.copyOf( kinds , 2*newId );
+			universallyQuantified = Arrays.copyOf( universallyQuantified , 2*newId );
+			inHypothesis = Arrays.copyOf( inHypothesis , 2*newId );
+		}
+		if ( s instanceof Function ) {
+			kinds[ newId ] = FUNCTION;
+		}
+		else if ( s instanceof SkolemFunction ) {
+			kinds[ newId ] = SKOLEM_FUNCTION;
+		}
+		else if ( s instanceof Variable ) {
+			kinds[ newId ] = VARIABLE;
+			universallyQuantified[ newId ] = ((Variable) s).universallyQuantified();
+		}
+		else {
+			kinds[ newId ] = OTHER;
+		}
+		symbolIds.put( s , newId );
+		symbols.add( s );
+		return newId;
+	}
+
+	/**
+	 * @return		the number of distinct symbols in this arena
+	 */
+	public int numSymbols() {
+		return symbols.size();
+	}
+
+	/**
+	 * @return		the number of clauses in this arena
+	 */
+	public int numClauses() {
+		return clauseStarts.size();
+	}
+
+	/**
+	 * @param clause
+	 * @return			the offset of the first literal of the given clause
+	 */
+	public int firstLiteral( int clause ) {
+		return clauseStarts.get( clause );
+	}
+
+	/**
+	 * @param clause
+	 * @return			the offset right after the last literal
+	 * 					of the given clause
+	 */
+	public int clauseEnd( int clause ) {
+		return (clause+1 < clauseStarts.size()) ? clauseStarts.get( clause+1 ) : arena.size;
+	}
+
+	/**
+	 * @param literal
+	 * @return			the offset of the literal following the given one
+	 */
+	public int nextLiteral( int literal ) {
+		return literal + arena.data[ literal + SIZE ];
+	}
+
+	/**
+	 * @param clause
+	 * @return			the number of literals in the given clause
+	 */
+	public int numLiterals( int clause ) {
+		return clauseSizes.get( clause );
+	}
+
+	/**
+	 * @param clause
+	 * @return			the number of symbols in the given clause
+	 */
+	public int weight( int clause ) {
+		return (clauseEnd( clause ) - firstLiteral( clause )) / HEADER;
+	}
+
+	/**
+	 * @param term
+	 * @return			the id of the symbol of the given term
+	 */
+	public int symbol( int term ) {
+		return arena.data[ term + SYMBOL ];
+	}
+
+	/**
+	 * @param term
+	 * @return			if the given term is negated
+	 */
+	public boolean negated( int term ) {
+		return arena.data[ term + SIGN ] == 1;
+	}
+
+	/**
+	 * @param term
+	 * @return			if the given term is a variable or skolem function,
+	 * 					which the unifier can substitute with other terms
+	 */
+	public boolean isVariable( int term ) {
+		byte kind = kinds[ arena.data[ term + SYMBOL ] ];
+		return kind == VARIABLE || kind == SKOLEM_FUNCTION;
+	}
+
+	/**
+	 * Adds a clause to the end of this arena.
+	 *
+	 * @param d
+	 * @return			the id of the new clause
+	 */
+	public int addClause( Disjunction d ) {
+		clauseStarts.add( arena.size );
+		for ( int i=0 ; i<d.size() ; ++i ) {
+			encode( d.getTerm( i ) );
+		}
+		clauseSizes.add( d.size() );
+		return clauseStarts.size()-1;
+	}
+
+	private void encode( Term t ) {
+		int p = arena.size;
+		arena.ensureCapacity( HEADER );
+		arena.data[ p + SYMBOL ] = symbolId( t.getValue() );
+		arena.data[ p + SIGN ] = t.negated() ? 1 : 0;
+		arena.data[ p + ARITY ] = t.getArgs().length;
+		arena.size += HEADER;
+		for ( Term arg : t.getArgs() ) {
+			encode( arg );
+		}
+		arena.data[ p + SIZE ] = arena.size - p;
+	}
+
+	/**
+	 * Removes the clause that was added last.
+	 */
+	public void removeLastClause() {
+		arena.size = clauseStarts.get( clauseStarts.size()-1 );
+		--clauseStarts.size;
+		--clauseSizes.size;
+	}
+
+	/**
+	 * @param clause
+	 * @return			the given clause converted back to a Disjunction
+	 */
+	public Disjunction toDisjunction( int clause ) {
+		Disjunction rtn = new Disjunction();
+		for ( int lit=firstLiteral( clause ) ; lit<clauseEnd( clause ) ; lit=nextLiteral( lit ) ) {
+			rtn.addTerm( decode( lit ) );
+		}
+		return rtn;
+	}
+
+	private Term decode( int term ) {
+		Symbol value = symbols.get( arena.data[ term + SYMBOL ] );
+		boolean negated = arena.data[ term + SIGN ] == 1;
+		Term[] args = new Term[ arena.data[ term + ARITY ] ];
+		int arg = term + HEADER;
+		for ( int i=0 ; i<args.length ; ++i ) {
+			args[ i ] = decode( arg );
+			arg += arena.data[ arg + SIZE ];
+		}
+		if ( value instanceof Function ) {
+			return new Term( (Function) value , negated , args );
+		}
+		else if ( value instanceof SkolemFunction ) {
+			return new Term( (SkolemFunction) value , negated , args );
+		}
+		return new Term( value , negated );
+	}
+
+	/**
+	 * @param a
+	 * @param p
+	 * @param b
+	 * @param q
+	 * @return		if the term at offset p in a is structurally equal
+	 * 				to the term at offset q in b, ignoring whether
+	 * 				the two terms themselves are negated
+	 */
+	private static boolean equalIgnoringSign( int[] a , int p , int[] b , int q ) {
+		int size = a[ p + SIZE ];
+		if ( a[ p + SYMBOL ] != b[ q + SYMBOL ] || a[ p + ARITY ] != b[ q + ARITY ] || size != b[ q + SIZE ] ) {
+			return false;
+		}
+		for ( int i=HEADER ; i<size ; ++i ) {
+			if ( a[ p+i ] != b[ q+i ] ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int offset( int ref ) {
+		return ref >>> 1;
+	}
+
+	private int sign( int ref ) {
+		return arena.data[ offset( ref ) + SIGN ] ^ (ref & 1);
+	}
+
+	private byte kind( int ref ) {
+		return kinds[ arena.data[ offset( ref ) + SYMBOL ] ];
+	}
+
+	private boolean equal( int ref1 , int ref2 ) {
+		return sign( ref1 ) == sign( ref2 ) &&
+				equalIgnoringSign( arena.data , offset( ref1 ) , arena.data , offset( ref2 ) );
+	}
+
+	/**
+	 * @param container
+	 * @param ref
+	 * @return				if the given term appears anywhere inside the
+	 * 						container, ignoring negation. This is used for
+	 * 						the occur check.
+	 */
+	private boolean contains( int container , int ref ) {
+		int[] data = arena.data;
+		int end = offset( container ) + data[ offset( container ) + SIZE ];
+
+		//nodes are stored in preorder, so every subterm
+		//starts a multiple of HEADER ints after the last
+		for ( int p=offset( container ) ; p<end ; p+=HEADER ) {
+			if ( equalIgnoringSign( data , p , data , offset( ref ) ) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Determines if two literals can be resolved, that is, if the first
+	 * literal unifies with the negation of the second. If they can, the
+	 * substitutions are kept for <code>addResolvent</code>.
+	 *
+	 * @param literal1
+	 * @param literal2
+	 * @return				if the literals can be resolved
+	 */
+	public boolean unifyComplementary( int literal1 , int literal2 ) {
+		return findResolveUnification( literal1 << 1 , (literal2 << 1) | 1 );
+	}
+
+	/**
+	 * Determines if two literals unify, as they must for one
+	 * of them to be factored out of a clause.
+	 *
+	 * @param literal1
+	 * @param literal2
+	 * @return				if the literals unify
+	 */
+	public boolean unifyLiterals( int literal1 , int literal2 ) {
+		return findResolveUnification( literal1 << 1 , literal2 << 1 );
+	}
+
+	/**
+	 * @see Resolver#findResolveUnification
+	 */
+	private boolean findResolveUnification( int ref1 , int ref2 ) {
+		numSubstitutions = 0;
+		byte kind1 = kind( ref1 );
+		byte kind2 = kind( ref2 );
+
+		//we cannot resolve different propositional variables
+		if ( kind1 == VARIABLE && kind2 == VARIABLE ) {
+			int var1 = arena.data[ offset( ref1 ) + SYMBOL ];
+			int var2 = arena.data[ offset( ref2 ) + SYMBOL ];
+			if ( !universallyQuantified[ var1 ] && !universallyQuantified[ var2 ] && var1 != var2 ) {
+				return false;
+			}
+		}
+		if ( kind1 == FUNCTION && kind2 == FUNCTION && sign( ref1 ) != sign( ref2 ) ) {
+			return false;
+		}
+		if ( kind1 == SKOLEM_FUNCTION && kind2 == SKOLEM_FUNCTION && sign( ref1 ) == sign( ref2 ) ) {
+			return false;
+		}
+		if ( !unify( ref1 , ref2 ) ) {
+			return false;
+		}
+		for ( int i=0 ; i<numSubstitutions ; ++i ) {
+
+			//we cannot make the hypothesis less general
+			byte kind = kind( originals[ i ] );
+			if ( kind == VARIABLE && inHypothesis[ arena.data[ offset( originals[ i ] ) + SYMBOL ] ] ) {
+				return false;
+			}
+
+			//and skolem functions may only be substituted
+			//with variables and other skolem functions
+			if ( kind == SKOLEM_FUNCTION ) {
+				byte substitutionKind = kind( substitutions[ i ] );
+				if ( substitutionKind != VARIABLE && substitutionKind != SKOLEM_FUNCTION ) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private boolean unify( int ref1 , int ref2 ) {
+		if ( equal( ref1 , ref2 ) ) {
+			return true;
+		}
+		byte kind1 = kind( ref1 );
+		byte kind2 = kind( ref2 );
+		if ( kind1 == VARIABLE ) {
+			return unifyVar( ref1 , ref2 );
+		}
+		else if ( kind2 == VARIABLE ) {
+			return unifyVar( ref2 , ref1 );
+		}
+		else if ( kind1 == SKOLEM_FUNCTION ) {
+			return unifyVar( ref1 , ref2 );
+		}
+		else if ( kind2 == SKOLEM_FUNCTION ) {
+			return unifyVar( ref2 , ref1 );
+		}
+		else if ( kind1 == FUNCTION && kind2 == FUNCTION ) {
+			int p = offset( ref1 );
+			int q = offset( ref2 );
+			int[] data = arena.data;
+			if ( data[ p + SYMBOL ] != data[ q + SYMBOL ] || data[ p + ARITY ] != data[ q + ARITY ] ) {
+				return false;
+			}
+			int arg1 = p + HEADER;
+			int arg2 = q + HEADER;
+			for ( int i=0 ; i<data[ p + ARITY ] ; ++i ) {
+				if ( !unify( arg1 << 1 , arg2 << 1 ) ) {
+					return false;
+				}
+				arg1 += data[ arg1 + SIZE ];
+				arg2 += data[ arg2 + SIZE ];
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private boolean unifyVar( int var , int x ) {
+		int varSubstitution = lookup( var );
+		if ( varSubstitution >= 0 ) {
+			return unify( varSubstitution , x );
+		}
+		int xSubstitution = lookup( x );
+		if ( xSubstitution >= 0 ) {
+			return unify( var , xSubstitution );
+		}
+		if ( contains( var , x ) || contains( x , var ) ) {
+			return false;
+		}
+		if ( numSubstitutions == originals.length ) {
+			originals = Arrays.copyOf( originals , 2*numSubstitutions );
+			substitutions = Arrays.copyOf( substitutions , 2*numSubstitutions );
+		}
+		originals[ numSubstitutions ] = var;
+		substitutions[ numSubstitutions ] = x;
+		++numSubstitutions;
+		return true;
+	}
+
+	/**
+	 * @param ref
+	 * @return		the first term substituted for the given term, or
+	 * 				-1 if the given term has not been substituted
+	 */
+	private int lookup( int ref ) {
+		for ( int i=0 ; i<numSubstitutions ; ++i ) {
+			if ( equal( originals[ i ] , ref ) ) {
+				return substitutions[ i ];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds the resolvent of two clauses to the end of this arena. The
+	 * two literals must have just been unified with
+	 * <code>unifyComplementary</code>, and the resolvent contains every
+	 * other literal of the two clauses with the substitutions made
+	 * by that unification applied.
+	 *
+	 * @param clause1
+	 * @param literal1		the literal of the first clause that was resolved
+	 * @param clause2
+	 * @param literal2		the literal of the second clause that was resolved
+	 * @return				the id of the resolvent
+	 */
+	public int addResolvent( int clause1 , int literal1 , int clause2 , int literal2 ) {
+		int start = arena.size;
+
+		//the clauses end before the resolvent starts, even if one
+		//of them is the last clause in the arena
+		int end1 = clauseEnd( clause1 );
+		int end2 = clauseEnd( clause2 );
+		int size = addSubstitutedLiterals( firstLiteral( clause1 ) , end1 , literal1 ) +
+					addSubstitutedLiterals( firstLiteral( clause2 ) , end2 , literal2 );
+		clauseStarts.add( start );
+		clauseSizes.add( size );
+		return clauseStarts.size()-1;
+	}
+
+	private int addSubstitutedLiterals( int start , int end , int resolvedLiteral ) {
+
+		//like the Resolver, skip the first literal that is
+		//equal to the resolved literal
+		int skipped = indexOf( resolvedLiteral , start , end );
+		int rtn = 0;
+		for ( int lit=start ; lit<end ; lit=nextLiteral( lit ) ) {
+			if ( lit != skipped ) {
+				addSubstituted( lit );
+				++rtn;
+			}
+		}
+		return rtn;
+	}
+
+	/**
+	 * Applies the substitutions of the last unification to a literal,
+	 * one after another, and adds the result to the end of the arena.
+	 *
+	 * @param literal
+	 */
+	private void addSubstituted( int literal ) {
+		IntList src = scratch;
+		src.clear();
+		copy( arena.data , literal , arena.data[ literal + SIGN ] , src );
+		for ( int i=0 ; i<numSubstitutions ; ++i ) {
+			IntList dst = (src == scratch) ? scratch2 : scratch;
+			dst.clear();
+			substitute( src.data , 0 , originals[ i ] , substitutions[ i ] , dst );
+			src = dst;
+		}
+		arena.ensureCapacity( src.size );
+		System.arraycopy( src.data , 0 , arena.data , arena.size , src.size );
+		arena.size += src.size;
+	}
+
+	/**
+	 * Copies a term into a buffer.
+	 *
+	 * @param data
+	 * @param p				where the term starts in data
+	 * @param sign			whether the copy should be negated
+	 * @param dst
+	 */
+	private static void copy( int[] data , int p , int sign , IntList dst ) {
+		int size = data[ p + SIZE ];
+		dst.ensureCapacity( size );
+		System.arraycopy( data , p , dst.data , dst.size , size );
+		dst.data[ dst.size + SIGN ] = sign;
+		dst.size += size;
+	}
+
+	/**
+	 * Copies a term into a buffer, replacing every occurrence of
+	 * one term with another.
+	 *
+	 * @param src
+	 * @param p				where the term starts in src
+	 * @param original		the term to replace
+	 * @param substitution	the term with which to replace it
+	 * @param dst
+	 */
+	private void substitute( int[] src , int p , int original , int substitution , IntList dst ) {
+		if ( equalIgnoringSign( src , p , arena.data , offset( original ) ) ) {
+			int substitutionSign = sign( substitution );
+			int sign = (src[ p + SIGN ] == sign( original )) ? substitutionSign : 1-substitutionSign;
+			copy( arena.data , offset( substitution ) , sign , dst );
+			return;
+		}
+		int q = dst.size;
+		dst.ensureCapacity( HEADER );
+		System.arraycopy( src , p , dst.data , q , HEADER );
+		dst.size += HEADER;
+		int end = p + src[ p + SIZE ];
+		for ( int arg=p+HEADER ; arg<end ; arg+=src[ arg + SIZE ] ) {
+			substitute( src , arg , original , substitution , dst );
+		}
+		dst.data[ q + SIZE ] = dst.size - q;
+	}
+
+	/**
+	 * Factors the clause that was added last by removing every literal
+	 * that unifies with a literal after it.
+	 *
+	 * @see Resolver#factor
+	 */
+	public void factorLastClause() {
+		int clause = clauseStarts.size()-1;
+		int end = clauseEnd( clause );
+		int write = firstLiteral( clause );
+		int size = 0;
+		for ( int lit=firstLiteral( clause ) ; lit<end ; ) {
+			int next = nextLiteral( lit );
+			boolean isDuplicate = false;
+			for ( int other=next ; other<end ; other=nextLiteral( other ) ) {
+				if ( unifyLiterals( lit , other ) ) {
+					isDuplicate = true;
+					break;
+				}
+			}
+
+			//kept literals are moved forward over the removed ones.
+			//literals that are compared later are never overwritten
+			//because they are always after the write position
+			if ( !isDuplicate ) {
+				if ( write != lit ) {
+					System.arraycopy( arena.data , lit , arena.data , write , next - lit );
+				}
+				write += next - lit;
+				++size;
+			}
+			lit = next;
+		}
+		arena.size = write;
+		clauseSizes.data[ clause ] = size;
+	}
+
+	/**
+	 * @param literal
+	 * @return			a hash of the given literal
+	 */
+	public int hash( int literal ) {
+		int[] data = arena.data;
+		int rtn = 1;
+		int end = literal + data[ literal + SIZE ];
+		for ( int i=literal ; i<end ; ++i ) {
+			rtn = 31 * rtn + data[ i ];
+		}
+		return rtn;
+	}
+
+	/**
+	 * @param clause
+	 * @return			a hash of the given clause that does not depend
+	 * 					on the order or duplication of its literals
+	 */
+	public int hashClause( int clause ) {
+		int rtn = 0;
+		int end = clauseEnd( clause );
+		for ( int lit=firstLiteral( clause ) ; lit<end ; lit=nextLiteral( lit ) ) {
+			if ( indexOf( lit , firstLiteral( clause ) , lit ) < 0 ) {
+				rtn += hash( lit );
+			}
+		}
+		return rtn;
+	}
+
+	/**
+	 * @param literal
+	 * @param from
+	 * @param to
+	 * @return			the offset of a literal between the given offsets
+	 * 					that is equal to the given literal, or -1 if
+	 * 					there is none
+	 */
+	private int indexOf( int literal , int from , int to ) {
+		for ( int lit=from ; lit<to ; lit=nextLiteral( lit ) ) {
+			if ( equal( lit << 1 , literal << 1 ) ) {
+				return lit;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param clause1
+	 * @param clause2
+	 * @return			if the two clauses contain the same literals up to
+	 * 					reordering and duplication, just like two equal
+	 * 					Disjunctions
+	 */
+	public boolean sameLiterals( int clause1 , int clause2 ) {
+		return containsAll( clause1 , clause2 ) && containsAll( clause2 , clause1 );
+	}
+
+	private boolean containsAll( int container , int clause ) {
+		int end = clauseEnd( clause );
+		for ( int lit=firstLiteral( clause ) ; lit<end ; lit=nextLiteral( lit ) ) {
+			if ( indexOf( lit , firstLiteral( container ) , clauseEnd( container ) ) < 0 ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param clause1
+	 * @param clause2
+	 * @return			if the two clauses have the same number of literals
+	 * 					and subsume each other, i.e. they are the same up to
+	 * 					renaming their variables
+	 * @see Resolver#isDuplicateClause
+	 */
+	public boolean isVariant( int clause1 , int clause2 ) {
+		return numLiterals( clause1 ) == numLiterals( clause2 ) && subsumes( clause1 , clause2 ) && subsumes( clause2 , clause1 );
+	}
+
+	/**
+	 * @param clause
+	 * @return			a bit signature of the symbols and signs of the
+	 * 					literals in the given clause
+	 * @see SubsumptionIndex#literalSignature
+	 */
+	public long literalSignature( int clause ) {
+		long rtn = 0;
+		int end = clauseEnd( clause );
+		for ( int lit=firstLiteral( clause ) ; lit<end ; lit=nextLiteral( lit ) ) {
+			int id = arena.data[ lit + SYMBOL ];
+			rtn |= 1L << ((negated( lit ) ? ~id : id) & 63);
+		}
+		return rtn;
+	}
+
+	/**
+	 * @param clause
+	 * @return			a bit signature of the symbols other than variables
+	 * 					in the arguments of the given clause
+	 * @see SubsumptionIndex#argumentSignature
+	 */
+	public long argumentSignature( int clause ) {
+		long rtn = 0;
+		int end = clauseEnd( clause );
+		for ( int lit=firstLiteral( clause ) ; lit<end ; lit=nextLiteral( lit ) ) {
+			int litEnd = nextLiteral( lit );
+			for ( int p=lit+HEADER ; p<litEnd ; p+=HEADER ) {
+				int id = arena.data[ p + SYMBOL ];
+				if ( kinds[ id ] != VARIABLE ) {
+					rtn |= 1L << (id & 63);
+				}
+			}
+		}
+		return rtn;
+	}
+
+	/**
+	 * Determines if one clause theta-subsumes another, following
+	 * the same rules as the Resolver.
+	 *
+	 * @param clause1		the more general clause
+	 * @param clause2		the less general clause
+	 * @return				if clause1 subsumes clause2
+	 * @see Resolver#subsumes
+	 */
+	public boolean subsumes( int clause1 , int clause2 ) {
+		numMatches = 0;
+		return subsumes( firstLiteral( clause1 ) , clauseEnd( clause1 ) , clause2 );
+	}
+
+	private boolean subsumes( int pattern , int end , int clause ) {
+		if ( pattern == end ) {
+			return true;
+		}
+		int targetEnd = clauseEnd( clause );
+		for ( int target=firstLiteral( clause ) ; target<targetEnd ; target=nextLiteral( target ) ) {
+			if ( arena.data[ pattern + SIGN ] != arena.data[ target + SIGN ] ) {
+				continue;
+			}
+
+			//try mapping this literal onto the target, and backtrack
+			//if the remaining literals cannot be mapped
+			int mark = numMatches;
+			if ( matchLiteral( pattern , target ) && subsumes( nextLiteral( pattern ) , end , clause ) ) {
+				return true;
+			}
+			numMatches = mark;
+		}
+		return false;
+	}
+
+	private boolean matchLiteral( int pattern , int target ) {
+		int[] data = arena.data;
+		if ( kinds[ data[ pattern + SYMBOL ] ] != FUNCTION ) {
+			return equalIgnoringSign( data , pattern , data , target );
+		}
+		if ( data[ pattern + SYMBOL ] != data[ target + SYMBOL ] || data[ pattern + ARITY ] != data[ target + ARITY ] ) {
+			return false;
+		}
+		int arg1 = pattern + HEADER;
+		int arg2 = target + HEADER;
+		for ( int i=0 ; i<data[ pattern + ARITY ] ; ++i ) {
+			if ( !matchArg( arg1 , arg2 ) ) {
+				return false;
+			}
+			arg1 += data[ arg1 + SIZE ];
+			arg2 += data[ arg2 + SIZE ];
+		}
+		return true;
+	}
+
+	private boolean matchArg( int pattern , int target ) {
+		int id = arena.data[ pattern + SYMBOL ];
+		if ( kinds[ id ] == VARIABLE && !inHypothesis[ id ] ) {
+			for ( int i=0 ; i<numMatches ; ++i ) {
+				if ( matchedVariables[ i ] == id ) {
+					return equal( matchedTerms[ i ] << 1 , target << 1 );
+				}
+			}
+			if ( numMatches == matchedVariables.length ) {
+				matchedVariables = Arrays.copyOf( matchedVariables , 2*numMatches );
+				matchedTerms = Arrays.copyOf( matchedTerms , 2*numMatches );
+			}
+			matchedVariables[ numMatches ] = id;
+			matchedTerms[ numMatches ] = target;
+			++numMatches;
+			return true;
+		}
+		if ( kinds[ id ] == FUNCTION ) {
+			return matchLiteral( pattern , target );
+		}
+		return equal( pattern << 1 , target << 1 );
+	}
+}
@@ -0,0 +1,142 @@
+package mjchao.mazenav.logic;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+import mjchao.mazenav.logic.StatementCNF.Disjunction.Term;
+import mjchao.mazenav.logic.structures.Function;
+import mjchao.mazenav.logic.structures.Symbol;
+
+/**
+ * Indexes a list of clauses by the literals they contain so that
+ * the resolution algorithm only has to try resolving pairs of
+ * clauses that could possibly produce a resolvent.
+ * <p>
+ * Function literals are keyed by the id of their function symbol
+ * and whether or not they are negated. Two function literals can only
+ * be resolved if they have the same function symbol and opposite
+ * polarities. Any other literal (e.g. a variable or skolem function)
+ * may unify with almost anything, so clauses containing such
+ * literals are always reported as candidates.
+ *
+ * @author mjchao
+ *
+ */
+class ClauseIndex {
+
+	/**
+	 * the key of literals that are not indexed by their symbol
+	 */
+	static final int WILDCARD = -1;
+
+	/**
+	 * @param t
+	 * @return		the key under which the given literal is indexed, made
+	 * 				from the id of its function symbol and whether or not
+	 * 				it is negated, or WILDCARD if the literal is not a
+	 * 				function and must be treated as a wildcard
+	 */
+	static int keyOf( Term t ) {
+		if ( !(t.getValue() instanceof Function) ) {
+			return WILDCARD;
+		}
+		int id = t.getValue().getSymbolId();
+		if ( id == Symbol.NOT_INTERNED ) {
+			return WILDCARD;
+		}
+		return 2*id + (t.negated() ? 1 : 0);
+	}
+
+	/**
+	 * @param key
+	 * @return		the key of a literal that could be resolved
+	 * 				with a literal with the given key
+	 */
+	static int complement( int key ) {
+		return key ^ 1;
+	}
+
+	/**
+	 * the ids of the clauses that contain a literal with each key.
+	 * Symbol ids are dense, so the keys index an array
+	 */
+	private BitSet[] index = new BitSet[ 0 ];
+
+	/**
+	 * ids of clauses that contain a non-function literal
+	 */
+	private final BitSet wildcards = new BitSet();
+
+	/**
+	 * ids of all clauses that have been indexed
+	 */
+	private final BitSet all = new BitSet();
+
+	/**
+	 * Adds a clause to this index.
+	 *
+	 * @param id		the id of the clause (e.g. its position in
+	 * 					a list of clauses)
+	 * @param d			the clause to index
+	 */
+	void add( int id , Disjunction d ) {
+		all.set( id );
+		for ( int i=0 ; i<d.size() ; ++i ) {
+			int key = keyOf( d.getTerm( i ) );
+			if ( key == WILDCARD ) {
+				wildcards.set( id );
+			}
+			else {
+				if ( key >= index.length ) {
+					index = Arrays.copyOf( index , Math.max( key+1 , 2*index.length ) );
+				}
+				if ( index[ key ] == null ) {
+					index[ key ] = new BitSet();
+				}
+				index[ key ].set( id );
+			}
+		}
+	}
+
+	/**
+	 * Removes all clauses from this index
+	 */
+	void clear() {
+		for ( BitSet ids : index ) {
+			if ( ids != null ) {
+				ids.clear();
+			}
+		}
+		wildcards.clear();
+		all.clear();
+	}
+
+	/**
+	 * Finds all indexed clauses that may be resolved with the given clause.
+	 * Clauses that are not returned are guaranteed to not resolve with
+	 * the given clause.
+	 *
+	 * @param d		a clause
+	 * @return		the ids of all indexed clauses that have a literal that
+	 * 				is complementary to a literal in the given clause
+	 */
+	BitSet candidatesFor( Disjunction d ) {
+		BitSet rtn = (BitSet) wildcards.clone();
+		for ( int i=0 ; i<d.size() ; ++i ) {
+			int key = keyOf( d.getTerm( i ) );
+
+			//a non-function literal could unify with any
+			//literal in any other clause
+			if ( key == WILDCARD ) {
+				rtn.or( all );
+				return rtn;
+			}
+			int complement = complement( key );
+			if ( complement < index.length && index[ complement ] != null ) {
+				rtn.or( index[ complement ] );
+			}
+		}
+		return rtn;
+	}
+}
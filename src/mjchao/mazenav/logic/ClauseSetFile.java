@@ -0,0 +1,418 @@
+package mjchao.mazenav.logic;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+import mjchao.mazenav.logic.StatementCNF.Disjunction.Term;
+import mjchao.mazenav.logic.structures.BooleanFOL;
+import mjchao.mazenav.logic.structures.Function;
+import mjchao.mazenav.logic.structures.ObjectFOL;
+import mjchao.mazenav.logic.structures.Operator;
+import mjchao.mazenav.logic.structures.SkolemFunction;
+import mjchao.mazenav.logic.structures.Symbol;
+import mjchao.mazenav.logic.structures.SymbolTracker;
+import mjchao.mazenav.logic.structures.Variable;
+
+/**
+ * Saves clauses that have already been converted to CNF in a compact
+ * binary file, so that they can be loaded into a knowledgebase later
+ * without tokenizing and converting the statements again.
+ * <p>
+ * The file starts with a table of every symbol in the clauses. Next
+ * comes every distinct term as a flat array of ints: the index of its
+ * symbol, whether it is negated, its number of arguments and the indices
+ * of its arguments, which always come before it. Each clause is then
+ * stored as the indices of its terms. A term that appears in several
+ * clauses, such as a shared argument, is only stored once.
+ * <p>
+ * When the file is read, it is memory-mapped, and every system-defined
+ * variable, skolem function and definition predicate is replaced with a
+ * new one from the tracker that reads it, so the clauses never clash with
+ * the ones the tracker has already handed out. Functions and constants
+ * that the tracker does not know yet are added to it, so hypotheses can
+ * refer to them.
+ *
+ * @author mjchao
+ *
+ */
+public class ClauseSetFile {
+
+	/**
+	 * "FOLC" in ASCII
+	 */
+	private static final int MAGIC = 0x464F4C43;
+	private static final int VERSION = 1;
+
+	private static final byte FUNCTION = 0;
+	private static final byte DEFINITION = 1;
+	private static final byte SKOLEM_FUNCTION = 2;
+	private static final byte VARIABLE = 3;
+	private static final byte SYSTEM_VARIABLE = 4;
+	private static final byte CONSTANT = 5;
+	private static final byte BOOLEAN = 6;
+	private static final byte OPERATOR = 7;
+
+	/**
+	 * Numbers the symbols and terms of clauses as they are written
+	 *
+	 * @author mjchao
+	 *
+	 */
+	private static class Encoder {
+
+		private final SymbolTracker tracker;
+
+		/**
+		 * symbols are numbered by identity because variables and
+		 * skolem functions carry state that their names do not
+		 */
+		private final IdentityHashMap< Symbol , Integer > symbolIds = new IdentityHashMap< Symbol , Integer >();
+		private final List< Symbol > symbols = new ArrayList< Symbol >();
+
+		private final IdentityHashMap< Term , Integer > termIds = new IdentityHashMap< Term , Integer >();
+		private int[] terms = new int[ 64 ];
+		private int termsLength = 0;
+
+		public Encoder( SymbolTracker tracker ) {
+			this.tracker = tracker;
+		}
+
+		public int addSymbol( Symbol s ) {
+			Integer id = symbolIds.get( s );
+			if ( id != null ) {
+				return id;
+			}
+
+			//a skolem function refers to its variables by index,
+			//so they need to be numbered first
+			if ( s instanceof SkolemFunction ) {
+				for ( Variable v : ((SkolemFunction) s).getArgs() ) {
+					addSymbol( v );
+				}
+			}
+			symbolIds.put( s , symbols.size() );
+			symbols.add( s );
+			return symbols.size()-1;
+		}
+
+		public int addTerm( Term t ) {
+			Integer id = termIds.get( t );
+			if ( id != null ) {
+				return id;
+			}
+			Term[] args = t.getArgs();
+			int[] argIds = new int[ args.length ];
+			for ( int i=0 ; i<args.length ; ++i ) {
+				argIds[ i ] = addTerm( args[ i ] );
+			}
+			add( addSymbol( t.getValue() ) );
+			add( t.negated() ? 1 : 0 );
+			add( args.length );
+			for ( int argId : argIds ) {
+				add( argId );
+			}
+			termIds.put( t , termIds.size() );
+			return termIds.size()-1;
+		}
+
+		private void add( int value ) {
+			if ( termsLength == terms.length ) {
+				int[] newTerms = new int[ 2*terms.length ];
+				System.arraycopy( terms , 0 , newTerms , 0 , termsLength );
+				terms = newTerms;
+			}
+			terms[ termsLength++ ] = value;
+		}
+
+		public void writeSymbols( DataOutputStream out ) throws IOException {
+			out.writeInt( symbols.size() );
+			for ( Symbol s : symbols ) {
+				if ( s instanceof SkolemFunction ) {
+					out.writeByte( SKOLEM_FUNCTION );
+					Variable[] args = ((SkolemFunction) s).getArgs();
+					out.writeInt( args.length );
+					for ( Variable v : args ) {
+						out.writeInt( symbolIds.get( v ) );
+					}
+				}
+				else if ( s instanceof Function ) {
+					boolean definition = s.getSymbolName().startsWith( "#" );
+					out.writeByte( definition ? DEFINITION : FUNCTION );
+					writeString( out , s.getSymbolName() );
+					out.writeInt( ((Function) s).getNumArgs() );
+				}
+				else if ( s instanceof Variable ) {
+					out.writeByte( tracker.isSystemVariable( (Variable) s ) ? SYSTEM_VARIABLE : VARIABLE );
+					writeString( out , s.getSymbolName() );
+					out.writeBoolean( ((Variable) s).universallyQuantified() );
+				}
+				else if ( s instanceof BooleanFOL ) {
+					out.writeByte( BOOLEAN );
+					writeString( out , s.getSymbolName() );
+				}
+				else if ( s instanceof ObjectFOL ) {
+					out.writeByte( CONSTANT );
+					writeString( out , s.getSymbolName() );
+				}
+				else if ( s instanceof Operator ) {
+					out.writeByte( OPERATOR );
+					writeString( out , s.getSymbolName() );
+				}
+				else {
+					throw new IllegalArgumentException( "Cannot save a clause containing the symbol " + s + "." );
+				}
+			}
+		}
+
+		public void writeTerms( DataOutputStream out ) throws IOException {
+			out.writeInt( termIds.size() );
+			out.writeInt( termsLength );
+			for ( int i=0 ; i<termsLength ; ++i ) {
+				out.writeInt( terms[ i ] );
+			}
+		}
+
+		private static void writeString( DataOutputStream out , String s ) throws IOException {
+			byte[] bytes = s.getBytes( StandardCharsets.UTF_8 );
+			out.writeInt( bytes.length );
+			out.write( bytes );
+		}
+	}
+
+	/**
+	 * Saves the clauses of a knowledgebase.
+	 *
+	 * @param filename
+	 * @param kb
+	 * @throws IOException
+	 */
+	public static void write( String filename , KnowledgeBase kb ) throws IOException {
+		write( filename , kb.getTracker() , kb.getClauses() );
+	}
+
+	/**
+	 * Saves the clauses of the given statements.
+	 *
+	 * @param filename
+	 * @param tracker			the tracker used to convert the statements
+	 * @param statements
+	 * @throws IOException
+	 */
+	public static void write( String filename , SymbolTracker tracker , StatementCNF... statements ) throws IOException {
+		List< Disjunction > clauses = new ArrayList< Disjunction >();
+		for ( StatementCNF statement : statements ) {
+			clauses.addAll( statement.getDisjunctions() );
+		}
+		write( filename , tracker , clauses );
+	}
+
+	private static void write( String filename , SymbolTracker tracker , List< Disjunction > clauses ) throws IOException {
+		Encoder encoder = new Encoder( tracker );
+		int[][] clauseTerms = new int[ clauses.size() ][];
+		for ( int i=0 ; i<clauses.size() ; ++i ) {
+			Disjunction d = clauses.get( i );
+			clauseTerms[ i ] = new int[ d.size() ];
+			for ( int j=0 ; j<d.size() ; ++j ) {
+				clauseTerms[ i ][ j ] = encoder.addTerm( d.getTerm( j ) );
+			}
+		}
+
+		DataOutputStream out = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( Paths.get( filename ) ) ) );
+		try {
+			out.writeInt( MAGIC );
+			out.writeInt( VERSION );
+			encoder.writeSymbols( out );
+			encoder.writeTerms( out );
+			out.writeInt( clauseTerms.length );
+			for ( int[] terms : clauseTerms ) {
+				out.writeInt( terms.length );
+				for ( int term : terms ) {
+					out.writeInt( term );
+				}
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Loads the clauses saved in the given file into a knowledgebase.
+	 *
+	 * @param filename
+	 * @param kb				the knowledgebase to tell the clauses to.
+	 * 							Its tracker is given the symbols in the file.
+	 * @return					the number of clauses that were loaded
+	 * @throws IOException
+	 */
+	public static int read( String filename , KnowledgeBase kb ) throws IOException {
+		FileChannel channel = FileChannel.open( Paths.get( filename ) , StandardOpenOption.READ );
+		ByteBuffer in;
+		try {
+			if ( channel.size() > Integer.MAX_VALUE ) {
+				throw new IllegalArgumentException( "Clause set file is too large: " + filename );
+			}
+			in = channel.map( FileChannel.MapMode.READ_ONLY , 0 , channel.size() );
+		}
+		finally {
+			channel.close();
+		}
+
+		try {
+			if ( in.getInt() != MAGIC ) {
+				throw new IllegalArgumentException( "Not a clause set file: " + filename );
+			}
+			int version = in.getInt();
+			if ( version != VERSION ) {
+				throw new IllegalArgumentException( "Unsupported clause set file version " + version + ": " + filename );
+			}
+			Symbol[] symbols = readSymbols( in , kb.getTracker() );
+			Term[] terms = readTerms( in , symbols );
+			int numClauses = in.getInt();
+			List< Disjunction > clauses = new ArrayList< Disjunction >( numClauses );
+			for ( int i=0 ; i<numClauses ; ++i ) {
+				int numTerms = in.getInt();
+				Disjunction d = new Disjunction();
+				for ( int j=0 ; j<numTerms ; ++j ) {
+					d.addTerm( terms[ in.getInt() ] );
+				}
+				clauses.add( d );
+			}
+			kb.tell( new StatementCNF( null , clauses ) );
+			return numClauses;
+		}
+		catch ( RuntimeException e ) {
+			if ( e instanceof IllegalArgumentException ) {
+				throw e;
+			}
+
+			//a truncated file runs out of bytes and a corrupted
+			//one refers to symbols or terms that do not exist
+			throw new IllegalArgumentException( "Corrupted clause set file: " + filename , e );
+		}
+	}
+
+	private static Symbol[] readSymbols( ByteBuffer in , SymbolTracker tracker ) {
+		Symbol[] rtn = new Symbol[ in.getInt() ];
+		for ( int i=0 ; i<rtn.length ; ++i ) {
+			byte kind = in.get();
+			if ( kind == SKOLEM_FUNCTION ) {
+				Variable[] args = new Variable[ in.getInt() ];
+				for ( int j=0 ; j<args.length ; ++j ) {
+					args[ j ] = (Variable) rtn[ in.getInt() ];
+				}
+				rtn[ i ] = tracker.getNewSkolemFunction( args );
+				continue;
+			}
+
+			String name = readString( in );
+			if ( kind == FUNCTION ) {
+				if ( tracker.parseFunction( name ) == null ) {
+					tracker.addFunctions( name );
+				}
+				rtn[ i ] = tracker.parseFunction( name ).withNumArgs( in.getInt() );
+			}
+			else if ( kind == DEFINITION ) {
+				rtn[ i ] = tracker.getNewDefinition( in.getInt() );
+			}
+			else if ( kind == VARIABLE ) {
+				rtn[ i ] = readVariable( name , in.get() != 0 , tracker );
+			}
+			else if ( kind == SYSTEM_VARIABLE ) {
+				Variable v = tracker.getNewSystemVariable();
+				v.setUniversallyQuantified( in.get() != 0 );
+				rtn[ i ] = v;
+			}
+			else if ( kind == CONSTANT ) {
+				ObjectFOL constant = tracker.parseConstant( name );
+				if ( constant == null ) {
+					constant = tracker.getPredefinedConstant( name );
+				}
+				if ( constant == null ) {
+					tracker.addConstants( name );
+					constant = tracker.parseConstant( name );
+				}
+				rtn[ i ] = constant;
+			}
+			else if ( kind == BOOLEAN ) {
+				rtn[ i ] = BooleanFOL.fromBoolean( name.equals( BooleanFOL.True().getSymbolName() ) );
+			}
+			else if ( kind == OPERATOR ) {
+				rtn[ i ] = Operator.parseOperator( name );
+			}
+			else {
+				throw new IllegalArgumentException( "Unknown kind of symbol in clause set file: " + kind );
+			}
+		}
+		return rtn;
+	}
+
+	/**
+	 * Gets the user-defined variable with the given name. User-defined
+	 * variables are shared with the statements the tracker already knows
+	 * about, so a variable the tracker already has is not changed.
+	 * 
+	 * @param name
+	 * @param universallyQuantified		if the variable is universally quantified in the file
+	 * @param tracker
+	 * @return							the user-defined variable with the given name
+	 * @throws IllegalArgumentException	if the tracker already has the variable, but
+	 * 									disagrees about whether it is universally quantified
+	 */
+	private static Variable readVariable( String name , boolean universallyQuantified , SymbolTracker tracker ) {
+		Variable rtn = tracker.getVariableByName( name );
+		if ( rtn == null ) {
+			rtn = tracker.getOrCreateVariable( name );
+			rtn.setUniversallyQuantified( universallyQuantified );
+		}
+		else if ( rtn.universallyQuantified() != universallyQuantified ) {
+			throw new IllegalArgumentException( "The variable " + name + " is " + (universallyQuantified ? "" : "not ") +
+												"universally quantified in the clause set file, but is " +
+												(universallyQuantified ? "not " : "") + "in the tracker." );
+		}
+		return rtn;
+	}
+
+	private static Term[] readTerms( ByteBuffer in , Symbol[] symbols ) {
+		Term[] rtn = new Term[ in.getInt() ];
+		int[] flat = new int[ in.getInt() ];
+		in.asIntBuffer().get( flat );
+		in.position( in.position() + 4*flat.length );
+		int idx = 0;
+		for ( int i=0 ; i<rtn.length ; ++i ) {
+			Symbol value = symbols[ flat[ idx++ ] ];
+			boolean negated = flat[ idx++ ] != 0;
+			Term[] args = new Term[ flat[ idx++ ] ];
+			for ( int j=0 ; j<args.length ; ++j ) {
+				args[ j ] = rtn[ flat[ idx++ ] ];
+			}
+			if ( value instanceof Function ) {
+				rtn[ i ] = new Term( (Function) value , negated , args );
+			}
+			else if ( value instanceof SkolemFunction ) {
+				rtn[ i ] = new Term( (SkolemFunction) value , negated , args );
+			}
+			else {
+				rtn[ i ] = new Term( value , negated );
+			}
+		}
+		return rtn;
+	}
+
+	private static String readString( ByteBuffer in ) {
+		byte[] bytes = new byte[ in.getInt() ];
+		in.get( bytes );
+		return new String( bytes , StandardCharsets.UTF_8 );
+	}
+}
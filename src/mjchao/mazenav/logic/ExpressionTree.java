@@ -1,7 +1,10 @@
 package mjchao.mazenav.logic;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
@@ -331,13 +334,26 @@ class ExpressionTree {
 	private List< Symbol > postfixExpression;
 	ExpressionNode root = null;
 	private boolean inCNF = false;
+	private boolean useDefinitions = false;
 	
 	/**
 	 * 
 	 * @param infixExpression
 	 */
 	public ExpressionTree( List< Symbol > infixExpression ) {
+		this( infixExpression , false );
+	}
+	
+	/**
+	 * @param infixExpression
+	 * @param useDefinitions		if the conversion to CNF should introduce
+	 * 								new predicates for conjunctions nested in
+	 * 								disjunctions instead of distributing over them
+	 * @see #convertToCNF(SymbolTracker)
+	 */
+	public ExpressionTree( List< Symbol > infixExpression , boolean useDefinitions ) {
 		this.postfixExpression = convertToPostfix( infixExpression );
+		this.useDefinitions = useDefinitions;
 		buildTree();
 	}
 	
@@ -444,9 +460,11 @@ class ExpressionTree {
 		
 		//reset all variables to being not universally quantified.
 		//we'll re-update whether each variable is universally quantified
-		//as we drop quantifiers
-		for ( int i=0 ; i<tracker.getNumSystemVariables() ; ++i ) {
-			Variable sysVar = tracker.getSystemVariableById( i );
+		//as we drop quantifiers. other threads and earlier statements
+		//may be using the variables they created, so we only reset the
+		//ones this thread created for this statement. free variables
+		//shared with earlier statements are never universally quantified
+		for ( Variable sysVar : tracker.getThreadSystemVariables() ) {
 			sysVar.setUniversallyQuantified( false );
 		}
 		
@@ -475,6 +493,26 @@ class ExpressionTree {
 		}
 	}
 	
+	private void defineBiconditionalOperands( SymbolTracker tracker ) {
+		if ( this.root != null ) {
+			andWithDefinitions( this.root.defineBiconditionalOperands( tracker ) );
+		}
+	}
+	
+	private void defineDisjunctionOperands( SymbolTracker tracker ) {
+		if ( this.root != null ) {
+			andWithDefinitions( this.root.defineDisjunctionOperands( tracker ) );
+		}
+	}
+	
+	private void andWithDefinitions( List< ExpressionNode > definitions ) {
+		for ( ExpressionNode definition : definitions ) {
+			ExpressionNode newRoot = new ExpressionNode( Operator.AND );
+			newRoot.addChildren( this.root , definition );
+			this.root = newRoot;
+		}
+	}
+	
 	private void distributeOrOverAnd() {
 		if ( this.root != null ) {
 			this.root.distributeOrOverAnd();
@@ -495,15 +533,39 @@ class ExpressionTree {
 	 *  <li> drop universal quantifiers
 	 *  <li> distribute ORs inward over ANDs
 	 * </ol>
+	 * Eliminating nested biconditionals and distributing ORs over ANDs
+	 * can both make the expression exponentially longer. If this tree was
+	 * created to use definitions, such subexpressions are replaced with new
+	 * predicates before they are copied:
+	 * <ul>
+	 * 	<li> before arrows are eliminated, an operand G of a biconditional
+	 * 		 that contains another biconditional is replaced with a new
+	 * 		 predicate D, and FORALL(...) D &lt;=&gt; G is ANDed to the expression
+	 * 	<li> before ORs are distributed, the operands G of an OR are replaced
+	 * 		 with new predicates D if distributing would create more clauses
+	 * 		 than defining them, and !D OR G is ANDed to the expression
+	 * </ul>
+	 * The number of clauses then only grows linearly. The result is not
+	 * equivalent to the original expression, but it is satisfiable exactly
+	 * when the original is, so it can still be used for proofs by
+	 * contradiction.
+	 * 
 	 * @param tracker
 	 */
 	public void convertToCNF( SymbolTracker tracker ) {
 		if ( !inCNF ) {
+			tracker.clearThreadSystemVariables();
 			buildTree();
+			if ( useDefinitions ) {
+				defineBiconditionalOperands( tracker );
+			}
 			eliminateArrowsAndDistributeNots();	
 			standardize( tracker );
 			skolemize( tracker );
 			dropQuantifiers( tracker );
+			if ( useDefinitions ) {
+				defineDisjunctionOperands( tracker );
+			}
 			distributeOrOverAnd();
 			inCNF = true;
 		}
@@ -539,6 +601,7 @@ class ExpressionTree {
 		ExpressionNode newRoot = new ExpressionNode( Operator.AND );
 		newRoot.addChildren( this.root.deepCopy() , other.root.deepCopy() );
 		rtn.root = newRoot;
+		rtn.useDefinitions = this.useDefinitions;
 		return rtn;
 	}
 	
@@ -574,6 +637,7 @@ class ExpressionTree {
 		ExpressionTree rtn = new ExpressionTree();
 		rtn.root = this.root.deepCopy();
 		rtn.inCNF = this.inCNF;
+		rtn.useDefinitions = this.useDefinitions;
 		rtn.postfixExpression = new ArrayList< Symbol >( this.postfixExpression );
 		return rtn;
 	}
@@ -619,6 +683,22 @@ class ExpressionTree {
 		 * node.
 		 */
 		public void negate() {
+			Stack< ExpressionNode > toNegate = new Stack< ExpressionNode >();
+			toNegate.push( this );
+			while ( !toNegate.empty() ) {
+				toNegate.pop().negateValue( toNegate );
+			}
+		}
+		
+		/**
+		 * Negates the value stored by this node. Any children that
+		 * also have to be negated are pushed onto the given stack
+		 * instead of being negated right away so that negating deep
+		 * expressions does not overflow the call stack.
+		 * 
+		 * @param toNegate		nodes that still need to be negated
+		 */
+		private void negateValue( Stack< ExpressionNode > toNegate ) {
 			if ( this.value instanceof Operator ) {
 				if ( this.value.equals( Operator.NOT ) ) {
 					this.negated = !this.negated;
@@ -635,10 +715,8 @@ class ExpressionTree {
 					//note: a prior call to buildTree() should 
 					//guarantee that there are 2 operands to the 
 					//AND operator
-					ExpressionNode P = this.children.get( 0 );
-					P.negate();
-					ExpressionNode Q = this.children.get( 1 );
-					Q.negate();
+					toNegate.push( this.children.get( 1 ) );
+					toNegate.push( this.children.get( 0 ) );
 					this.value = Operator.OR;
 				}
 				else if ( this.value.equals( Operator.OR ) ) {
@@ -647,19 +725,21 @@ class ExpressionTree {
 					//note: a prior call to buildTree() should
 					//guarantee that there are 2 operands to the
 					//OR operator
-					ExpressionNode P = this.children.get( 0 );
-					P.negate();
-					ExpressionNode Q = this.children.get( 1 );
-					Q.negate();
+					toNegate.push( this.children.get( 1 ) );
+					toNegate.push( this.children.get( 0 ) );
 					this.value = Operator.AND;
 				}
 				else if ( this.value.equals( Operator.IMPLICATION ) ) {
+					
+					//this node becomes an OR, which we negate again
 					this.eliminateArrows();
-					this.negate();
+					toNegate.push( this );
 				}
 				else if ( this.value.equals( Operator.BICONDITIONAL ) ) {
+					
+					//this node becomes an AND, which we negate again
 					this.eliminateArrows();
-					this.negate();
+					toNegate.push( this );
 				}
 			}
 			else if ( this.value instanceof QuantifierList ) {
@@ -672,8 +752,7 @@ class ExpressionTree {
 					//again, a prior call to buildeTree() guarantees
 					//that there is 1 expression over which to the quantifier list
 					//quantifies
-					ExpressionNode quantifierExpr = this.children.get( 0 );
-					quantifierExpr.negate();
+					toNegate.push( this.children.get( 0 ) );
 					this.value = new QuantifierList( Quantifier.EXISTS , quantifierList.getVariables() );
 				}
 				
@@ -682,8 +761,7 @@ class ExpressionTree {
 				//FORALL(x1, x2, ...) !P
 				else if ( quantifierList.getQuantifier().equals( Quantifier.EXISTS ) ) {
 					
-					ExpressionNode quantifierExpr = this.children.get( 0 );
-					quantifierExpr.negate();
+					toNegate.push( this.children.get( 0 ) );
 					this.value = new QuantifierList( Quantifier.FORALL , quantifierList.getVariables() );
 				}
 				
@@ -696,12 +774,51 @@ class ExpressionTree {
 			}
 		}
 		
+		/**
+		 * Lists this node and all its descendants so that every node
+		 * comes after all of its descendants. Children are listed from
+		 * first to last.
+		 * 
+		 * @return		the nodes of the expression stemming from this node
+		 * 				in postfix order
+		 */
+		private ArrayList< ExpressionNode > postorder() {
+			ArrayList< ExpressionNode > rtn = new ArrayList< ExpressionNode >();
+			Stack< ExpressionNode > toVisit = new Stack< ExpressionNode >();
+			toVisit.push( this );
+			while ( !toVisit.empty() ) {
+				ExpressionNode curr = toVisit.pop();
+				rtn.add( curr );
+				for ( ExpressionNode child : curr.children ) {
+					toVisit.push( child );
+				}
+			}
+			
+			//we visited each node before its children with the last
+			//child first, so reversing gives us the postfix order
+			Collections.reverse( rtn );
+			return rtn;
+		}
+		
 		/**
 		 * Removes implications and biconditionals
 		 * from this node.
 		 */
 		public void eliminateArrows() {
 			
+			//arrows are removed from the bottom up so that
+			//the operands we negate never contain arrows themselves
+			for ( ExpressionNode node : postorder() ) {
+				node.eliminateArrow();
+			}
+		}
+		
+		/**
+		 * Removes an implication or biconditional stored by this
+		 * node. The operands must not contain any arrows.
+		 */
+		private void eliminateArrow() {
+			
 			//replace P => Q with !P OR Q
 			if ( this.value.equals( Operator.IMPLICATION ) ) {
 				ExpressionNode P = this.children.get( 0 );
@@ -729,9 +846,6 @@ class ExpressionTree {
 				this.children.clear();
 				this.addChildren( child1 , child2 );
 			}
-			for ( ExpressionNode child : this.children ) {
-				child.eliminateArrows();
-			}
 		}
 		
 		/**
@@ -741,48 +855,58 @@ class ExpressionTree {
 		 * ExpressionNode objects.
 		 */
 		public void distributeNots() {
-
-			//remove this NOT operator when
-			//distributing
-			if ( this.value.equals( Operator.NOT ) ) {
-				
-				//there should only be one child - if there
-				//are two children, the method buildTree()
-				//should have caught this problem and raised
-				//an exception earlier
-				ExpressionNode child = this.children.get( 0 );
+			Stack< ExpressionNode > toVisit = new Stack< ExpressionNode >();
+			toVisit.push( this );
+			while ( !toVisit.empty() ) {
+				ExpressionNode curr = toVisit.pop();
 				
-				//remove this NOT operator
-				//overwrite the root if a NOT operator was originally
-				//the root
-				if ( this.parent == null ) {
-					ExpressionTree.this.root = child;
-					child.parent = null;
-				}
-				else {
-					
-					//remove this child from its parent 
-					for ( int i=0 ; i<parent.getChildren().size() ; ++i ) {
-						if ( parent.getChildren().get( i ) == this ) {
-							parent.getChildren().set( i , child );
-							child.setParent( parent );
-						}
-					}
+				//remove NOT operators when distributing
+				while ( curr.value.equals( Operator.NOT ) ) {
+					curr = curr.removeNot();
 				}
-				
-				//negate the child if necessary
-				if ( !this.negated ) {
-					child.negate();
+				for ( int i=curr.children.size()-1 ; i>=0 ; --i ) {
+					toVisit.push( curr.children.get( i ) );
 				}
-
-				child.distributeNots();
+			}
+		}
+		
+		/**
+		 * Replaces this NOT operator with its child and negates
+		 * the child if necessary.
+		 * 
+		 * @return		the child that took the place of this node
+		 */
+		private ExpressionNode removeNot() {
+			
+			//there should only be one child - if there
+			//are two children, the method buildTree()
+			//should have caught this problem and raised
+			//an exception earlier
+			ExpressionNode child = this.children.get( 0 );
+			
+			//remove this NOT operator
+			//overwrite the root if a NOT operator was originally
+			//the root
+			if ( this.parent == null ) {
+				ExpressionTree.this.root = child;
+				child.parent = null;
 			}
 			else {
 				
-				for ( ExpressionNode child : children ) {
-					child.distributeNots();
+				//remove this child from its parent 
+				for ( int i=0 ; i<parent.getChildren().size() ; ++i ) {
+					if ( parent.getChildren().get( i ) == this ) {
+						parent.getChildren().set( i , child );
+						child.setParent( parent );
+					}
 				}
 			}
+			
+			//negate the child if necessary
+			if ( !this.negated ) {
+				child.negate();
+			}
+			return child;
 		}
 		
 		/**
@@ -793,6 +917,56 @@ class ExpressionTree {
 		 * @param tracker				tracker used for getting additional system variables
 		 */
 		public void standardize( HashMap< Variable , Variable > userSystemMapping , SymbolTracker tracker ) {
+			
+			//the nodes we are inside of and the index of the next
+			//child to visit for each of them. system variables are handed
+			//out in the same order as a recursive depth-first traversal
+			Stack< ExpressionNode > path = new Stack< ExpressionNode >();
+			Stack< Integer > nextChild = new Stack< Integer >();
+			
+			//the mappings to restore when each quantifier goes out of scope
+			Stack< ArrayList< Variable > > oldVariables = new Stack< ArrayList< Variable > >();
+			Stack< ArrayList< Variable > > oldMappings = new Stack< ArrayList< Variable > >();
+			
+			this.standardizeValue( userSystemMapping , tracker , oldVariables , oldMappings );
+			path.push( this );
+			nextChild.push( 0 );
+			while ( !path.empty() ) {
+				ExpressionNode curr = path.peek();
+				int childIdx = nextChild.pop();
+				if ( childIdx < curr.children.size() ) {
+					nextChild.push( childIdx + 1 );
+					ExpressionNode child = curr.children.get( childIdx );
+					child.standardizeValue( userSystemMapping , tracker , oldVariables , oldMappings );
+					path.push( child );
+					nextChild.push( 0 );
+				}
+				else {
+					path.pop();
+					if ( curr.value instanceof QuantifierList ) {
+						
+						//restore previous mappings when this quantifier
+						//goes out of scope
+						ArrayList< Variable > variables = oldVariables.pop();
+						ArrayList< Variable > mappings = oldMappings.pop();
+						for ( int i=0 ; i<variables.size() ; ++i ) {
+							userSystemMapping.put( variables.get( i ) , mappings.get( i ) );
+						}
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Standardizes the value stored by this node, but not its children.
+		 * 
+		 * @param userSystemMapping		stores which user-variables refer to which system variables
+		 * @param tracker				tracker used for getting additional system variables
+		 * @param oldVariables			where to save the variables whose mappings a quantifier overrides
+		 * @param oldMappings			where to save the mappings a quantifier overrides
+		 */
+		private void standardizeValue( HashMap< Variable , Variable > userSystemMapping , SymbolTracker tracker ,
+				Stack< ArrayList< Variable > > oldVariables , Stack< ArrayList< Variable > > oldMappings ) {
 			if ( this.getValue() instanceof Variable && !tracker.isSystemVariable( (Variable) this.getValue() ) ) {
 				if ( userSystemMapping.get( this.getValue() ) == null ) {
 					
@@ -805,18 +979,12 @@ class ExpressionTree {
 					userSystemMapping.put( (Variable)this.getValue() , newMapping );
 				}
 				this.value = userSystemMapping.get( this.getValue() );
-				
-				//continue standardizing after we've
-				//successfully standardized this variable
-				for ( ExpressionNode child : this.getChildren() ) {
-					child.standardize( userSystemMapping , tracker );
-				}
 			}
 			else if ( this.getValue() instanceof QuantifierList ) {
 				this.value = ((QuantifierList) this.value).clone();
 				
-				ArrayList< Variable > oldVariables = new ArrayList< Variable >();
-				ArrayList< Variable > oldMappings = new ArrayList< Variable >();
+				ArrayList< Variable > variables = new ArrayList< Variable >();
+				ArrayList< Variable > mappings = new ArrayList< Variable >();
 				
 				for ( Variable v : ((QuantifierList) this.getValue()).getVariables() ) {
 					
@@ -824,31 +992,14 @@ class ExpressionTree {
 					//we override the old mappings
 					//but cache the old mappings because they need
 					//to be restored when this quantifier goes out of scope
-					oldVariables.add( v );
-					oldMappings.add( userSystemMapping.get( v ) );
+					variables.add( v );
+					mappings.add( userSystemMapping.get( v ) );
 
 					userSystemMapping.put( v , tracker.getNewSystemVariable() );
 					((QuantifierList) this.getValue()).standardizeVariable( v , userSystemMapping.get( v ) );
 				}
-				
-				//continue standardizing with the new
-				//user variable to system variable mapping
-				for ( ExpressionNode child : this.getChildren() ) {
-					child.standardize( userSystemMapping , tracker );
-				}
-				
-				//restore previous mappings when this quantifier
-				//goes out of scope
-				for ( int i=0 ; i<oldVariables.size() ; ++i ) {
-					userSystemMapping.put( oldVariables.get( i ) , oldMappings.get( i ) );
-				}
-			}
-			else {
-				
-				//continue standardizing
-				for ( ExpressionNode child : this.getChildren() ) {
-					child.standardize( userSystemMapping , tracker );
-				}
+				oldVariables.push( variables );
+				oldMappings.push( mappings );
 			}
 		}
 		
@@ -859,11 +1010,16 @@ class ExpressionTree {
 		 * @param func		the skolem function to be substituted for the variable
 		 */
 		public void replaceWithSkolemFunction( Variable var , SkolemFunction func ) {
-			if ( this.getValue().equals( var ) ) {
-				this.value = func;
-			}
-			for ( ExpressionNode child : this.getChildren() ) {
-				child.replaceWithSkolemFunction( var , func );
+			Stack< ExpressionNode > toVisit = new Stack< ExpressionNode >();
+			toVisit.push( this );
+			while ( !toVisit.empty() ) {
+				ExpressionNode curr = toVisit.pop();
+				if ( curr.getValue().equals( var ) ) {
+					curr.value = func;
+				}
+				for ( ExpressionNode child : curr.getChildren() ) {
+					toVisit.push( child );
+				}
 			}
 		}
 		
@@ -875,6 +1031,67 @@ class ExpressionTree {
 		 * @param tracker				tracker used for getting additional skolem functions
 		 */
 		public void skolemize( ArrayList< Variable > universalVariables , SymbolTracker tracker ) {
+			
+			//the nodes we are inside of and the index of the next child
+			//to visit for each of them. skolem functions are handed out
+			//in the same order as a recursive depth-first traversal
+			Stack< ExpressionNode > path = new Stack< ExpressionNode >();
+			Stack< Integer > nextChild = new Stack< Integer >();
+			
+			//how many variables each universal quantifier we are inside of
+			//added to the list of universal variables
+			Stack< Integer > variablesAdded = new Stack< Integer >();
+			
+			this.skolemizeValue( universalVariables , tracker , variablesAdded );
+			path.push( this );
+			nextChild.push( 0 );
+			while ( !path.empty() ) {
+				ExpressionNode curr = path.peek();
+				int childIdx = nextChild.pop();
+				if ( childIdx < curr.children.size() ) {
+					nextChild.push( childIdx + 1 );
+					ExpressionNode child = curr.children.get( childIdx );
+					child.skolemizeValue( universalVariables , tracker , variablesAdded );
+					path.push( child );
+					nextChild.push( 0 );
+				}
+				else {
+					path.pop();
+					if ( curr.isUniversalQuantifier() ) {
+						
+						//once we go out of scope of this universal quantifier,
+						//we need to remove the variables it quantifies
+						//note: universalVariables is invariant
+						//before and after visiting a child so 
+						//we can just remove from the end of the list
+						int numAdded = variablesAdded.pop();
+						for ( int i=0 ; i<numAdded ; ++i ) {
+							universalVariables.remove( universalVariables.size()-1 );
+						}
+					}
+				}
+			}
+		}
+		
+		/**
+		 * @return		if this node stores a universal quantifier
+		 */
+		private boolean isUniversalQuantifier() {
+			return this.getValue() instanceof QuantifierList &&
+					((QuantifierList) this.getValue()).getQuantifier().equals( Quantifier.FORALL );
+		}
+		
+		/**
+		 * Skolemizes the quantifier stored by this node, if there is one.
+		 * 
+		 * @param universalVariables	a list of universal variables that will affect
+		 * 								existential quantifiers
+		 * @param tracker				tracker used for getting additional skolem functions
+		 * @param variablesAdded		where to save how many universal variables this
+		 * 								node added
+		 */
+		private void skolemizeValue( ArrayList< Variable > universalVariables , SymbolTracker tracker ,
+				Stack< Integer > variablesAdded ) {
 			if ( this.getValue() instanceof QuantifierList ) {
 				QuantifierList quantifier = (QuantifierList) this.getValue();
 				if ( quantifier.getQuantifier().equals( Quantifier.EXISTS ) ) {
@@ -887,40 +1104,48 @@ class ExpressionTree {
 				}
 				else if ( quantifier.getQuantifier().equals( Quantifier.FORALL ) ) {
 					
-					int variablesAdded = 0;
+					int numAdded = 0;
 					for ( Variable v :quantifier.getVariables() ) {
 						if ( !universalVariables.contains( v ) ) {
 							universalVariables.add( v );
-							++variablesAdded;
+							++numAdded;
 						}
 					}
-					
-					for ( ExpressionNode child : this.getChildren() ) {
-						child.skolemize( universalVariables , tracker );
-					}
-					
-					//once we go out of scope of this universal quantifier,
-					//we need to remove the variables it quantifies
-					//note: universalVariables is invariant
-					//before and after a deeper call to skolemize so 
-					//we can just remove from the end of the list
-					for ( int i=0 ; i<variablesAdded ; ++i ) {
-						universalVariables.remove( universalVariables.size()-1 );
-					}
-					return;
+					variablesAdded.push( numAdded );
 				}
 			}
-			
-			//propagate skolemization down the tree
-			for ( ExpressionNode child : this.getChildren() ) {
-				child.skolemize( universalVariables , tracker );
-			}
 		}
 		
 		/**
 		 * Removes all quantifiers that are descendants of this node
 		 */
 		public void dropQuantifiers() {
+			Stack< ExpressionNode > toVisit = new Stack< ExpressionNode >();
+			toVisit.push( this );
+			while ( !toVisit.empty() ) {
+				ExpressionNode curr = toVisit.pop();
+				
+				//if we dropped some children that were quantifiers, 
+				//we need to repeat the process for this node again because
+				//the children of those children could be quantifiers
+				boolean droppedChildren = curr.dropChildQuantifiers();
+				while ( droppedChildren ) {
+					droppedChildren = curr.dropChildQuantifiers();
+				}
+				
+				for ( int i=curr.children.size()-1 ; i>=0 ; --i ) {
+					toVisit.push( curr.children.get( i ) );
+				}
+			}
+		}
+		
+		/**
+		 * Replaces the children of this node that are quantifiers with
+		 * the expressions they quantify.
+		 * 
+		 * @return		if any children were replaced
+		 */
+		private boolean dropChildQuantifiers() {
 			boolean droppedChildren = false;
 			for ( int childIdx = 0 ; childIdx < this.children.size() ; ++childIdx ) {
 				if ( children.get( childIdx ).getValue() instanceof QuantifierList ) {
@@ -945,111 +1170,342 @@ class ExpressionTree {
 					}
 				}
 			}
-			
-			//if we dropped some children that were quantifiers, 
-			//we need to repeat the process for this node again because
-			//the children of those children could be quantifiers
-			if ( droppedChildren ) {
-				this.dropQuantifiers();
+			return droppedChildren;
+		}
+		
+		/**
+		 * @return		if this node is a logical operator or quantifier,
+		 * 				rather than a term or a relation between terms
+		 */
+		private boolean isConnective() {
+			return this.value instanceof QuantifierList || this.value.equals( Operator.AND ) ||
+					this.value.equals( Operator.OR ) || this.value.equals( Operator.NOT ) ||
+					this.value.equals( Operator.IMPLICATION ) || this.value.equals( Operator.BICONDITIONAL );
+		}
+		
+		/**
+		 * @return		if this node is anything other than a possibly
+		 * 				negated relation or proposition
+		 */
+		private boolean isCompound() {
+			ExpressionNode curr = this;
+			while ( curr.value.equals( Operator.NOT ) ) {
+				curr = curr.children.get( 0 );
 			}
-			else {
-				for ( ExpressionNode child : this.children ) {
-					child.dropQuantifiers();
+			return curr.isConnective();
+		}
+		
+		/**
+		 * Replaces the operands of biconditionals in the expression stemming
+		 * from this node with new predicates if they contain other biconditionals.
+		 * Otherwise, eliminating the arrows would copy the nested biconditionals
+		 * over and over. This must be done before arrows are eliminated.
+		 * 
+		 * @param tracker		tracker used for getting new predicates
+		 * @return				the definitions of the new predicates, each of
+		 * 						the form FORALL(...) D &lt;=&gt; G, which still
+		 * 						need to be ANDed with this expression
+		 */
+		public ArrayList< ExpressionNode > defineBiconditionalOperands( SymbolTracker tracker ) {
+			ArrayList< ExpressionNode > definitions = new ArrayList< ExpressionNode >();
+			
+			//the nodes whose expressions contain a biconditional. operands
+			//are handled before the biconditionals containing them, so each
+			//biconditional only gets copied once
+			HashSet< ExpressionNode > containsBiconditional = new HashSet< ExpressionNode >();
+			for ( ExpressionNode node : postorder() ) {
+				if ( node.value.equals( Operator.BICONDITIONAL ) ) {
+					for ( int i=0 ; i<node.children.size() ; ++i ) {
+						ExpressionNode operand = node.children.get( i );
+						if ( containsBiconditional.contains( operand ) && operand.isCompound() ) {
+							ArrayList< Variable > variables = operand.freeVariables();
+							Function predicate = tracker.getNewDefinition( variables.size() );
+							node.replaceChild( i , newPredicate( predicate , variables ) );
+							
+							//D has to be equivalent to G because G appears both
+							//negated and not negated once the arrows are eliminated
+							ExpressionNode definition = new ExpressionNode( Operator.BICONDITIONAL );
+							definition.addChildren( newPredicate( predicate , variables ) , operand );
+							if ( variables.size() > 0 ) {
+								ExpressionNode quantifier = new ExpressionNode( new QuantifierList( Quantifier.FORALL , variables ) );
+								quantifier.addChildren( definition );
+								definition = quantifier;
+							}
+							definitions.add( definition );
+						}
+					}
+					containsBiconditional.add( node );
+				}
+				else {
+					for ( ExpressionNode child : node.children ) {
+						if ( containsBiconditional.contains( child ) ) {
+							containsBiconditional.add( node );
+							break;
+						}
+					}
 				}
 			}
+			return definitions;
 		}
 		
-		public void distributeOrOverAnd() {
-			if ( this.value.equals( Operator.OR ) ) {
-				
-				//this node should have two children -
-				//if this node does not have two children,
-				//the buildTree() function should have
-				//thrown an exception earlier
-				ExpressionNode operand1 = this.children.get( 0 );
-				ExpressionNode operand2 = this.children.get( 1 );
-				if ( operand1.getValue().equals( Operator.AND ) ) {
-					ExpressionNode P = operand1.getChildren().get( 0 );
-					ExpressionNode Q = operand1.getChildren().get( 1 );
-					ExpressionNode R = operand2;
-					
-					//rewrite (P AND Q) OR R as (P OR R) AND (Q OR R)
-					this.value = Operator.AND;
-					this.children.clear();
-					
-					//construct the expression (P OR R)
-					operand1.value = Operator.OR;
-					operand1.children.clear();
-					operand1.addChildren( P , R );
-					
-					//construct the expression (Q OR R)
-					//note the R must be deep copied because
-					//we already put a refernece to it in the
-					//other operand
-					operand2 = new ExpressionNode( Operator.OR );
-					operand2.addChildren( Q , R.deepCopy() );
-					
-					//add in the operands to this AND operator
-					//so that we have (P OR R) AND (Q OR R)
-					this.addChildren( operand1 , operand2 );
+		/**
+		 * Replaces the operands of ORs in the expression stemming from this
+		 * node with new predicates wherever distributing the OR over ANDs
+		 * would create more clauses than defining the operands. NOTs must
+		 * already have been distributed inward and quantifiers must have
+		 * been dropped.
+		 * 
+		 * @param tracker		tracker used for getting new predicates
+		 * @return				the definitions of the new predicates, each of
+		 * 						the form !D OR G, which still need to be ANDed
+		 * 						with this expression
+		 */
+		public ArrayList< ExpressionNode > defineDisjunctionOperands( SymbolTracker tracker ) {
+			ArrayList< ExpressionNode > definitions = new ArrayList< ExpressionNode >();
+			
+			//the number of clauses each node's expression would be
+			//distributed into. operands are handled before the ORs
+			//containing them, so their counts are already final
+			HashMap< ExpressionNode , Integer > numClauses = new HashMap< ExpressionNode , Integer >();
+			for ( ExpressionNode node : postorder() ) {
+				if ( node.value.equals( Operator.AND ) ) {
+					long count = (long) numClauses.get( node.children.get( 0 ) ) + numClauses.get( node.children.get( 1 ) );
+					numClauses.put( node , (int) Math.min( count , Integer.MAX_VALUE ) );
 				}
-				else if ( operand2.getValue().equals( Operator.AND ) ) {
-					ExpressionNode P = operand1;
-					ExpressionNode Q = operand2.getChildren().get( 0 );
-					ExpressionNode R = operand2.getChildren().get( 1 );
-					
-					//rewrite P OR (Q AND R) as (P OR Q) AND (P OR R)
-					this.value = Operator.AND;
-					this.children.clear();
-					
-					//construct the expression (P OR Q)
-					operand1 = new ExpressionNode( Operator.OR );
-					operand1.addChildren( P , Q );
-					
-					//construct the expression (P OR R)
-					operand2.value = Operator.OR;
-					operand2.children.clear();
-					operand2.addChildren( P.deepCopy() , R );
-					
-					//add in the operands to this AND operator
-					//so that we have (P OR Q) AND (P OR R)
-					this.addChildren( operand1 , operand2 );	
+				else if ( node.value.equals( Operator.OR ) ) {
+					long count0 = numClauses.get( node.children.get( 0 ) );
+					long count1 = numClauses.get( node.children.get( 1 ) );
+					if ( count0 * count1 > count0 + count1 ) {
+						
+						//D implies G, which we state as !D OR G. NOTs have 
+						//already been distributed, so G is never negated and
+						//G never has to imply D
+						for ( int i=0 ; i<node.children.size() ; ++i ) {
+							ExpressionNode operand = node.children.get( i );
+							ArrayList< Variable > variables = operand.freeVariables();
+							Function predicate = tracker.getNewDefinition( variables.size() );
+							node.replaceChild( i , newPredicate( predicate , variables ) );
+							
+							ExpressionNode notPredicate = newPredicate( predicate , variables );
+							notPredicate.negated = true;
+							ExpressionNode definition = new ExpressionNode( Operator.OR );
+							definition.addChildren( notPredicate , operand );
+							definitions.add( definition );
+						}
+						count0 = 1;
+						count1 = 1;
+					}
+					numClauses.put( node , (int) Math.min( count0 * count1 , Integer.MAX_VALUE ) );
 				}
 				else {
-					for ( ExpressionNode child : this.children ) {
-						child.distributeOrOverAnd();
+					numClauses.put( node , 1 );
+				}
+			}
+			return definitions;
+		}
+		
+		/**
+		 * @param idx			the index of the child to replace
+		 * @param child			the new child
+		 */
+		private void replaceChild( int idx , ExpressionNode child ) {
+			this.children.set( idx , child );
+			child.setParent( this );
+		}
+		
+		/**
+		 * @param predicate		a predicate
+		 * @param args			the arguments to the predicate
+		 * @return				a node that applies the predicate to the arguments
+		 */
+		private ExpressionNode newPredicate( Function predicate , List< Variable > args ) {
+			ExpressionNode rtn = new ExpressionNode( predicate );
+			for ( Variable arg : args ) {
+				rtn.addChildren( new ExpressionNode( arg ) );
+			}
+			return rtn;
+		}
+		
+		/**
+		 * Lists the variables that are arguments to functions or relations
+		 * in the expression stemming from this node, but are not quantified
+		 * within it. Variables that stand for entire propositions are
+		 * not included.
+		 * 
+		 * @return		the variables in the order they first appear
+		 */
+		private ArrayList< Variable > freeVariables() {
+			LinkedHashSet< Variable > rtn = new LinkedHashSet< Variable >();
+			
+			//how many of the quantifiers we are inside of quantify each variable
+			HashMap< Variable , Integer > bound = new HashMap< Variable , Integer >();
+			
+			//the nodes we are inside of and the index of
+			//the next child to visit for each of them
+			Stack< ExpressionNode > path = new Stack< ExpressionNode >();
+			Stack< Integer > nextChild = new Stack< Integer >();
+			this.bind( bound , 1 );
+			path.push( this );
+			nextChild.push( 0 );
+			while ( !path.empty() ) {
+				ExpressionNode curr = path.peek();
+				int childIdx = nextChild.pop();
+				if ( childIdx < curr.children.size() ) {
+					nextChild.push( childIdx + 1 );
+					ExpressionNode child = curr.children.get( childIdx );
+					if ( !curr.isConnective() && child.value instanceof Variable && !bound.containsKey( child.value ) ) {
+						rtn.add( (Variable) child.value );
+					}
+					else if ( child.value instanceof SkolemFunction ) {
+						for ( Variable arg : ((SkolemFunction) child.value).getArgs() ) {
+							rtn.add( arg );
+						}
+					}
+					child.bind( bound , 1 );
+					path.push( child );
+					nextChild.push( 0 );
+				}
+				else {
+					path.pop();
+					curr.bind( bound , -1 );
+				}
+			}
+			return new ArrayList< Variable >( rtn );
+		}
+		
+		/**
+		 * Updates how many quantifiers quantify each variable when
+		 * entering or leaving the scope of this node, if it is a quantifier.
+		 * 
+		 * @param bound			how many quantifiers quantify each variable
+		 * @param change		1 when entering this node's scope and -1
+		 * 						when leaving it
+		 */
+		private void bind( HashMap< Variable , Integer > bound , int change ) {
+			if ( this.value instanceof QuantifierList ) {
+				for ( Variable v : ((QuantifierList) this.value).getVariables() ) {
+					Integer count = bound.get( v );
+					int newCount = (count == null ? 0 : count) + change;
+					if ( newCount == 0 ) {
+						bound.remove( v );
 					}
-					if ( this.children.get( 0 ).getValue().equals( Operator.AND ) || 
-							this.children.get( 1 ).getValue().equals( Operator.AND ) ) {
+					else {
+						bound.put( v , newCount );
+					}
+				}
+			}
+		}
+		
+		public void distributeOrOverAnd() {
+			
+			//the nodes left to distribute over. a node marked for
+			//rechecking is an OR whose operands have already been
+			//distributed over and may have become ANDs
+			Stack< ExpressionNode > toVisit = new Stack< ExpressionNode >();
+			Stack< Boolean > recheck = new Stack< Boolean >();
+			toVisit.push( this );
+			recheck.push( false );
+			while ( !toVisit.empty() ) {
+				ExpressionNode curr = toVisit.pop();
+				if ( recheck.pop() ) {
+					if ( curr.children.get( 0 ).getValue().equals( Operator.AND ) || 
+							curr.children.get( 1 ).getValue().equals( Operator.AND ) ) {
 						
 						//if later distributions of ORs over AND caused additional
 						//ANDs to shift up to a child of this node,
 						//we need to repeat the process
-						this.distributeOrOverAnd();
+						toVisit.push( curr );
+						recheck.push( false );
 					}
-					return;
+					continue;
+				}
+				
+				if ( curr.value.equals( Operator.OR ) && !curr.distributeOperand() ) {
+					
+					//distribute over the operands first and then
+					//check this node again
+					toVisit.push( curr );
+					recheck.push( true );
+				}
+				for ( int i=curr.children.size()-1 ; i>=0 ; --i ) {
+					toVisit.push( curr.children.get( i ) );
+					recheck.push( false );
 				}
 			}
-			for ( ExpressionNode child : this.children ) {
-				child.distributeOrOverAnd();
+		}
+		
+		/**
+		 * Distributes this OR operator over one of its operands
+		 * if that operand is an AND operator.
+		 * 
+		 * @return		if this node was rewritten as an AND
+		 */
+		private boolean distributeOperand() {
+				
+			//this node should have two children -
+			//if this node does not have two children,
+			//the buildTree() function should have
+			//thrown an exception earlier
+			ExpressionNode operand1 = this.children.get( 0 );
+			ExpressionNode operand2 = this.children.get( 1 );
+			if ( operand1.getValue().equals( Operator.AND ) ) {
+				ExpressionNode P = operand1.getChildren().get( 0 );
+				ExpressionNode Q = operand1.getChildren().get( 1 );
+				ExpressionNode R = operand2;
+				
+				//rewrite (P AND Q) OR R as (P OR R) AND (Q OR R)
+				this.value = Operator.AND;
+				this.children.clear();
+				
+				//construct the expression (P OR R)
+				operand1.value = Operator.OR;
+				operand1.children.clear();
+				operand1.addChildren( P , R );
+				
+				//construct the expression (Q OR R)
+				//note the R must be deep copied because
+				//we already put a refernece to it in the
+				//other operand
+				operand2 = new ExpressionNode( Operator.OR );
+				operand2.addChildren( Q , R.deepCopy() );
+				
+				//add in the operands to this AND operator
+				//so that we have (P OR R) AND (Q OR R)
+				this.addChildren( operand1 , operand2 );
+				return true;
+			}
+			else if ( operand2.getValue().equals( Operator.AND ) ) {
+				ExpressionNode P = operand1;
+				ExpressionNode Q = operand2.getChildren().get( 0 );
+				ExpressionNode R = operand2.getChildren().get( 1 );
+				
+				//rewrite P OR (Q AND R) as (P OR Q) AND (P OR R)
+				this.value = Operator.AND;
+				this.children.clear();
+				
+				//construct the expression (P OR Q)
+				operand1 = new ExpressionNode( Operator.OR );
+				operand1.addChildren( P , Q );
+				
+				//construct the expression (P OR R)
+				operand2.value = Operator.OR;
+				operand2.children.clear();
+				operand2.addChildren( P.deepCopy() , R );
+				
+				//add in the operands to this AND operator
+				//so that we have (P OR Q) AND (P OR R)
+				this.addChildren( operand1 , operand2 );
+				return true;
 			}
+			return false;
 		}
 		
 		public void buildPostfix( ArrayList< Symbol > postfix ) {
-			if ( children.size() == 0 ) {
-				postfix.add( this.getValue() );
-				if ( this.isNegated() ) {
+			for ( ExpressionNode node : postorder() ) {
+				postfix.add( node.getValue() );
+				if ( node.isNegated() ) {
 					postfix.add( Operator.NOT );
 				}
-				return;
-			}
-			
-			for ( ExpressionNode child : children ) {
-				child.buildPostfix( postfix );
-			}
-			postfix.add( this.getValue() );
-			if ( this.isNegated() ) {
-				postfix.add( Operator.NOT );
 			}
 		}
 		
@@ -1076,8 +1532,22 @@ class ExpressionTree {
 			ExpressionNode rtn = new ExpressionNode( this.value );
 			rtn.negated = this.negated;
 			rtn.parent = null;
-			for ( ExpressionNode child : this.children ) {
-				rtn.addChildren( child.deepCopy() );
+			
+			//pairs of nodes whose children still need to be copied
+			Stack< ExpressionNode > originals = new Stack< ExpressionNode >();
+			Stack< ExpressionNode > copies = new Stack< ExpressionNode >();
+			originals.push( this );
+			copies.push( rtn );
+			while ( !originals.empty() ) {
+				ExpressionNode original = originals.pop();
+				ExpressionNode copy = copies.pop();
+				for ( ExpressionNode child : original.children ) {
+					ExpressionNode childCopy = new ExpressionNode( child.value );
+					childCopy.negated = child.negated;
+					copy.addChildren( childCopy );
+					originals.push( child );
+					copies.push( childCopy );
+				}
 			}
 			return rtn;
 		}
@@ -0,0 +1,551 @@
+package mjchao.mazenav.logic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import mjchao.mazenav.logic.ClauseArena.IntList;
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+import mjchao.mazenav.logic.StatementCNF.Disjunction.Term;
+import mjchao.mazenav.logic.structures.Function;
+import mjchao.mazenav.logic.structures.ObjectFOL;
+import mjchao.mazenav.logic.structures.Symbol;
+import mjchao.mazenav.logic.structures.Variable;
+
+/**
+ * Proves hypotheses from definite clauses, i.e. clauses with exactly one
+ * literal that isn't negated such as
+ * <pre>
+ * !Person(x) OR Mortal(x)
+ * </pre>
+ * by forward chaining. Every fact that follows from the clauses is
+ * derived once and kept, so a hypothesis that is a conjunction of
+ * ground facts can be answered by looking the facts up.
+ * <p>
+ * Derived facts wait on an agenda until they are processed. Processing
+ * a fact decrements the count of unprocessed body literals of each
+ * ground rule that waits on it, and matches it against the body literals
+ * of the first-order rules with the same predicate, which are indexed by
+ * predicate. The other body literals are then matched against the facts
+ * processed so far, which are indexed by predicate and first argument.
+ * Each fact is processed once, so the work is linear in the number of
+ * facts for ground rules.
+ * <p>
+ * Infinitely many facts may follow from first-order rules, e.g. from
+ * Nat(x) => Nat(Succ(x)), so facts are only processed until the
+ * hypothesis is found. Later queries continue from where the agenda
+ * was left.
+ * <p>
+ * A ForwardChainer is not thread-safe.
+ *
+ * @author mjchao
+ *
+ */
+class ForwardChainer {
+
+	/**
+	 * Determines if a clause can be used for forward chaining: it must
+	 * be a ground fact or a rule whose head only has variables that
+	 * also appear in its body, and it must not contain skolem functions
+	 * or literals that are variables.
+	 *
+	 * @param d
+	 * @return		if the given clause is a definite clause that can
+	 * 				be used for forward chaining
+	 */
+	static boolean isDefinite( Disjunction d ) {
+		Term head = null;
+		Set< Variable > bodyVariables = new HashSet< Variable >();
+		for ( int i=0 ; i<d.size() ; ++i ) {
+			Term t = d.getTerm( i );
+			if ( !(t.getValue() instanceof Function) || !isAtom( t ) ) {
+				return false;
+			}
+			if ( t.negated() ) {
+				addVariables( t , bodyVariables );
+			}
+			else if ( head == null ) {
+				head = t;
+			}
+			else {
+				return false;
+			}
+		}
+		if ( head == null ) {
+			return false;
+		}
+		Set< Variable > headVariables = new HashSet< Variable >();
+		addVariables( head , headVariables );
+		return bodyVariables.containsAll( headVariables );
+	}
+
+	/**
+	 * @param hypothesis
+	 * @return				if every clause of the given hypothesis consists
+	 * 						only of ground literals that aren't negated
+	 */
+	static boolean isGroundFacts( List< Disjunction > hypothesis ) {
+		for ( Disjunction d : hypothesis ) {
+			for ( int i=0 ; i<d.size() ; ++i ) {
+				Term t = d.getTerm( i );
+				if ( t.negated() || !(t.getValue() instanceof Function) || !isAtom( t ) || hasVariables( t ) ) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param t
+	 * @return		if the arguments of the given term only
+	 * 				contain functions, constants and variables
+	 */
+	private static boolean isAtom( Term t ) {
+		for ( Term arg : t.getArgs() ) {
+			Symbol value = arg.getValue();
+			if ( arg.negated() || !(value instanceof Function || value instanceof ObjectFOL || value instanceof Variable) || !isAtom( arg ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean hasVariables( Term t ) {
+		if ( t.getValue() instanceof Variable ) {
+			return true;
+		}
+		for ( Term arg : t.getArgs() ) {
+			if ( hasVariables( arg ) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void addVariables( Term t , Set< Variable > variables ) {
+		if ( t.getValue() instanceof Variable ) {
+			variables.add( (Variable) t.getValue() );
+		}
+		for ( Term arg : t.getArgs() ) {
+			addVariables( arg , variables );
+		}
+	}
+
+	/**
+	 * A definite clause with at least one body literal and variables.
+	 * Each variable is numbered so that bindings can be kept in an array.
+	 */
+	private static class Rule {
+
+		public final Term head;
+
+		/**
+		 * the negated literals of the clause, without their negation
+		 */
+		public final Term[] body;
+		public final HashMap< Variable , Integer > variables = new HashMap< Variable , Integer >();
+		public final Term[] bindings;
+
+		public Rule( Term head , Term[] body ) {
+			this.head = head;
+			this.body = body;
+			for ( Term t : body ) {
+				numberVariables( t );
+			}
+			this.bindings = new Term[ variables.size() ];
+		}
+
+		private void numberVariables( Term t ) {
+			if ( t.getValue() instanceof Variable && !variables.containsKey( t.getValue() ) ) {
+				variables.put( (Variable) t.getValue() , variables.size() );
+			}
+			for ( Term arg : t.getArgs() ) {
+				numberVariables( arg );
+			}
+		}
+	}
+
+	/**
+	 * A body literal of a first-order rule
+	 */
+	private static class BodyLiteral {
+
+		public final Rule rule;
+		public final int position;
+
+		public BodyLiteral( Rule rule , int position ) {
+			this.rule = rule;
+			this.position = position;
+		}
+	}
+
+	/**
+	 * every fact derived so far, by id, in the order they were derived.
+	 * facts with ids below numProcessed have been processed and the rest
+	 * are the agenda.
+	 */
+	private final HashMap< Term , Integer > factIds = new HashMap< Term , Integer >();
+	private final List< Term > facts = new ArrayList< Term >();
+	private int numProcessed = 0;
+
+	/**
+	 * processed facts, by predicate and by predicate and first argument
+	 */
+	private final HashMap< Symbol , List< Term > > factsByPredicate = new HashMap< Symbol , List< Term > >();
+	private final HashMap< Symbol , HashMap< Term , List< Term > > > factsByFirstArg = new HashMap< Symbol , HashMap< Term , List< Term > > >();
+
+	/**
+	 * ground rules, with the number of distinct body literals of each
+	 * that haven't been processed yet, and the ground rules that are
+	 * waiting on each fact
+	 */
+	private final List< Term > groundHeads = new ArrayList< Term >();
+	private final IntList groundCounts = new IntList( 16 );
+	private final HashMap< Term , IntList > waiting = new HashMap< Term , IntList >();
+
+	/**
+	 * body literals of first-order rules, by predicate
+	 */
+	private final HashMap< Symbol , List< BodyLiteral > > rulesByPredicate = new HashMap< Symbol , List< BodyLiteral > >();
+	private final List< Rule > rules = new ArrayList< Rule >();
+
+	private final IntList trail = new IntList( 16 );
+
+	/**
+	 * counts the work done by the current proof
+	 */
+	private ProofMetrics metrics;
+
+	/**
+	 * @return		the number of facts and rules held
+	 */
+	int size() {
+		return facts.size() + groundHeads.size() + rules.size();
+	}
+
+	/**
+	 * @param fact
+	 * @return		if the given ground fact has been derived
+	 */
+	boolean isDerived( Term fact ) {
+		return factIds.containsKey( fact );
+	}
+
+	/**
+	 * Adds a definite clause that is known to be true. Facts that follow
+	 * from it are derived the next time a hypothesis is proved.
+	 *
+	 * @param d			a clause for which <code>isDefinite</code> is true
+	 * @param metrics	counts the work done by the current proof
+	 */
+	void addClause( Disjunction d , ProofMetrics metrics ) {
+		this.metrics = metrics;
+		Term head = null;
+		Term[] body = new Term[ d.size()-1 ];
+		int numBody = 0;
+		for ( int i=0 ; i<d.size() ; ++i ) {
+			Term t = d.getTerm( i );
+			if ( t.negated() ) {
+				body[ numBody++ ] = t.negation();
+			}
+			else {
+				head = t;
+			}
+		}
+		if ( body.length == 0 ) {
+			derive( head );
+		}
+		else if ( !hasVariables( d ) ) {
+			addGroundRule( head , body );
+		}
+		else {
+			Rule rule = new Rule( head , body );
+			rules.add( rule );
+			for ( int i=0 ; i<body.length ; ++i ) {
+				List< BodyLiteral > withPredicate = rulesByPredicate.get( body[ i ].getValue() );
+				if ( withPredicate == null ) {
+					withPredicate = new ArrayList< BodyLiteral >();
+					rulesByPredicate.put( body[ i ].getValue() , withPredicate );
+				}
+				withPredicate.add( new BodyLiteral( rule , i ) );
+			}
+
+			//facts that were processed before the rule was added
+			//are matched against it now
+			join( rule , 0 , -1 );
+		}
+	}
+
+	private static boolean hasVariables( Disjunction d ) {
+		for ( int i=0 ; i<d.size() ; ++i ) {
+			if ( hasVariables( d.getTerm( i ) ) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void addGroundRule( Term head , Term[] body ) {
+		int rule = groundHeads.size();
+		groundHeads.add( head );
+		Set< Term > unprocessed = new HashSet< Term >();
+		for ( Term t : body ) {
+			Integer id = factIds.get( t );
+			if ( id == null || id.intValue() >= numProcessed ) {
+				unprocessed.add( t );
+			}
+		}
+		groundCounts.add( unprocessed.size() );
+		for ( Term t : unprocessed ) {
+			IntList rulesWaiting = waiting.get( t );
+			if ( rulesWaiting == null ) {
+				rulesWaiting = new IntList( 4 );
+				waiting.put( t , rulesWaiting );
+			}
+			rulesWaiting.add( rule );
+		}
+		if ( unprocessed.isEmpty() ) {
+			derive( head );
+		}
+	}
+
+	/**
+	 * Processes facts on the agenda until every clause of the hypothesis
+	 * contains a fact that has been derived.
+	 *
+	 * @param hypothesis		clauses for which <code>isGroundFacts</code>
+	 * 							is true
+	 * @param budget			limits the work done by the proof
+	 * @param metrics			counts the work done by the proof
+	 * @return					PROVED if every clause of the hypothesis contains a
+	 * 							derived fact, NOT_PROVED if no more facts can be
+	 * 							derived, or UNKNOWN if the budget ran out first
+	 */
+	ProofResult prove( List< Disjunction > hypothesis , ProofBudget budget , ProofMetrics metrics ) {
+		this.metrics = metrics;
+		long start = System.nanoTime();
+		ProofResult rtn;
+		while ( true ) {
+			if ( budget.isExhausted() || size() > budget.getMaxClauses() ) {
+				rtn = ProofResult.UNKNOWN;
+				break;
+			}
+			if ( isDerived( hypothesis ) ) {
+				rtn = ProofResult.PROVED;
+				break;
+			}
+			if ( numProcessed == facts.size() ) {
+				rtn = ProofResult.NOT_PROVED;
+				break;
+			}
+			process( facts.get( numProcessed++ ) );
+		}
+		metrics.resolutionNanos.add( System.nanoTime() - start );
+		return rtn;
+	}
+
+	private boolean isDerived( List< Disjunction > hypothesis ) {
+		for ( Disjunction d : hypothesis ) {
+			boolean found = false;
+			for ( int i=0 ; i<d.size() && !found ; ++i ) {
+				found = isDerived( d.getTerm( i ) );
+			}
+			if ( !found ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void derive( Term fact ) {
+		if ( !factIds.containsKey( fact ) ) {
+			factIds.put( fact , facts.size() );
+			facts.add( fact );
+			metrics.clausesGenerated.increment();
+			metrics.clausesKept.increment();
+		}
+		else {
+			metrics.duplicatesRejected.increment();
+		}
+	}
+
+	/**
+	 * Takes a fact off the agenda and derives every fact that
+	 * follows from it and the facts processed before it
+	 *
+	 * @param fact
+	 */
+	private void process( Term fact ) {
+		Symbol predicate = fact.getValue();
+		List< Term > withPredicate = factsByPredicate.get( predicate );
+		if ( withPredicate == null ) {
+			withPredicate = new ArrayList< Term >();
+			factsByPredicate.put( predicate , withPredicate );
+			factsByFirstArg.put( predicate , new HashMap< Term , List< Term > >() );
+		}
+		withPredicate.add( fact );
+		if ( fact.getArgs().length > 0 ) {
+			HashMap< Term , List< Term > > byFirstArg = factsByFirstArg.get( predicate );
+			List< Term > withFirstArg = byFirstArg.get( fact.getArgs()[ 0 ] );
+			if ( withFirstArg == null ) {
+				withFirstArg = new ArrayList< Term >();
+				byFirstArg.put( fact.getArgs()[ 0 ] , withFirstArg );
+			}
+			withFirstArg.add( fact );
+		}
+
+		IntList rulesWaiting = waiting.remove( fact );
+		if ( rulesWaiting != null ) {
+			for ( int i=0 ; i<rulesWaiting.size() ; ++i ) {
+				int rule = rulesWaiting.get( i );
+				groundCounts.data[ rule ]--;
+				if ( groundCounts.get( rule ) == 0 ) {
+					derive( groundHeads.get( rule ) );
+				}
+			}
+		}
+
+		List< BodyLiteral > matching = rulesByPredicate.get( predicate );
+		if ( matching != null ) {
+			for ( BodyLiteral literal : matching ) {
+				Rule rule = literal.rule;
+				metrics.unifyAttempts.increment();
+				if ( match( rule , rule.body[ literal.position ] , fact ) ) {
+					metrics.unifySuccesses.increment();
+					join( rule , 0 , literal.position );
+				}
+				undo( rule , 0 );
+			}
+		}
+	}
+
+	/**
+	 * Matches the body literals of a rule from the given position on
+	 * against the processed facts and derives the head of the rule
+	 * for every match.
+	 *
+	 * @param rule
+	 * @param position		the first body literal to match
+	 * @param skip			a body literal that has already been matched,
+	 * 						or -1
+	 */
+	private void join( Rule rule , int position , int skip ) {
+		if ( position == skip ) {
+			position++;
+		}
+		if ( position == rule.body.length ) {
+			derive( substitute( rule.head , rule ) );
+			return;
+		}
+		Term literal = rule.body[ position ];
+		List< Term > candidates = candidates( literal , rule );
+		if ( candidates == null ) {
+			return;
+		}
+		int mark = trail.size();
+		for ( int i=0 ; i<candidates.size() ; ++i ) {
+			metrics.unifyAttempts.increment();
+			if ( match( rule , literal , candidates.get( i ) ) ) {
+				metrics.unifySuccesses.increment();
+				join( rule , position+1 , skip );
+			}
+			undo( rule , mark );
+		}
+	}
+
+	/**
+	 * @param literal		a body literal of the given rule
+	 * @param rule
+	 * @return				the processed facts that may match the literal
+	 * 						given the current bindings, or null if there
+	 * 						are none
+	 */
+	private List< Term > candidates( Term literal , Rule rule ) {
+		if ( literal.getArgs().length > 0 ) {
+			Term firstArg = bound( literal.getArgs()[ 0 ] , rule );
+			if ( firstArg != null ) {
+				HashMap< Term , List< Term > > byFirstArg = factsByFirstArg.get( literal.getValue() );
+				return (byFirstArg == null) ? null : byFirstArg.get( firstArg );
+			}
+		}
+		return factsByPredicate.get( literal.getValue() );
+	}
+
+	/**
+	 * @param t
+	 * @param rule
+	 * @return			the ground term the given term is bound to, or null
+	 * 					if it contains variables that are not bound
+	 */
+	private static Term bound( Term t , Rule rule ) {
+		if ( t.getValue() instanceof Variable ) {
+			return rule.bindings[ rule.variables.get( t.getValue() ).intValue() ];
+		}
+		return hasVariables( t ) ? null : t;
+	}
+
+	/**
+	 * Matches a pattern from a rule against a ground term, binding the
+	 * rule's variables. Bindings made before a failed match are left on
+	 * the trail to be undone by the caller.
+	 *
+	 * @param rule
+	 * @param pattern
+	 * @param ground
+	 * @return				if the pattern matches the ground term
+	 */
+	private boolean match( Rule rule , Term pattern , Term ground ) {
+		if ( pattern.getValue() instanceof Variable ) {
+			int variable = rule.variables.get( pattern.getValue() ).intValue();
+			Term binding = rule.bindings[ variable ];
+			if ( binding == null ) {
+				rule.bindings[ variable ] = ground;
+				trail.add( variable );
+				return true;
+			}
+			return binding.equals( ground );
+		}
+		if ( !pattern.getValue().equals( ground.getValue() ) || pattern.getArgs().length != ground.getArgs().length ) {
+			return false;
+		}
+		for ( int i=0 ; i<pattern.getArgs().length ; ++i ) {
+			if ( !match( rule , pattern.getArgs()[ i ] , ground.getArgs()[ i ] ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void undo( Rule rule , int mark ) {
+		while ( trail.size() > mark ) {
+			rule.bindings[ trail.get( --trail.size ) ] = null;
+		}
+	}
+
+	/**
+	 * @param t
+	 * @param rule
+	 * @return			the given term with the rule's variables
+	 * 					replaced by their bindings
+	 */
+	private static Term substitute( Term t , Rule rule ) {
+		if ( t.getValue() instanceof Variable ) {
+			return rule.bindings[ rule.variables.get( t.getValue() ).intValue() ];
+		}
+		Term[] args = t.getArgs();
+		Term[] newArgs = null;
+		for ( int i=0 ; i<args.length ; ++i ) {
+			Term arg = substitute( args[ i ] , rule );
+			if ( arg != args[ i ] ) {
+				if ( newArgs == null ) {
+					newArgs = args.clone();
+				}
+				newArgs[ i ] = arg;
+			}
+		}
+		return (newArgs == null) ? t : TermBank.intern( t.withArgs( newArgs ) );
+	}
+}
@@ -0,0 +1,262 @@
+package mjchao.mazenav.logic;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+
+import mjchao.mazenav.logic.Resolver.Resolvent;
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+import mjchao.mazenav.logic.StatementCNF.Disjunction.Term;
+
+/**
+ * Performs the resolution algorithm using the given-clause algorithm
+ * (as used by the Otter and DISCOUNT theorem provers) instead of
+ * resolving all clauses one generation at a time.
+ * <p>
+ * Clauses are split into an active set and a passive set. The active
+ * set contains clauses that have been resolved with each other. Each
+ * step, we pick one clause from the passive set (the given clause),
+ * move it into the active set, and resolve it with every active clause.
+ * The new resolvents go into the passive set. Most of the time, the
+ * given clause is the lightest passive clause (the one with the fewest
+ * symbols). Every few steps, it is the oldest passive clause instead so
+ * that heavy clauses are not starved forever.
+ *
+ * @author mjchao
+ *
+ */
+class GivenClauseResolver {
+
+	/**
+	 * the number of given clauses picked by weight for
+	 * every given clause picked by age
+	 */
+	static final int PICK_GIVEN_RATIO = 5;
+
+	/**
+	 * @param t
+	 * @return		the number of symbols in the given term
+	 */
+	private static int weight( Term t ) {
+		int rtn = 1;
+		for ( Term arg : t.getArgs() ) {
+			rtn += weight( arg );
+		}
+		return rtn;
+	}
+
+	/**
+	 * @param d
+	 * @return		the number of symbols in the given clause
+	 */
+	static int weight( Disjunction d ) {
+		int rtn = 0;
+		for ( int i=0 ; i<d.size() ; ++i ) {
+			rtn += weight( d.getTerm( i ) );
+		}
+		return rtn;
+	}
+
+	/**
+	 * A clause waiting in the passive set
+	 */
+	private static class PassiveClause {
+
+		public final Resolvent resolvent;
+		public final int weight;
+		public final int age;
+
+		/**
+		 * if this clause has already been selected as a
+		 * given clause through the other queue
+		 */
+		public boolean selected = false;
+
+		public PassiveClause( Resolvent resolvent , int age ) {
+			this.resolvent = resolvent;
+			this.weight = weight( resolvent.disjunction );
+			this.age = age;
+		}
+	}
+
+	private static final Comparator< PassiveClause > BY_WEIGHT = new Comparator< PassiveClause >() {
+
+		@Override
+		public int compare( PassiveClause c1 , PassiveClause c2 ) {
+			if ( c1.weight != c2.weight ) {
+				return Integer.compare( c1.weight , c2.weight );
+			}
+			return Integer.compare( c1.age , c2.age );
+		}
+	};
+
+	/**
+	 * Applies the given-clause algorithm combined with factoring
+	 * to try and prove a hypothesis by contradiction
+	 *
+	 * @param statement		a single statement that is KB AND !Hypothesis
+	 * @param hypothesis	the hypothesis we're trying to prove. this is
+	 * 						required because we need to check that terms
+	 * 						we unify do not appear in the hypothesis
+	 * @return				true if KB AND !Hypothesis is always false (i.e.
+	 * 						the proof by contradiction succeeds). false if
+	 * 						we could not complete the proof by contradiction
+	 */
+	static boolean applyResolution( StatementCNF statement , StatementCNF hypothesis ) {
+		return new GivenClauseResolver( hypothesis ).saturate( statement.getDisjunctions() );
+	}
+
+	private final StatementCNF hypothesis;
+
+	private final PriorityQueue< PassiveClause > passiveByWeight = new PriorityQueue< PassiveClause >( 11 , BY_WEIGHT );
+	private final Queue< PassiveClause > passiveByAge = new LinkedList< PassiveClause >();
+	private int numPassive = 0;
+	private int nextAge = 0;
+
+	/**
+	 * active clauses, indexed by the id under which they are
+	 * stored in the active clause index
+	 */
+	private final List< Resolvent > active = new ArrayList< Resolvent >();
+	private final ClauseIndex activeIndex = new ClauseIndex();
+
+	/**
+	 * every clause that has been kept so far, active or passive. used
+	 * to discard new clauses that are duplicates or subsumed
+	 */
+	private final Set< Disjunction > kept = new HashSet< Disjunction >();
+	private final TermIndex< Resolvent > keptFirstTerms = new TermIndex< Resolvent >();
+	private final SubsumptionIndex keptSubsumption;
+
+	private GivenClauseResolver( StatementCNF hypothesis ) {
+		this.hypothesis = hypothesis;
+		this.keptSubsumption = new SubsumptionIndex( hypothesis );
+	}
+
+	/**
+	 * @param clauses		the clauses to saturate
+	 * @return				if the empty clause was derived
+	 */
+	private boolean saturate( List< Disjunction > clauses ) {
+		for ( Disjunction d : clauses ) {
+			Disjunction factored = Resolver.factor( d , hypothesis );
+			if ( factored.size() == 0 ) {
+				return true;
+			}
+			keep( new Resolvent( factored ) , true );
+		}
+
+		int numPicked = 0;
+		while( numPassive > 0 ) {
+			PassiveClause given = selectGiven( numPicked % (PICK_GIVEN_RATIO + 1) == PICK_GIVEN_RATIO );
+			++numPicked;
+			if ( given.resolvent.retired ) {
+				continue;
+			}
+			if ( activate( given.resolvent ) ) {
+				return true;
+			}
+		}
+
+		//if there is no more we can infer, then
+		//our proof by contradiction fails (return false)
+		return false;
+	}
+
+	/**
+	 * Removes the next given clause from the passive set
+	 *
+	 * @param byAge		if the oldest clause should be selected
+	 * 					instead of the lightest clause
+	 * @return
+	 */
+	private PassiveClause selectGiven( boolean byAge ) {
+		Queue< PassiveClause > queue = byAge ? passiveByAge : passiveByWeight;
+
+		//each passive clause is in both queues, so skip
+		//any that were already selected through the other queue
+		PassiveClause rtn = queue.poll();
+		while( rtn.selected ) {
+			rtn = queue.poll();
+		}
+		rtn.selected = true;
+		--numPassive;
+		return rtn;
+	}
+
+	/**
+	 * Adds a new clause to the passive set unless it duplicates or is
+	 * subsumed by a clause we have already kept. Any kept clauses that
+	 * the new clause subsumes are retired.
+	 *
+	 * @param r
+	 * @param input		if the clause is part of KB AND !Hypothesis. Input
+	 * 					clauses are only discarded if they are subsumed, just
+	 * 					like the level-by-level resolution algorithm never
+	 * 					checks its input clauses for duplicates.
+	 */
+	private void keep( Resolvent r , boolean input ) {
+		if ( !input && Resolver.isDuplicateClause( kept , keptFirstTerms , r.disjunction , hypothesis ) ) {
+			return;
+		}
+		if ( keptSubsumption.findSubsuming( r.disjunction ) != null ) {
+			return;
+		}
+		for ( Resolvent subsumed : keptSubsumption.findSubsumedBy( r.disjunction ) ) {
+			subsumed.retired = true;
+			kept.remove( subsumed.disjunction );
+			keptFirstTerms.remove( subsumed.disjunction.getTerm( 0 ) , subsumed );
+			keptSubsumption.remove( subsumed );
+		}
+		kept.add( r.disjunction );
+		keptFirstTerms.insert( r.disjunction.getTerm( 0 ) , r );
+		keptSubsumption.add( r );
+
+		PassiveClause passive = new PassiveClause( r , nextAge++ );
+		passiveByWeight.add( passive );
+		passiveByAge.add( passive );
+		++numPassive;
+	}
+
+	/**
+	 * Moves the given clause into the active set and resolves it
+	 * with every active clause.
+	 *
+	 * @param given
+	 * @return			if the empty clause was derived
+	 */
+	private boolean activate( Resolvent given ) {
+		int id = active.size();
+		active.add( given );
+		activeIndex.add( id , given.disjunction );
+
+		List< Resolvent > newClauses = new ArrayList< Resolvent >();
+		BitSet candidates = activeIndex.candidatesFor( given.disjunction );
+		for ( int j=candidates.nextSetBit( 0 ) ; j>=0 ; j=candidates.nextSetBit( j+1 ) ) {
+			Resolvent other = active.get( j );
+			if ( other.retired ) {
+				continue;
+			}
+			for ( Disjunction d : Resolver.resolve( given.disjunction , other.disjunction , hypothesis ) ) {
+				Disjunction factored = Resolver.factor( d , hypothesis );
+				if ( factored.size() == 0 ) {
+					return true;
+				}
+				Resolvent r = new Resolvent( factored );
+				r.parents.add( given );
+				r.parents.add( other );
+				newClauses.add( r );
+			}
+		}
+		for ( Resolvent r : newClauses ) {
+			keep( r , false );
+		}
+		return false;
+	}
+}
@@ -0,0 +1,778 @@
+package mjchao.mazenav.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import mjchao.mazenav.logic.ClauseArena.IntList;
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+import mjchao.mazenav.logic.StatementCNF.Disjunction.Term;
+import mjchao.mazenav.logic.structures.Function;
+import mjchao.mazenav.logic.structures.ObjectFOL;
+
+/**
+ * Proves hypotheses from ground clauses, i.e. clauses without any
+ * variables or skolem functions such as
+ * <pre>
+ * !Breeze(1, 1) OR Pit(2, 1) OR Pit(1, 2)
+ * </pre>
+ * Ground clauses cannot be unified in any way other than being
+ * identical, so each distinct literal (ignoring negation) is just a
+ * propositional variable, and the hypothesis follows from the clauses
+ * exactly when the clauses AND !Hypothesis are unsatisfiable. That is
+ * decided with conflict-driven clause learning (CDCL): unit propagation
+ * with two watched literals per clause, VSIDS branching with saved
+ * phases, first-UIP clause learning, Luby restarts and removal of
+ * inactive learned clauses.
+ * <p>
+ * The solver is incremental. Clauses of the knowledgebase are added
+ * once and, along with everything learned from them, are kept between
+ * queries. The clauses of each negated hypothesis are guarded by a new
+ * selector variable that is assumed to be true during the query and is
+ * set to false for good afterwards, which disables those clauses and
+ * every clause learned from them.
+ * <p>
+ * A GroundSolver is not thread-safe.
+ *
+ * @author mjchao
+ *
+ */
+class GroundSolver {
+
+	/**
+	 * @param clauses
+	 * @return			if none of the given clauses contain
+	 * 					variables or skolem functions
+	 */
+	static boolean isGround( List< Disjunction > clauses ) {
+		for ( Disjunction d : clauses ) {
+			if ( !isGround( d ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param d
+	 * @return			if the given clause does not contain
+	 * 					any variables or skolem functions
+	 */
+	static boolean isGround( Disjunction d ) {
+		for ( int i=0 ; i<d.size() ; ++i ) {
+			if ( !isGround( d.getTerm( i ) ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isGround( Term t ) {
+
+		//anything other than functions and constants, e.g. variables,
+		//skolem functions or operators, may be unified with other terms
+		if ( !(t.getValue() instanceof Function || t.getValue() instanceof ObjectFOL) ) {
+			return false;
+		}
+		for ( Term arg : t.getArgs() ) {
+			if ( !isGround( arg ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static final int TRUE = 1;
+	private static final int FALSE = -1;
+	private static final int UNASSIGNED = 0;
+
+	/**
+	 * the reason of a literal that was decided or given as a unit clause,
+	 * and the literal returned when there is nothing left to decide
+	 */
+	private static final int NONE = -1;
+
+	private static final double VARIABLE_DECAY = 0.95;
+	private static final double CLAUSE_DECAY = 0.999;
+	private static final double RESCALE_LIMIT = 1e100;
+
+	/**
+	 * the number of conflicts in the shortest run between restarts.
+	 * the runs are this many conflicts times the Luby sequence
+	 * 1, 1, 2, 1, 1, 2, 4, 1, ...
+	 */
+	private static final int RESTART_UNIT = 100;
+
+	/**
+	 * the fewest learned clauses that are kept before the least
+	 * active ones are removed, and how much that limit grows
+	 * every time they are removed
+	 */
+	private static final int MIN_LEARNED_LIMIT = 1000;
+	private static final double LEARNED_LIMIT_GROWTH = 1.1;
+
+	/**
+	 * the propositional variable of each distinct literal, ignoring
+	 * negation. The literals of variable v are 2v for the positive
+	 * literal and 2v+1 for the negative literal.
+	 */
+	private final HashMap< Term , Integer > atoms = new HashMap< Term , Integer >();
+	private int numVariables = 0;
+
+	/**
+	 * the literals of each clause. The first two literals are watched.
+	 * If a clause is the reason for a literal, that literal is first.
+	 * Removed clauses are null.
+	 */
+	private final List< int[] > clauses = new ArrayList< int[] >();
+	private int numHeld = 0;
+	private boolean[] learned = new boolean[ 64 ];
+	private double[] clauseActivity = new double[ 64 ];
+	private double clauseIncrement = 1;
+	private int numLearned = 0;
+	private double learnedLimit = MIN_LEARNED_LIMIT;
+
+	/**
+	 * the clauses watching each literal, which have to be
+	 * visited when that literal becomes false
+	 */
+	private IntList[] watches = new IntList[ 0 ];
+
+	private int[] values = new int[ 0 ];
+	private int[] levels = new int[ 0 ];
+	private int[] reasons = new int[ 0 ];
+
+	/**
+	 * the phase each variable was last assigned, which is the
+	 * phase it is decided with next time
+	 */
+	private boolean[] savedNegated = new boolean[ 0 ];
+	private boolean[] seen = new boolean[ 0 ];
+
+	/**
+	 * assigned literals in the order they were assigned, and the index
+	 * in the trail at which each decision level starts
+	 */
+	private final IntList trail = new IntList( 64 );
+	private final IntList levelStarts = new IntList( 16 );
+	private int propagated = 0;
+
+	/**
+	 * unassigned variables in a binary heap ordered by activity,
+	 * and the position of each variable in the heap or -1
+	 */
+	private double[] activity = new double[ 0 ];
+	private double variableIncrement = 1;
+	private final IntList heap = new IntList( 64 );
+	private int[] heapPositions = new int[ 0 ];
+
+	/**
+	 * if the clauses added so far are unsatisfiable by themselves
+	 */
+	private boolean inconsistent = false;
+
+	private final IntList learnedClause = new IntList( 16 );
+	private final IntList analyzed = new IntList( 16 );
+
+	/**
+	 * Adds a clause that is known to be true. This may only be called
+	 * between queries.
+	 *
+	 * @param d			a ground clause
+	 */
+	void addClause( Disjunction d ) {
+		int[] lits = new int[ d.size() ];
+		for ( int i=0 ; i<lits.length ; ++i ) {
+			lits[ i ] = literal( d.getTerm( i ) );
+		}
+		addClause( lits );
+	}
+
+	/**
+	 * @return		the number of clauses, including learned
+	 * 				clauses, that are currently held
+	 */
+	int numClauses() {
+		return numHeld;
+	}
+
+	/**
+	 * @return		if the clauses added so far are unsatisfiable
+	 */
+	boolean isInconsistent() {
+		return inconsistent;
+	}
+
+	/**
+	 * Determines if the clauses added so far together with the
+	 * given negated hypothesis are unsatisfiable, i.e. if the
+	 * hypothesis follows from the clauses.
+	 *
+	 * @param negatedHypothesis		the ground clauses of !Hypothesis
+	 * @param budget				limits the work done by the proof
+	 * @param metrics				counts the work done by the proof
+	 * @return						PROVED if the clauses AND !Hypothesis are
+	 * 								unsatisfiable, NOT_PROVED if they are
+	 * 								satisfiable, or UNKNOWN if the budget ran
+	 * 								out first
+	 */
+	ProofResult prove( List< Disjunction > negatedHypothesis , ProofBudget budget , ProofMetrics metrics ) {
+		if ( budget.isExhausted() || numHeld + negatedHypothesis.size() > budget.getMaxClauses() ) {
+			return ProofResult.UNKNOWN;
+		}
+		if ( inconsistent ) {
+			return ProofResult.PROVED;
+		}
+		long start = System.nanoTime();
+		int selector = 2*newVariable();
+		int firstGuarded = clauses.size();
+		for ( Disjunction d : negatedHypothesis ) {
+			int[] lits = new int[ d.size()+1 ];
+			for ( int i=0 ; i<d.size() ; ++i ) {
+				lits[ i ] = literal( d.getTerm( i ) );
+			}
+			lits[ d.size() ] = selector ^ 1;
+			addClause( lits );
+		}
+		int lastGuarded = clauses.size();
+		ProofResult rtn = search( selector , budget , metrics );
+		cancelUntil( 0 );
+
+		//the selector is never assumed again, so the hypothesis's clauses
+		//can be removed and the clauses learned from them, which all
+		//contain !selector, are satisfied from now on
+		if ( !inconsistent && value( selector ) == UNASSIGNED ) {
+			enqueue( selector ^ 1 , NONE );
+			if ( propagate() != NONE ) {
+				inconsistent = true;
+			}
+		}
+		for ( int c=firstGuarded ; c<lastGuarded ; ++c ) {
+			clauses.set( c , null );
+			--numHeld;
+		}
+		metrics.resolutionNanos.add( System.nanoTime() - start );
+		return rtn;
+	}
+
+	/**
+	 * @param t
+	 * @return		the propositional literal that stands for the given term
+	 */
+	private int literal( Term t ) {
+		Term atom = t.negated() ? t.negation() : t;
+		Integer variable = atoms.get( atom );
+		if ( variable == null ) {
+			variable = newVariable();
+			atoms.put( atom , variable );
+		}
+		return 2*variable.intValue() + (t.negated() ? 1 : 0);
+	}
+
+	private int newVariable() {
+		int rtn = numVariables++;
+		if ( numVariables > values.length ) {
+			int capacity = Math.max( 16 , 2*values.length );
+			values = Arrays.copyOf( values , capacity );
+			levels = Arrays.copyOf( levels , capacity );
+			reasons = Arrays.copyOf( reasons , capacity );
+			savedNegated = Arrays.copyOf( savedNegated , capacity );
+			seen = Arrays.copyOf( seen , capacity );
+			activity = Arrays.copyOf( activity , capacity );
+			heapPositions = Arrays.copyOf( heapPositions , capacity );
+			int numWatches = watches.length;
+			watches = Arrays.copyOf( watches , 2*capacity );
+			for ( int i=numWatches ; i<watches.length ; ++i ) {
+				watches[ i ] = new IntList( 4 );
+			}
+		}
+		values[ rtn ] = UNASSIGNED;
+		reasons[ rtn ] = NONE;
+
+		//like most solvers, decide variables false until
+		//they have been assigned something else
+		savedNegated[ rtn ] = true;
+		heapPositions[ rtn ] = -1;
+		heapInsert( rtn );
+		return rtn;
+	}
+
+	private int value( int lit ) {
+		int rtn = values[ lit >> 1 ];
+		return ((lit & 1) == 0) ? rtn : -rtn;
+	}
+
+	private int decisionLevel() {
+		return levelStarts.size();
+	}
+
+	/**
+	 * Adds a clause at decision level 0, dropping literals that are
+	 * already false and the clause itself if it is already true
+	 *
+	 * @param lits
+	 */
+	private void addClause( int[] lits ) {
+		if ( inconsistent ) {
+			return;
+		}
+		Arrays.sort( lits );
+		int size = 0;
+		for ( int i=0 ; i<lits.length ; ++i ) {
+			int lit = lits[ i ];
+			if ( value( lit ) == TRUE || (size > 0 && lits[ size-1 ] == (lit ^ 1)) ) {
+
+				//the clause is already satisfied or is a tautology
+				return;
+			}
+			if ( value( lit ) == FALSE || (size > 0 && lits[ size-1 ] == lit) ) {
+				continue;
+			}
+			lits[ size++ ] = lit;
+		}
+		if ( size == 0 ) {
+			inconsistent = true;
+		}
+		else if ( size == 1 ) {
+			enqueue( lits[ 0 ] , NONE );
+			if ( propagate() != NONE ) {
+				inconsistent = true;
+			}
+		}
+		else {
+			attach( Arrays.copyOf( lits , size ) , false );
+		}
+	}
+
+	/**
+	 * Stores a clause and watches its first two literals
+	 *
+	 * @param lits
+	 * @param isLearned
+	 * @return				the index of the clause
+	 */
+	private int attach( int[] lits , boolean isLearned ) {
+		int rtn = clauses.size();
+		clauses.add( lits );
+		if ( rtn >= learned.length ) {
+			learned = Arrays.copyOf( learned , 2*learned.length );
+			clauseActivity = Arrays.copyOf( clauseActivity , 2*clauseActivity.length );
+		}
+		++numHeld;
+		learned[ rtn ] = isLearned;
+		clauseActivity[ rtn ] = 0;
+		if ( isLearned ) {
+			++numLearned;
+		}
+		watches[ lits[ 0 ] ].add( rtn );
+		watches[ lits[ 1 ] ].add( rtn );
+		return rtn;
+	}
+
+	private void enqueue( int lit , int reason ) {
+		int variable = lit >> 1;
+		values[ variable ] = ((lit & 1) == 0) ? TRUE : FALSE;
+		levels[ variable ] = decisionLevel();
+		reasons[ variable ] = reason;
+		trail.add( lit );
+	}
+
+	/**
+	 * Assigns every literal that is implied by a clause whose other
+	 * literals are all false
+	 *
+	 * @return		a clause whose literals are all false, or NONE
+	 */
+	private int propagate() {
+		while ( propagated < trail.size() ) {
+			int falseLit = trail.get( propagated++ ) ^ 1;
+			IntList watching = watches[ falseLit ];
+			int kept = 0;
+			int i = 0;
+			while ( i < watching.size() ) {
+				int c = watching.data[ i++ ];
+				int[] lits = clauses.get( c );
+				if ( lits == null ) {
+					continue;
+				}
+
+				//make sure the false literal is the second one
+				if ( lits[ 0 ] == falseLit ) {
+					lits[ 0 ] = lits[ 1 ];
+					lits[ 1 ] = falseLit;
+				}
+				if ( value( lits[ 0 ] ) == TRUE ) {
+					watching.data[ kept++ ] = c;
+					continue;
+				}
+
+				//try to watch another literal that isn't false
+				boolean moved = false;
+				for ( int k=2 ; k<lits.length ; ++k ) {
+					if ( value( lits[ k ] ) != FALSE ) {
+						lits[ 1 ] = lits[ k ];
+						lits[ k ] = falseLit;
+						watches[ lits[ 1 ] ].add( c );
+						moved = true;
+						break;
+					}
+				}
+				if ( moved ) {
+					continue;
+				}
+
+				watching.data[ kept++ ] = c;
+				if ( value( lits[ 0 ] ) == FALSE ) {
+					while ( i < watching.size() ) {
+						watching.data[ kept++ ] = watching.data[ i++ ];
+					}
+					watching.size = kept;
+					propagated = trail.size();
+					return c;
+				}
+				enqueue( lits[ 0 ] , c );
+			}
+			watching.size = kept;
+		}
+		return NONE;
+	}
+
+	/**
+	 * Runs CDCL with the given literal assumed to be true
+	 *
+	 * @param assumption
+	 * @param budget
+	 * @param metrics
+	 * @return				PROVED if there is no assignment with the
+	 * 						assumption true, NOT_PROVED if there is one,
+	 * 						or UNKNOWN if the budget ran out first
+	 */
+	private ProofResult search( int assumption , ProofBudget budget , ProofMetrics metrics ) {
+		int numRestarts = 0;
+		int conflictsLeft = RESTART_UNIT * luby( numRestarts );
+		while ( true ) {
+			int conflict = propagate();
+			if ( conflict != NONE ) {
+				if ( decisionLevel() == 0 ) {
+					inconsistent = true;
+					return ProofResult.PROVED;
+				}
+				int backtrackLevel = analyze( conflict );
+				cancelUntil( backtrackLevel );
+				int[] lits = Arrays.copyOf( learnedClause.data , learnedClause.size() );
+				if ( lits.length == 1 ) {
+					enqueue( lits[ 0 ] , NONE );
+				}
+				else {
+					int c = attach( lits , true );
+					bumpClause( c );
+					enqueue( lits[ 0 ] , c );
+				}
+				metrics.clausesGenerated.increment();
+				metrics.clausesKept.increment();
+				variableIncrement /= VARIABLE_DECAY;
+				clauseIncrement /= CLAUSE_DECAY;
+
+				if ( budget.isExhausted() || numHeld > budget.getMaxClauses() ) {
+					return ProofResult.UNKNOWN;
+				}
+				if ( --conflictsLeft == 0 ) {
+					++numRestarts;
+					metrics.rounds.increment();
+					conflictsLeft = RESTART_UNIT * luby( numRestarts );
+					cancelUntil( 0 );
+				}
+				if ( numLearned - trail.size() >= learnedLimit ) {
+					removeInactiveLearned();
+				}
+			}
+			else {
+				int next;
+				if ( decisionLevel() == 0 && value( assumption ) != TRUE ) {
+					if ( value( assumption ) == FALSE ) {
+						return ProofResult.PROVED;
+					}
+					next = assumption;
+				}
+				else {
+					next = pickBranchLiteral();
+					if ( next == NONE ) {
+						return ProofResult.NOT_PROVED;
+					}
+				}
+				levelStarts.add( trail.size() );
+				enqueue( next , NONE );
+			}
+		}
+	}
+
+	/**
+	 * Finds the clause to learn from a conflict by resolving the
+	 * conflicting clause with the reasons of its literals until only
+	 * one literal from the current decision level is left (the first
+	 * unique implication point). The learned clause is left in
+	 * <code>learnedClause</code> with the asserting literal first
+	 * and a literal from the backtrack level second.
+	 *
+	 * @param conflict		a clause whose literals are all false
+	 * @return				the decision level to backtrack to
+	 */
+	private int analyze( int conflict ) {
+		learnedClause.clear();
+		learnedClause.add( NONE );
+		int numAtCurrentLevel = 0;
+		int lit = NONE;
+		int index = trail.size()-1;
+		int c = conflict;
+		do {
+			if ( learned[ c ] ) {
+				bumpClause( c );
+			}
+			int[] lits = clauses.get( c );
+
+			//the first literal of a reason is the literal it implied
+			for ( int j=(lit == NONE) ? 0 : 1 ; j<lits.length ; ++j ) {
+				int q = lits[ j ];
+				int variable = q >> 1;
+				if ( !seen[ variable ] && levels[ variable ] > 0 ) {
+					bumpVariable( variable );
+					seen[ variable ] = true;
+					if ( levels[ variable ] >= decisionLevel() ) {
+						++numAtCurrentLevel;
+					}
+					else {
+						learnedClause.add( q );
+					}
+				}
+			}
+			while ( !seen[ trail.get( index ) >> 1 ] ) {
+				--index;
+			}
+			lit = trail.get( index-- );
+			c = reasons[ lit >> 1 ];
+			seen[ lit >> 1 ] = false;
+			--numAtCurrentLevel;
+		} while ( numAtCurrentLevel > 0 );
+		learnedClause.data[ 0 ] = lit ^ 1;
+
+		//drop literals that are implied by other literals of the
+		//learned clause
+		analyzed.clear();
+		int size = 1;
+		for ( int i=1 ; i<learnedClause.size() ; ++i ) {
+			int q = learnedClause.get( i );
+			analyzed.add( q );
+			if ( !isImpliedByLearned( q ) ) {
+				learnedClause.data[ size++ ] = q;
+			}
+		}
+		learnedClause.size = size;
+		for ( int i=0 ; i<analyzed.size() ; ++i ) {
+			seen[ analyzed.get( i ) >> 1 ] = false;
+		}
+
+		if ( size == 1 ) {
+			return 0;
+		}
+		int maxIndex = 1;
+		for ( int i=2 ; i<size ; ++i ) {
+			if ( levels[ learnedClause.get( i ) >> 1 ] > levels[ learnedClause.get( maxIndex ) >> 1 ] ) {
+				maxIndex = i;
+			}
+		}
+		int swap = learnedClause.data[ 1 ];
+		learnedClause.data[ 1 ] = learnedClause.data[ maxIndex ];
+		learnedClause.data[ maxIndex ] = swap;
+		return levels[ learnedClause.get( 1 ) >> 1 ];
+	}
+
+	/**
+	 * @param lit		a literal of the learned clause
+	 * @return			if every other literal of the reason for the given
+	 * 					literal is in the learned clause or assigned at
+	 * 					decision level 0
+	 */
+	private boolean isImpliedByLearned( int lit ) {
+		int reason = reasons[ lit >> 1 ];
+		if ( reason == NONE ) {
+			return false;
+		}
+		int[] lits = clauses.get( reason );
+		for ( int j=1 ; j<lits.length ; ++j ) {
+			int variable = lits[ j ] >> 1;
+			if ( !seen[ variable ] && levels[ variable ] > 0 ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Unassigns every literal above the given decision level
+	 *
+	 * @param level
+	 */
+	private void cancelUntil( int level ) {
+		if ( decisionLevel() <= level ) {
+			return;
+		}
+		int start = levelStarts.get( level );
+		for ( int i=trail.size()-1 ; i>=start ; --i ) {
+			int lit = trail.get( i );
+			int variable = lit >> 1;
+			values[ variable ] = UNASSIGNED;
+			reasons[ variable ] = NONE;
+			savedNegated[ variable ] = (lit & 1) != 0;
+			if ( heapPositions[ variable ] < 0 ) {
+				heapInsert( variable );
+			}
+		}
+		trail.size = start;
+		levelStarts.size = level;
+		propagated = start;
+	}
+
+	/**
+	 * @return		the unassigned variable with the highest activity in its
+	 * 				saved phase, or NONE if every variable is assigned
+	 */
+	private int pickBranchLiteral() {
+		while ( heap.size() > 0 ) {
+			int variable = heapRemoveMax();
+			if ( values[ variable ] == UNASSIGNED ) {
+				return 2*variable + (savedNegated[ variable ] ? 1 : 0);
+			}
+		}
+		return NONE;
+	}
+
+	/**
+	 * Removes the less active half of the learned clauses that
+	 * are longer than two literals and are not the reason for
+	 * any assigned literal
+	 */
+	private void removeInactiveLearned() {
+		IntList candidates = new IntList( numLearned );
+		for ( int c=0 ; c<clauses.size() ; ++c ) {
+			int[] lits = clauses.get( c );
+			if ( lits != null && learned[ c ] && lits.length > 2 &&
+					!(reasons[ lits[ 0 ] >> 1 ] == c && value( lits[ 0 ] ) == TRUE) ) {
+				candidates.add( c );
+			}
+		}
+		double[] activities = new double[ candidates.size() ];
+		for ( int i=0 ; i<activities.length ; ++i ) {
+			activities[ i ] = clauseActivity[ candidates.get( i ) ];
+		}
+		Arrays.sort( activities );
+		double threshold = (activities.length == 0) ? 0 : activities[ activities.length/2 ];
+		for ( int i=0 ; i<candidates.size() ; ++i ) {
+			int c = candidates.get( i );
+			if ( clauseActivity[ c ] < threshold ) {
+				clauses.set( c , null );
+				--numLearned;
+				--numHeld;
+			}
+		}
+		learnedLimit *= LEARNED_LIMIT_GROWTH;
+	}
+
+	private void bumpVariable( int variable ) {
+		activity[ variable ] += variableIncrement;
+		if ( activity[ variable ] > RESCALE_LIMIT ) {
+			for ( int v=0 ; v<numVariables ; ++v ) {
+				activity[ v ] /= RESCALE_LIMIT;
+			}
+			variableIncrement /= RESCALE_LIMIT;
+		}
+		if ( heapPositions[ variable ] >= 0 ) {
+			siftUp( heapPositions[ variable ] );
+		}
+	}
+
+	private void bumpClause( int c ) {
+		clauseActivity[ c ] += clauseIncrement;
+		if ( clauseActivity[ c ] > RESCALE_LIMIT ) {
+			for ( int i=0 ; i<clauses.size() ; ++i ) {
+				clauseActivity[ i ] /= RESCALE_LIMIT;
+			}
+			clauseIncrement /= RESCALE_LIMIT;
+		}
+	}
+
+	/**
+	 * @param i
+	 * @return		the ith number of the Luby sequence 1, 1, 2, 1, 1, 2, 4, ...
+	 * 				counting from 0
+	 */
+	static int luby( int i ) {
+
+		//find the finite subsequence that contains index i
+		//and the size of that subsequence
+		int size = 1;
+		int seq = 0;
+		while ( size < i+1 ) {
+			++seq;
+			size = 2*size + 1;
+		}
+		while ( size-1 != i ) {
+			size = (size-1) >> 1;
+			--seq;
+			i = i % size;
+		}
+		return 1 << seq;
+	}
+
+	private void heapInsert( int variable ) {
+		heapPositions[ variable ] = heap.size();
+		heap.add( variable );
+		siftUp( heap.size()-1 );
+	}
+
+	private int heapRemoveMax() {
+		int rtn = heap.get( 0 );
+		int last = heap.get( heap.size()-1 );
+		heap.size--;
+		heapPositions[ rtn ] = -1;
+		if ( heap.size() > 0 ) {
+			heap.data[ 0 ] = last;
+			heapPositions[ last ] = 0;
+			siftDown( 0 );
+		}
+		return rtn;
+	}
+
+	private void siftUp( int pos ) {
+		int variable = heap.get( pos );
+		while ( pos > 0 ) {
+			int parent = (pos-1) >> 1;
+			if ( activity[ heap.get( parent ) ] >= activity[ variable ] ) {
+				break;
+			}
+			heap.data[ pos ] = heap.get( parent );
+			heapPositions[ heap.get( pos ) ] = pos;
+			pos = parent;
+		}
+		heap.data[ pos ] = variable;
+		heapPositions[ variable ] = pos;
+	}
+
+	private void siftDown( int pos ) {
+		int variable = heap.get( pos );
+		while ( 2*pos+1 < heap.size() ) {
+			int child = 2*pos+1;
+			if ( child+1 < heap.size() && activity[ heap.get( child+1 ) ] > activity[ heap.get( child ) ] ) {
+				++child;
+			}
+			if ( activity[ heap.get( child ) ] <= activity[ variable ] ) {
+				break;
+			}
+			heap.data[ pos ] = heap.get( child );
+			heapPositions[ heap.get( pos ) ] = pos;
+			pos = child;
+		}
+		heap.data[ pos ] = variable;
+		heapPositions[ variable ] = pos;
+	}
+}
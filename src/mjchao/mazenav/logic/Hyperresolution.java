@@ -0,0 +1,40 @@
+package mjchao.mazenav.logic;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+
+/**
+ * Only resolves pairs of clauses in which at least one clause has no
+ * negated terms. A clause with negated terms (the nucleus), e.g. the rule
+ * !Missile(x) OR Weapon(x), has its negated terms resolved away one at a
+ * time by clauses without negated terms (the electrons), e.g. Missile(M1),
+ * until the result has no negated terms either and becomes an electron
+ * itself. Clauses with negated terms are never resolved with each other.
+ * <p>
+ * Hyperresolution resolves all of a nucleus's negated terms in a single
+ * step. Here the clauses in between are kept like any other resolvent, so
+ * each step still resolves a pair of clauses, but the same pairs are
+ * ruled out. This finds a proof whenever there is one.
+ *
+ * @author mjchao
+ *
+ */
+public class Hyperresolution extends UnrestrictedResolution {
+
+	/**
+	 * @param d
+	 * @return		if the given clause has no negated terms
+	 */
+	static boolean isPositive( Disjunction d ) {
+		for ( int i=0 ; i<d.size() ; ++i ) {
+			if ( d.getTerm( i ).negated() ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean mayResolve( Disjunction clause1 , Disjunction clause2 ) {
+		return isPositive( clause1 ) || isPositive( clause2 );
+	}
+}
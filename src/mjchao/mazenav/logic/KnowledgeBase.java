@@ -0,0 +1,549 @@
+package mjchao.mazenav.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+import mjchao.mazenav.logic.StatementCNF.Disjunction.Term;
+import mjchao.mazenav.logic.structures.SymbolTracker;
+import mjchao.mazenav.logic.structures.Variable;
+
+/**
+ * A collection of statements that we know to be true, against which
+ * we can ask whether hypotheses are true.
+ * <p>
+ * Each statement is broken into its clauses only once, when it is told
+ * to the knowledgebase, and each clause is factored again only when the
+ * result could change. Asking a hypothesis only requires converting the
+ * negated hypothesis to CNF, so the cost of converting the knowledgebase
+ * is not paid again on every query.
+ * <p>
+ * The factored clauses of the knowledgebase are also indexed only once,
+ * and every query shares them without copying them. Statements told
+ * later are added on top of the clauses that queries already share, so
+ * only the new clauses are factored and indexed. The clauses of the
+ * knowledgebase are also resolved with each other for a few generations
+ * when they are added, and the resolvents are kept between queries, so
+ * queries only resolve the clauses of the last generation with the rest.
+ * Infinitely many clauses may follow from the knowledgebase alone, so
+ * the number of generations and of kept resolvents is limited, and what
+ * is kept only grows with the statements that are told. If the
+ * hypothesis shares variables with the knowledgebase, those variables
+ * may not be substituted, so the clauses are factored again for that
+ * query.
+ * <p>
+ * Each query may choose a ResolutionStrategy that rules out pairs of
+ * clauses for the resolution algorithm, including pairs of the
+ * knowledgebase's own clauses.
+ * <p>
+ * If neither the knowledgebase nor the negated hypothesis contain any
+ * variables or skolem functions, no unification is needed at all, so
+ * the query is answered by a GroundSolver instead, which keeps the
+ * clauses of the knowledgebase and what it learned from them between
+ * queries.
+ * <p>
+ * If every clause of the knowledgebase is a definite clause, e.g.
+ * Person(x) => Mortal(x), and the hypothesis only consists of facts
+ * without variables, e.g. Mortal(Socrates), a ForwardChainer derives
+ * the facts that follow from the knowledgebase and the query only has
+ * to look them up. The derived facts are kept between queries, so
+ * statements told later only add the facts that follow from them.
+ * <p>
+ * Statements must not be told to a knowledgebase while another
+ * thread is asking it a hypothesis.
+ *
+ * @author mjchao
+ *
+ */
+public class KnowledgeBase {
+
+	/**
+	 * A clause factored while its variables were universally
+	 * quantified or not as recorded
+	 */
+	private static class FactoredClause {
+
+		public final Disjunction factored;
+		public final boolean[] universallyQuantified;
+
+		public FactoredClause( Disjunction factored , boolean[] universallyQuantified ) {
+			this.factored = factored;
+			this.universallyQuantified = universallyQuantified;
+		}
+	}
+
+	/**
+	 * A clause of the knowledgebase along with its factored form
+	 */
+	private static class Clause {
+
+		public final Disjunction disjunction;
+
+		/**
+		 * which of the clause's variables were universally quantified when
+		 * the clause was added to the clauses shared by every query. null
+		 * if the clause has not been added yet
+		 */
+		public boolean[] sharedQuantifiers = null;
+
+		/**
+		 * every variable that appears in this clause
+		 */
+		public final List< Term > variables = new ArrayList< Term >();
+
+		/**
+		 * if this clause does not contain any variables or skolem functions
+		 */
+		public final boolean ground;
+
+		/**
+		 * if this clause can be used for forward chaining
+		 */
+		public final boolean definite;
+
+		/**
+		 * the last time this clause was factored. null if this
+		 * clause has not been factored yet
+		 */
+		private volatile FactoredClause cache = null;
+
+		public Clause( Disjunction disjunction ) {
+			this.disjunction = disjunction;
+			for ( int i=0 ; i<disjunction.size() ; ++i ) {
+				addVariables( disjunction.getTerm( i ) );
+			}
+			this.ground = GroundSolver.isGround( disjunction );
+			this.definite = ForwardChainer.isDefinite( disjunction );
+		}
+
+		private void addVariables( Term t ) {
+			if ( t.getValue() instanceof Variable ) {
+				variables.add( t );
+			}
+			for ( Term arg : t.getArgs() ) {
+				addVariables( arg );
+			}
+		}
+
+		/**
+		 * @param hypothesis
+		 * @return				if any variable in this clause appears
+		 * 						in the given hypothesis
+		 */
+		public boolean sharesVariablesWith( StatementCNF hypothesis ) {
+			for ( Term var : variables ) {
+				if ( hypothesis.containsTerm( var ) ) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * @return		which of this clause's variables are
+		 * 				currently universally quantified
+		 */
+		public boolean[] quantifiers() {
+			boolean[] rtn = new boolean[ variables.size() ];
+			for ( int i=0 ; i<variables.size() ; ++i ) {
+				rtn[ i ] = ((Variable) variables.get( i ).getValue()).universallyQuantified();
+			}
+			return rtn;
+		}
+
+		/**
+		 * Factors this clause for the given hypothesis. Factoring only 
+		 * depends on which of the clause's variables appear in the hypothesis
+		 * and which are universally quantified. So, if no variable appears
+		 * in the hypothesis and the quantifiers have not changed, the clause
+		 * does not need to be factored again.
+		 *
+		 * @param hypothesis
+		 * @param metrics		counts the clauses that were factored
+		 * @return				this clause factored
+		 */
+		public Disjunction factor( StatementCNF hypothesis , ProofMetrics metrics ) {
+			if ( sharesVariablesWith( hypothesis ) ) {
+				metrics.factorCalls.increment();
+				return Resolver.factor( disjunction , hypothesis );
+			}
+			boolean[] universallyQuantified = quantifiers();
+			FactoredClause cached = this.cache;
+			if ( cached == null || !Arrays.equals( cached.universallyQuantified , universallyQuantified ) ) {
+				metrics.factorCalls.increment();
+				cached = new FactoredClause( Resolver.factor( disjunction , hypothesis ) , universallyQuantified );
+				this.cache = cached;
+			}
+			return cached.factored;
+		}
+	}
+
+	/**
+	 * the strategy used by queries that don't choose one
+	 */
+	private static final ResolutionStrategy UNRESTRICTED = new UnrestrictedResolution();
+
+	/**
+	 * a hypothesis without any terms, used when factoring the clauses
+	 * of the knowledgebase that every query shares
+	 */
+	private static final StatementCNF NO_HYPOTHESIS = new StatementCNF( null , new ArrayList< Disjunction >() );
+
+	/**
+	 * the most generations of resolvents of the knowledgebase's own
+	 * clauses that are found each time statements have been told
+	 */
+	static final int RETAINED_ROUNDS = 2;
+
+	/**
+	 * the most clauses that queries share for each clause of
+	 * the knowledgebase, including the clause itself
+	 */
+	static final int RETAINED_CLAUSES_PER_CLAUSE = 4;
+
+	private final SymbolTracker tracker;
+	private final List< Clause > clauses = new ArrayList< Clause >();
+
+	/**
+	 * the factored clauses of the knowledgebase that every query
+	 * shares, and their resolvents. null if no query has needed
+	 * them yet
+	 */
+	private ResolutionState knowledge = null;
+
+	/**
+	 * the number of clauses in the shared state
+	 */
+	private int numShared = 0;
+
+	/**
+	 * the number of clauses that contain variables or skolem functions
+	 */
+	private int numNotGround = 0;
+
+	/**
+	 * the solver that answers queries while every clause is ground,
+	 * and the number of clauses that have been added to it. null if
+	 * no such query has been asked yet
+	 */
+	private GroundSolver groundSolver = null;
+	private int numGroundSolved = 0;
+
+	/**
+	 * the number of clauses that cannot be used for forward chaining
+	 */
+	private int numNotDefinite = 0;
+
+	/**
+	 * the facts derived from the knowledgebase while every clause is
+	 * definite, and the number of clauses that have been added to it.
+	 * null if no such query has been asked yet
+	 */
+	private ForwardChainer forwardChainer = null;
+	private int numChained = 0;
+
+	/**
+	 * Creates a knowledgebase containing the given statements
+	 *
+	 * @param tracker			keeps track of symbols
+	 * @param statements		statements that we know to be true
+	 */
+	public KnowledgeBase( SymbolTracker tracker , StatementCNF... statements ) {
+		this.tracker = tracker;
+		for ( StatementCNF statement : statements ) {
+			tell( statement );
+		}
+	}
+
+	/**
+	 * Adds a statement that we know to be true to this knowledgebase
+	 *
+	 * @param statement
+	 */
+	public void tell( StatementCNF statement ) {
+		for ( Disjunction d : statement.getDisjunctions() ) {
+			Clause c = new Clause( d );
+			clauses.add( c );
+			if ( !c.ground ) {
+				++numNotGround;
+			}
+			if ( !c.definite ) {
+				++numNotDefinite;
+			}
+		}
+	}
+
+	/**
+	 * @return		the tracker that keeps track of this
+	 * 				knowledgebase's symbols
+	 */
+	SymbolTracker getTracker() {
+		return tracker;
+	}
+
+	/**
+	 * @return		the clauses of this knowledgebase in the
+	 * 				order they were told
+	 */
+	List< Disjunction > getClauses() {
+		List< Disjunction > rtn = new ArrayList< Disjunction >( clauses.size() );
+		for ( Clause c : clauses ) {
+			rtn.add( c.disjunction );
+		}
+		return rtn;
+	}
+
+	/**
+	 * @return		the number of clauses in this knowledgebase
+	 */
+	public int size() {
+		return clauses.size();
+	}
+
+	/**
+	 * Determines if the given hypothesis is always true given the
+	 * statements in this knowledgebase.
+	 *
+	 * @param hypothesis		the hypothesis to try and prove
+	 * @return					true if the hypothesis is always true given
+	 * 							the knowledgebase. false otherwise.
+	 */
+	public boolean ask( StatementCNF hypothesis ) {
+		return ask( hypothesis , new ProofMetrics() );
+	}
+
+	/**
+	 * Determines if the given hypothesis is always true given the
+	 * statements in this knowledgebase, and counts the work done
+	 * to find out.
+	 *
+	 * @param hypothesis		the hypothesis to try and prove
+	 * @param metrics			counts the work done by the proof
+	 * @return					true if the hypothesis is always true given
+	 * 							the knowledgebase. false otherwise.
+	 */
+	public boolean ask( StatementCNF hypothesis , ProofMetrics metrics ) {
+		return ask( hypothesis , new ProofBudget() , metrics ) == ProofResult.PROVED;
+	}
+
+	/**
+	 * Tries to determine if the given hypothesis is always true given
+	 * the statements in this knowledgebase without exceeding the given
+	 * budget.
+	 *
+	 * @param hypothesis		the hypothesis to try and prove
+	 * @param budget			limits the work done by the proof
+	 * @return					PROVED if the hypothesis is always true given
+	 * 							the knowledgebase, NOT_PROVED if it is not, or
+	 * 							UNKNOWN if the budget ran out first
+	 */
+	public ProofResult ask( StatementCNF hypothesis , ProofBudget budget ) {
+		return ask( hypothesis , budget , new ProofMetrics() );
+	}
+
+	/**
+	 * Tries to determine if the given hypothesis is always true given
+	 * the statements in this knowledgebase without exceeding the given
+	 * budget, and counts the work done to find out.
+	 *
+	 * @param hypothesis		the hypothesis to try and prove
+	 * @param budget			limits the work done by the proof
+	 * @param metrics			counts the work done by the proof
+	 * @return					PROVED if the hypothesis is always true given
+	 * 							the knowledgebase, NOT_PROVED if it is not, or
+	 * 							UNKNOWN if the budget ran out first
+	 */
+	public ProofResult ask( StatementCNF hypothesis , ProofBudget budget , ProofMetrics metrics ) {
+		return ask( hypothesis , budget , metrics , UNRESTRICTED );
+	}
+
+	/**
+	 * Tries to determine if the given hypothesis is always true given
+	 * the statements in this knowledgebase without exceeding the given
+	 * budget, only resolving the pairs of clauses that the given strategy
+	 * allows. The strategy is not used if the hypothesis is answered by
+	 * forward chaining or by the GroundSolver.
+	 *
+	 * @param hypothesis		the hypothesis to try and prove
+	 * @param budget			limits the work done by the proof
+	 * @param metrics			counts the work done by the proof
+	 * @param strategy			decides which pairs of clauses are resolved
+	 * @return					PROVED if the hypothesis is always true given
+	 * 							the knowledgebase, NOT_PROVED if it is not, or
+	 * 							UNKNOWN if the budget ran out first
+	 */
+	public ProofResult ask( StatementCNF hypothesis , ProofBudget budget , ProofMetrics metrics , ResolutionStrategy strategy ) {
+		ProofResult rtn = prove( hypothesis , budget , metrics , strategy );
+		metrics.finishProof();
+		return rtn;
+	}
+
+	private ProofResult prove( StatementCNF hypothesis , ProofBudget budget , ProofMetrics metrics , ResolutionStrategy strategy ) {
+		if ( numNotDefinite == 0 && ForwardChainer.isGroundFacts( hypothesis.getDisjunctions() ) ) {
+			return proveForward( hypothesis , budget , metrics );
+		}
+		long start = System.nanoTime();
+		StatementCNF negatedHypothesis = StatementCNF.negate( hypothesis , tracker );
+		if ( numNotGround == 0 && GroundSolver.isGround( negatedHypothesis.getDisjunctions() ) ) {
+			metrics.conversionNanos.add( System.nanoTime() - start );
+			return proveGround( negatedHypothesis , budget , metrics );
+		}
+		for ( Clause c : clauses ) {
+			if ( c.sharesVariablesWith( hypothesis ) ) {
+				List< Disjunction > refutationClauses = buildRefutationClauses( hypothesis , negatedHypothesis , metrics );
+				metrics.conversionNanos.add( System.nanoTime() - start );
+				return Resolver.saturate( refutationClauses.subList( 0 , clauses.size() ) , refutationClauses.subList( clauses.size() , refutationClauses.size() ) ,
+						hypothesis , null , metrics , budget , strategy );
+			}
+		}
+
+		List< Disjunction > negatedClauses = new ArrayList< Disjunction >( negatedHypothesis.getDisjunctions().size() );
+		for ( Disjunction d : negatedHypothesis.getDisjunctions() ) {
+			negatedClauses.add( Resolver.factor( d , hypothesis ) );
+		}
+		metrics.factorCalls.add( negatedClauses.size() );
+		metrics.conversionNanos.add( System.nanoTime() - start );
+
+		ResolutionState proof = new ResolutionState( getKnowledge( metrics , budget ) , hypothesis , strategy );
+		proof.add( negatedClauses , true );
+		return proof.saturate( null , metrics , budget );
+	}
+
+	/**
+	 * Adds the clauses of the knowledgebase that the ForwardChainer
+	 * doesn't have yet and looks up the facts of the hypothesis,
+	 * deriving more facts until they are found.
+	 *
+	 * @param hypothesis	clauses of facts without variables
+	 * @param budget
+	 * @param metrics
+	 * @return
+	 */
+	private synchronized ProofResult proveForward( StatementCNF hypothesis , ProofBudget budget , ProofMetrics metrics ) {
+		if ( forwardChainer == null ) {
+			forwardChainer = new ForwardChainer();
+		}
+		if ( numChained < clauses.size() ) {
+			long start = System.nanoTime();
+			for ( int i=numChained ; i<clauses.size() ; ++i ) {
+				forwardChainer.addClause( clauses.get( i ).disjunction , metrics );
+			}
+			numChained = clauses.size();
+			metrics.conversionNanos.add( System.nanoTime() - start );
+		}
+		return forwardChainer.prove( hypothesis.getDisjunctions() , budget , metrics );
+	}
+
+	/**
+	 * Adds the clauses of the knowledgebase that the GroundSolver
+	 * doesn't have yet and asks it the hypothesis.
+	 *
+	 * @param negatedHypothesis		the ground clauses of !Hypothesis
+	 * @param budget
+	 * @param metrics
+	 * @return
+	 */
+	private synchronized ProofResult proveGround( StatementCNF negatedHypothesis , ProofBudget budget , ProofMetrics metrics ) {
+		if ( groundSolver == null ) {
+			groundSolver = new GroundSolver();
+		}
+		if ( numGroundSolved < clauses.size() ) {
+			long start = System.nanoTime();
+			for ( int i=numGroundSolved ; i<clauses.size() ; ++i ) {
+				groundSolver.addClause( clauses.get( i ).disjunction );
+			}
+			numGroundSolved = clauses.size();
+			metrics.conversionNanos.add( System.nanoTime() - start );
+		}
+		return groundSolver.prove( negatedHypothesis.getDisjunctions() , budget , metrics );
+	}
+
+	/**
+	 * Gets the factored clauses of the knowledgebase that every query
+	 * shares. The state is never modified once a query may be using it,
+	 * so the clauses told since the last query are added to a new state
+	 * that shares the previous one, and only those clauses are factored
+	 * and indexed. They are then resolved with the clauses of the
+	 * knowledgebase for at most RETAINED_ROUNDS generations, as long as
+	 * the state keeps at most RETAINED_CLAUSES_PER_CLAUSE clauses for
+	 * each clause of the knowledgebase.
+	 * <p>
+	 * A state is merged with the state it shares while it keeps at least
+	 * half as many clauses, so each clause is only indexed again a
+	 * logarithmic number of times, and queries only look through a
+	 * logarithmic number of shared states. If the quantifiers of the
+	 * variables in the shared clauses have changed, every clause is
+	 * added again, but each clause is only factored again if its own
+	 * quantifiers have changed.
+	 *
+	 * @param metrics		counts the work done to add the clauses
+	 * @param budget		limits the work done to resolve the
+	 * 						added clauses
+	 * @return				a state holding the clauses of the knowledgebase
+	 * 						and some of their resolvents
+	 */
+	private synchronized ResolutionState getKnowledge( ProofMetrics metrics , ProofBudget budget ) {
+		for ( int i=0 ; i<numShared ; ++i ) {
+			Clause c = clauses.get( i );
+			if ( !Arrays.equals( c.sharedQuantifiers , c.quantifiers() ) ) {
+				knowledge = null;
+				numShared = 0;
+				break;
+			}
+		}
+		if ( knowledge != null && numShared == clauses.size() ) {
+			return knowledge;
+		}
+		long start = System.nanoTime();
+		List< Disjunction > factoredClauses = new ArrayList< Disjunction >( clauses.size() - numShared );
+		for ( int i=numShared ; i<clauses.size() ; ++i ) {
+			Clause c = clauses.get( i );
+			c.sharedQuantifiers = c.quantifiers();
+			factoredClauses.add( c.factor( NO_HYPOTHESIS , metrics ) );
+		}
+		ResolutionState extended;
+		if ( knowledge == null ) {
+			extended = new ResolutionState( NO_HYPOTHESIS , UNRESTRICTED );
+		}
+		else {
+			extended = new ResolutionState( knowledge , NO_HYPOTHESIS , UNRESTRICTED );
+		}
+		extended.add( factoredClauses , false );
+		metrics.conversionNanos.add( System.nanoTime() - start );
+
+		//only finished generations are kept, so the state can be
+		//shared even if the budget runs out
+		long maxClauses = (long) RETAINED_CLAUSES_PER_CLAUSE * clauses.size();
+		extended.saturate( null , metrics , budget , (int) Math.min( maxClauses , budget.getMaxClauses() ) , RETAINED_ROUNDS );
+
+		start = System.nanoTime();
+		while ( extended.getShared() != null && 2*extended.ownSize() >= extended.getShared().ownSize() ) {
+			extended = extended.mergeShared();
+		}
+		metrics.conversionNanos.add( System.nanoTime() - start );
+		knowledge = extended;
+		numShared = clauses.size();
+		return knowledge;
+	}
+
+	/**
+	 * @param hypothesis
+	 * @return				the factored clauses of KB AND !Hypothesis
+	 */
+	List< Disjunction > buildRefutationClauses( StatementCNF hypothesis ) {
+		return buildRefutationClauses( hypothesis , StatementCNF.negate( hypothesis , tracker ) , new ProofMetrics() );
+	}
+
+	private List< Disjunction > buildRefutationClauses( StatementCNF hypothesis , StatementCNF negatedHypothesis , ProofMetrics metrics ) {
+		List< Disjunction > rtn = new ArrayList< Disjunction >( clauses.size() + negatedHypothesis.getDisjunctions().size() );
+		for ( Clause c : clauses ) {
+			rtn.add( c.factor( hypothesis , metrics ) );
+		}
+		for ( Disjunction d : negatedHypothesis.getDisjunctions() ) {
+			rtn.add( Resolver.factor( d , hypothesis ) );
+		}
+		metrics.factorCalls.add( negatedHypothesis.getDisjunctions().size() );
+		return rtn;
+	}
+}
@@ -0,0 +1,325 @@
+package mjchao.mazenav.logic;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import mjchao.mazenav.logic.structures.Symbol;
+import mjchao.mazenav.logic.structures.SymbolTracker;
+import mjchao.mazenav.logic.structures.Variable;
+
+/**
+ * Loads a knowledgebase from a file that declares functions and
+ * constants along with the statements that use them. Each line is
+ * a comment starting with "#", a declaration in the same format as
+ * the definition files read by SymbolTracker.fromDataFile, or a
+ * statement, e.g.
+ *
+ * <pre>
+ * FUNCTION: Cat, Animal
+ * CONSTANT: Tuna
+ * STATEMENT: FORALL(x) Cat(x) => Animal(x)
+ * STATEMENT: Cat(Tuna)
+ * </pre>
+ *
+ * The file is read in one pass. Statements are converted to CNF in
+ * batches while the rest of the file is being read, on several threads
+ * if requested, and are told to the knowledgebase in the order they
+ * appear in the file. A statement may only use the functions and
+ * constants declared above it.
+ * <p>
+ * Statements are split into tokens as they are read, and every variable
+ * they name is given a system variable on the reading thread before the
+ * statement is put in a batch. Each batch carries these mappings to the
+ * thread that converts it, so a free variable that appears in more than
+ * one statement refers to the same variable in all of them no matter how
+ * many threads are used.
+ *
+ * @author mjchao
+ *
+ */
+public class KnowledgeBaseLoader {
+
+	private static final String STATEMENT = "STATEMENT:";
+
+	/**
+	 * the number of statements each thread converts at a time
+	 */
+	static final int BATCH_SIZE = 256;
+
+	/**
+	 * Converts a batch of statements to CNF
+	 *
+	 * @author mjchao
+	 *
+	 */
+	private class Batch implements Callable< List< StatementCNF > > {
+
+		private final String source;
+		private final List< List< Symbol > > statements = new ArrayList< List< Symbol > >( BATCH_SIZE );
+		private final List< Integer > lineNumbers = new ArrayList< Integer >( BATCH_SIZE );
+
+		/**
+		 * the system variables that the user-defined variables
+		 * in this batch's statements are standardized to
+		 */
+		private final HashMap< Variable , Variable > standardized = new HashMap< Variable , Variable >();
+
+		public Batch( String source ) {
+			this.source = source;
+		}
+
+		/**
+		 * Splits a statement into tokens and adds it to this batch. This
+		 * must be called by the thread that reads the file, so that the
+		 * statement's variables are standardized the same way no matter
+		 * which thread converts it.
+		 *
+		 * @param statement
+		 * @param lineNumber
+		 */
+		public void add( String statement , int lineNumber ) {
+			List< Symbol > tokens;
+			try {
+				tokens = new Tokenizer( statement , tracker ).tokenize();
+			}
+			catch ( IllegalArgumentException e ) {
+				throw atLine( lineNumber , e );
+			}
+			HashMap< Variable , Variable > mapping = tracker.getSystemVariableMapping();
+			for ( Symbol token : tokens ) {
+				if ( token instanceof Variable && !tracker.isSystemVariable( (Variable) token ) ) {
+					Variable systemVariable = mapping.get( token );
+					if ( systemVariable == null ) {
+						systemVariable = tracker.getNewSystemVariable();
+						mapping.put( (Variable) token , systemVariable );
+					}
+					standardized.put( (Variable) token , systemVariable );
+				}
+			}
+			statements.add( tokens );
+			lineNumbers.add( lineNumber );
+		}
+
+		public int size() {
+			return statements.size();
+		}
+
+		/**
+		 * @param lineNumber
+		 * @param cause			why the statement on the given line couldn't be converted
+		 * @return				an IllegalArgumentException if the statement was invalid,
+		 * 						or an IllegalStateException otherwise, that says which
+		 * 						line failed
+		 */
+		private RuntimeException atLine( int lineNumber , RuntimeException cause ) {
+			String where = " at line " + lineNumber + " in \"" + source + "\": ";
+			if ( cause instanceof IllegalArgumentException ) {
+				return new IllegalArgumentException( "Invalid statement" + where + cause.getMessage() , cause );
+			}
+			return new IllegalStateException( "Could not convert statement" + where + cause , cause );
+		}
+
+		@Override
+		public List< StatementCNF > call() {
+			tracker.getSystemVariableMapping().putAll( standardized );
+			List< StatementCNF > rtn = new ArrayList< StatementCNF >( statements.size() );
+			for ( int i=0 ; i<statements.size() ; ++i ) {
+				try {
+					rtn.add( StatementCNF.fromTokens( statements.get( i ) , tracker ) );
+				}
+				catch ( RuntimeException e ) {
+					throw atLine( lineNumbers.get( i ) , e );
+				}
+			}
+			return rtn;
+		}
+	}
+
+	private final SymbolTracker tracker;
+	private final int numThreads;
+
+	/**
+	 * Creates a loader that converts statements on the thread
+	 * that reads the file.
+	 *
+	 * @param tracker			keeps track of symbols
+	 */
+	public KnowledgeBaseLoader( SymbolTracker tracker ) {
+		this( tracker , 1 );
+	}
+
+	/**
+	 * @param tracker			keeps track of symbols
+	 * @param numThreads		the number of threads that convert
+	 * 							statements to CNF. If this is 1, statements
+	 * 							are converted by the thread reading the file
+	 */
+	public KnowledgeBaseLoader( SymbolTracker tracker , int numThreads ) {
+		if ( numThreads <= 0 ) {
+			throw new IllegalArgumentException( "Number of threads must be positive: " + numThreads );
+		}
+		this.tracker = tracker;
+		this.numThreads = numThreads;
+	}
+
+	/**
+	 * Reads the declarations in the given file into the tracker and
+	 * tells the statements in the file to the given knowledgebase.
+	 *
+	 * @param filename
+	 * @param kb				a knowledgebase that uses this loader's tracker
+	 * @return					the number of statements that were loaded
+	 * @throws IOException
+	 */
+	public int load( String filename , KnowledgeBase kb ) throws IOException {
+		BufferedReader reader = Files.newBufferedReader( Paths.get( filename ) , StandardCharsets.UTF_8 );
+		try {
+			return load( reader , filename , kb );
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Reads the declarations from the given reader into the tracker
+	 * and tells the statements it contains to the given knowledgebase.
+	 * The reader is not closed.
+	 *
+	 * @param input
+	 * @param source			the name of the input used in error messages
+	 * @param kb				a knowledgebase that uses this loader's tracker
+	 * @return					the number of statements that were loaded
+	 * @throws IOException
+	 */
+	public int load( Reader input , String source , KnowledgeBase kb ) throws IOException {
+		BufferedReader reader = input instanceof BufferedReader ? (BufferedReader) input : new BufferedReader( input );
+		ExecutorService executor = numThreads > 1 ? Executors.newFixedThreadPool( numThreads ) : null;
+
+		//the batches being converted, in the order they were read
+		ArrayDeque< Future< List< StatementCNF > > > pending = new ArrayDeque< Future< List< StatementCNF > > >();
+		try {
+			int numStatements = 0;
+			int lineNumber = 0;
+			Batch batch = new Batch( source );
+			String nextLine;
+			while ( (nextLine = reader.readLine()) != null ) {
+				++lineNumber;
+				String line = nextLine.trim();
+
+				//ignore comments and blank lines
+				if ( line.isEmpty() || line.startsWith( "#" ) ) {
+					continue;
+				}
+
+				if ( line.startsWith( STATEMENT ) ) {
+					batch.add( line.substring( STATEMENT.length() ) , lineNumber );
+					++numStatements;
+					if ( batch.size() == BATCH_SIZE ) {
+						submit( batch , executor , pending , kb );
+						batch = new Batch( source );
+					}
+					continue;
+				}
+
+				//the statements above a declaration must not see it,
+				//so they are finished before it is read
+				submit( batch , executor , pending , kb );
+				batch = new Batch( source );
+				while ( !pending.isEmpty() ) {
+					tellNext( pending , kb );
+				}
+				if ( !tracker.addDeclaration( line ) ) {
+					throw new IllegalArgumentException( "Undefined type at line " + lineNumber +
+														" in \"" + source + "\": " + line + "\n" +
+														"Valid types are \"FUNCTION\", \"CONSTANT\", and \"STATEMENT\"" );
+				}
+			}
+			submit( batch , executor , pending , kb );
+			while ( !pending.isEmpty() ) {
+				tellNext( pending , kb );
+			}
+			return numStatements;
+		}
+		finally {
+			if ( executor != null ) {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Starts converting a batch of statements. If enough batches are
+	 * already being converted to keep every thread busy, the oldest one
+	 * is told to the knowledgebase first so that the statements that have
+	 * been read but not told do not take up too much memory.
+	 *
+	 * @param batch
+	 * @param executor			the threads that convert statements,
+	 * 							or null to convert them on this thread
+	 * @param pending			the batches being converted
+	 * @param kb
+	 * @throws IOException
+	 */
+	private void submit( Batch batch , ExecutorService executor , ArrayDeque< Future< List< StatementCNF > > > pending ,
+			KnowledgeBase kb ) throws IOException {
+		if ( batch.size() == 0 ) {
+			return;
+		}
+		if ( executor == null ) {
+			for ( StatementCNF statement : batch.call() ) {
+				kb.tell( statement );
+			}
+			return;
+		}
+		while ( pending.size() >= 2*numThreads ) {
+			tellNext( pending , kb );
+		}
+		pending.add( executor.submit( batch ) );
+	}
+
+	/**
+	 * Waits for the oldest batch to be converted and tells
+	 * its statements to the knowledgebase.
+	 *
+	 * @param pending
+	 * @param kb
+	 * @throws IOException
+	 */
+	private static void tellNext( ArrayDeque< Future< List< StatementCNF > > > pending , KnowledgeBase kb ) throws IOException {
+		List< StatementCNF > statements;
+		try {
+			statements = pending.remove().get();
+		}
+		catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException( "Interrupted while loading knowledgebase." );
+		}
+		catch ( ExecutionException e ) {
+			if ( e.getCause() instanceof RuntimeException ) {
+				throw (RuntimeException) e.getCause();
+			}
+			if ( e.getCause() instanceof Error ) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException( e.getCause() );
+		}
+		for ( StatementCNF statement : statements ) {
+			kb.tell( statement );
+		}
+	}
+}
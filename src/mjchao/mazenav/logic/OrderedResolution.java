@@ -0,0 +1,72 @@
+package mjchao.mazenav.logic;
+
+import java.util.HashMap;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+import mjchao.mazenav.logic.StatementCNF.Disjunction.Term;
+import mjchao.mazenav.logic.structures.Function;
+
+/**
+ * Only resolves each clause on its greatest terms, as ordered by the
+ * precedence of their predicates. For example, if Criminal comes before
+ * Sells in the precedence, the clause !Sells(x,y,z) OR Criminal(x) is
+ * only resolved on Criminal(x), so the facts about Sells are not used
+ * until Criminal has been resolved away.
+ * <p>
+ * Predicates that are not in the precedence come after every predicate
+ * that is, and terms that aren't predicates, e.g. propositions, may
+ * always be resolved on. Substituting variables never changes the
+ * predicate of a term, so the order of two terms stays the same however
+ * the clause is unified later, and this finds a proof whenever there
+ * is one.
+ *
+ * @author mjchao
+ *
+ */
+public class OrderedResolution extends UnrestrictedResolution {
+
+	/**
+	 * the position of each predicate in the precedence, by name
+	 */
+	private final HashMap< String , Integer > ranks = new HashMap< String , Integer >();
+
+	/**
+	 * @param precedence		names of predicates, from the
+	 * 							greatest to the least
+	 */
+	public OrderedResolution( String... precedence ) {
+		for ( int i=0 ; i<precedence.length ; ++i ) {
+			if ( ranks.put( precedence[ i ] , precedence.length - i ) != null ) {
+				throw new IllegalArgumentException( "Predicate appears twice in precedence: " + precedence[ i ] );
+			}
+		}
+	}
+
+	/**
+	 * @param t
+	 * @return		the rank of the given term's predicate, which is greater
+	 * 				for greater terms, or -1 if the term may always be
+	 * 				resolved on
+	 */
+	private int rank( Term t ) {
+		if ( !(t.getValue() instanceof Function) ) {
+			return -1;
+		}
+		Integer rtn = ranks.get( t.getValue().getSymbolName() );
+		return (rtn == null) ? 0 : rtn;
+	}
+
+	@Override
+	public boolean mayResolveOn( Disjunction clause , int literal ) {
+		int rank = rank( clause.getTerm( literal ) );
+		if ( rank == -1 ) {
+			return true;
+		}
+		for ( int i=0 ; i<clause.size() ; ++i ) {
+			if ( rank( clause.getTerm( i ) ) > rank ) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
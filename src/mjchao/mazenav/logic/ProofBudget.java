@@ -0,0 +1,87 @@
+package mjchao.mazenav.logic;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how much work may be spent proving a hypothesis. A proof
+ * gives up with an UNKNOWN result once the deadline passes, once it
+ * holds more than the maximum number of clauses, or once the budget
+ * is cancelled from another thread.
+ * <p>
+ * The deadline is fixed when the budget is created, so one budget can
+ * be shared by several proofs that all have to finish by the same time.
+ * Checking the budget only takes a volatile read and a call to
+ * System.nanoTime(), so the resolution algorithm checks it before
+ * resolving each pair of clauses.
+ *
+ * @author mjchao
+ *
+ */
+public class ProofBudget {
+
+	private final boolean hasDeadline;
+	private final long deadline;
+	private final int maxClauses;
+	private volatile boolean cancelled = false;
+
+	/**
+	 * Creates a budget without a deadline or a maximum number of
+	 * clauses. The proof only stops early if it is cancelled.
+	 */
+	public ProofBudget() {
+		this.hasDeadline = false;
+		this.deadline = 0;
+		this.maxClauses = Integer.MAX_VALUE;
+	}
+
+	/**
+	 * @param timeout		how long from now proofs may run
+	 * @param unit			the units of the timeout
+	 * @param maxClauses	the most clauses a proof may hold at once,
+	 * 						including the knowledgebase
+	 */
+	public ProofBudget( long timeout , TimeUnit unit , int maxClauses ) {
+		if ( timeout < 0 ) {
+			throw new IllegalArgumentException( "Timeout cannot be negative: " + timeout );
+		}
+		if ( maxClauses <= 0 ) {
+			throw new IllegalArgumentException( "Maximum number of clauses must be positive: " + maxClauses );
+		}
+		long now = System.nanoTime();
+		long nanos = unit.toNanos( timeout );
+		this.hasDeadline = nanos < Long.MAX_VALUE - now;
+		this.deadline = now + nanos;
+		this.maxClauses = maxClauses;
+	}
+
+	/**
+	 * Stops every proof that uses this budget as soon as possible.
+	 * Those proofs will return UNKNOWN unless they have already
+	 * finished.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	/**
+	 * @return		if this budget has been cancelled
+	 */
+	public boolean isCancelled() {
+		return this.cancelled;
+	}
+
+	/**
+	 * @return		the most clauses a proof may hold at once
+	 */
+	public int getMaxClauses() {
+		return this.maxClauses;
+	}
+
+	/**
+	 * @return		if this budget has been cancelled or
+	 * 				its deadline has passed
+	 */
+	boolean isExhausted() {
+		return this.cancelled || (this.hasDeadline && System.nanoTime() - this.deadline > 0);
+	}
+}
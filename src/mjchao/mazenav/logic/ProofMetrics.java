@@ -0,0 +1,283 @@
+package mjchao.mazenav.logic;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counts the work done while proving hypotheses: how many generations
+ * of the resolution algorithm ran, how many clauses were produced and
+ * discarded, how many unifications were attempted, and how long each
+ * phase of the proof took. The counters can be updated by multiple
+ * threads at the same time, so one ProofMetrics object can be passed
+ * to a parallel proof or shared by several proofs.
+ * <p>
+ * Every finished proof is also added to a set of totals, which can be
+ * published through JMX by calling {@link ProofMetrics#registerMBean()}.
+ * If one ProofMetrics object is used for several proofs, the work of
+ * each proof is only added to the totals once.
+ *
+ * @author mjchao
+ *
+ */
+public class ProofMetrics implements ProofMetricsMXBean {
+
+	/**
+	 * The name under which the totals are registered with JMX
+	 */
+	public static final String MBEAN_NAME = "mjchao.mazenav.logic:type=ProofMetrics";
+
+	private static final ProofMetrics TOTALS = new ProofMetrics();
+
+	/**
+	 * @return		the totals over every proof that has finished
+	 */
+	public static Snapshot totals() {
+		return TOTALS.snapshot();
+	}
+
+	/**
+	 * Publishes the totals over every proof through JMX under
+	 * {@link ProofMetrics#MBEAN_NAME}. Does nothing if they are
+	 * already published.
+	 */
+	public static synchronized void registerMBean() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName( MBEAN_NAME );
+			if ( !server.isRegistered( name ) ) {
+				server.registerMBean( TOTALS , name );
+			}
+		}
+		catch ( JMException e ) {
+			throw new IllegalStateException( "Could not register proof metrics with JMX." , e );
+		}
+	}
+
+	final LongAdder proofs = new LongAdder();
+	final LongAdder rounds = new LongAdder();
+	final LongAdder clausesGenerated = new LongAdder();
+	final LongAdder clausesKept = new LongAdder();
+	final LongAdder duplicatesRejected = new LongAdder();
+	final LongAdder subsumedRejected = new LongAdder();
+	final LongAdder unifyAttempts = new LongAdder();
+	final LongAdder unifySuccesses = new LongAdder();
+	final LongAdder factorCalls = new LongAdder();
+	final LongAdder conversionNanos = new LongAdder();
+	final LongAdder resolutionNanos = new LongAdder();
+	final LongAdder filteringNanos = new LongAdder();
+
+	/**
+	 * the values of the counters that have already been added to the
+	 * totals. Counters only ever increase, so the work done since then
+	 * is the difference between the counters and these values.
+	 */
+	private Snapshot addedToTotals = new Snapshot( this );
+
+	/**
+	 * Records that a proof using these metrics has finished and adds
+	 * the work counted since the last proof finished to the totals.
+	 * If several proofs share these metrics, the work of one that is
+	 * still running may be added when another one finishes, but no work
+	 * is ever added twice.
+	 */
+	synchronized void finishProof() {
+		proofs.increment();
+		Snapshot current = snapshot();
+		Snapshot added = addedToTotals;
+		TOTALS.proofs.add( current.getProofs() - added.getProofs() );
+		TOTALS.rounds.add( current.getRounds() - added.getRounds() );
+		TOTALS.clausesGenerated.add( current.getClausesGenerated() - added.getClausesGenerated() );
+		TOTALS.clausesKept.add( current.getClausesKept() - added.getClausesKept() );
+		TOTALS.duplicatesRejected.add( current.getDuplicatesRejected() - added.getDuplicatesRejected() );
+		TOTALS.subsumedRejected.add( current.getSubsumedRejected() - added.getSubsumedRejected() );
+		TOTALS.unifyAttempts.add( current.getUnifyAttempts() - added.getUnifyAttempts() );
+		TOTALS.unifySuccesses.add( current.getUnifySuccesses() - added.getUnifySuccesses() );
+		TOTALS.factorCalls.add( current.getFactorCalls() - added.getFactorCalls() );
+		TOTALS.conversionNanos.add( current.getConversionNanos() - added.getConversionNanos() );
+		TOTALS.resolutionNanos.add( current.getResolutionNanos() - added.getResolutionNanos() );
+		TOTALS.filteringNanos.add( current.getFilteringNanos() - added.getFilteringNanos() );
+		addedToTotals = current;
+	}
+
+	/**
+	 * @return		the current values of the counters. The snapshot
+	 * 				does not change if the counters are updated later.
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot( this );
+	}
+
+	@Override
+	public long getProofs() {
+		return proofs.sum();
+	}
+
+	@Override
+	public long getRounds() {
+		return rounds.sum();
+	}
+
+	@Override
+	public long getClausesGenerated() {
+		return clausesGenerated.sum();
+	}
+
+	@Override
+	public long getClausesKept() {
+		return clausesKept.sum();
+	}
+
+	@Override
+	public long getDuplicatesRejected() {
+		return duplicatesRejected.sum();
+	}
+
+	@Override
+	public long getSubsumedRejected() {
+		return subsumedRejected.sum();
+	}
+
+	@Override
+	public long getUnifyAttempts() {
+		return unifyAttempts.sum();
+	}
+
+	@Override
+	public long getUnifySuccesses() {
+		return unifySuccesses.sum();
+	}
+
+	@Override
+	public long getFactorCalls() {
+		return factorCalls.sum();
+	}
+
+	@Override
+	public long getConversionNanos() {
+		return conversionNanos.sum();
+	}
+
+	@Override
+	public long getResolutionNanos() {
+		return resolutionNanos.sum();
+	}
+
+	@Override
+	public long getFilteringNanos() {
+		return filteringNanos.sum();
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+
+	/**
+	 * The values of the counters of a ProofMetrics object
+	 * at one point in time
+	 */
+	public static final class Snapshot implements ProofMetricsMXBean {
+
+		private final long proofs;
+		private final long rounds;
+		private final long clausesGenerated;
+		private final long clausesKept;
+		private final long duplicatesRejected;
+		private final long subsumedRejected;
+		private final long unifyAttempts;
+		private final long unifySuccesses;
+		private final long factorCalls;
+		private final long conversionNanos;
+		private final long resolutionNanos;
+		private final long filteringNanos;
+
+		Snapshot( ProofMetrics metrics ) {
+			this.proofs = metrics.getProofs();
+			this.rounds = metrics.getRounds();
+			this.clausesGenerated = metrics.getClausesGenerated();
+			this.clausesKept = metrics.getClausesKept();
+			this.duplicatesRejected = metrics.getDuplicatesRejected();
+			this.subsumedRejected = metrics.getSubsumedRejected();
+			this.unifyAttempts = metrics.getUnifyAttempts();
+			this.unifySuccesses = metrics.getUnifySuccesses();
+			this.factorCalls = metrics.getFactorCalls();
+			this.conversionNanos = metrics.getConversionNanos();
+			this.resolutionNanos = metrics.getResolutionNanos();
+			this.filteringNanos = metrics.getFilteringNanos();
+		}
+
+		@Override
+		public long getProofs() {
+			return proofs;
+		}
+
+		@Override
+		public long getRounds() {
+			return rounds;
+		}
+
+		@Override
+		public long getClausesGenerated() {
+			return clausesGenerated;
+		}
+
+		@Override
+		public long getClausesKept() {
+			return clausesKept;
+		}
+
+		@Override
+		public long getDuplicatesRejected() {
+			return duplicatesRejected;
+		}
+
+		@Override
+		public long getSubsumedRejected() {
+			return subsumedRejected;
+		}
+
+		@Override
+		public long getUnifyAttempts() {
+			return unifyAttempts;
+		}
+
+		@Override
+		public long getUnifySuccesses() {
+			return unifySuccesses;
+		}
+
+		@Override
+		public long getFactorCalls() {
+			return factorCalls;
+		}
+
+		@Override
+		public long getConversionNanos() {
+			return conversionNanos;
+		}
+
+		@Override
+		public long getResolutionNanos() {
+			return resolutionNanos;
+		}
+
+		@Override
+		public long getFilteringNanos() {
+			return filteringNanos;
+		}
+
+		@Override
+		public String toString() {
+			return "proofs=" + proofs + " rounds=" + rounds +
+					" clausesGenerated=" + clausesGenerated + " clausesKept=" + clausesKept +
+					" duplicatesRejected=" + duplicatesRejected + " subsumedRejected=" + subsumedRejected +
+					" unifyAttempts=" + unifyAttempts + " unifySuccesses=" + unifySuccesses +
+					" factorCalls=" + factorCalls + " conversionNanos=" + conversionNanos +
+					" resolutionNanos=" + resolutionNanos + " filteringNanos=" + filteringNanos;
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package mjchao.mazenav.logic;
+
+/**
+ * The counters of a ProofMetrics object, as seen through JMX. The
+ * registered ProofMetrics object holds the totals over every proof
+ * that has finished since the program started.
+ *
+ * @author mjchao
+ *
+ * @see {@link ProofMetrics#registerMBean()}
+ */
+public interface ProofMetricsMXBean {
+
+	/**
+	 * @return		the number of proofs that have been attempted
+	 */
+	public long getProofs();
+
+	/**
+	 * @return		the number of generations of the resolution algorithm
+	 */
+	public long getRounds();
+
+	/**
+	 * @return		the number of resolvents produced by resolving pairs
+	 * 				of clauses, before duplicates are removed
+	 */
+	public long getClausesGenerated();
+
+	/**
+	 * @return		the number of resolvents that were kept
+	 */
+	public long getClausesKept();
+
+	/**
+	 * @return		the number of resolvents discarded because they
+	 * 				duplicated a clause that was already kept
+	 */
+	public long getDuplicatesRejected();
+
+	/**
+	 * @return		the number of resolvents discarded because a clause
+	 * 				that was already kept subsumed them
+	 */
+	public long getSubsumedRejected();
+
+	/**
+	 * @return		the number of pairs of terms we tried to unify
+	 * 				when resolving pairs of clauses
+	 */
+	public long getUnifyAttempts();
+
+	/**
+	 * @return		the number of pairs of terms that unified
+	 */
+	public long getUnifySuccesses();
+
+	/**
+	 * @return		the number of clauses that were factored
+	 */
+	public long getFactorCalls();
+
+	/**
+	 * @return		nanoseconds spent converting the hypothesis and the
+	 * 				knowledgebase to factored clauses
+	 */
+	public long getConversionNanos();
+
+	/**
+	 * @return		nanoseconds spent resolving pairs of clauses
+	 */
+	public long getResolutionNanos();
+
+	/**
+	 * @return		nanoseconds spent factoring resolvents and
+	 * 				discarding the redundant ones
+	 */
+	public long getFilteringNanos();
+}
@@ -0,0 +1,27 @@
+package mjchao.mazenav.logic;
+
+/**
+ * The outcome of trying to prove a hypothesis within a ProofBudget
+ *
+ * @author mjchao
+ *
+ */
+public enum ProofResult {
+
+	/**
+	 * the hypothesis is always true given the knowledgebase
+	 */
+	PROVED ,
+
+	/**
+	 * nothing more could be inferred and the
+	 * hypothesis was not proved
+	 */
+	NOT_PROVED ,
+
+	/**
+	 * the budget ran out before the hypothesis could
+	 * either be proved or not
+	 */
+	UNKNOWN;
+}
@@ -0,0 +1,689 @@
+package mjchao.mazenav.logic;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mjchao.mazenav.logic.Resolver.Resolvent;
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+
+/**
+ * The clauses kept so far by the level-by-level resolution algorithm.
+ * Each generation, every kept clause is resolved with the clauses that
+ * were added in the previous generation. So, the algorithm can be stopped
+ * once no new clauses are added and resumed later after more clauses
+ * are added, without resolving any pair of clauses twice.
+ * <p>
+ * Only the pairs of clauses that the ResolutionStrategy allows are
+ * resolved. If the strategy prefers some clauses, a generation only
+ * resolves the pairs that include a preferred clause, and the other pairs
+ * of the clauses added in that generation are put off. They are resolved
+ * in a generation of their own once a generation of preferred pairs does
+ * not add any new clauses.
+ * <p>
+ * A state may share the clauses of another state without copying them,
+ * e.g. the clauses of a knowledgebase that are shared by every query.
+ * The shared state is never modified, so the shared clauses that a new
+ * clause subsumes are only retired in the state that found them. The
+ * shared state may itself share the clauses of another state, so clauses
+ * can be added to a state that others are using by sharing it in a new
+ * state instead of copying it. Once such a chain grows long, a state can
+ * be merged with the state it shares.
+ *
+ * @author mjchao
+ *
+ */
+class ResolutionState {
+
+	private final StatementCNF hypothesis;
+	private final ResolutionStrategy strategy;
+
+	private final List< Resolvent > clauses = new ArrayList< Resolvent >();
+	private final List< Resolvent > justAddedClauses = new ArrayList< Resolvent >();
+
+	/**
+	 * clauses whose pairs without a preferred clause have not been
+	 * resolved yet
+	 */
+	private final List< Resolvent > deferredClauses = new ArrayList< Resolvent >();
+	private final Set< Disjunction > clauseSet = new HashSet< Disjunction >();
+	private final TermIndex< Resolvent > firstTerms = new TermIndex< Resolvent >();
+	private final SubsumptionIndex subsumptionIndex;
+
+	/**
+	 * the state whose clauses are also kept by this one, or null.
+	 * That state may share the clauses of another state as well
+	 */
+	private final ResolutionState shared;
+
+	/**
+	 * the clauses of the shared states that this state keeps, i.e.
+	 * the ones that neither this state nor the shared states retired
+	 */
+	private final List< Resolvent > sharedClauses;
+
+	/**
+	 * the clauses of the shared states that a clause kept by this
+	 * state subsumes, and that the shared states still kept
+	 */
+	private final Set< Resolvent > retiredShared = new HashSet< Resolvent >();
+
+	/**
+	 * the number of clauses of this state that were retired in the
+	 * current generation. Retired clauses are only marked when they
+	 * are retired, and are removed from the lists of clauses once the
+	 * generation is over
+	 */
+	private int numRetired = 0;
+
+	/**
+	 * if any clause was retired in the current generation,
+	 * including the clauses of the shared state
+	 */
+	private boolean retiredAny = false;
+
+	/**
+	 * if the empty clause has been derived
+	 */
+	private boolean foundEmptyClause = false;
+
+	/**
+	 * @param hypothesis	the hypothesis we're trying to prove. this is
+	 * 						required because we need to check that terms
+	 * 						we unify do not appear in the hypothesis
+	 * @param strategy		decides which pairs of clauses are resolved
+	 */
+	public ResolutionState( StatementCNF hypothesis , ResolutionStrategy strategy ) {
+		this.hypothesis = hypothesis;
+		this.strategy = strategy;
+		this.subsumptionIndex = new SubsumptionIndex( hypothesis );
+		this.shared = null;
+		this.sharedClauses = new ArrayList< Resolvent >();
+	}
+
+	/**
+	 * Creates a state for proving a different hypothesis that shares
+	 * the clauses of the given state. Its clauses and indexes are not
+	 * copied, and adding clauses to the new state does not affect the
+	 * shared one, so many states may share the same clauses at once.
+	 * The shared state must not be modified while it is shared. The
+	 * pairs of clauses that the shared state already resolved are not
+	 * resolved again, so the new state should only use a strategy that
+	 * allows fewer pairs.
+	 *
+	 * @param shared
+	 * @param hypothesis
+	 * @param strategy
+	 */
+	public ResolutionState( ResolutionState shared , StatementCNF hypothesis , ResolutionStrategy strategy ) {
+		this.hypothesis = hypothesis;
+		this.strategy = strategy;
+		this.subsumptionIndex = new SubsumptionIndex( hypothesis );
+		this.shared = shared;
+		this.sharedClauses = shared.keptClauses();
+		this.foundEmptyClause = shared.foundEmptyClause;
+		this.justAddedClauses.addAll( shared.justAddedClauses );
+		this.deferredClauses.addAll( shared.deferredClauses );
+	}
+
+	/**
+	 * Creates a state that keeps the same clauses as the given state,
+	 * holding its clauses together with those of the state it shares.
+	 * It shares the clauses of the state that one shares, so neither of
+	 * the given states is modified. The clauses are indexed again, but
+	 * not factored or resolved again.
+	 *
+	 * @param state		a state that shares the clauses of another
+	 */
+	private ResolutionState( ResolutionState state ) {
+		ResolutionState merged = state.shared;
+		this.hypothesis = state.hypothesis;
+		this.strategy = state.strategy;
+		this.subsumptionIndex = new SubsumptionIndex( hypothesis );
+		this.shared = merged.shared;
+		this.foundEmptyClause = state.foundEmptyClause;
+
+		//the clauses of the merged state that the given state retired
+		//are dropped. the others it retired are still shared
+		Set< Resolvent > dropped = new HashSet< Resolvent >();
+		for ( Resolvent r : merged.clauses ) {
+			if ( state.retiredShared.contains( r ) ) {
+				dropped.add( r );
+			}
+			else {
+				keep( r );
+			}
+		}
+		for ( Resolvent r : state.clauses ) {
+			keep( r );
+		}
+		this.retiredShared.addAll( merged.retiredShared );
+		for ( Resolvent r : state.retiredShared ) {
+			if ( !dropped.contains( r ) ) {
+				this.retiredShared.add( r );
+			}
+		}
+		this.sharedClauses = new ArrayList< Resolvent >( merged.sharedClauses );
+		removeRetired( this.sharedClauses );
+		this.justAddedClauses.addAll( state.justAddedClauses );
+		this.deferredClauses.addAll( state.deferredClauses );
+	}
+
+	/**
+	 * @return		a state that keeps the same clauses as this one, but
+	 * 				holds them together with the clauses of the state this
+	 * 				one shares. Neither state is modified.
+	 * @throws IllegalStateException	if this state does not share the
+	 * 									clauses of another state
+	 */
+	ResolutionState mergeShared() {
+		if ( shared == null ) {
+			throw new IllegalStateException( "This state does not share the clauses of another state" );
+		}
+		return new ResolutionState( this );
+	}
+
+	/**
+	 * @return		the state whose clauses are also kept by this
+	 * 				one, or null
+	 */
+	ResolutionState getShared() {
+		return shared;
+	}
+
+	/**
+	 * @return		the number of clauses that this state keeps
+	 * 				itself, not counting the shared clauses
+	 */
+	int ownSize() {
+		return clauses.size() - numRetired;
+	}
+
+	/**
+	 * Adds clauses that have already been factored. They will be resolved
+	 * with every kept clause the next time the algorithm is run. Like the
+	 * input clauses of the resolution algorithm, they are not checked for
+	 * duplicates.
+	 *
+	 * @param factoredClauses
+	 * @param supported			if the clauses are part of the
+	 * 							negated hypothesis
+	 */
+	void add( List< Disjunction > factoredClauses , boolean supported ) {
+		for ( Disjunction d : factoredClauses ) {
+			Resolvent r = new Resolvent( d );
+			r.supported = supported;
+			keep( r );
+			justAddedClauses.add( r );
+		}
+	}
+
+	private void keep( Resolvent r ) {
+		clauses.add( r );
+		clauseSet.add( r.disjunction );
+		if ( r.disjunction.size() > 0 ) {
+			firstTerms.insert( r.disjunction.getTerm( 0 ) , r );
+		}
+		subsumptionIndex.add( r );
+	}
+
+	/**
+	 * @return		the number of clauses that have been kept
+	 */
+	int size() {
+		int rtn = clauses.size() - numRetired;
+		if ( shared != null ) {
+			rtn += shared.clauses.size() - retiredShared.size();
+		}
+		return rtn;
+	}
+
+	/**
+	 * @return		every clause that this state keeps, starting
+	 * 				with the clauses of the shared states
+	 */
+	private List< Resolvent > keptClauses() {
+		List< Resolvent > rtn = new ArrayList< Resolvent >( sharedClauses.size() + clauses.size() );
+		rtn.addAll( sharedClauses );
+		rtn.addAll( clauses );
+		return rtn;
+	}
+
+	/**
+	 * Runs the resolution algorithm until the empty clause is derived,
+	 * nothing more can be inferred, or the budget runs out. If the budget
+	 * runs out, the unfinished generation is thrown away, so the algorithm
+	 * can later be resumed from the last finished generation.
+	 *
+	 * @param pool		the pool in which to resolve pairs of clauses,
+	 * 					or null to resolve them on the calling thread
+	 * @param metrics	counts the work done
+	 * @param budget	limits the work done
+	 * @return			PROVED if the empty clause was derived (i.e.
+	 * 					the kept clauses are contradictory). NOT_PROVED
+	 * 					if nothing more can be inferred. UNKNOWN if the
+	 * 					budget ran out first.
+	 */
+	ProofResult saturate( ForkJoinPool pool , ProofMetrics metrics , ProofBudget budget ) {
+		return saturate( pool , metrics , budget , budget.getMaxClauses() , Integer.MAX_VALUE );
+	}
+
+	/**
+	 * Runs the resolution algorithm until the empty clause is derived,
+	 * nothing more can be inferred, the budget runs out, or the given
+	 * number of generations have finished. Only finished generations
+	 * are kept, as above.
+	 *
+	 * @param pool
+	 * @param metrics
+	 * @param budget
+	 * @param maxClauses	the most clauses this state may keep, which
+	 * 						may be fewer than the budget allows
+	 * @param maxRounds		the most generations to finish
+	 * @return				PROVED if the empty clause was derived. NOT_PROVED
+	 * 						if nothing more can be inferred. UNKNOWN if the
+	 * 						budget, the clauses or the generations ran out
+	 * 						first.
+	 */
+	ProofResult saturate( ForkJoinPool pool , ProofMetrics metrics , ProofBudget budget , int maxClauses , int maxRounds ) {
+		ClauseIndex justAddedIndex = new ClauseIndex();
+		for ( int numRounds=0 ; !foundEmptyClause ; ++numRounds ) {
+			if ( budget.isExhausted() || size() > maxClauses || numRounds >= maxRounds ) {
+				return ProofResult.UNKNOWN;
+			}
+			List< Resolvent > kept = keptClauses();
+
+			//resolve the pairs of the clauses we just added that include
+			//a preferred clause, or the pairs that were put off if there
+			//are no such clauses
+			boolean preferredOnly = !justAddedClauses.isEmpty() && hasPreferredClause( kept );
+			List< Resolvent > toResolve = justAddedClauses;
+			if ( !preferredOnly && !deferredClauses.isEmpty() ) {
+				toResolve = new ArrayList< Resolvent >( deferredClauses );
+				toResolve.addAll( justAddedClauses );
+			}
+
+			//index the clauses we just added so that we only try
+			//to resolve pairs of clauses with complementary literals
+			justAddedIndex.clear();
+			for ( int j=0 ; j<toResolve.size() ; ++j ) {
+				justAddedIndex.add( j , toResolve.get( j ).disjunction );
+			}
+
+			//attempt to resolve every pair of clauses
+			//if any of those pairs yields a contradiction (i.e. P AND !P)
+			//then the proof by contradiction succeeds (return true)
+			metrics.rounds.increment();
+			long start = System.nanoTime();
+			ResolutionRound round = new ResolutionRound( kept , toResolve , justAddedIndex , hypothesis , strategy , preferredOnly , metrics , budget , maxClauses );
+			if ( pool == null ) {
+				for ( int i=0 ; i<kept.size() && !round.isDone() ; ++i ) {
+					round.resolve( i );
+				}
+			}
+			else {
+				pool.invoke( new ResolutionTask( round , 0 , kept.size() ) );
+			}
+			long resolved = System.nanoTime();
+			metrics.resolutionNanos.add( resolved - start );
+			if ( round.foundEmptyClause() ) {
+				foundEmptyClause = true;
+				break;
+			}
+			if ( round.isOutOfBudget() ) {
+				return ProofResult.UNKNOWN;
+			}
+			List< Resolvent > newClauses = round.getNewClauses();
+			metrics.clausesGenerated.add( newClauses.size() );
+			metrics.factorCalls.add( newClauses.size() );
+
+			boolean addedClause = false;
+			if ( preferredOnly ) {
+				deferredClauses.addAll( justAddedClauses );
+			}
+			else {
+				deferredClauses.clear();
+			}
+			justAddedClauses.clear();
+			for ( Resolvent d : newClauses ) {
+				Disjunction toAdd = Resolver.factor( d.disjunction , hypothesis );
+
+				//forward subsumption: drop the new clause if an existing clause
+				//is at least as general as it
+				if ( isDuplicate( toAdd ) ) {
+					metrics.duplicatesRejected.increment();
+				}
+				else if ( isSubsumed( toAdd ) ) {
+					metrics.subsumedRejected.increment();
+				}
+				else {
+
+					//backward subsumption: retire any existing clauses
+					//that are less general than the new clause
+					retireSubsumedBy( toAdd );
+
+					addedClause = true;
+					d.disjunction = toAdd;
+					keep( d );
+					justAddedClauses.add( d );
+					metrics.clausesKept.increment();
+				}
+			}
+			removeRetired();
+			metrics.filteringNanos.add( System.nanoTime() - resolved );
+
+			//if there is no more we can infer, then
+			//our proof by contradiction fails (return false)
+			if ( !addedClause && deferredClauses.isEmpty() ) {
+				return ProofResult.NOT_PROVED;
+			}
+		}
+		return ProofResult.PROVED;
+	}
+
+	/**
+	 * @param toAdd
+	 * @return			if this state or the shared state already keeps
+	 * 					the given clause, up to renaming its variables
+	 */
+	private boolean isDuplicate( Disjunction toAdd ) {
+		for ( ResolutionState s=this ; s!=null ; s=s.shared ) {
+			if ( Resolver.isDuplicateClause( s.clauseSet , s.firstTerms , toAdd , hypothesis ) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Shared clauses that have been retired are still checked. A clause
+	 * is only retired if a clause at least as general as it is kept, so
+	 * anything it subsumes is also subsumed by a clause that is kept.
+	 *
+	 * @param toAdd
+	 * @return			if a clause that this state or the shared
+	 * 					state keeps subsumes the given clause
+	 */
+	private boolean isSubsumed( Disjunction toAdd ) {
+		for ( ResolutionState s=this ; s!=null ; s=s.shared ) {
+			if ( s.subsumptionIndex.findSubsuming( toAdd , hypothesis ) != null ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Retires the kept clauses that the given clause subsumes. Shared
+	 * clauses are only retired in this state. The retired clauses are
+	 * only marked, and are removed from the lists of clauses by
+	 * removeRetired() once the generation is over.
+	 * <p>
+	 * Retired clauses are still used to detect duplicates. A clause
+	 * that duplicates a retired clause is subsumed by the clause that
+	 * retired it, so it would be discarded anyway.
+	 *
+	 * @param toAdd
+	 */
+	private void retireSubsumedBy( Disjunction toAdd ) {
+		for ( Resolvent subsumed : subsumptionIndex.findSubsumedBy( toAdd ) ) {
+			subsumed.retired = true;
+			subsumptionIndex.remove( subsumed );
+			++numRetired;
+			retiredAny = true;
+		}
+		for ( ResolutionState s=shared ; s!=null ; s=s.shared ) {
+			for ( Resolvent subsumed : s.subsumptionIndex.findSubsumedBy( toAdd , hypothesis ) ) {
+				if ( !isRetiredByShared( subsumed ) && retiredShared.add( subsumed ) ) {
+					retiredAny = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param r
+	 * @return		if the given clause has been retired by this state
+	 */
+	private boolean isRetired( Resolvent r ) {
+		return r.retired || retiredShared.contains( r );
+	}
+
+	/**
+	 * @param r		a clause of one of the shared states
+	 * @return		if one of the shared states retired the given clause
+	 */
+	private boolean isRetiredByShared( Resolvent r ) {
+		for ( ResolutionState s=shared ; s!=null ; s=s.shared ) {
+			if ( s.retiredShared.contains( r ) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the clauses that were retired in this generation from
+	 * the lists of clauses, in one pass over each list.
+	 */
+	private void removeRetired() {
+		if ( !retiredAny ) {
+			return;
+		}
+		removeRetired( justAddedClauses );
+		removeRetired( deferredClauses );
+		if ( numRetired > 0 ) {
+			removeRetired( clauses );
+		}
+		if ( sharedClauses.size() > size() - ownSize() ) {
+			removeRetired( sharedClauses );
+		}
+		numRetired = 0;
+		retiredAny = false;
+	}
+
+	private void removeRetired( List< Resolvent > list ) {
+		int numKept = 0;
+		for ( int i=0 ; i<list.size() ; ++i ) {
+			Resolvent r = list.get( i );
+			if ( !isRetired( r ) ) {
+				list.set( numKept++ , r );
+			}
+		}
+		list.subList( numKept , list.size() ).clear();
+	}
+
+	/**
+	 * @param kept
+	 * @return		if the strategy prefers any of the kept clauses
+	 */
+	private boolean hasPreferredClause( List< Resolvent > kept ) {
+		for ( Resolvent r : kept ) {
+			if ( strategy.isPreferred( r.disjunction ) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Resolves every clause with the clauses that were added in the
+	 * previous generation of the resolution algorithm, or whose pairs
+	 * were put off, if the strategy allows it. The clauses are
+	 * not modified until the round is over, so the clauses for
+	 * different values of i may be resolved concurrently. The round
+	 * stops early if the budget runs out, counting the resolvents
+	 * produced so far towards the maximum number of clauses.
+	 */
+	private static class ResolutionRound {
+
+		private final List< Resolvent > clauses;
+		private final List< Resolvent > justAddedClauses;
+		private final ClauseIndex justAddedIndex;
+		private final StatementCNF hypothesis;
+		private final ResolutionStrategy strategy;
+		private final ProofMetrics metrics;
+		private final ProofBudget budget;
+		private final int maxClauses;
+
+		/**
+		 * if only the pairs that include a preferred clause are resolved,
+		 * instead of only the pairs that don't
+		 */
+		private final boolean preferredOnly;
+
+		/**
+		 * the resolvents produced by each clause, so that
+		 * they can be merged in a deterministic order
+		 */
+		private final List< List< Resolvent > > resolventsByClause;
+
+		private final AtomicBoolean foundEmptyClause = new AtomicBoolean( false );
+		private final AtomicBoolean outOfBudget = new AtomicBoolean( false );
+		private final AtomicInteger numResolvents = new AtomicInteger( 0 );
+
+		public ResolutionRound( List< Resolvent > clauses , List< Resolvent > justAddedClauses , ClauseIndex justAddedIndex , StatementCNF hypothesis , ResolutionStrategy strategy , boolean preferredOnly , ProofMetrics metrics , ProofBudget budget , int maxClauses ) {
+			this.clauses = clauses;
+			this.justAddedClauses = justAddedClauses;
+			this.justAddedIndex = justAddedIndex;
+			this.hypothesis = hypothesis;
+			this.strategy = strategy;
+			this.preferredOnly = preferredOnly;
+			this.metrics = metrics;
+			this.budget = budget;
+			this.maxClauses = maxClauses;
+			this.resolventsByClause = new ArrayList< List< Resolvent > >( clauses.size() );
+			for ( int i=0 ; i<clauses.size() ; ++i ) {
+				this.resolventsByClause.add( null );
+			}
+		}
+
+		/**
+		 * Resolves the ith clause with every clause that was just added.
+		 *
+		 * @param i
+		 */
+		public void resolve( int i ) {
+			List< Resolvent > newClauses = new ArrayList< Resolvent >();
+			Resolvent r1 = clauses.get( i );
+			boolean preferred1 = strategy.isPreferred( r1.disjunction );
+			BitSet candidates = justAddedIndex.candidatesFor( r1.disjunction );
+			for ( int j=candidates.nextSetBit( 0 ) ; j>=0 ; j=candidates.nextSetBit( j+1 ) ) {
+
+				//another thread already completed the proof
+				//or ran out of budget
+				if ( isDone() ) {
+					return;
+				}
+				if ( budget.isExhausted() || clauses.size() + numResolvents.get() > maxClauses ) {
+					outOfBudget.set( true );
+					return;
+				}
+				Resolvent r2 = justAddedClauses.get( j );
+				if ( strategy.isSupportRequired() && !r1.supported && !r2.supported ) {
+					continue;
+				}
+				if ( (preferred1 || strategy.isPreferred( r2.disjunction )) != preferredOnly ) {
+					continue;
+				}
+				if ( !strategy.mayResolve( r1.disjunction , r2.disjunction ) ) {
+					continue;
+				}
+				List< Disjunction > resolvents = Resolver.resolve( r1.disjunction , r2.disjunction , hypothesis , metrics , strategy );
+				if ( Resolver.containsEmptyClause( resolvents ) ) {
+					foundEmptyClause.set( true );
+					return;
+				}
+
+				for ( Disjunction d : resolvents ) {
+					Resolvent newSearchState = new Resolvent( d );
+					newSearchState.parents.add( r1 );
+					newSearchState.parents.add( r2 );
+					newSearchState.supported = r1.supported || r2.supported;
+					newClauses.add( newSearchState );
+				}
+				numResolvents.addAndGet( resolvents.size() );
+			}
+			resolventsByClause.set( i , newClauses );
+		}
+
+		/**
+		 * @return		if any pair of clauses resolved to the empty clause
+		 */
+		public boolean foundEmptyClause() {
+			return foundEmptyClause.get();
+		}
+
+		/**
+		 * @return		if the budget ran out before every
+		 * 				pair of clauses was resolved
+		 */
+		public boolean isOutOfBudget() {
+			return outOfBudget.get();
+		}
+
+		/**
+		 * @return		if the remaining pairs of clauses
+		 * 				do not need to be resolved
+		 */
+		public boolean isDone() {
+			return foundEmptyClause.get() || outOfBudget.get();
+		}
+
+		/**
+		 * @return		the resolvents produced in this round, in the
+		 * 				order in which the clauses were resolved
+		 */
+		public List< Resolvent > getNewClauses() {
+			List< Resolvent > rtn = new ArrayList< Resolvent >();
+			for ( List< Resolvent > resolvents : resolventsByClause ) {
+				rtn.addAll( resolvents );
+			}
+			return rtn;
+		}
+	}
+
+	/**
+	 * Resolves a range of clauses in a ResolutionRound by repeatedly
+	 * splitting the range in half.
+	 */
+	private static class ResolutionTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ResolutionRound round;
+		private final int start;
+		private final int end;
+
+		/**
+		 * @param round
+		 * @param start		the index of the first clause to resolve
+		 * @param end		one past the index of the last clause to resolve
+		 */
+		public ResolutionTask( ResolutionRound round , int start , int end ) {
+			this.round = round;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if ( round.isDone() ) {
+				return;
+			}
+			if ( end - start == 1 ) {
+				round.resolve( start );
+			}
+			else if ( end - start > 1 ) {
+				int mid = (start + end) / 2;
+				invokeAll( new ResolutionTask( round , start , mid ) , new ResolutionTask( round , mid , end ) );
+			}
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package mjchao.mazenav.logic;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+
+/**
+ * Decides which pairs of clauses the resolution algorithm resolves,
+ * on which of their literals, and which pairs it resolves first. Most
+ * of the time spent proving a hypothesis goes into resolving pairs of
+ * clauses whose resolvents are never used, so ruling out pairs that no
+ * proof needs is the biggest saving the algorithm can make.
+ * <p>
+ * A strategy is chosen for each query, e.g. with
+ * <code>KnowledgeBase.ask( hypothesis , budget , metrics , strategy )</code>.
+ * Strategies must not keep any state between calls, so that one
+ * strategy can be shared by queries on different threads.
+ *
+ * @author mjchao
+ *
+ */
+public interface ResolutionStrategy {
+
+	/**
+	 * @return		if every pair of clauses that is resolved has to include
+	 * 				a clause that is part of the negated hypothesis or was
+	 * 				inferred from it. The query then never resolves the
+	 * 				knowledgebase's own clauses with each other.
+	 */
+	public boolean isSupportRequired();
+
+	/**
+	 * @param clause1
+	 * @param clause2
+	 * @return			if the two clauses may be resolved with each other
+	 */
+	public boolean mayResolve( Disjunction clause1 , Disjunction clause2 );
+
+	/**
+	 * @param clause
+	 * @param literal	the index of a term in the clause
+	 * @return			if the clause may be resolved on the given term
+	 */
+	public boolean mayResolveOn( Disjunction clause , int literal );
+
+	/**
+	 * @param clause
+	 * @return			if the pairs of clauses that include the given clause
+	 * 					should be resolved before every other pair. The others
+	 * 					are only resolved once the preferred pairs stop adding
+	 * 					new clauses.
+	 */
+	public boolean isPreferred( Disjunction clause );
+}
@@ -1,7 +1,11 @@
 package mjchao.mazenav.logic;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import mjchao.mazenav.logic.StatementCNF.Disjunction;
 import mjchao.mazenav.logic.StatementCNF.Disjunction.Term;
@@ -29,12 +33,96 @@ class Resolver {
 	 * 							the knowledgebase. false otherwise.
 	 */
 	public static boolean proveHypothesis( SymbolTracker tracker , StatementCNF hypothesis , StatementCNF... kb ) {
+		return new KnowledgeBase( tracker , kb ).ask( hypothesis );
+	}
+	
+	/**
+	 * Tries to determine if the given hypothesis is always true given
+	 * our knowledgebase of known facts without exceeding the given budget.
+	 * 
+	 * @param tracker			keeps track of symbols
+	 * @param hypothesis		the hypothesis to try and prove
+	 * @param budget			limits the work done by the proof
+	 * @param kb				the statements in our knowledgebase that
+	 * 							we know to be true
+	 * @return					PROVED if the hypothesis is always true given
+	 * 							the knowledgebase, NOT_PROVED if it is not, or
+	 * 							UNKNOWN if the budget ran out first
+	 */
+	public static ProofResult proveHypothesis( SymbolTracker tracker , StatementCNF hypothesis , ProofBudget budget , StatementCNF... kb ) {
+		return new KnowledgeBase( tracker , kb ).ask( hypothesis , budget );
+	}
+	
+	/**
+	 * Determines if the given hypothesis is always true given our
+	 * knowledgebase of known facts. Instead of resolving every pair of
+	 * clauses one generation at a time, this uses the given-clause algorithm,
+	 * which always resolves the smallest unprocessed clause next. This tends
+	 * to find short proofs (e.g. proofs that only involve unit clauses)
+	 * much sooner.
+	 * 
+	 * @param tracker			keeps track of symbols
+	 * @param hypothesis		the hypothesis to try and prove
+	 * @param kb				the statements in our knowledgebase that
+	 * 							we know to be true
+	 * @return					true if the hypothesis is always true given
+	 * 							the knowledgebase. false otherwise.
+	 * @see GivenClauseResolver
+	 */
+	public static boolean proveHypothesisGivenClause( SymbolTracker tracker , StatementCNF hypothesis , StatementCNF... kb ) {
+		return GivenClauseResolver.applyResolution( buildRefutationStatement( tracker , hypothesis , kb ) , hypothesis );
+	}
+	
+	/**
+	 * Determines if the given hypothesis is always true given our
+	 * knowledgebase of known facts using the given-clause algorithm on
+	 * clauses that are stored as flat arrays of ints. Unification and
+	 * resolution work directly on the ints, so the search allocates
+	 * almost no objects.
+	 * 
+	 * @param tracker			keeps track of symbols
+	 * @param hypothesis		the hypothesis to try and prove
+	 * @param kb				the statements in our knowledgebase that
+	 * 							we know to be true
+	 * @return					true if the hypothesis is always true given
+	 * 							the knowledgebase. false otherwise.
+	 * @see ArenaResolver
+	 */
+	public static boolean proveHypothesisArena( SymbolTracker tracker , StatementCNF hypothesis , StatementCNF... kb ) {
+		return ArenaResolver.applyResolution( buildRefutationStatement( tracker , hypothesis , kb ) , hypothesis );
+	}
+	
+	/**
+	 * Determines if the given hypothesis is always true given our
+	 * knowledgebase of known facts. This performs the same resolution
+	 * algorithm as <code>proveHypothesis</code> and infers the same clauses
+	 * in the same order, but each generation of clause pairs is resolved
+	 * in parallel in the common ForkJoinPool.
+	 * 
+	 * @param tracker			keeps track of symbols
+	 * @param hypothesis		the hypothesis to try and prove
+	 * @param kb				the statements in our knowledgebase that
+	 * 							we know to be true
+	 * @return					true if the hypothesis is always true given
+	 * 							the knowledgebase. false otherwise.
+	 */
+	public static boolean proveHypothesisParallel( SymbolTracker tracker , StatementCNF hypothesis , StatementCNF... kb ) {
+		return applyResolution( tracker , buildRefutationStatement( tracker , hypothesis , kb ) , hypothesis , ForkJoinPool.commonPool() );
+	}
+	
+	/**
+	 * @param tracker			keeps track of symbols
+	 * @param hypothesis		the hypothesis to try and prove
+	 * @param kb				the statements in our knowledgebase
+	 * @return					a single statement that is KB AND !Hypothesis
+	 */
+	static StatementCNF buildRefutationStatement( SymbolTracker tracker , StatementCNF hypothesis , StatementCNF... kb ) {
 		List< StatementCNF > statements = new ArrayList< StatementCNF >();
 		for ( StatementCNF s : kb ) {
 			statements.add( s );
 		}
 		statements.add( StatementCNF.negate( hypothesis , tracker ) );
-		return applyResolution( tracker , StatementCNF.andTogether( statements , tracker ) , hypothesis );
+		return StatementCNF.andTogether( statements , tracker );
 	}
 	
 	/**
@@ -46,6 +134,18 @@ class Resolver {
 		public Disjunction disjunction;
 		public List< Resolvent > parents = new ArrayList< Resolvent >();
 		
+		/**
+		 * if this clause has been discarded because another 
+		 * clause subsumes it
+		 */
+		public boolean retired = false;
+		
+		/**
+		 * if this clause is part of the negated hypothesis or
+		 * was inferred from a clause that is
+		 */
+		public boolean supported = false;
+		
 		public Resolvent( Disjunction d ) {
 			this.disjunction = d;
 		}
@@ -70,97 +170,193 @@ class Resolver {
 	 * 						we could not complete the proof by contradiction
 	 */
 	static boolean applyResolution( SymbolTracker tracker , StatementCNF statement , StatementCNF hypothesis ) {
-		List< Resolvent > clauses = new ArrayList< Resolvent >();
+		return applyResolution( tracker , statement , hypothesis , null );
+	}
+	
+	/**
+	 * Applies the resolution algorithm combined with factoring
+	 * to try and prove a hypothesis by contradiction, optionally
+	 * resolving pairs of clauses in parallel. 
+	 * 
+	 * @param tracker		keeps track of symbols
+	 * @param statement		a single statement that is KB AND !Hypothesis
+	 * @param hypothesis	the hypothesis we're trying to prove
+	 * @param pool			the pool in which to resolve pairs of clauses,
+	 * 						or null to resolve them on the calling thread
+	 * @return				true if KB AND !Hypothesis is always false (i.e.
+	 * 						the proof by contradiction succeeds). false if
+	 * 						we could not complete the proof by contradiction
+	 */
+	static boolean applyResolution( SymbolTracker tracker , StatementCNF statement , StatementCNF hypothesis , ForkJoinPool pool ) {
+		ProofMetrics metrics = new ProofMetrics();
+		long start = System.nanoTime();
+		List< Disjunction > factoredClauses = new ArrayList< Disjunction >();
 		for ( Disjunction d : statement.getDisjunctions() ) {
-			clauses.add( new Resolvent(factor(d , hypothesis)) );
-		}
-		
-		List< Resolvent > justAddedClauses = new ArrayList< Resolvent >( clauses );
-		
-		while( true ) {
-			List< Resolvent > newClauses = new ArrayList< Resolvent >();
-			
-			//attempt to resolve every pair of clauses
-			//if any of those pairs yields a contradiction (i.e. P AND !P)
-			//then the proof by contradiction succeeds (return true)
-			for ( int i=0 ; i<clauses.size() ; ++i ) {
-				for ( int j=0 ; j<justAddedClauses.size() ; ++j ) {
-					if ( !clauses.get( j ).parents.contains( clauses.get( i ) ) &&
-							clauses.get( i ).parents.size() > 0 && clauses.get( j ).parents.size() > 0 ) {
-						continue;
-					}
-					Disjunction c1 = clauses.get( i ).disjunction;
-					Disjunction c2 = justAddedClauses.get( j ).disjunction;
-					List< Disjunction > resolvents = resolve( c1 , c2 , hypothesis );
-					if ( containsEmptyClause( resolvents ) ) {
-						return true;
-					}
-					
-					for ( Disjunction d : resolvents ) {
-						Resolvent newSearchState = new Resolvent( d );
-						newSearchState.parents.add( clauses.get( i ) );
-						newSearchState.parents.add( clauses.get( j ) );
-						newClauses.add( newSearchState );
-					}
-				}
-			}
-			
-			boolean addedClause = false;
-			justAddedClauses.clear();
-			for ( Resolvent d : newClauses ) {
-				Disjunction toAdd = factor(d.disjunction , hypothesis);
-				if ( !isDuplicateClause( clauses , toAdd , hypothesis) ) {
-					addedClause = true;
-					d.disjunction = toAdd;
-					clauses.add( d );
-					justAddedClauses.add( d );
-				}
-			}
-			
-			//if there is no more we can infer, then 
-			//our proof by contradiction fails (return false)
-			if ( !addedClause ) {
-				return false;
-			}
+			factoredClauses.add( factor( d , hypothesis ) );
 		}
+		metrics.factorCalls.add( factoredClauses.size() );
+		metrics.conversionNanos.add( System.nanoTime() - start );
+		ProofResult rtn = saturate( factoredClauses , hypothesis , pool , metrics , new ProofBudget() );
+		metrics.finishProof();
+		return rtn == ProofResult.PROVED;
+	}
+	
+	/**
+	 * Applies the resolution algorithm to clauses that have already
+	 * been factored to try and prove a hypothesis by contradiction
+	 * 
+	 * @param factoredClauses	the factored clauses of KB AND !Hypothesis
+	 * @param hypothesis		the hypothesis we're trying to prove
+	 * @param pool				the pool in which to resolve pairs of clauses,
+	 * 							or null to resolve them on the calling thread
+	 * @param metrics			counts the work done by the proof
+	 * @param budget			limits the work done by the proof
+	 * @return					PROVED if KB AND !Hypothesis is always false (i.e.
+	 * 							the proof by contradiction succeeds). NOT_PROVED if
+	 * 							we could not complete the proof by contradiction.
+	 * 							UNKNOWN if the budget ran out first.
+	 */
+	static ProofResult saturate( List< Disjunction > factoredClauses , StatementCNF hypothesis , ForkJoinPool pool , ProofMetrics metrics , ProofBudget budget ) {
+		return saturate( factoredClauses , new ArrayList< Disjunction >() , hypothesis , pool , metrics , budget , new UnrestrictedResolution() );
+	}
+	
+	/**
+	 * Applies the resolution algorithm to clauses that have already
+	 * been factored, only resolving the pairs of clauses that the given
+	 * strategy allows.
+	 * 
+	 * @param knowledgeClauses	the factored clauses of the knowledgebase
+	 * @param negatedClauses	the factored clauses of !Hypothesis
+	 * @param hypothesis		the hypothesis we're trying to prove
+	 * @param pool				the pool in which to resolve pairs of clauses,
+	 * 							or null to resolve them on the calling thread
+	 * @param metrics			counts the work done by the proof
+	 * @param budget			limits the work done by the proof
+	 * @param strategy			decides which pairs of clauses are resolved
+	 * @return					PROVED, NOT_PROVED or UNKNOWN as above
+	 */
+	static ProofResult saturate( List< Disjunction > knowledgeClauses , List< Disjunction > negatedClauses , StatementCNF hypothesis , ForkJoinPool pool , ProofMetrics metrics , ProofBudget budget , ResolutionStrategy strategy ) {
+		ResolutionState state = new ResolutionState( hypothesis , strategy );
+		state.add( knowledgeClauses , false );
+		state.add( negatedClauses , true );
+		return state.saturate( pool , metrics , budget );
 	}
 	
 	/**
 	 * @param clauses
+	 * @param firstTerms	an index of the first term of every non-empty
+	 * 						clause in <code>clauses</code>
 	 * @param toAdd
-	 * @return				if the current list of clauses already contains
-	 * 						a clause that unified with the clause to be added
+	 * @return				if the current set of clauses already contains
+	 * 						the clause to be added, up to renaming its variables
 	 */
-	static boolean isDuplicateClause( List< Resolvent > clauses , Disjunction toAdd , StatementCNF hypothesis ) {
+	static boolean isDuplicateClause( Set< Disjunction > clauses , TermIndex< Resolvent > firstTerms , Disjunction toAdd , StatementCNF hypothesis ) {
 		
 		//clauses.contains checks that terms are identical up to reordering
 		if ( clauses.contains( toAdd ) ) {
 			return true;
 		}
 		
-		//we'll add another check that if terms in the given ordering
-		//all unify together
-		for ( Resolvent r : clauses ) {
+		//we'll add another check that the clauses subsume each other.
+		//it is not enough for their terms to unify, e.g. R(B,x) must not
+		//be discarded because of R(y,A). only clauses whose first term
+		//could unify with the first term of the new clause are checked,
+		//and the subsumption check catches the rest
+		if ( toAdd.size() == 0 ) {
+			return false;
+		}
+		for ( Resolvent r : firstTerms.retrieveUnifiable( toAdd.getTerm( 0 ) ) ) {
 			Disjunction d = r.disjunction;
 			if ( d.size() != toAdd.size() ) {
 				continue;
 			}
 			
-			boolean allTermsSame = true;
-			for ( int i=0 ; i<d.size() ; ++i ) {
-				if ( findResolveUnification( d.getTerm( i ) , toAdd.getTerm( i ) , hypothesis ) == null ) {
-					allTermsSame = false;
-					break;
-				}
+			if ( subsumes( d , toAdd , hypothesis ) && subsumes( toAdd , d , hypothesis ) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Determines if one clause theta-subsumes another clause. Clause C subsumes
+	 * clause D if there is a substitution for the variables in C that makes
+	 * every term in C appear in D. For example, Rel1(x) subsumes
+	 * Rel1(obj1) OR Rel2(obj1, obj2). In that case, D is redundant and
+	 * can be discarded because anything that can be inferred from D can
+	 * also be inferred from C.
+	 * <p>
+	 * Only variables inside function arguments may be substituted. A variable
+	 * that is a term by itself (e.g. P in "P OR Q") represents a proposition
+	 * and must match exactly. Skolem functions and variables in the hypothesis 
+	 * must also match exactly.
+	 * 
+	 * @param c				the more general clause
+	 * @param d				the less general clause
+	 * @param hypothesis	the hypothesis currently being proved
+	 * @return				if c subsumes d
+	 */
+	static boolean subsumes( Disjunction c , Disjunction d , StatementCNF hypothesis ) {
+		return subsumes( c , 0 , d , new HashMap< Variable , Term >() , hypothesis );
+	}
+	
+	private static boolean subsumes( Disjunction c , int idx , Disjunction d , HashMap< Variable , Term > bindings , StatementCNF hypothesis ) {
+		if ( idx == c.size() ) {
+			return true;
+		}
+		Term pattern = c.getTerm( idx );
+		for ( int i=0 ; i<d.size() ; ++i ) {
+			Term target = d.getTerm( i );
+			if ( pattern.negated() != target.negated() ) {
+				continue;
 			}
 			
-			if ( allTermsSame ) {
+			//try mapping this term onto the target, and backtrack
+			//if the remaining terms cannot be mapped
+			List< Variable > added = new ArrayList< Variable >();
+			if ( matchLiteral( pattern , target , bindings , added , hypothesis ) &&
+					subsumes( c , idx+1 , d , bindings , hypothesis ) ) {
 				return true;
 			}
+			for ( Variable v : added ) {
+				bindings.remove( v );
+			}
 		}
 		return false;
 	}
 	
+	private static boolean matchLiteral( Term pattern , Term target , HashMap< Variable , Term > bindings , List< Variable > added , StatementCNF hypothesis ) {
+		if ( !(pattern.getValue() instanceof Function) ) {
+			return pattern.equalsIgnoringNegated( target );
+		}
+		if ( !pattern.getValue().equals( target.getValue() ) || pattern.getArgs().length != target.getArgs().length ) {
+			return false;
+		}
+		for ( int i=0 ; i<pattern.getArgs().length ; ++i ) {
+			if ( !matchArg( pattern.getArgs()[ i ] , target.getArgs()[ i ] , bindings , added , hypothesis ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static boolean matchArg( Term pattern , Term target , HashMap< Variable , Term > bindings , List< Variable > added , StatementCNF hypothesis ) {
+		if ( pattern.getValue() instanceof Variable && !hypothesis.containsTerm( pattern ) ) {
+			Variable var = (Variable) pattern.getValue();
+			Term bound = bindings.get( var );
+			if ( bound != null ) {
+				return bound.equals( target );
+			}
+			bindings.put( var , target );
+			added.add( var );
+			return true;
+		}
+		if ( pattern.getValue() instanceof Function ) {
+			return matchLiteral( pattern , target , bindings , added , hypothesis );
+		}
+		return pattern.equals( target );
+	}
+	
 	/**
 	 * Factors a clause by removing any redundant terms that
 	 * can be unified together
@@ -213,16 +409,58 @@ class Resolver {
 	 * @return
 	 */
 	static List< Disjunction > resolve( Disjunction clause1 , Disjunction clause2 , StatementCNF hypothesis ) {
+		return resolve( clause1 , clause2 , hypothesis , null , null );
+	}
+	
+	/**
+	 * Determines the results from resolving the two given clauses on the
+	 * terms that the given strategy allows and counts the unifications
+	 * that were attempted.
+	 * 
+	 * @param clause1
+	 * @param clause2
+	 * @param hypothesis
+	 * @param metrics		counts the unifications, or null
+	 * @param strategy		decides which terms may be resolved on, or
+	 * 						null to resolve on every term
+	 * @return
+	 */
+	static List< Disjunction > resolve( Disjunction clause1 , Disjunction clause2 , StatementCNF hypothesis , ProofMetrics metrics , ResolutionStrategy strategy ) {
 		List< Disjunction > rtn = new ArrayList< Disjunction >();
+		
+		//negate the terms of the second clause and index them so that
+		//we only try to resolve terms that could unify
+		Term[] negatedTerms = new Term[ clause2.size() ];
+		TermIndex< Integer > clause2Index = new TermIndex< Integer >();
+		for ( int j=0 ; j<clause2.size() ; ++j ) {
+			if ( strategy != null && !strategy.mayResolveOn( clause2 , j ) ) {
+				continue;
+			}
+			negatedTerms[ j ] = clause2.getTerm( j ).negation();
+			clause2Index.insert( negatedTerms[ j ] , j );
+		}
+		
 		for ( int i=0 ; i<clause1.size() ; ++i ) {
+			if ( strategy != null && !strategy.mayResolveOn( clause1 , i ) ) {
+				continue;
+			}
 			Term t1 = clause1.getTerm( i );
-			for ( int j=0 ; j<clause2.size() ; ++j ) {
-				Term t2 = clause2.getTerm( j ).clone();
-				
-				//negate the second term and try to resolve it with the first
-				t2.negate();
-				
+			
+			//resolvents are built in the order of the terms
+			//in the second clause
+			BitSet candidates = new BitSet( clause2.size() );
+			for ( int j : clause2Index.retrieveUnifiable( t1 ) ) {
+				candidates.set( j );
+			}
+			for ( int j=candidates.nextSetBit( 0 ) ; j>=0 ; j=candidates.nextSetBit( j+1 ) ) {
+				Term t2 = negatedTerms[ j ];
 				List< Substitution > subs = findResolveUnification( t1 , t2 , hypothesis );
+				if ( metrics != null ) {
+					metrics.unifyAttempts.increment();
+					if ( subs != null ) {
+						metrics.unifySuccesses.increment();
+					}
+				}
 				if ( subs != null ) {
 					Disjunction newClause = buildResolveClause( clause1 , clause1.getTerm( i ) , clause2 , clause2.getTerm( j ) , subs );
 					rtn.add( newClause );
@@ -323,49 +561,48 @@ class Resolver {
 	 */
 	static Disjunction buildResolveClause( Disjunction clause1 , Term resolvedTerm1 , Disjunction clause2 , Term resolvedTerm2 , List< Substitution > subs ) {
 		Disjunction newClause = new Disjunction();
-		for ( int k=0 ; k<clause1.size() ; ++k ) {
-			Term toAdd = clause1.getTerm( k );
-			if ( toAdd != resolvedTerm1 ) {
-				for ( Substitution sub : subs ) {
-					if ( sub.original.equalsIgnoringNegated( toAdd ) ) {
-						if ( sub.original.negated() == toAdd.negated() ) {
-							toAdd = sub.substitution;
-						}
-						else {
-							toAdd = sub.substitution.clone();
-							toAdd.negate();
-						}
-					}
-					else {
-						toAdd = toAdd.clone();
-						toAdd.substituteArg( sub.original , sub.substitution );
-					}
-				}
-				newClause.addTerm( toAdd );
+		addSubstitutedTerms( newClause , clause1 , resolvedTerm1 , subs );
+		addSubstitutedTerms( newClause , clause2 , resolvedTerm2 , subs );
+		return newClause;
+	}
+	
+	/**
+	 * Applies the given substitutions to every term of a clause except for
+	 * the resolved term and adds the results to a resolvent. Terms are
+	 * immutable, so unchanged terms and subterms are shared with the
+	 * original clause instead of being copied.
+	 * 
+	 * @param newClause			the resolvent being built
+	 * @param clause			one of the clauses being resolved
+	 * @param resolvedTerm		the term in the clause that was resolved
+	 * @param subs				substitutions necessary to resolve the two clauses
+	 */
+	private static void addSubstitutedTerms( Disjunction newClause , Disjunction clause , Term resolvedTerm , List< Substitution > subs ) {
+		
+		//structurally equal terms share the same instance, so only skip
+		//the first occurrence of the resolved term
+		boolean skippedResolvedTerm = false;
+		for ( int k=0 ; k<clause.size() ; ++k ) {
+			Term toAdd = clause.getTerm( k );
+			if ( !skippedResolvedTerm && toAdd == resolvedTerm ) {
+				skippedResolvedTerm = true;
+				continue;
 			}
-		}
-		for ( int k=0 ; k<clause2.size() ; ++k ) {
-			Term toAdd = clause2.getTerm( k );
-			if ( toAdd != resolvedTerm2 ) {
-				for ( Substitution sub : subs ) {
-					if ( sub.original.equalsIgnoringNegated( toAdd ) ) {
-						if ( sub.original.negated() == toAdd.negated() ) {
-							toAdd = sub.substitution.clone();
-						}
-						else {
-							toAdd = sub.substitution.clone();
-							toAdd.negate();
-						}
+			for ( Substitution sub : subs ) {
+				if ( sub.original.equalsIgnoringNegated( toAdd ) ) {
+					if ( sub.original.negated() == toAdd.negated() ) {
+						toAdd = sub.substitution;
 					}
 					else {
-						toAdd = toAdd.clone();
-						toAdd.substituteArg( sub.original , sub.substitution );
+						toAdd = sub.substitution.negation();
 					}
 				}
-				newClause.addTerm( toAdd );
+				else {
+					toAdd = toAdd.substituteArg( sub.original , sub.substitution );
+				}
 			}
+			newClause.addTerm( toAdd );
 		}
-		return newClause;
 	}
 	
 	/**
@@ -388,9 +625,88 @@ class Resolver {
 		}
 	}
 	
+	/**
+	 * Stores the substitutions made by the unifier in triangular form:
+	 * a substituted term may itself contain terms that were substituted
+	 * earlier, and lookups follow those substitutions one step at a time.
+	 * The substitutions are kept in the order they were made, which is
+	 * the order in which they must be applied to a clause. They are also
+	 * indexed by the term they replace so that looking up a binding does
+	 * not require scanning every substitution made so far.
+	 * <p>
+	 * The list of substitutions doubles as an undo trail. A failed
+	 * unification removes every substitution it added.
+	 * 
+	 * @author mjchao
+	 */
+	static class Bindings {
+		
+		private final List< Substitution > trail;
+		private final HashMap< Term , Substitution > byOriginal = new HashMap< Term , Substitution >();
+		
+		/**
+		 * @param substitutions		substitutions made so far. New substitutions
+		 * 							are appended directly to this list.
+		 */
+		public Bindings( List< Substitution > substitutions ) {
+			this.trail = substitutions;
+			for ( Substitution sub : substitutions ) {
+				if ( !byOriginal.containsKey( sub.original ) ) {
+					byOriginal.put( sub.original , sub );
+				}
+			}
+		}
+		
+		/**
+		 * @param t
+		 * @return		the term substituted for the given term, or null
+		 * 				if the given term has not been substituted
+		 */
+		public Term lookup( Term t ) {
+			Substitution sub = byOriginal.get( t );
+			return (sub == null) ? null : sub.substitution;
+		}
+		
+		/**
+		 * Records a new substitution
+		 * 
+		 * @param original
+		 * @param substitution
+		 */
+		public void bind( Term original , Term substitution ) {
+			Substitution newSubstitution = new Substitution( original , substitution );
+			trail.add( newSubstitution );
+			if ( !byOriginal.containsKey( original ) ) {
+				byOriginal.put( original , newSubstitution );
+			}
+		}
+		
+		/**
+		 * @return		a marker for the current state of these bindings
+		 */
+		public int mark() {
+			return trail.size();
+		}
+		
+		/**
+		 * Removes every substitution made since the given marker
+		 * 
+		 * @param mark		a value returned by <code>mark()</code>
+		 */
+		public void undo( int mark ) {
+			while( trail.size() > mark ) {
+				Substitution sub = trail.remove( trail.size()-1 );
+				if ( byOriginal.get( sub.original ) == sub ) {
+					byOriginal.remove( sub.original );
+				}
+			}
+		}
+	}
+	
 	/**
 	 * Attempts to unify the two given terms so that they are
-	 * equivalent
+	 * equivalent. If the terms cannot be unified, the list of
+	 * substitutions is left unchanged.
 	 * 
 	 * @param t1
 	 * @param t2
@@ -399,82 +715,111 @@ class Resolver {
 	 * 							or null if t1 cannot be unified with t2
 	 */
 	static List< Substitution > unify( Term t1 , Term t2 , List< Substitution > substitutions ) {
-		if ( t1.equals( t2 ) ) {
+		Bindings bindings = new Bindings( substitutions );
+		int mark = bindings.mark();
+		if ( unify( t1 , t2 , bindings ) ) {
+			return substitutions;
+		}
+		bindings.undo( mark );
+		return null;
+	}
+	
+	/**
+	 * Unifies a variable with another term. If the terms cannot be
+	 * unified, the list of substitutions is left unchanged.
+	 * 
+	 * @param var				a term that is a variable
+	 * @param x					another term
+	 * @param substitutions		list of substitutions built up so far
+	 * @return					list of substitutions required to unify var with x
+	 * 							(the parameter <code>substitutions</code> is directly
+	 * 							updated to include any new substitutions performed
+	 * 							in this unification algorithm) 
+	 */
+	static List< Substitution > unifyVar( Term var , Term x , List< Substitution > substitutions ) {
+		Bindings bindings = new Bindings( substitutions );
+		int mark = bindings.mark();
+		if ( unifyVar( var , x , bindings ) ) {
 			return substitutions;
 		}
+		bindings.undo( mark );
+		return null;
+	}
+	
+	/**
+	 * @param t1
+	 * @param t2
+	 * @param bindings		the substitutions made so far
+	 * @return				if t1 could be unified with t2
+	 */
+	static boolean unify( Term t1 , Term t2 , Bindings bindings ) {
+		if ( t1.equals( t2 ) ) {
+			return true;
+		}
 		else if ( t1.getValue() instanceof Variable ) {
-			return unifyVar( t1 , t2 , substitutions );
+			return unifyVar( t1 , t2 , bindings );
 		}
 		else if ( t2.getValue() instanceof Variable ) {
-			return unifyVar( t2 , t1 , substitutions );
+			return unifyVar( t2 , t1 , bindings );
 		}
 		else if ( t1.getValue() instanceof SkolemFunction ) {
 			
 			//a skolem function can be treated as a
 			//normal variable.
-			return unifyVar( t1 , t2 , substitutions );
+			return unifyVar( t1 , t2 , bindings );
 		}
 		else if ( t2.getValue() instanceof SkolemFunction ) {
-			return unifyVar( t2 , t1 , substitutions );
+			return unifyVar( t2 , t1 , bindings );
 		}
 		else if ( t1.getValue() instanceof Function && t2.getValue() instanceof Function ) {
 			if ( t1.getValue().equals( t2.getValue() ) ) {
 				for ( int i=0 ; i<t1.getArgs().length ; ++i ) {
-					List< Substitution > subs = unify( t1.getArgs()[ i ] , t2.getArgs()[ i ] , substitutions );
-					if ( subs == null ) {
-						return null;
+					if ( !unify( t1.getArgs()[ i ] , t2.getArgs()[ i ] , bindings ) ) {
+						return false;
 					}
 				}
-				return substitutions;
+				return true;
 			}
 			else {
 				
 				//we will not unify different functions because
 				//determining if the outputs of two different functions
 				//will be the same is at least as hard as the halting problem
-				return null;
+				return false;
 			}
 		}
-		return null;
+		return false;
 	}
 	
 	/**
-	 * Unifies a variable with another term
-	 * 
-	 * @param var				a term that is a variable
-	 * @param x					another term
-	 * @param substitutions		list of substitutions built up so far
-	 * @return					list of substitutions required to unify var with x
-	 * 							(the parameter <code>substitutions</code> is directly
-	 * 							updated to include any new substitutions performed
-	 * 							in this unification algorithm) 
+	 * @param var			a term that is a variable
+	 * @param x				another term
+	 * @param bindings		the substitutions made so far
+	 * @return				if var could be unified with x
 	 */
-	static List< Substitution > unifyVar( Term var , Term x , List< Substitution > substitutions ) {
+	private static boolean unifyVar( Term var , Term x , Bindings bindings ) {
 		
 		//check if the variable has already been substituted by something else
 		//and if so, unify that with x
-		for ( Substitution sub : substitutions ) {
-			if ( sub.original.equals( var ) ) {
-				return unify( sub.substitution , x , substitutions );
-			}
+		Term varSubstitution = bindings.lookup( var );
+		if ( varSubstitution != null ) {
+			return unify( varSubstitution , x , bindings );
 		}
 		
 		//check if x has already been substituted by something else
 		//and if so, unify the variable with that
-		for ( Substitution sub : substitutions ) {
-			if ( sub.original.equals( x ) ) {
-				return unify( var , sub.substitution , substitutions );
-			}
+		Term xSubstitution = bindings.lookup( x );
+		if ( xSubstitution != null ) {
+			return unify( var , xSubstitution , bindings );
 		}
 		
 		//perform an occur check. For example, x cannot unify with f(x)
 		if ( var.containsTermIgnoringNegated( x ) || x.containsTermIgnoringNegated( var ) ) {
-			return null;
+			return false;
 		}
 		
 		//otherwise, we just directly substitute x for var
-		Substitution newSubstitution = new Substitution( var , x );
-		substitutions.add( newSubstitution );
-		return substitutions;
+		bindings.bind( var , x );
+		return true;
 	}
 }
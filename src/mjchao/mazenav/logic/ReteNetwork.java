@@ -0,0 +1,896 @@
+package mjchao.mazenav.logic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+import mjchao.mazenav.logic.StatementCNF.Disjunction.Term;
+import mjchao.mazenav.logic.structures.Symbol;
+import mjchao.mazenav.logic.structures.Variable;
+
+/**
+ * Keeps the facts that follow from a set of definite rules up to date
+ * as facts are asserted and retracted, e.g. as an agent receives
+ * percepts, without matching every rule again after each change.
+ * <p>
+ * Rules are compiled into a Rete network. Each body literal is tested by
+ * an alpha memory, which holds the facts that match the literal on its
+ * own and is shared by every literal of the same form, e.g. Breeze(x, y)
+ * and Breeze(a, b). The alpha memories are found by predicate. Each rule
+ * is then a chain of join nodes, one per body literal, which hold the
+ * partial matches of the body literals up to that node. Rules that start
+ * with the same body literals share the join nodes for them. An asserted
+ * fact is only joined with the partial matches next to the alpha memories
+ * it belongs to, so the work done is proportional to the matches that the
+ * fact adds rather than to the number of rules and facts.
+ * <p>
+ * A derived fact counts the complete matches that derive it. Retracting a
+ * fact removes every partial match that uses it and every fact that was
+ * derived from it, and then derives again the removed facts that still
+ * have other complete matches. This keeps facts that only support each
+ * other, e.g. through P(x) => Q(x) and Q(x) => P(x), from outliving the
+ * fact they were derived from.
+ * <p>
+ * Infinitely many facts may follow from rules with functions in their
+ * heads, e.g. Nat(x) => Nat(Succ(x)), and asserting a fact would then
+ * never finish. Such rules should be given to a KnowledgeBase instead.
+ * <p>
+ * A ReteNetwork is not thread-safe.
+ *
+ * @author mjchao
+ *
+ */
+public class ReteNetwork {
+
+	/**
+	 * A fact that has been asserted or derived
+	 */
+	private static class Fact {
+
+		public final Term atom;
+		public boolean asserted = false;
+
+		/**
+		 * the number of complete matches that derive this fact
+		 */
+		public int support = 0;
+
+		/**
+		 * if this fact is in the alpha memories
+		 */
+		public boolean present = false;
+
+		/**
+		 * the partial matches that end with this fact
+		 */
+		public final HashSet< Token > tokens = new HashSet< Token >();
+
+		public Fact( Term atom ) {
+			this.atom = atom;
+		}
+
+		public boolean holds() {
+			return asserted || support > 0;
+		}
+	}
+
+	/**
+	 * The facts that match a body literal on its own, i.e. that have the
+	 * same predicate and constants and bind the variables of the literal
+	 * consistently
+	 */
+	private static class AlphaMemory {
+
+		public final Term pattern;
+		public final HashMap< Variable , Integer > variables = new HashMap< Variable , Integer >();
+		public final LinkedHashSet< Fact > facts = new LinkedHashSet< Fact >();
+
+		/**
+		 * the facts by each of their arguments, for the argument
+		 * positions that some join node looks facts up by
+		 */
+		public final List< HashMap< Term , LinkedHashSet< Fact > > > factsByArg = new ArrayList< HashMap< Term , LinkedHashSet< Fact > > >();
+
+		/**
+		 * the join nodes that test this memory, with descendants before
+		 * their ancestors so that a fact joins with itself only once
+		 */
+		public final List< JoinNode > successors = new ArrayList< JoinNode >();
+
+		public AlphaMemory( Term pattern ) {
+			this.pattern = pattern;
+			numberVariables( pattern , variables );
+		}
+
+		public void add( Fact f ) {
+			facts.add( f );
+			Term[] args = f.atom.getArgs();
+			for ( int i=0 ; i<factsByArg.size() ; ++i ) {
+				HashMap< Term , LinkedHashSet< Fact > > byArg = factsByArg.get( i );
+				if ( byArg != null ) {
+					LinkedHashSet< Fact > withArg = byArg.get( args[ i ] );
+					if ( withArg == null ) {
+						withArg = new LinkedHashSet< Fact >();
+						byArg.put( args[ i ] , withArg );
+					}
+					withArg.add( f );
+				}
+			}
+		}
+
+		public void remove( Fact f ) {
+			facts.remove( f );
+			Term[] args = f.atom.getArgs();
+			for ( int i=0 ; i<factsByArg.size() ; ++i ) {
+				HashMap< Term , LinkedHashSet< Fact > > byArg = factsByArg.get( i );
+				if ( byArg != null ) {
+					LinkedHashSet< Fact > withArg = byArg.get( args[ i ] );
+					withArg.remove( f );
+					if ( withArg.isEmpty() ) {
+						byArg.remove( args[ i ] );
+					}
+				}
+			}
+		}
+
+		/**
+		 * Starts keeping the facts of this memory by one of their arguments
+		 *
+		 * @param arg
+		 */
+		public void indexBy( int arg ) {
+			while ( factsByArg.size() <= arg ) {
+				factsByArg.add( null );
+			}
+			if ( factsByArg.get( arg ) == null ) {
+				HashMap< Term , LinkedHashSet< Fact > > byArg = new HashMap< Term , LinkedHashSet< Fact > >();
+				factsByArg.set( arg , byArg );
+				for ( Fact f : facts ) {
+					LinkedHashSet< Fact > withArg = byArg.get( f.atom.getArgs()[ arg ] );
+					if ( withArg == null ) {
+						withArg = new LinkedHashSet< Fact >();
+						byArg.put( f.atom.getArgs()[ arg ] , withArg );
+					}
+					withArg.add( f );
+				}
+			}
+		}
+
+		/**
+		 * @param arg
+		 * @param value
+		 * @return			the facts of this memory with the given argument
+		 */
+		public Iterable< Fact > withArg( int arg , Term value ) {
+			LinkedHashSet< Fact > rtn = factsByArg.get( arg ).get( value );
+			return (rtn == null) ? new ArrayList< Fact >() : rtn;
+		}
+	}
+
+	/**
+	 * A partial match of the body literals of a rule, up to
+	 * the join node that holds it
+	 */
+	private static class Token {
+
+		public final Token parent;
+		public final Fact fact;
+		public final JoinNode node;
+
+		/**
+		 * the terms bound to the variables of the body
+		 * literals up to the node, by variable number
+		 */
+		public final Term[] bindings;
+		public final List< Token > children = new ArrayList< Token >( 2 );
+
+		public Token( Token parent , Fact fact , JoinNode node , Term[] bindings ) {
+			this.parent = parent;
+			this.fact = fact;
+			this.node = node;
+			this.bindings = bindings;
+		}
+	}
+
+	/**
+	 * Joins the partial matches of its parent with the facts of an alpha
+	 * memory that match its body literal given the parent's bindings
+	 */
+	private static class JoinNode {
+
+		/**
+		 * the node for the previous body literal, or null if
+		 * this node is for the first body literal
+		 */
+		public final JoinNode parent;
+		public final AlphaMemory alpha;
+		public final Term literal;
+
+		/**
+		 * the numbers of the variables in the body literals up to this
+		 * node, in the order they first appear
+		 */
+		public final HashMap< Variable , Integer > variables;
+
+		/**
+		 * an argument of the literal that is a variable bound by the
+		 * parent, or -1. Facts are looked up in the alpha memory by this
+		 * argument, and partial matches of the parent by this variable.
+		 */
+		public final int indexArg;
+		public final int indexVariable;
+
+		public final LinkedHashSet< Token > tokens = new LinkedHashSet< Token >();
+
+		/**
+		 * the partial matches by the terms bound to each variable, for
+		 * the variables that some child looks partial matches up by
+		 */
+		public final List< HashMap< Term , LinkedHashSet< Token > > > tokensByVariable = new ArrayList< HashMap< Term , LinkedHashSet< Token > > >();
+		public final List< JoinNode > children = new ArrayList< JoinNode >();
+		public final List< Production > productions = new ArrayList< Production >();
+
+		public JoinNode( JoinNode parent , AlphaMemory alpha , Term literal , HashMap< Variable , Integer > variables ) {
+			this.parent = parent;
+			this.alpha = alpha;
+			this.literal = literal;
+			this.variables = variables;
+			int arg = -1;
+			int variable = -1;
+			if ( parent != null ) {
+				Term[] args = literal.getArgs();
+				for ( int i=0 ; i<args.length && arg == -1 ; ++i ) {
+					Integer number = (args[ i ].getValue() instanceof Variable) ? variables.get( args[ i ].getValue() ) : null;
+					if ( number != null && number.intValue() < parent.numVariables() ) {
+						arg = i;
+						variable = number.intValue();
+					}
+				}
+			}
+			this.indexArg = arg;
+			this.indexVariable = variable;
+			if ( arg != -1 ) {
+				alpha.indexBy( arg );
+				parent.indexBy( variable );
+			}
+		}
+
+		public void add( Token t ) {
+			tokens.add( t );
+			for ( int i=0 ; i<tokensByVariable.size() ; ++i ) {
+				HashMap< Term , LinkedHashSet< Token > > byVariable = tokensByVariable.get( i );
+				if ( byVariable != null ) {
+					LinkedHashSet< Token > withBinding = byVariable.get( t.bindings[ i ] );
+					if ( withBinding == null ) {
+						withBinding = new LinkedHashSet< Token >();
+						byVariable.put( t.bindings[ i ] , withBinding );
+					}
+					withBinding.add( t );
+				}
+			}
+		}
+
+		/**
+		 * @param t
+		 * @return		if the given partial match was held by this node
+		 */
+		public boolean remove( Token t ) {
+			if ( !tokens.remove( t ) ) {
+				return false;
+			}
+			for ( int i=0 ; i<tokensByVariable.size() ; ++i ) {
+				HashMap< Term , LinkedHashSet< Token > > byVariable = tokensByVariable.get( i );
+				if ( byVariable != null ) {
+					LinkedHashSet< Token > withBinding = byVariable.get( t.bindings[ i ] );
+					withBinding.remove( t );
+					if ( withBinding.isEmpty() ) {
+						byVariable.remove( t.bindings[ i ] );
+					}
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Starts keeping the partial matches of this node by
+		 * the term bound to one of their variables
+		 *
+		 * @param variable
+		 */
+		public void indexBy( int variable ) {
+			while ( tokensByVariable.size() <= variable ) {
+				tokensByVariable.add( null );
+			}
+			if ( tokensByVariable.get( variable ) == null ) {
+				HashMap< Term , LinkedHashSet< Token > > byVariable = new HashMap< Term , LinkedHashSet< Token > >();
+				tokensByVariable.set( variable , byVariable );
+				for ( Token t : tokens ) {
+					LinkedHashSet< Token > withBinding = byVariable.get( t.bindings[ variable ] );
+					if ( withBinding == null ) {
+						withBinding = new LinkedHashSet< Token >();
+						byVariable.put( t.bindings[ variable ] , withBinding );
+					}
+					withBinding.add( t );
+				}
+			}
+		}
+
+		/**
+		 * @param variable
+		 * @param binding
+		 * @return			the partial matches of this node with the
+		 * 					given term bound to the given variable
+		 */
+		public Iterable< Token > withBinding( int variable , Term binding ) {
+			LinkedHashSet< Token > rtn = tokensByVariable.get( variable ).get( binding );
+			return (rtn == null) ? new ArrayList< Token >() : rtn;
+		}
+
+		public int numVariables() {
+			return variables.size();
+		}
+	}
+
+	/**
+	 * The head of a rule, which is derived for every
+	 * complete match of its body literals
+	 */
+	private static class Production {
+
+		public final Term head;
+		public final HashMap< Variable , Integer > variables;
+
+		public Production( Term head , HashMap< Variable , Integer > variables ) {
+			this.head = head;
+			this.variables = variables;
+		}
+	}
+
+	/**
+	 * every fact that is asserted or derived, and facts that
+	 * have been asserted or derived before and are still
+	 * referenced by complete matches that are being removed
+	 */
+	private final HashMap< Term , Fact > facts = new HashMap< Term , Fact >();
+
+	/**
+	 * alpha memories by predicate, and by the key of their pattern
+	 */
+	private final HashMap< Symbol , List< AlphaMemory > > alphaByPredicate = new HashMap< Symbol , List< AlphaMemory > >();
+	private final HashMap< String , AlphaMemory > alphaByKey = new HashMap< String , AlphaMemory >();
+
+	/**
+	 * join nodes by the key of their body literals up to the node
+	 */
+	private final HashMap< String , JoinNode > joinNodes = new HashMap< String , JoinNode >();
+
+	/**
+	 * facts that hold and haven't been added to the alpha memories yet
+	 */
+	private final ArrayDeque< Fact > agenda = new ArrayDeque< Fact >();
+
+	private int numTokens = 0;
+	private Term[] scratch = new Term[ 8 ];
+
+	public ReteNetwork() {
+
+	}
+
+	/**
+	 * Adds rules to the network and derives the facts that follow from
+	 * them and the facts that hold so far. Clauses without body literals
+	 * are asserted as facts.
+	 *
+	 * @param rules
+	 * @throws IllegalArgumentException		if a clause of the given statement
+	 * 										is not a definite clause with a head
+	 * 										whose variables are all in its body
+	 */
+	public void addRules( StatementCNF rules ) {
+		for ( Disjunction d : rules.getDisjunctions() ) {
+			if ( !ForwardChainer.isDefinite( d ) ) {
+				throw new IllegalArgumentException( "Not a definite clause: " + d );
+			}
+		}
+		for ( Disjunction d : rules.getDisjunctions() ) {
+			addRule( d );
+		}
+		run();
+	}
+
+	private void addRule( Disjunction d ) {
+		Term head = null;
+		List< Term > body = new ArrayList< Term >();
+		for ( int i=0 ; i<d.size() ; ++i ) {
+			Term t = d.getTerm( i );
+			if ( t.negated() ) {
+				body.add( t.negation() );
+			}
+			else {
+				head = t;
+			}
+		}
+		if ( body.isEmpty() ) {
+			assertAtom( head );
+			return;
+		}
+
+		HashMap< Variable , Integer > variables = new HashMap< Variable , Integer >();
+		StringBuilder key = new StringBuilder();
+		JoinNode node = null;
+		for ( Term literal : body ) {
+			variables = new HashMap< Variable , Integer >( variables );
+			numberVariables( literal , variables );
+			appendKey( literal , variables , key );
+			key.append( ';' );
+			JoinNode next = joinNodes.get( key.toString() );
+			if ( next == null ) {
+				next = new JoinNode( node , alphaMemory( literal ) , literal , variables );
+				joinNodes.put( key.toString() , next );
+				next.alpha.successors.add( 0 , next );
+				if ( node != null ) {
+					node.children.add( next );
+				}
+
+				//the new node starts with the matches of the facts
+				//that already hold
+				if ( node == null ) {
+					for ( Fact f : next.alpha.facts ) {
+						join( next , null , f );
+					}
+				}
+				else {
+					for ( Token t : node.tokens ) {
+						leftActivate( next , t );
+					}
+				}
+			}
+			node = next;
+		}
+		Production production = new Production( head , variables );
+		node.productions.add( production );
+		for ( Token t : node.tokens ) {
+			fire( production , t );
+		}
+	}
+
+	/**
+	 * @param literal
+	 * @return				the alpha memory for the given body literal,
+	 * 						which is created if there isn't one yet
+	 */
+	private AlphaMemory alphaMemory( Term literal ) {
+		HashMap< Variable , Integer > variables = new HashMap< Variable , Integer >();
+		numberVariables( literal , variables );
+		StringBuilder key = new StringBuilder();
+		appendKey( literal , variables , key );
+		AlphaMemory rtn = alphaByKey.get( key.toString() );
+		if ( rtn == null ) {
+			rtn = new AlphaMemory( literal );
+			alphaByKey.put( key.toString() , rtn );
+			List< AlphaMemory > withPredicate = alphaByPredicate.get( literal.getValue() );
+			if ( withPredicate == null ) {
+				withPredicate = new ArrayList< AlphaMemory >();
+				alphaByPredicate.put( literal.getValue() , withPredicate );
+			}
+			withPredicate.add( rtn );
+			for ( Fact f : facts.values() ) {
+				if ( f.present && matchesAlone( rtn , f ) ) {
+					rtn.add( f );
+				}
+			}
+		}
+		return rtn;
+	}
+
+	/**
+	 * Numbers the variables of a term that haven't been numbered yet,
+	 * in the order they appear
+	 */
+	private static void numberVariables( Term t , HashMap< Variable , Integer > variables ) {
+		if ( t.getValue() instanceof Variable && !variables.containsKey( t.getValue() ) ) {
+			variables.put( (Variable) t.getValue() , variables.size() );
+		}
+		for ( Term arg : t.getArgs() ) {
+			numberVariables( arg , variables );
+		}
+	}
+
+	/**
+	 * Appends a key for a term that is the same for terms that
+	 * only differ in the names of their variables
+	 */
+	private static void appendKey( Term t , HashMap< Variable , Integer > variables , StringBuilder key ) {
+		if ( t.getValue() instanceof Variable ) {
+			key.append( '?' ).append( variables.get( t.getValue() ) );
+			return;
+		}
+		key.append( t.getValue().getSymbolId() ).append( ':' ).append( t.getValue().getSymbolName() );
+		if ( t.getArgs().length > 0 ) {
+			key.append( '(' );
+			for ( Term arg : t.getArgs() ) {
+				appendKey( arg , variables , key );
+				key.append( ',' );
+			}
+			key.append( ')' );
+		}
+	}
+
+	/**
+	 * Asserts facts and derives the facts that follow from them
+	 *
+	 * @param facts
+	 * @return							if a fact was asserted that hadn't
+	 * 									been asserted before
+	 * @throws IllegalArgumentException	if the given statement is not
+	 * 									a conjunction of ground atoms
+	 */
+	public boolean assertFacts( StatementCNF facts ) {
+		List< Term > atoms = toAtoms( facts );
+		boolean rtn = false;
+		for ( Term atom : atoms ) {
+			rtn |= assertAtom( atom );
+		}
+		run();
+		return rtn;
+	}
+
+	private boolean assertAtom( Term atom ) {
+		Fact f = fact( atom );
+		if ( f.asserted ) {
+			return false;
+		}
+		f.asserted = true;
+		if ( !f.present ) {
+			agenda.add( f );
+		}
+		return true;
+	}
+
+	/**
+	 * Retracts facts that have been asserted, along with the facts that
+	 * were derived from them and no longer follow. Facts that are still
+	 * derived from other facts continue to hold.
+	 *
+	 * @param facts
+	 * @return							if a fact was retracted that had
+	 * 									been asserted
+	 * @throws IllegalArgumentException	if the given statement is not
+	 * 									a conjunction of ground atoms
+	 */
+	public boolean retractFacts( StatementCNF facts ) {
+		List< Term > atoms = toAtoms( facts );
+		ArrayDeque< Fact > removals = new ArrayDeque< Fact >();
+		for ( Term atom : atoms ) {
+			Fact f = this.facts.get( atom );
+			if ( f != null && f.asserted ) {
+				f.asserted = false;
+				removals.add( f );
+			}
+		}
+		if ( removals.isEmpty() ) {
+			return false;
+		}
+
+		//remove every fact that was derived from a retracted fact, even
+		//if it is also derived some other way
+		List< Fact > removed = new ArrayList< Fact >();
+		while ( !removals.isEmpty() ) {
+			Fact f = removals.poll();
+			if ( !f.present ) {
+				continue;
+			}
+			f.present = false;
+			removed.add( f );
+			for ( AlphaMemory alpha : alphaMemories( f ) ) {
+				alpha.remove( f );
+			}
+			for ( Token t : new ArrayList< Token >( f.tokens ) ) {
+				if ( t.parent != null ) {
+					t.parent.children.remove( t );
+				}
+				removeToken( t , removals );
+			}
+		}
+
+		//then derive again the removed facts that still have a complete
+		//match of facts that weren't removed
+		for ( Fact f : removed ) {
+			if ( f.holds() ) {
+				agenda.add( f );
+			}
+		}
+		run();
+		for ( Fact f : removed ) {
+			if ( !f.present ) {
+				this.facts.remove( f.atom );
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes a partial match and the partial matches that extend it
+	 *
+	 * @param t
+	 * @param removals		facts that lose a complete match are added here
+	 */
+	private void removeToken( Token t , ArrayDeque< Fact > removals ) {
+		//a partial match can end with the same fact as a match it
+		//extends, so it may have been removed along with that match
+		if ( !t.node.remove( t ) ) {
+			return;
+		}
+		for ( Token child : t.children ) {
+			removeToken( child , removals );
+		}
+		t.fact.tokens.remove( t );
+		--numTokens;
+		for ( Production production : t.node.productions ) {
+			Fact head = facts.get( substitute( production.head , production.variables , t.bindings ) );
+			head.support--;
+			removals.add( head );
+		}
+	}
+
+	/**
+	 * @param hypothesis
+	 * @return							if every clause of the given hypothesis
+	 * 									contains a fact that holds
+	 * @throws IllegalArgumentException	if the hypothesis contains literals
+	 * 									that are negated or not ground atoms
+	 */
+	public boolean holds( StatementCNF hypothesis ) {
+		if ( !ForwardChainer.isGroundFacts( hypothesis.getDisjunctions() ) ) {
+			throw new IllegalArgumentException( "Not made of ground atoms: " + hypothesis );
+		}
+		for ( Disjunction d : hypothesis.getDisjunctions() ) {
+			boolean found = false;
+			for ( int i=0 ; i<d.size() && !found ; ++i ) {
+				Fact f = facts.get( d.getTerm( i ) );
+				found = f != null && f.present;
+			}
+			if ( !found ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return		the facts that hold, in no particular order
+	 */
+	public List< Term > getFacts() {
+		List< Term > rtn = new ArrayList< Term >();
+		for ( Fact f : facts.values() ) {
+			if ( f.present ) {
+				rtn.add( f.atom );
+			}
+		}
+		return rtn;
+	}
+
+	/**
+	 * @return		the number of facts that hold
+	 */
+	public int numFacts() {
+		int rtn = 0;
+		for ( Fact f : facts.values() ) {
+			if ( f.present ) {
+				++rtn;
+			}
+		}
+		return rtn;
+	}
+
+	int numAlphaMemories() {
+		return alphaByKey.size();
+	}
+
+	int numJoinNodes() {
+		return joinNodes.size();
+	}
+
+	int numTokens() {
+		return numTokens;
+	}
+
+	private static List< Term > toAtoms( StatementCNF facts ) {
+		List< Term > rtn = new ArrayList< Term >();
+		for ( Disjunction d : facts.getDisjunctions() ) {
+			if ( d.size() != 1 ) {
+				throw new IllegalArgumentException( "Not a conjunction of facts: " + facts );
+			}
+			rtn.add( d.getTerm( 0 ) );
+		}
+		if ( !ForwardChainer.isGroundFacts( facts.getDisjunctions() ) ) {
+			throw new IllegalArgumentException( "Not a conjunction of ground atoms: " + facts );
+		}
+		return rtn;
+	}
+
+	private Fact fact( Term atom ) {
+		Fact rtn = facts.get( atom );
+		if ( rtn == null ) {
+			rtn = new Fact( atom );
+			facts.put( atom , rtn );
+		}
+		return rtn;
+	}
+
+	/**
+	 * @param f
+	 * @return		the alpha memories whose literals the given fact matches
+	 */
+	private List< AlphaMemory > alphaMemories( Fact f ) {
+		List< AlphaMemory > rtn = new ArrayList< AlphaMemory >();
+		List< AlphaMemory > withPredicate = alphaByPredicate.get( f.atom.getValue() );
+		if ( withPredicate != null ) {
+			for ( AlphaMemory alpha : withPredicate ) {
+				if ( matchesAlone( alpha , f ) ) {
+					rtn.add( alpha );
+				}
+			}
+		}
+		return rtn;
+	}
+
+	private boolean matchesAlone( AlphaMemory alpha , Fact f ) {
+		Arrays.fill( scratch( alpha.variables.size() ) , 0 , alpha.variables.size() , null );
+		return match( alpha.pattern , f.atom , alpha.variables , scratch );
+	}
+
+	/**
+	 * Adds the facts on the agenda to the alpha memories
+	 * until no more facts can be derived
+	 */
+	private void run() {
+		while ( !agenda.isEmpty() ) {
+			Fact f = agenda.poll();
+			if ( f.present || !f.holds() ) {
+				continue;
+			}
+			f.present = true;
+			for ( AlphaMemory alpha : alphaMemories( f ) ) {
+				alpha.add( f );
+				for ( JoinNode node : alpha.successors ) {
+					rightActivate( node , f );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Joins a fact that was added to the alpha memory of a
+	 * node with the partial matches of the node's parent
+	 */
+	private void rightActivate( JoinNode node , Fact f ) {
+		if ( node.parent == null ) {
+			join( node , null , f );
+			return;
+		}
+		Iterable< Token > candidates = (node.indexArg == -1) ? node.parent.tokens : node.parent.withBinding( node.indexVariable , f.atom.getArgs()[ node.indexArg ] );
+		for ( Token t : candidates ) {
+			join( node , t , f );
+		}
+	}
+
+	/**
+	 * Joins a partial match that was added to the parent of a node
+	 * with the facts of the node's alpha memory
+	 *
+	 * @param node
+	 * @param t
+	 */
+	private void leftActivate( JoinNode node , Token t ) {
+		Iterable< Fact > candidates = (node.indexArg == -1) ? node.alpha.facts : node.alpha.withArg( node.indexArg , t.bindings[ node.indexVariable ] );
+		for ( Fact f : candidates ) {
+			join( node , t , f );
+		}
+	}
+
+	/**
+	 * Adds a partial match to a node if a fact matches the node's
+	 * literal given the bindings of a partial match of the parent,
+	 * and passes it on to the children and productions of the node.
+	 */
+	private void join( JoinNode node , Token parent , Fact f ) {
+		int numBound = (parent == null) ? 0 : parent.bindings.length;
+		Term[] bindings = scratch( node.numVariables() );
+		if ( parent != null ) {
+			System.arraycopy( parent.bindings , 0 , bindings , 0 , numBound );
+		}
+		Arrays.fill( bindings , numBound , node.numVariables() , null );
+		if ( !match( node.literal , f.atom , node.variables , bindings ) ) {
+			return;
+		}
+		Token t = new Token( parent , f , node , Arrays.copyOf( bindings , node.numVariables() ) );
+		node.add( t );
+		f.tokens.add( t );
+		if ( parent != null ) {
+			parent.children.add( t );
+		}
+		++numTokens;
+		for ( Production production : node.productions ) {
+			fire( production , t );
+		}
+		for ( JoinNode child : node.children ) {
+			leftActivate( child , t );
+		}
+	}
+
+	/**
+	 * Derives the head of a rule for a complete match of its body
+	 */
+	private void fire( Production production , Token t ) {
+		Fact head = fact( substitute( production.head , production.variables , t.bindings ) );
+		head.support++;
+		if ( !head.present ) {
+			agenda.add( head );
+		}
+	}
+
+	private Term[] scratch( int size ) {
+		if ( scratch.length < size ) {
+			scratch = new Term[ Math.max( size , 2*scratch.length ) ];
+		}
+		return scratch;
+	}
+
+	/**
+	 * Matches a pattern against a ground term, binding the pattern's
+	 * variables. Bindings may be left behind by a failed match.
+	 *
+	 * @param pattern
+	 * @param ground
+	 * @param variables		the numbers of the pattern's variables
+	 * @param bindings		the terms bound to the variables, by number
+	 * @return				if the pattern matches the ground term
+	 */
+	private static boolean match( Term pattern , Term ground , HashMap< Variable , Integer > variables , Term[] bindings ) {
+		if ( pattern.getValue() instanceof Variable ) {
+			int variable = variables.get( pattern.getValue() ).intValue();
+			if ( bindings[ variable ] == null ) {
+				bindings[ variable ] = ground;
+				return true;
+			}
+			return bindings[ variable ].equals( ground );
+		}
+		if ( !pattern.getValue().equals( ground.getValue() ) || pattern.getArgs().length != ground.getArgs().length ) {
+			return false;
+		}
+		for ( int i=0 ; i<pattern.getArgs().length ; ++i ) {
+			if ( !match( pattern.getArgs()[ i ] , ground.getArgs()[ i ] , variables , bindings ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return			the given term with its variables
+	 * 					replaced by their bindings
+	 */
+	private static Term substitute( Term t , HashMap< Variable , Integer > variables , Term[] bindings ) {
+		if ( t.getValue() instanceof Variable ) {
+			return bindings[ variables.get( t.getValue() ).intValue() ];
+		}
+		Term[] args = t.getArgs();
+		Term[] newArgs = null;
+		for ( int i=0 ; i<args.length ; ++i ) {
+			Term arg = substitute( args[ i ] , variables , bindings );
+			if ( arg != args[ i ] ) {
+				if ( newArgs == null ) {
+					newArgs = args.clone();
+				}
+				newArgs[ i ] = arg;
+			}
+		}
+		return (newArgs == null) ? t : TermBank.intern( t.withArgs( newArgs ) );
+	}
+}
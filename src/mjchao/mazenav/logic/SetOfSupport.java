@@ -0,0 +1,25 @@
+package mjchao.mazenav.logic;
+
+/**
+ * Only resolves pairs of clauses in which at least one clause is part
+ * of the negated hypothesis or was inferred from it (the set of support).
+ * The query never resolves the knowledgebase's clauses with each other,
+ * so the search only looks at clauses that have something to do with the
+ * hypothesis. It still uses the resolvents of the knowledgebase's clauses
+ * that a KnowledgeBase keeps between queries.
+ * <p>
+ * This finds a proof whenever there is one, as long as the knowledgebase
+ * does not contradict itself. If it does, only the hypotheses whose
+ * negation helps derive the contradiction are proved, unless the
+ * contradiction is among the resolvents kept between queries.
+ *
+ * @author mjchao
+ *
+ */
+public class SetOfSupport extends UnrestrictedResolution {
+
+	@Override
+	public boolean isSupportRequired() {
+		return true;
+	}
+}
@@ -59,7 +59,41 @@ public class StatementCNF {
 	 */
 	public static StatementCNF fromInfixString( String infix , SymbolTracker tracker ) {
 		Tokenizer p = new Tokenizer( infix , tracker );
-		ExpressionTree exprTree = new ExpressionTree( p.tokenize() );
+		return fromTokens( p.tokenize() , tracker );
+	}
+	
+	/**
+	 * Builds a StatementCNF object from a logic expression that has
+	 * already been split into tokens.
+	 * 
+	 * @param infix			the tokens of a logic expression in infix notation
+	 * @param tracker		tracker for recognizing variables and names
+	 * @return				a StatementCNF object representing the
+	 * 						logic expression in CNF
+	 */
+	static StatementCNF fromTokens( List< Symbol > infix , SymbolTracker tracker ) {
+		ExpressionTree exprTree = new ExpressionTree( infix );
+		return fromPostfix( exprTree , tracker );
+	}
+	
+	/**
+	 * Builds a Statement CNF object from an infix logic expression,
+	 * introducing new predicates for conjunctions nested in disjunctions
+	 * instead of distributing over them. The number of clauses then only
+	 * grows linearly with the length of the expression, even for nested
+	 * biconditionals. The clauses are not equivalent to the expression,
+	 * but they are satisfiable exactly when the expression is, which is
+	 * all that resolution needs.
+	 * 
+	 * @param infix			a logic expression in infix notation
+	 * @param tracker		tracker for recognizing variables and names
+	 * @return				a StatementCNF object representing the
+	 * 						logic expression in CNF
+	 * @see ExpressionTree#convertToCNF(SymbolTracker)
+	 */
+	public static StatementCNF fromInfixStringWithDefinitions( String infix , SymbolTracker tracker ) {
+		Tokenizer p = new Tokenizer( infix , tracker );
+		ExpressionTree exprTree = new ExpressionTree( p.tokenize() , true );
 		return fromPostfix( exprTree , tracker );
 	}
 	
@@ -188,6 +222,11 @@ public class StatementCNF {
 		 * Represents a single term in a disjunction.
 		 * This structure contains the value of the term
 		 * and whether or not it is negated.
+		 * <p>
+		 * Terms are immutable. Negating a term or substituting one of its
+		 * arguments creates a new term that shares every unchanged subterm
+		 * with the original, so terms never need to be deep-copied. Terms
+		 * stored in a disjunction are interned by the TermBank.
 		 *
 		 */
 		 public static class Term {
@@ -208,7 +247,20 @@ public class StatementCNF {
 			/**
 			 * if this term has been negated.
 			 */
-			private boolean negated;
+			private final boolean negated;
+			
+			/**
+			 * structural hash of this term, computed once
+			 * from the symbols that make up this term
+			 */
+			private final int hash;
+			
+			/**
+			 * if this term is the shared instance held by the TermBank.
+			 * Terms are passed between threads, so a thread that reads
+			 * true must also see the term as the bank holds it
+			 */
+			volatile boolean banked = false;
 			
 			/**
 			 * Creates a term to represent the a function with the given
@@ -223,6 +275,7 @@ public class StatementCNF {
 				this.value = function;
 				this.negated = negated;
 				this.args = args;
+				this.hash = computeHash();
 			}
 			
 			/**
@@ -238,6 +291,7 @@ public class StatementCNF {
 				this.value = skolem;
 				this.negated = negated;
 				this.args = args;
+				this.hash = computeHash();
 			}
 			
 			/**
@@ -251,6 +305,7 @@ public class StatementCNF {
 				this.value = value;
 				this.negated = negated;
 				this.args = new Term[0];
+				this.hash = computeHash();
 			}
 			
 			/**
@@ -263,6 +318,33 @@ public class StatementCNF {
 				this( value , false );
 			}
 			
+			/**
+			 * Creates a term with the given symbol, negation and arguments.
+			 * 
+			 * @param value			the symbol this term represents
+			 * @param negated		if the symbol has been negated
+			 * @param args			the arguments to the symbol
+			 */
+			private Term( Symbol value , boolean negated , Term[] args ) {
+				this.value = value;
+				this.negated = negated;
+				this.args = args;
+				this.hash = computeHash();
+			}
+			
+			/**
+			 * @return		a hash of the symbols and negation of this term.
+			 * 				The arguments have already computed their hashes,
+			 * 				so this is not recursive.
+			 */
+			private int computeHash() {
+				int rtn = this.value.hashCode();
+				for ( Term arg : this.args ) {
+					rtn = 31 * rtn + arg.hash;
+				}
+				return this.negated ? ~rtn : rtn;
+			}
+			
 			/**
 			 * @return		the symbol that is part of this term
 			 */
@@ -274,27 +356,57 @@ public class StatementCNF {
 			 * @return		arguments to this term, if this term
 			 * 				represents a function. If this term is
 			 * 				not a function, an empty array of size 0
-			 * 				 is returned.
+			 * 				 is returned. The returned array is shared
+			 * 				with this term and must not be modified.
 			 */
 			public Term[] getArgs() {
 				return this.args;
 			}
 			
-			void substituteArg( Term original , Term substitute ) {
+			/**
+			 * @param args		new arguments
+			 * @return			a term with the same symbol and negation
+			 * 					as this term but with the given arguments
+			 */
+			Term withArgs( Term[] args ) {
+				return new Term( this.value , this.negated , args );
+			}
+			
+			/**
+			 * Replaces every occurrence of a term inside the arguments of this
+			 * term. Arguments that do not contain the original term are
+			 * shared with this term rather than copied.
+			 * 
+			 * @param original		the term to replace
+			 * @param substitute	the term with which to replace it
+			 * @return				this term with the substitution applied to
+			 * 						its arguments, or this term itself if
+			 * 						nothing was substituted
+			 */
+			Term substituteArg( Term original , Term substitute ) {
+				Term[] newArgs = null;
 				for ( int i=0 ; i<args.length ; ++i ) {
+					Term newArg;
 					if ( args[ i ].equalsIgnoringNegated( original ) ) {
 						if ( args[ i ].negated() == original.negated() ) {
-							args[ i ] = substitute;
+							newArg = substitute;
 						}
 						else {
-							args[ i ] = substitute.clone();
-							args[ i ].negate();
+							newArg = substitute.negation();
 						}
 					}
 					else {
-						args[ i ].substituteArg( original , substitute );
+						newArg = args[ i ].substituteArg( original , substitute );
+					}
+					
+					if ( newArg != args[ i ] ) {
+						if ( newArgs == null ) {
+							newArgs = args.clone();
+						}
+						newArgs[ i ] = newArg;
 					}
 				}
+				return (newArgs == null) ? this : TermBank.intern( withArgs( newArgs ) );
 			}
 			
 			/**
@@ -305,10 +417,10 @@ public class StatementCNF {
 			}
 			
 			/**
-			 * negates this term.
+			 * @return		the negation of this term
 			 */
-			void negate() {
-				this.negated = !this.negated;
+			Term negation() {
+				return TermBank.intern( new Term( this.value , !this.negated , this.args ) );
 			}
 			
 			/**
@@ -396,7 +508,7 @@ public class StatementCNF {
 					return false;
 				}
 				for ( int i=0 ; i<this.args.length ; ++i ) {
-					if ( !this.args[ i ].equals( other.args [ i ] ) ) {
+					if ( this.args[ i ] != other.args[ i ] && !this.args[ i ].equals( other.args [ i ] ) ) {
 						return false;
 					}
 				}
@@ -405,9 +517,13 @@ public class StatementCNF {
 			
 			@Override
 			public boolean equals( Object o ) {
+				if ( this == o ) {
+					return true;
+				}
 				if ( o instanceof Term ) {
 					Term t = (Term) o;
-					return this.negated == t.negated &&
+					return this.hash == t.hash &&
+							this.negated == t.negated &&
 							this.value.equals( t.value ) &&
 							this.argsEqual( t );
 				}
@@ -417,36 +533,16 @@ public class StatementCNF {
 			}
 			
 			public boolean equalsIgnoringNegated( Term t ) {
+				if ( this == t ) {
+					return true;
+				}
 				return this.value.equals( t.value ) &&
 						this.argsEqual( t );
 			}
 			
 			@Override
 			public int hashCode() {
-				return this.value.hashCode();
-			}
-			
-			@Override
-			public Term clone() {
-				if ( value instanceof Function ) {
-					Function f = (Function) this.value;
-					Term[] argCopy = new Term[ this.args.length ];
-					for ( int i=0 ; i<argCopy.length ; ++i ) {
-						argCopy[ i ] = this.args[ i ].clone();
-					}
-					return new Term( f , this.negated , argCopy );
-				}
-				else if ( value instanceof SkolemFunction ) {
-					SkolemFunction f = (SkolemFunction) this.value;
-					Term[] argCopy = new Term[ this.args.length ];
-					for ( int i=0 ; i<argCopy.length ; ++i ) {
-						argCopy[ i ] = this.args[ i ].clone();
-					}
-					return new Term( f , this.negated , argCopy );
-				}
-				else {
-					return new Term( this.value , this.negated );
-				}
+				return this.hash;
 			}
 		}
 	
@@ -465,7 +561,7 @@ public class StatementCNF {
 		Disjunction( List< Symbol > terms ) {
 			this.terms = new ArrayList< Term >();
 			for ( Symbol term : terms ) {
-				this.terms.add( new Term( term ) );
+				addTerm( term );
 			}
 		}
 		
@@ -478,7 +574,7 @@ public class StatementCNF {
 		Disjunction( Symbol... terms ) {
 			this.terms = new ArrayList< Term >();
 			for ( Symbol term : terms ) {
-				this.terms.add( new Term( term ) );
+				addTerm( term );
 			}
 		}
 		
@@ -520,16 +616,17 @@ public class StatementCNF {
 		 * @param s		the symbol to add
 		 */
 		void addTerm( Symbol s ) {
-			this.terms.add( new Term(s) );
+			addTerm( new Term(s) );
 		}
 		
 		/**
-		 * Adds the given term to the end of this disjunction.
+		 * Adds the shared instance of the given term to the 
+		 * end of this disjunction.
 		 * 
 		 * @param t		the term to add
 		 */
 		void addTerm( Term t ) {
-			this.terms.add( t );
+			this.terms.add( TermBank.intern( t ) );
 		}
 		
 		/**
@@ -540,7 +637,7 @@ public class StatementCNF {
 		 * @param args	the arguments to the function
 		 */
 		void addTerm( Function f , Term[] args ) {
-			this.terms.add( new Term( f , false , args ) );
+			addTerm( new Term( f , false , args ) );
 		}
 		
 		/**
@@ -551,7 +648,7 @@ public class StatementCNF {
 		 * @param args	the arguments to the skolem function
 		 */
 		void addTerm( SkolemFunction f , Term[] args ) {
-			this.terms.add( new Term( f , false , args ) );
+			addTerm( new Term( f , false , args ) );
 		}
 		
 		/**
@@ -603,7 +700,7 @@ public class StatementCNF {
 				throw new IllegalStateException( "Input is not in CNF. " + 
 							" Should not negate a multi-term disjunction." );
 			}
-			terms.get( 0 ).negated = !terms.get( 0 ).negated;
+			terms.set( 0 , terms.get( 0 ).negation() );
 		}
 		
 		/**
@@ -687,17 +784,33 @@ public class StatementCNF {
 		
 		@Override
 		public int hashCode() {
-			System.err.println( "Warning: no good hash found for Disjunction yet. " + 
-								"It is advised you do not hash Disjunction objects." );
-			return 1;
+			
+			//equal disjunctions have the same terms up to reordering
+			//and duplication, so we sum the hashes of the distinct terms
+			int rtn = 0;
+			for ( int i=0 ; i<terms.size() ; ++i ) {
+				boolean seenBefore = false;
+				for ( int j=0 ; j<i ; ++j ) {
+					if ( terms.get( j ).equals( terms.get( i ) ) ) {
+						seenBefore = true;
+						break;
+					}
+				}
+				if ( !seenBefore ) {
+					rtn += terms.get( i ).hashCode();
+				}
+			}
+			return rtn;
 		}
 		
+		/**
+		 * @return		a copy of this disjunction. Terms are immutable,
+		 * 				so the copy shares its terms with this disjunction.
+		 */
 		@Override
 		public Disjunction clone() {
 			Disjunction rtn = new Disjunction();
-			for ( Term t : this.terms ) {
-				rtn.addTerm( t.clone() );
-			}
+			rtn.terms.addAll( this.terms );
 			return rtn;
 		}
 	}
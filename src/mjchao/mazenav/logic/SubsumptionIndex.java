@@ -0,0 +1,377 @@
+package mjchao.mazenav.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import mjchao.mazenav.logic.Resolver.Resolvent;
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+import mjchao.mazenav.logic.StatementCNF.Disjunction.Term;
+import mjchao.mazenav.logic.structures.Symbol;
+import mjchao.mazenav.logic.structures.Variable;
+
+/**
+ * A feature vector index that retrieves the clauses that may subsume
+ * a given clause, or that a given clause may subsume, without looking
+ * at every clause.
+ * <p>
+ * The feature vector of a clause has one feature for each of
+ * LITERAL_FEATURES groups of top-level literals and one for each of
+ * ARGUMENT_FEATURES groups of function and constant symbols. Literals
+ * are grouped by their symbol and polarity, and the feature is one more
+ * than the greatest depth of a literal in the group, or 0 if the clause
+ * has none. The feature of a group of symbols is 1 if any of them appears
+ * in the arguments of the clause and 0 otherwise. Substituting variables
+ * never removes a symbol or makes a literal shallower, so clause C can
+ * only subsume clause D if every feature of C is at most the same feature
+ * of D. This holds even though several literals of C may be mapped onto
+ * the same literal of D.
+ * <p>
+ * The clauses are stored in a trie with one level for every feature,
+ * so retrieval only visits the subtrees whose features are in range.
+ * The clauses that reach the same leaf are then told apart by the bit
+ * signatures of their literals and arguments before the full
+ * subsumption check is run. Every clause remembers where it is stored,
+ * so removing a clause takes constant time.
+ *
+ * @author mjchao
+ *
+ */
+class SubsumptionIndex {
+
+	/**
+	 * the number of groups that top-level literals are split into
+	 */
+	static final int LITERAL_FEATURES = 16;
+
+	/**
+	 * the number of groups that the symbols in arguments are split into
+	 */
+	static final int ARGUMENT_FEATURES = 16;
+
+	static final int NUM_FEATURES = LITERAL_FEATURES + ARGUMENT_FEATURES;
+
+	/**
+	 * literals deeper than this are treated as if they had this depth
+	 */
+	static final int MAX_DEPTH = 6;
+
+	/**
+	 * @param d
+	 * @return		a bit signature of the top-level literals
+	 * 				in the given clause
+	 */
+	static long literalSignature( Disjunction d ) {
+		long rtn = 0;
+		for ( int i=0 ; i<d.size() ; ++i ) {
+			Term t = d.getTerm( i );
+			int hash = hash( t.getValue() );
+			rtn |= 1L << ((t.negated() ? ~hash : hash) & 63);
+		}
+		return rtn;
+	}
+
+	/**
+	 * @param d
+	 * @return		a bit signature of the function and constant
+	 * 				symbols in the arguments of the given clause
+	 */
+	static long argumentSignature( Disjunction d ) {
+		long rtn = 0;
+		for ( int i=0 ; i<d.size() ; ++i ) {
+			for ( Term arg : d.getTerm( i ).getArgs() ) {
+				rtn |= argumentSignature( arg );
+			}
+		}
+		return rtn;
+	}
+
+	private static long argumentSignature( Term t ) {
+
+		//variables may be substituted by anything, so
+		//they cannot be part of the signature
+		if ( t.getValue() instanceof Variable ) {
+			return 0;
+		}
+		long rtn = 1L << (hash( t.getValue() ) & 63);
+		for ( Term arg : t.getArgs() ) {
+			rtn |= argumentSignature( arg );
+		}
+		return rtn;
+	}
+
+	/**
+	 * @param s
+	 * @return		the id of the given symbol, or the hash of its
+	 * 				name if it isn't interned, e.g. a skolem function
+	 */
+	private static int hash( Symbol s ) {
+		int id = s.getSymbolId();
+		return (id == Symbol.NOT_INTERNED) ? s.getSymbolName().hashCode() : id;
+	}
+
+	/**
+	 * @param hash
+	 * @param numGroups		a power of 2
+	 * @return				the group of a symbol with the given hash
+	 */
+	private static int group( int hash , int numGroups ) {
+		return (hash ^ (hash >>> 16)) & (numGroups - 1);
+	}
+
+	/**
+	 * @param d
+	 * @return		the feature vector of the given clause
+	 */
+	static int[] features( Disjunction d ) {
+		int[] rtn = new int[ NUM_FEATURES ];
+		for ( int i=0 ; i<d.size() ; ++i ) {
+			Term t = d.getTerm( i );
+			int hash = hash( t.getValue() );
+			int literal = group( t.negated() ? ~hash : hash , LITERAL_FEATURES );
+			rtn[ literal ] = Math.max( rtn[ literal ] , 1 + Math.min( depth( t ) , MAX_DEPTH ) );
+			for ( Term arg : t.getArgs() ) {
+				addArgumentFeatures( arg , rtn );
+			}
+		}
+		return rtn;
+	}
+
+	private static int depth( Term t ) {
+		int rtn = 0;
+		for ( Term arg : t.getArgs() ) {
+			rtn = Math.max( rtn , 1 + depth( arg ) );
+		}
+		return rtn;
+	}
+
+	private static void addArgumentFeatures( Term t , int[] features ) {
+		if ( t.getValue() instanceof Variable ) {
+			return;
+		}
+		features[ LITERAL_FEATURES + group( hash( t.getValue() ) , ARGUMENT_FEATURES ) ] = 1;
+		for ( Term arg : t.getArgs() ) {
+			addArgumentFeatures( arg , features );
+		}
+	}
+
+	/**
+	 * A node in the trie. The nodes at depth NUM_FEATURES are leaves
+	 * that store the clauses with the same feature vector.
+	 */
+	private static class Node {
+
+		private final Node parent;
+
+		/**
+		 * the children of this node, by the value of the next feature
+		 */
+		private Node[] children = new Node[ 0 ];
+
+		/**
+		 * the clauses stored under this node
+		 */
+		private int size = 0;
+
+		/**
+		 * the clauses stored at this leaf
+		 */
+		private final List< Entry > entries = new ArrayList< Entry >();
+
+		public Node( Node parent ) {
+			this.parent = parent;
+		}
+
+		public Node child( int value ) {
+			if ( value >= children.length ) {
+				children = Arrays.copyOf( children , value+1 );
+			}
+			if ( children[ value ] == null ) {
+				children[ value ] = new Node( this );
+			}
+			return children[ value ];
+		}
+	}
+
+	/**
+	 * A clause stored in this index and where it is stored
+	 */
+	private static class Entry {
+
+		private final Resolvent clause;
+		private final long literalSignature;
+		private final long argumentSignature;
+		private final Node leaf;
+
+		/**
+		 * the position of this entry in its leaf
+		 */
+		private int position;
+
+		public Entry( Resolvent clause , Node leaf ) {
+			this.clause = clause;
+			this.literalSignature = literalSignature( clause.disjunction );
+			this.argumentSignature = argumentSignature( clause.disjunction );
+			this.leaf = leaf;
+		}
+	}
+
+	private final StatementCNF hypothesis;
+
+	private final Node root = new Node( null );
+
+	/**
+	 * where every clause in this index is stored
+	 */
+	private final IdentityHashMap< Resolvent , Entry > entries = new IdentityHashMap< Resolvent , Entry >();
+
+	/**
+	 * @param hypothesis		the hypothesis being proved. Variables
+	 * 							in the hypothesis are never substituted
+	 * 							when checking for subsumption
+	 */
+	public SubsumptionIndex( StatementCNF hypothesis ) {
+		this.hypothesis = hypothesis;
+	}
+
+	/**
+	 * Adds a clause to this index
+	 *
+	 * @param r
+	 */
+	void add( Resolvent r ) {
+		int[] features = features( r.disjunction );
+		Node curr = root;
+		++curr.size;
+		for ( int f : features ) {
+			curr = curr.child( f );
+			++curr.size;
+		}
+		Entry entry = new Entry( r , curr );
+		entry.position = curr.entries.size();
+		curr.entries.add( entry );
+		entries.put( r , entry );
+	}
+
+	/**
+	 * Removes a clause from this index
+	 *
+	 * @param r
+	 */
+	void remove( Resolvent r ) {
+		Entry entry = entries.remove( r );
+		if ( entry == null ) {
+			return;
+		}
+
+		//move the last clause of the leaf into the removed clause's slot
+		List< Entry > leafEntries = entry.leaf.entries;
+		Entry last = leafEntries.remove( leafEntries.size()-1 );
+		if ( last != entry ) {
+			last.position = entry.position;
+			leafEntries.set( entry.position , last );
+		}
+		for ( Node curr = entry.leaf ; curr != null ; curr = curr.parent ) {
+			--curr.size;
+		}
+	}
+
+	/**
+	 * @return		the number of clauses in this index
+	 */
+	int size() {
+		return root.size;
+	}
+
+	/**
+	 * @param d
+	 * @return		an indexed clause that subsumes the given clause,
+	 * 				or null if there are none
+	 */
+	Resolvent findSubsuming( Disjunction d ) {
+		return findSubsuming( d , hypothesis );
+	}
+
+	/**
+	 * @param d
+	 * @param hypothesis	the hypothesis whose variables are never
+	 * 						substituted, instead of this index's
+	 * @return				an indexed clause that subsumes the given
+	 * 						clause, or null if there are none
+	 */
+	Resolvent findSubsuming( Disjunction d , StatementCNF hypothesis ) {
+		return findSubsuming( root , 0 , features( d ) , literalSignature( d ) , argumentSignature( d ) , d , hypothesis );
+	}
+
+	private static Resolvent findSubsuming( Node node , int level , int[] features , long literalSig , long argumentSig ,
+			Disjunction d , StatementCNF hypothesis ) {
+		if ( level == NUM_FEATURES ) {
+			for ( Entry e : node.entries ) {
+				if ( (e.literalSignature & ~literalSig) == 0 &&
+						(e.argumentSignature & ~argumentSig) == 0 &&
+						Resolver.subsumes( e.clause.disjunction , d , hypothesis ) ) {
+					return e.clause;
+				}
+			}
+			return null;
+		}
+
+		//a subsuming clause has no feature greater than the given clause's
+		int max = Math.min( features[ level ] , node.children.length-1 );
+		for ( int value=0 ; value<=max ; ++value ) {
+			Node child = node.children[ value ];
+			if ( child != null && child.size > 0 ) {
+				Resolvent rtn = findSubsuming( child , level+1 , features , literalSig , argumentSig , d , hypothesis );
+				if ( rtn != null ) {
+					return rtn;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param d
+	 * @return		all indexed clauses that are subsumed by
+	 * 				the given clause
+	 */
+	List< Resolvent > findSubsumedBy( Disjunction d ) {
+		return findSubsumedBy( d , hypothesis );
+	}
+
+	/**
+	 * @param d
+	 * @param hypothesis	the hypothesis whose variables are never
+	 * 						substituted, instead of this index's
+	 * @return				all indexed clauses that are subsumed
+	 * 						by the given clause
+	 */
+	List< Resolvent > findSubsumedBy( Disjunction d , StatementCNF hypothesis ) {
+		List< Resolvent > rtn = new ArrayList< Resolvent >();
+		findSubsumedBy( root , 0 , features( d ) , literalSignature( d ) , argumentSignature( d ) , d , hypothesis , rtn );
+		return rtn;
+	}
+
+	private static void findSubsumedBy( Node node , int level , int[] features , long literalSig , long argumentSig ,
+			Disjunction d , StatementCNF hypothesis , List< Resolvent > out ) {
+		if ( level == NUM_FEATURES ) {
+			for ( Entry e : node.entries ) {
+				if ( (literalSig & ~e.literalSignature) == 0 &&
+						(argumentSig & ~e.argumentSignature) == 0 &&
+						Resolver.subsumes( d , e.clause.disjunction , hypothesis ) ) {
+					out.add( e.clause );
+				}
+			}
+			return;
+		}
+
+		//a subsumed clause has no feature less than the given clause's
+		for ( int value=features[ level ] ; value<node.children.length ; ++value ) {
+			Node child = node.children[ value ];
+			if ( child != null && child.size > 0 ) {
+				findSubsumedBy( child , level+1 , features , literalSig , argumentSig , d , hypothesis , out );
+			}
+		}
+	}
+}
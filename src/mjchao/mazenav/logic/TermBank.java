@@ -0,0 +1,140 @@
+package mjchao.mazenav.logic;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction.Term;
+import mjchao.mazenav.logic.structures.SkolemFunction;
+import mjchao.mazenav.logic.structures.Variable;
+
+/**
+ * Hash-conses Term objects so that structurally equal terms share
+ * a single instance. Terms are immutable, so a shared instance can
+ * safely appear in any number of clauses and substitutions, and
+ * comparing two interned terms is usually just a reference comparison.
+ * <p>
+ * Symbols are compared by name, but variables and skolem functions
+ * carry state (for example, whether a variable is universally
+ * quantified). A term is therefore only replaced by a banked instance
+ * that refers to the very same variable and skolem function objects.
+ * Otherwise, the new term replaces the banked instance, since terms
+ * built from an older SymbolTracker are unlikely to be used again.
+ * <p>
+ * The bank only holds weak references, so terms that are no longer
+ * used anywhere else can still be garbage collected. It is split into
+ * stripes by hash, each with its own lock, so threads that build terms
+ * at the same time, e.g. during a parallel round of resolution, rarely
+ * wait for each other.
+ *
+ * @author mjchao
+ *
+ */
+class TermBank {
+
+	/**
+	 * the number of stripes, which must be a power of 2
+	 */
+	private static final int NUM_STRIPES = 64;
+
+	private static final Stripe[] STRIPES = new Stripe[ NUM_STRIPES ];
+	static {
+		for ( int i=0 ; i<NUM_STRIPES ; ++i ) {
+			STRIPES[ i ] = new Stripe();
+		}
+	}
+
+	/**
+	 * The banked terms with some of the hash codes. The stripe
+	 * itself is the lock that guards them.
+	 */
+	private static class Stripe {
+
+		public final WeakHashMap< Term , WeakReference< Term > > terms =
+				new WeakHashMap< Term , WeakReference< Term > >();
+	}
+
+	/**
+	 * @param t
+	 * @return		the stripe that holds the terms equal to the given term
+	 */
+	private static Stripe stripeFor( Term t ) {
+		int h = t.hashCode();
+		return STRIPES[ (h ^ (h >>> 16)) & (NUM_STRIPES-1) ];
+	}
+
+	/**
+	 * @param t
+	 * @return		the shared instance of the given term
+	 */
+	static Term intern( Term t ) {
+		if ( t == null ) {
+			throw new IllegalArgumentException( "Cannot intern a null term." );
+		}
+		if ( t.banked ) {
+			return t;
+		}
+
+		//the arguments need to be shared before the term itself
+		//so that banked terms can be compared argument by argument
+		//using references
+		Term[] args = t.getArgs();
+		Term[] internedArgs = null;
+		for ( int i=0 ; i<args.length ; ++i ) {
+			Term arg = intern( args[ i ] );
+			if ( arg != args[ i ] ) {
+				if ( internedArgs == null ) {
+					internedArgs = args.clone();
+				}
+				internedArgs[ i ] = arg;
+			}
+		}
+		if ( internedArgs != null ) {
+			t = t.withArgs( internedArgs );
+		}
+
+		Stripe stripe = stripeFor( t );
+		synchronized( stripe ) {
+			WeakReference< Term > ref = stripe.terms.get( t );
+			Term banked = (ref == null) ? null : ref.get();
+			if ( banked != null && sameSymbols( banked , t ) ) {
+				return banked;
+			}
+			stripe.terms.remove( t );
+			stripe.terms.put( t , new WeakReference< Term >( t ) );
+			t.banked = true;
+			return t;
+		}
+	}
+
+	/**
+	 * @param banked
+	 * @param t
+	 * @return			if two structurally equal terms refer to the
+	 * 					same variable and skolem function objects
+	 */
+	private static boolean sameSymbols( Term banked , Term t ) {
+		if ( banked.getValue() != t.getValue() && 
+				(t.getValue() instanceof Variable || t.getValue() instanceof SkolemFunction) ) {
+			return false;
+		}
+		for ( int i=0 ; i<t.getArgs().length ; ++i ) {
+			if ( banked.getArgs()[ i ] != t.getArgs()[ i ] ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return		the number of distinct terms currently in the bank
+	 */
+	static int size() {
+		int rtn = 0;
+		for ( Stripe stripe : STRIPES ) {
+			synchronized( stripe ) {
+				rtn += stripe.terms.size();
+			}
+		}
+		return rtn;
+	}
+}
@@ -0,0 +1,287 @@
+package mjchao.mazenav.logic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction.Term;
+import mjchao.mazenav.logic.structures.SkolemFunction;
+import mjchao.mazenav.logic.structures.Symbol;
+import mjchao.mazenav.logic.structures.Variable;
+
+/**
+ * A discrimination tree that indexes Term objects so that we can
+ * quickly retrieve the terms that could possibly unify with a
+ * given query term.
+ * <p>
+ * Every term is flattened into the sequence of symbols visited
+ * in a preorder traversal of the term. For example,
+ * <code>Rel2(Func1(x), obj1)</code> is stored under the path
+ * <pre>
+ * Rel2/2 -> Func1/1 -> * -> obj1
+ * </pre>
+ * Variables and skolem functions can unify with any subterm, so
+ * they are stored as a wildcard (*) that stands for an entire
+ * subterm. Retrieval only follows paths whose function symbols and
+ * constants agree with the query everywhere except where either side
+ * has a wildcard. The retrieved terms are candidates only: full
+ * unification still needs to be run on them.
+ * <p>
+ * Whether or not a term is negated is not part of its path. Callers
+ * are responsible for checking the polarity of the retrieved terms.
+ *
+ * @author mjchao
+ *
+ * @param <V>		the type of the values associated with each term
+ */
+class TermIndex< V > {
+
+	/**
+	 * Key for a function or constant symbol in the discrimination tree.
+	 * Interned symbols are compared and hashed by their ids. The key
+	 * refers to its symbol so that the id isn't reused for another name
+	 * while the key is in the tree.
+	 */
+	private static class Key {
+
+		private final Symbol symbol;
+		private final int id;
+		private final int arity;
+
+		public Key( Symbol symbol , int arity ) {
+			this.symbol = symbol;
+			this.id = symbol.getSymbolId();
+			this.arity = arity;
+		}
+
+		@Override
+		public boolean equals( Object o ) {
+			if ( o instanceof Key ) {
+				Key other = (Key) o;
+				if ( this.arity != other.arity ) {
+					return false;
+				}
+				if ( this.id != Symbol.NOT_INTERNED && other.id != Symbol.NOT_INTERNED ) {
+					return this.id == other.id;
+				}
+				return this.symbol.getSymbolName().equals( other.symbol.getSymbolName() );
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = (this.id == Symbol.NOT_INTERNED) ? this.symbol.getSymbolName().hashCode() : this.id;
+			return 31 * hash + this.arity;
+		}
+	}
+
+	/**
+	 * A node in the discrimination tree
+	 */
+	private static class Node< V > {
+
+		/**
+		 * the number of arguments of the symbol on the edge that
+		 * leads to this node. Used to skip over entire subterms
+		 */
+		private final int arity;
+
+		private final Map< Key , Node< V > > children = new HashMap< Key , Node< V > >();
+		private Node< V > wildcard = null;
+
+		/**
+		 * the values associated with terms whose path ends at this node
+		 */
+		private final List< V > values = new ArrayList< V >();
+
+		public Node( int arity ) {
+			this.arity = arity;
+		}
+	}
+
+	/**
+	 * @param t
+	 * @return		if the given term should be treated as a wildcard
+	 * 				that can unify with any other term
+	 */
+	static boolean isWildcard( Term t ) {
+		return t.getValue() instanceof Variable || t.getValue() instanceof SkolemFunction;
+	}
+
+	/**
+	 * Flattens the given term into the preorder sequence of keys
+	 * that make up its path in the discrimination tree. Wildcards
+	 * are represented as null.
+	 *
+	 * @param t
+	 * @param path		the list to which the keys are appended
+	 */
+	private static void flatten( Term t , List< Key > path ) {
+		if ( isWildcard( t ) ) {
+			path.add( null );
+		}
+		else {
+			path.add( new Key( t.getValue() , t.getArgs().length ) );
+			for ( Term arg : t.getArgs() ) {
+				flatten( arg , path );
+			}
+		}
+	}
+
+	/**
+	 * Computes the number of keys spanned by the subterm beginning
+	 * at every position of a flattened term, so that retrieval
+	 * can skip over entire subterms of the query.
+	 *
+	 * @param path		a flattened term
+	 * @return
+	 */
+	private static int[] subtermSizes( List< Key > path ) {
+		int[] sizes = new int[ path.size() ];
+		for ( int i=path.size()-1 ; i>=0 ; --i ) {
+			Key k = path.get( i );
+			int size = 1;
+			if ( k != null ) {
+				for ( int arg=0 ; arg<k.arity ; ++arg ) {
+					size += sizes[ i+size ];
+				}
+			}
+			sizes[ i ] = size;
+		}
+		return sizes;
+	}
+
+	private final Node< V > root = new Node< V >( 0 );
+	private int size = 0;
+
+	/**
+	 * Associates the given value with the given term in this index.
+	 *
+	 * @param t			a term
+	 * @param value		the value to store with the term
+	 */
+	void insert( Term t , V value ) {
+		List< Key > path = new ArrayList< Key >();
+		flatten( t , path );
+		Node< V > curr = root;
+		for ( Key k : path ) {
+			if ( k == null ) {
+				if ( curr.wildcard == null ) {
+					curr.wildcard = new Node< V >( 0 );
+				}
+				curr = curr.wildcard;
+			}
+			else {
+				Node< V > next = curr.children.get( k );
+				if ( next == null ) {
+					next = new Node< V >( k.arity );
+					curr.children.put( k , next );
+				}
+				curr = next;
+			}
+		}
+		curr.values.add( value );
+		++size;
+	}
+
+	/**
+	 * Removes the given value that was associated with the given term.
+	 *
+	 * @param t			a term that was inserted into this index
+	 * @param value		the value that was stored with the term
+	 * @return			if the value was found and removed
+	 */
+	boolean remove( Term t , V value ) {
+		List< Key > path = new ArrayList< Key >();
+		flatten( t , path );
+		Node< V > curr = root;
+		for ( Key k : path ) {
+			curr = (k == null) ? curr.wildcard : curr.children.get( k );
+			if ( curr == null ) {
+				return false;
+			}
+		}
+		if ( curr.values.remove( value ) ) {
+			--size;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return		the number of values stored in this index
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Retrieves the values of all indexed terms that could unify with
+	 * the given term. Any indexed term that is not returned is
+	 * guaranteed to not unify with the given term.
+	 *
+	 * @param t		the query term
+	 * @return		the values associated with all candidate terms
+	 */
+	List< V > retrieveUnifiable( Term t ) {
+		List< Key > path = new ArrayList< Key >();
+		flatten( t , path );
+		List< V > rtn = new ArrayList< V >();
+		retrieve( root , path , subtermSizes( path ) , 0 , rtn );
+		return rtn;
+	}
+
+	private void retrieve( Node< V > node , List< Key > query , int[] sizes , int pos , List< V > out ) {
+		if ( pos == query.size() ) {
+			out.addAll( node.values );
+			return;
+		}
+
+		Key k = query.get( pos );
+		if ( k == null ) {
+
+			//a wildcard in the query matches every subterm
+			//in the index at this position
+			List< Node< V > > afterSkip = new ArrayList< Node< V > >();
+			skipSubterms( node , 1 , afterSkip );
+			for ( Node< V > next : afterSkip ) {
+				retrieve( next , query , sizes , pos+1 , out );
+			}
+		}
+		else {
+			Node< V > next = node.children.get( k );
+			if ( next != null ) {
+				retrieve( next , query , sizes , pos+1 , out );
+			}
+
+			//a wildcard in the index matches the entire
+			//subterm of the query at this position
+			if ( node.wildcard != null ) {
+				retrieve( node.wildcard , query , sizes , pos + sizes[ pos ] , out );
+			}
+		}
+	}
+
+	/**
+	 * Finds all nodes reached by skipping the given number of
+	 * complete subterms, starting at the given node.
+	 *
+	 * @param node
+	 * @param remaining		the number of subterms left to skip
+	 * @param out			the list of nodes reached after skipping
+	 */
+	private void skipSubterms( Node< V > node , int remaining , List< Node< V > > out ) {
+		if ( remaining == 0 ) {
+			out.add( node );
+			return;
+		}
+		for ( Node< V > child : node.children.values() ) {
+			skipSubterms( child , remaining - 1 + child.arity , out );
+		}
+		if ( node.wildcard != null ) {
+			skipSubterms( node.wildcard , remaining - 1 , out );
+		}
+	}
+}
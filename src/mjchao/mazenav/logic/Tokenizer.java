@@ -2,6 +2,7 @@ package mjchao.mazenav.logic;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Stack;
 
 import mjchao.mazenav.logic.structures.Function;
 import mjchao.mazenav.logic.structures.ObjectFOL;
@@ -10,258 +11,425 @@ import mjchao.mazenav.logic.structures.Quantifier;
 import mjchao.mazenav.logic.structures.Symbol;
 import mjchao.mazenav.logic.structures.SymbolTracker;
 import mjchao.mazenav.logic.structures.Variable;
-import mjchao.mazenav.util.Utils;
 
 /**
  * Tokenizes a logical expression
- * 
+ * <p>
+ * The expression is read in a single pass. At each character, a trie of
+ * the reserved symbols finds the longest reserved symbol that begins there.
+ * Everything between reserved symbols and whitespace is a name, which is
+ * converted to a function, constant or variable as soon as we know whether
+ * a left parenthesis follows it. The number of arguments to each function
+ * is counted as its closing parenthesis is read.
+ *
  * @author mjchao
  *
  */
 class Tokenizer {
 
+	/**
+	 * A trie of the reserved symbols. Each node stores the reserved
+	 * symbol spelled by the path to it, if there is one.
+	 *
+	 * @author mjchao
+	 *
+	 */
+	private static class ReservedTrie {
+
+		/**
+		 * the trie of all reserved symbols. It is built completely
+		 * before it is published so that threads never see a
+		 * partially built trie.
+		 */
+		private static volatile ReservedTrie ROOT = null;
+
+		static ReservedTrie get() {
+			if ( ROOT == null ) {
+				ReservedTrie root = new ReservedTrie();
+				for ( String reserved : Symbol.GET_RESERVED_SYMBOLS() ) {
+					root.add( reserved );
+				}
+				ROOT = root;
+			}
+			return ROOT;
+		}
+
+		/**
+		 * Converts a reserved string to the symbol it stands for.
+		 *
+		 * @param reserved
+		 * @return
+		 */
+		private static Symbol toSymbol( String reserved ) {
+			Symbol s = Symbol.parseSymbol( reserved );
+			if ( s != null ) {
+				return s;
+			}
+			Operator op = Operator.parseOperator( reserved );
+			if ( op != null ) {
+				return op;
+			}
+			return Quantifier.parseQuantifier( reserved );
+		}
+
+		private char[] keys = new char[ 0 ];
+		private ReservedTrie[] children = new ReservedTrie[ 0 ];
+
+		/**
+		 * the reserved string that ends at this node, or null if none do
+		 */
+		private String reserved = null;
+		private Symbol symbol = null;
+
+		/**
+		 * if the reserved string that ends at this node is a word,
+		 * such as AND, which may not be part of a longer name
+		 */
+		private boolean alphanumeric = false;
+
+		private void add( String str ) {
+			ReservedTrie curr = this;
+			for ( int i=0 ; i<str.length() ; ++i ) {
+				ReservedTrie next = curr.child( str.charAt( i ) );
+				if ( next == null ) {
+					next = new ReservedTrie();
+					char[] newKeys = new char[ curr.keys.length+1 ];
+					ReservedTrie[] newChildren = new ReservedTrie[ curr.children.length+1 ];
+					System.arraycopy( curr.keys , 0 , newKeys , 0 , curr.keys.length );
+					System.arraycopy( curr.children , 0 , newChildren , 0 , curr.children.length );
+					newKeys[ curr.keys.length ] = str.charAt( i );
+					newChildren[ curr.children.length ] = next;
+					curr.keys = newKeys;
+					curr.children = newChildren;
+				}
+				curr = next;
+			}
+			curr.reserved = str;
+			curr.symbol = toSymbol( str );
+			curr.alphanumeric = true;
+			for ( int i=0 ; i<str.length() ; ++i ) {
+				if ( !Character.isLetterOrDigit( str.charAt( i ) ) ) {
+					curr.alphanumeric = false;
+				}
+			}
+		}
+
+		/**
+		 * @param c
+		 * @return		the child reached by the given character,
+		 * 				or null if there is none
+		 */
+		private ReservedTrie child( char c ) {
+
+			//there are only a few reserved symbols, so each
+			//node only has a few children to look through
+			for ( int i=0 ; i<keys.length ; ++i ) {
+				if ( keys[ i ] == c ) {
+					return children[ i ];
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Finds the longest reserved symbol that begins at the given index.
+		 * Reserved words such as AND are only matched if they are not part
+		 * of a longer name, e.g. we don't match OR in a variable named ORy.
+		 *
+		 * @param statement
+		 * @param startIdx
+		 * @return			the node at which the longest reserved symbol
+		 * 					ends, or null if no reserved symbol begins here
+		 */
+		ReservedTrie match( String statement , int startIdx ) {
+			boolean afterName = startIdx > 0 && Character.isLetterOrDigit( statement.charAt( startIdx-1 ) );
+			ReservedTrie longest = null;
+			ReservedTrie curr = this;
+			for ( int i=startIdx ; i<statement.length() ; ++i ) {
+				curr = curr.child( statement.charAt( i ) );
+				if ( curr == null ) {
+					break;
+				}
+				if ( curr.reserved != null ) {
+					if ( !curr.alphanumeric ) {
+						longest = curr;
+					}
+					else if ( !afterName && (i+1 == statement.length() || !Character.isLetterOrDigit( statement.charAt( i+1 ) )) ) {
+						longest = curr;
+					}
+				}
+			}
+			return longest;
+		}
+	}
+
+	/**
+	 * Splits a statement into reserved symbols and the names between
+	 * them, one at a time.
+	 *
+	 * @author mjchao
+	 *
+	 */
+	private static class Lexer {
+
+		private final String statement;
+		private final ReservedTrie trie = ReservedTrie.get();
+		private int nextIdx = 0;
+
+		/**
+		 * where the current token starts and ends
+		 */
+		int start;
+		int end;
+
+		/**
+		 * the reserved symbol read as the current token, or
+		 * null if the current token is a name
+		 */
+		Symbol reserved;
+
+		public Lexer( String statement ) {
+			this.statement = statement;
+		}
+
+		/**
+		 * Reads the next token.
+		 *
+		 * @return		false if there are no more tokens
+		 */
+		public boolean next() {
+
+			//skip whitespace, which is never part of a token
+			while ( nextIdx < statement.length() && Character.isWhitespace( statement.charAt( nextIdx ) ) ) {
+				++nextIdx;
+			}
+			if ( nextIdx == statement.length() ) {
+				return false;
+			}
+
+			start = nextIdx;
+			ReservedTrie match = trie.match( statement , start );
+			if ( match != null ) {
+				reserved = match.symbol;
+				end = start + match.reserved.length();
+				nextIdx = end;
+				return true;
+			}
+
+			//otherwise, read a name until the next whitespace
+			//or reserved symbol
+			reserved = null;
+			end = start + 1;
+			while ( end < statement.length() && !Character.isWhitespace( statement.charAt( end ) ) &&
+					trie.match( statement , end ) == null ) {
+				++end;
+			}
+			nextIdx = end;
+			return true;
+		}
+
+		/**
+		 * @return		the text of the current token
+		 */
+		public String text() {
+			return statement.substring( start , end );
+		}
+	}
+
+	/**
+	 * A left parenthesis that has not been closed yet
+	 *
+	 * @author mjchao
+	 *
+	 */
+	private static class OpenParenthesis {
+
+		/**
+		 * the function whose arguments this parenthesis encloses,
+		 * or null if it does not enclose any function's arguments
+		 */
+		final Function function;
+
+		/**
+		 * the index of the function's token
+		 */
+		final int functionIndex;
+		int numCommas = 0;
+		boolean readArgs = false;
+
+		public OpenParenthesis( Function function , int functionIndex ) {
+			this.function = function;
+			this.functionIndex = functionIndex;
+		}
+
+		/**
+		 * @return		the number of arguments enclosed so far
+		 */
+		public int numArgs() {
+
+			//add 1 to account for the last argument
+			//right before the closing parenthesis that
+			//did not have a comma following it
+			return readArgs ? numCommas + 1 : numCommas;
+		}
+	}
+
 	private String statement;
 	private List< Symbol > tokens;
-	
+
 	private SymbolTracker tracker;
-	
+
+	/**
+	 * the parentheses that have not been closed yet while tokenizing
+	 */
+	private Stack< OpenParenthesis > openParentheses;
+
 	public Tokenizer( String logicalStatement , SymbolTracker tracker ) {
 		statement = logicalStatement;
 		this.tracker = tracker;
 	}
-	
+
 	/**
 	 * Tokenizes a statement treating all reserved symbols as
 	 * delimiters, but also including them in the tokenized
 	 * list.
-	 * 
+	 *
 	 * @param statement
-	 * @return 				the given statement with spacing around
-	 * 						individual tokens
+	 * @return 				the reserved symbols and names in the
+	 * 						given statement
 	 */
 	private static String[] tokenizeByReservedSymbols( String statement ) {
-		
-		//as we pass through tokens in the statement, we will
-		//add them to space-separated into this string
-		StringBuilder rtn = new StringBuilder( "" );
-		
-		//get the list of reserved keywords that we're looking for
-		//these are valid delimiters for tokens, in addition to
-		//whitespace
-		List<String> reservedSymbols = Symbol.GET_RESERVED_SYMBOLS();
-		
-		int startOfLastToken = 0;
-		for ( int currIdx = 0 ; currIdx < statement.length() ; /*incrementing happens inside loop*/ ) {
-			//our goal is to scan forward and see if we can make any keywords 
-			//beginning at the current index
-			
-			//no reserved keywords may begin with whitespace
-			if ( Character.isWhitespace( statement.charAt( currIdx ) ) ) {
-				++currIdx;
-				continue;
-			}
-			
-			boolean matchedReservedSymbol = false;
-			
-			//try to scan forward and match any reserved symbols
-			for ( String reserved : reservedSymbols ) {
-				
-				//we can't match a reserved keyword if there
-				//aren't enough letters left
-				if ( currIdx + reserved.length() > statement.length() ) {
-					continue;
-				}
-				
-				//we can't match a reserved keyword that is alphanumeric
-				//if the previous character wasn't a space
-				if ( Utils.isAlphanumeric( reserved ) ) {
-					if ( currIdx > 0 && Character.isLetterOrDigit( statement.charAt( currIdx-1 ) ) ) {
-						continue;
-					}
-				}
-				
-				//add any keywords we find to the preprocessed list
-				if ( reserved.equals( statement.substring( currIdx , currIdx+reserved.length() ) ) ) {
-					
-					//we can't match a reserved keyword that is alphnumeric
-					//if the characters after it are also alphanumeric
-					//e.g. we don't want to match OR if there's a variable named
-					//ORy
-					if ( Utils.isAlphanumeric( reserved ) ) {
-						if ( currIdx+reserved.length() < statement.length() ) {
-							if ( Character.isLetterOrDigit( statement.charAt( currIdx+reserved.length() ) ) ) {
-								continue;
-							}
-						}
-					}
-					
-					matchedReservedSymbol = true;
-					
-					//add the token just prior to this one, if
-					//one was found
-					String previousToken = statement.substring( startOfLastToken , currIdx );
-					if ( previousToken.trim().length() > 0 ) {
-						rtn.append( " " );
-						rtn.append( previousToken.trim() );
-					}
-					
-					rtn.append( " " );
-					rtn.append( reserved );
-					
-					//we stop here to make sure we don't match
-					//multiple keywords to the same characters
-					//and skip forward to the end of the
-					//reserved keyword we just found
-					currIdx = currIdx + reserved.length();
-					startOfLastToken = currIdx;
-					break;
-				}
-			}
-			
-			if ( !matchedReservedSymbol ) {
-				++currIdx;
-				continue;
-			}
-		}
-		
-		//check for a token at the very end as well
-		if ( startOfLastToken < statement.length() ) {
-			String previousToken = statement.substring( startOfLastToken , statement.length() );
-			if ( previousToken.trim().length() > 0 ) {
-				rtn.append( " " );
-				rtn.append( previousToken.trim() );
-			}
-		}
-		
-		String trimmed = rtn.toString().trim();
-		
-		//String.split returns an array of length 1 for the 
-		//empty string. We need this to be 0 for our purposes
-		//because there are 0 tokens in the input
-		if ( trimmed.length() == 0 ) {
-			return new String[] {};
-		}
-		else {
-			return trimmed.split( " " );
+		ArrayList< String > rtn = new ArrayList< String >();
+		Lexer lexer = new Lexer( statement );
+		while ( lexer.next() ) {
+			rtn.add( lexer.text() );
 		}
+		return rtn.toArray( new String[ rtn.size() ] );
 	}
 
 	public List< Symbol > tokenize() {
 		if ( tokens != null ) {
 			return tokens;
 		}
-		
+
 		tokens = new ArrayList< Symbol >();
-		
-		String toTokenize = statement;
-
-		String[] stringTokens = tokenizeByReservedSymbols( toTokenize );
-		
-		//now we can go through and consider every token individually
-		for ( int i=0 ; i<stringTokens.length ; ++i ) {
-			String token = stringTokens[ i ];
-			
-			//check if its a symbol
-			Symbol s = Symbol.parseSymbol( token );
-			if ( s != null ) {
-				tokens.add( s );
-				continue;
-			}
-			
-			//check if its an operator
-			Operator op = Operator.parseOperator( token );
-			if ( op != null ) {
-				tokens.add( op );
-				continue;
+		openParentheses = new Stack< OpenParenthesis >();
+
+		//a name is only converted once we've read the token after
+		//it because it can only be a function if a left parenthesis
+		//follows it
+		String name = null;
+		Lexer lexer = new Lexer( statement );
+		while ( lexer.next() ) {
+			if ( name != null ) {
+				addName( name , Symbol.LEFT_PAREN.equals( lexer.reserved ) );
+				name = null;
 			}
-			
-			//check if its a quantifier
-			Quantifier q = Quantifier.parseQuantifier( token );
-			if ( q != null ) {
-				tokens.add( q );
-				continue;
+			if ( lexer.reserved != null ) {
+				addToken( lexer.reserved );
 			}
-			
-			//check if its a function
-			//functions must be followed by a left parenthesis.
-			//otherwise, it must be an object or variable. This way,
-			//we let the user have duplicate names for functions and
-			//constants, which might be convenient.
-			Function f = tracker.parseFunction( token );
-			if ( f != null && i<stringTokens.length-1 && 
-					Symbol.parseSymbol( stringTokens[i+1] ).equals( Symbol.LEFT_PAREN ) ) {
-				tokens.add( f );
-				continue;
+			else {
+				name = lexer.text();
 			}
-			
-			//check if its a constant object
-			ObjectFOL obj = tracker.parseConstant( token );
-			if ( obj != null ) {
-				tokens.add( obj );
-				continue;
+		}
+		if ( name != null ) {
+			addName( name , false );
+		}
+
+		//functions whose parentheses were never closed only count
+		//the arguments that were followed by commas
+		for ( OpenParenthesis open : openParentheses ) {
+			if ( open.function != null ) {
+				tokens.set( open.functionIndex , open.function.withNumArgs( open.numCommas ) );
 			}
-			
-			//check if its a predefined constant object
-			obj = tracker.getPredefinedConstant( token );
-			if ( obj != null ) {
-				tokens.add( obj );
-				continue;
+		}
+		openParentheses = null;
+		return tokens;
+	}
+
+	/**
+	 * Converts a name to a function, constant or variable and adds it
+	 * to the tokens.
+	 *
+	 * @param name
+	 * @param beforeLeftParen		if the next token is a left parenthesis
+	 */
+	private void addName( String name , boolean beforeLeftParen ) {
+
+		//check if its a function
+		//functions must be followed by a left parenthesis.
+		//otherwise, it must be an object or variable. This way,
+		//we let the user have duplicate names for functions and
+		//constants, which might be convenient.
+		if ( beforeLeftParen ) {
+			Function f = tracker.parseFunction( name );
+			if ( f != null ) {
+				addToken( f );
+				return;
 			}
-			
-			//otherwise, we treat it as a variable
-			//first check if the variable already exists
-			Variable var = tracker.getVariableByName( token );
-			if ( var != null ) {
-				tokens.add( var );
-				continue;
+		}
+
+		//check if its a constant object
+		ObjectFOL obj = tracker.parseConstant( name );
+		if ( obj != null ) {
+			addToken( obj );
+			return;
+		}
+
+		//check if its a predefined constant object
+		obj = tracker.getPredefinedConstant( name );
+		if ( obj != null ) {
+			addToken( obj );
+			return;
+		}
+
+		//otherwise, we treat it as a variable. if the variable
+		//does not already exist, then create a new one
+		Variable var = tracker.getOrCreateVariable( name );
+		addToken( var );
+	}
+
+	/**
+	 * Adds a token and updates the argument counts of the
+	 * functions it is an argument to.
+	 *
+	 * @param token
+	 */
+	private void addToken( Symbol token ) {
+		if ( token.equals( Symbol.LEFT_PAREN ) ) {
+			Function function = null;
+			if ( tokens.size() > 0 && tokens.get( tokens.size()-1 ) instanceof Function ) {
+				function = (Function) tokens.get( tokens.size()-1 );
 			}
-			
-			//finally, if the variable does not already exist
-			//then create a new one
-			var = tracker.getNewVariable( token );
-			
-			tokens.add( var );
-			continue;
+			openParentheses.push( new OpenParenthesis( function , tokens.size()-1 ) );
 		}
+		else if ( token.equals( Symbol.RIGHT_PAREN ) ) {
+			if ( !openParentheses.empty() ) {
+				OpenParenthesis closed = openParentheses.pop();
+				//the tracker's functions are shared, so the function's
+				//token is replaced by the variant with this many arguments
+				if ( closed.function != null ) {
+					tokens.set( closed.functionIndex , closed.function.withNumArgs( closed.numArgs() ) );
+				}
 
-		//go through and count the number of arguments to each function
-		for ( int i=0 ; i<tokens.size() ; ++i ) {
-			if ( tokens.get( i ) instanceof Function ) {
-				int parenDepth = 0;
-				int numArgs = 0;
-				boolean readArgs = false;
-				for ( int j=i+1 ; j<tokens.size() ; ++j ) {
-					if ( tokens.get( j ).equals( Symbol.LEFT_PAREN ) ) {
-						++parenDepth;
-					}
-					else if ( tokens.get( j ).equals( Symbol.RIGHT_PAREN ) ) {
-						--parenDepth;
-						if ( parenDepth == 0 ) {
-							if ( readArgs ) {
-								
-								//add 1 to account for the last argument
-								//right before the closing parenthesis that
-								//did not have a comma following it
-								++numArgs;
-							}
-							break;
-						}
-					}
-					else {
-						readArgs = true;
-						
-						//whenever we reach a comma that is at one level
-						//of nested parenthesis, we know it delimits another
-						//argument to the function
-						if ( parenDepth == 1 && tokens.get( j ).equals( Symbol.COMMA ) ) {
-							++numArgs;
-						}
-					}
+				//anything inside these parentheses is also an
+				//argument to the function enclosing them
+				if ( closed.readArgs && !openParentheses.empty() ) {
+					openParentheses.peek().readArgs = true;
 				}
-				
-				((Function) tokens.get( i )).setNumArgs( numArgs );
 			}
 		}
-		return tokens;
+		else if ( !openParentheses.empty() ) {
+			OpenParenthesis innermost = openParentheses.peek();
+			innermost.readArgs = true;
+
+			//whenever we reach a comma that is at one level
+			//of nested parenthesis, we know it delimits another
+			//argument to the function
+			if ( token.equals( Symbol.COMMA ) ) {
+				++innermost.numCommas;
+			}
+		}
+		tokens.add( token );
 	}
 }
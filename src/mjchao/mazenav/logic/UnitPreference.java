@@ -0,0 +1,57 @@
+package mjchao.mazenav.logic;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+
+/**
+ * Resolves the pairs of clauses that include a clause with a single
+ * term (a unit clause) before any other pair. Resolving a clause with a
+ * unit clause always gives a shorter clause, and the empty clause can
+ * only be derived from two unit clauses, so the other pairs are only
+ * resolved once the unit clauses stop adding new clauses.
+ * <p>
+ * No pair of clauses is ruled out, other than those ruled out by the
+ * strategy that unit preference is combined with, so this finds a proof
+ * whenever that strategy does.
+ *
+ * @author mjchao
+ *
+ */
+public class UnitPreference implements ResolutionStrategy {
+
+	private final ResolutionStrategy strategy;
+
+	/**
+	 * Creates a unit preference that resolves every pair of clauses
+	 */
+	public UnitPreference() {
+		this( new UnrestrictedResolution() );
+	}
+
+	/**
+	 * @param strategy		the strategy that decides which pairs
+	 * 						of clauses may be resolved
+	 */
+	public UnitPreference( ResolutionStrategy strategy ) {
+		this.strategy = strategy;
+	}
+
+	@Override
+	public boolean isSupportRequired() {
+		return strategy.isSupportRequired();
+	}
+
+	@Override
+	public boolean mayResolve( Disjunction clause1 , Disjunction clause2 ) {
+		return strategy.mayResolve( clause1 , clause2 );
+	}
+
+	@Override
+	public boolean mayResolveOn( Disjunction clause , int literal ) {
+		return strategy.mayResolveOn( clause , literal );
+	}
+
+	@Override
+	public boolean isPreferred( Disjunction clause ) {
+		return clause.size() == 1;
+	}
+}
@@ -0,0 +1,35 @@
+package mjchao.mazenav.logic;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+
+/**
+ * Resolves every pair of clauses on every pair of complementary
+ * literals. This finds a proof whenever there is one, but also infers
+ * the most clauses that no proof uses. It is the strategy used when a
+ * query does not choose one.
+ *
+ * @author mjchao
+ *
+ */
+public class UnrestrictedResolution implements ResolutionStrategy {
+
+	@Override
+	public boolean isSupportRequired() {
+		return false;
+	}
+
+	@Override
+	public boolean mayResolve( Disjunction clause1 , Disjunction clause2 ) {
+		return true;
+	}
+
+	@Override
+	public boolean mayResolveOn( Disjunction clause , int literal ) {
+		return true;
+	}
+
+	@Override
+	public boolean isPreferred( Disjunction clause ) {
+		return false;
+	}
+}
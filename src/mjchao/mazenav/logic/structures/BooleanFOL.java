@@ -7,16 +7,19 @@ package mjchao.mazenav.logic.structures;
  *
  */
 public class BooleanFOL extends ObjectFOL {
+	
+	private static final BooleanFOL TRUE = new BooleanFOL( "True" );
+	private static final BooleanFOL FALSE = new BooleanFOL( "False" );
 
 	public static BooleanFOL fromBoolean( boolean b ) {
 		return b ? True() : False();
 	}
 	public static BooleanFOL True() {
-		return new BooleanFOL( "True" );
+		return TRUE;
 	}
 	
 	public static BooleanFOL False() {
-		return new BooleanFOL( "False" );
+		return FALSE;
 	}
 	
 	private BooleanFOL( String name ) {
@@ -26,7 +29,7 @@ public class BooleanFOL extends ObjectFOL {
 	@Override
 	public boolean equals( Object other ) {
 		if ( other instanceof BooleanFOL ) {
-			return this.name.equals( ((BooleanFOL) other).name );
+			return super.equals( other );
 		}
 		return false;
 	}
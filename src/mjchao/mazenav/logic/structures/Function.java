@@ -2,14 +2,34 @@ package mjchao.mazenav.logic.structures;
 
 /**
  * Represents a Function in first-order logic (FOL).
+ * <p>
+ * Every Function's name is interned, so functions compare by their
+ * ids. A SymbolTracker also keeps one Function per name, and that
+ * Function is shared by every statement that uses it. The number of arguments
+ * belongs to each use of the function rather than to the function,
+ * so each use gets the shared variant from <code>withNumArgs()</code>,
+ * which has the same name and id but a fixed number of arguments.
  * 
  * @author mjchao
  *
  */
 public class Function extends Symbol {
 	
+	private static final Function[] NO_VARIANTS = new Function[ 0 ];
+	
 	int numArgs = 0;
 	
+	/**
+	 * the function that this function is a variant of, or this
+	 * function if it is not a variant
+	 */
+	private final Function base;
+	
+	/**
+	 * the variants of this function, indexed by their number of arguments
+	 */
+	private volatile Function[] variants = NO_VARIANTS;
+	
 	/**
 	 * Creates a function with the given name
 	 * 
@@ -17,14 +37,55 @@ public class Function extends Symbol {
 	 * 									appear in FOL expressions
 	 */
 	public Function( String name ) {
-		super( name );
+		super( name , true );
+		this.base = this;
 	}
 	
+	private Function( Function base , int numArgs ) {
+		super( base );
+		this.base = base;
+		this.numArgs = numArgs;
+	}
+	
+	/**
+	 * Sets the number of arguments to this function. The variants
+	 * returned by <code>withNumArgs()</code> may be shared by several
+	 * threads, so their number of arguments cannot be changed.
+	 * 
+	 * @param numArgs
+	 */
 	public void setNumArgs( int numArgs ) {
+		if ( this.base != this ) {
+			throw new IllegalStateException( "Cannot change the number of arguments to a variant of function " + this.name + "." );
+		}
 		this.numArgs = numArgs;
 	}
 	
 	public int getNumArgs() {
 		return this.numArgs;
 	}
+	
+	/**
+	 * @param numArgs
+	 * @return			the variant of this function that takes the given
+	 * 					number of arguments. The same variant is returned
+	 * 					every time and it is equal to this function.
+	 */
+	public Function withNumArgs( int numArgs ) {
+		Function[] current = this.base.variants;
+		if ( numArgs < current.length && current[ numArgs ] != null ) {
+			return current[ numArgs ];
+		}
+		synchronized ( this.base ) {
+			current = this.base.variants;
+			if ( numArgs < current.length && current[ numArgs ] != null ) {
+				return current[ numArgs ];
+			}
+			Function[] grown = new Function[ Math.max( current.length , numArgs+1 ) ];
+			System.arraycopy( current , 0 , grown , 0 , current.length );
+			grown[ numArgs ] = new Function( this.base , numArgs );
+			this.base.variants = grown;
+			return grown[ numArgs ];
+		}
+	}
 }
@@ -2,7 +2,8 @@ package mjchao.mazenav.logic.structures;
 
 
 /**
- * Represents in object in first-order logic (FOL)
+ * Represents in object in first-order logic (FOL). The name of
+ * every object is interned, so objects compare by their ids.
  * 
  * @author mjchao
  *
@@ -18,6 +19,6 @@ public class ObjectFOL extends Symbol {
 	 * 						object is an Integer and a Real number
 	 */
 	public ObjectFOL( String name ) {
-		super( name );
+		super( name , true );
 	}
 }
@@ -1,9 +1,14 @@
 package mjchao.mazenav.logic.structures;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import mjchao.mazenav.util.Utils;
 
@@ -25,9 +30,10 @@ public class Symbol {
 	 * Stores a list of reserved keywords in order of decreasing
 	 * length so that we can appropriate parse statements. Note that
 	 * symbols like != and ! overlap, and we need to be sure not to
-	 * parse != as ! and =. 
+	 * parse != as ! and =. The list is built completely before it
+	 * is published so that threads never see a partially built list.
 	 */
-	private static List<String> RESERVED_STRINGS = null;
+	private static volatile List<String> RESERVED_STRINGS = null;
 	
 	/**
 	 * Gets a list of reserved keywords in order of decreasing
@@ -40,15 +46,15 @@ public class Symbol {
 	 */
 	public static final List<String> GET_RESERVED_SYMBOLS() {
 		if ( RESERVED_STRINGS == null ) {
-			RESERVED_STRINGS = new ArrayList< String >();
+			List< String > reservedStrings = new ArrayList< String >();
 			Symbol[] completeSymbolList = Utils.join( Symbol.class , SYMBOL_LIST , Operator.OPERATOR_LIST , Quantifier.QUANTIFIER_LIST );
 			for ( Symbol s : completeSymbolList ) {
-				RESERVED_STRINGS.add( s.getSymbolName() );
+				reservedStrings.add( s.getSymbolName() );
 				if ( !s.getSymbolName().equals( s.getShorthand() ) ) {
-					RESERVED_STRINGS.add( s.getShorthand() );
+					reservedStrings.add( s.getShorthand() );
 				}
 			}
-			Collections.sort( RESERVED_STRINGS , new Comparator<String>() {
+			Collections.sort( reservedStrings , new Comparator<String>() {
 
 				@Override
 				public int compare(String s1, String s2) {
@@ -68,6 +74,7 @@ public class Symbol {
 				}
 				
 			});
+			RESERVED_STRINGS = reservedStrings;
 		}
 		return RESERVED_STRINGS;
 	}
@@ -83,10 +90,171 @@ public class Symbol {
 		return null;
 	}
 	
+	/**
+	 * The id of an interned symbol name. Every live symbol with the
+	 * same name holds the same SymbolId, and the id is only reused for
+	 * another name once no symbol holds it anymore.
+	 */
+	private static final class SymbolId {
+		
+		private final int value;
+		
+		public SymbolId( int value ) {
+			this.value = value;
+		}
+	}
+	
+	/**
+	 * An entry of the table of interned names that doesn't keep its
+	 * id alive, and remembers what to remove once the id is collected.
+	 */
+	private static final class IdReference extends WeakReference< SymbolId > {
+		
+		private final String name;
+		private final int value;
+		
+		public IdReference( String name , SymbolId id ) {
+			super( id , RECLAIMED_IDS );
+			this.name = name;
+			this.value = id.value;
+		}
+	}
+	
+	/**
+	 * The ids of the names of all live interned symbols. The same name
+	 * always gets the same id while any symbol with that name is
+	 * reachable, no matter which SymbolTracker made it, so symbols from
+	 * different trackers still compare correctly.
+	 * <p>
+	 * The table only refers to the ids weakly, so a long-running process
+	 * only holds the names of the symbols it still uses. Once every symbol
+	 * with a name has been collected, the name is removed and its id is
+	 * given to the next new name, so the ids stay dense.
+	 */
+	private static final ConcurrentHashMap< String , IdReference > SYMBOL_IDS = new ConcurrentHashMap< String , IdReference >();
+	
+	private static final ReferenceQueue< SymbolId > RECLAIMED_IDS = new ReferenceQueue< SymbolId >();
+	
+	/**
+	 * the ids that have been reclaimed and can be given to new names.
+	 * guarded by SYMBOL_IDS
+	 */
+	private static final BitSet FREE_IDS = new BitSet();
+	
+	/**
+	 * the number of ids that have ever been assigned, i.e. one more
+	 * than the greatest id. guarded by SYMBOL_IDS
+	 */
+	private static int numIds = 0;
+	
+	/**
+	 * Gets the id of the given symbol name, assigning an unused id
+	 * if no live symbol has the name.
+	 * 
+	 * @param name
+	 * @return		the id of the given name
+	 */
+	private static SymbolId internId( String name ) {
+		IdReference ref = SYMBOL_IDS.get( name );
+		SymbolId rtn = (ref == null) ? null : ref.get();
+		if ( rtn != null ) {
+			return rtn;
+		}
+		
+		//ids are assigned under a lock so that several threads
+		//interning the same name at once get the same id
+		synchronized ( SYMBOL_IDS ) {
+			reclaimIds();
+			ref = SYMBOL_IDS.get( name );
+			rtn = (ref == null) ? null : ref.get();
+			if ( rtn == null ) {
+				int value = FREE_IDS.nextSetBit( 0 );
+				if ( value < 0 ) {
+					value = numIds++;
+				}
+				else {
+					FREE_IDS.clear( value );
+				}
+				rtn = new SymbolId( value );
+				SYMBOL_IDS.put( name , new IdReference( name , rtn ) );
+			}
+		}
+		return rtn;
+	}
+	
+	/**
+	 * Removes the names whose ids have been collected and frees
+	 * their ids. Must be called while holding the lock on SYMBOL_IDS.
+	 */
+	private static void reclaimIds() {
+		for ( Reference< ? extends SymbolId > r=RECLAIMED_IDS.poll() ; r!=null ; r=RECLAIMED_IDS.poll() ) {
+			IdReference reclaimed = (IdReference) r;
+			
+			//the name may already have a new id if it was interned
+			//again before the old one was reclaimed
+			SYMBOL_IDS.remove( reclaimed.name , reclaimed );
+			FREE_IDS.set( reclaimed.value );
+		}
+	}
+	
+	/**
+	 * @return		the number of names that are currently interned,
+	 * 				not counting the ones that are about to be reclaimed
+	 */
+	static int numInternedNames() {
+		synchronized ( SYMBOL_IDS ) {
+			reclaimIds();
+			return SYMBOL_IDS.size();
+		}
+	}
+	
+	/**
+	 * the id that identifies symbols that aren't interned
+	 */
+	public static final int NOT_INTERNED = -1;
+	
 	protected String name;
 	
+	/**
+	 * the interned id of this symbol's name, or null
+	 */
+	private final SymbolId symbolId;
+	
 	public Symbol( String name ) {
 		this.name = name;
+		this.symbolId = null;
+	}
+	
+	/**
+	 * Creates a symbol whose name is interned. Two interned symbols
+	 * are equal if and only if their ids are equal.
+	 * 
+	 * @param name
+	 * @param interned		if the name should be interned
+	 */
+	Symbol( String name , boolean interned ) {
+		this.name = name;
+		this.symbolId = interned ? internId( name ) : null;
+	}
+	
+	/**
+	 * Creates a symbol with the same name and id as another symbol
+	 * 
+	 * @param other
+	 */
+	Symbol( Symbol other ) {
+		this.name = other.name;
+		this.symbolId = other.symbolId;
+	}
+	
+	/**
+	 * @return		the interned id of this symbol's name or NOT_INTERNED
+	 * 				if this symbol's name is not interned. The ids of the
+	 * 				names that are in use are small, so they can index
+	 * 				arrays.
+	 */
+	public int getSymbolId() {
+		return (this.symbolId == null) ? NOT_INTERNED : this.symbolId.value;
 	}
 	
 	/**
@@ -113,14 +281,28 @@ public class Symbol {
 	
 	@Override
 	public boolean equals( Object o ) {
+		if ( this == o ) {
+			return true;
+		}
 		if ( o instanceof Symbol ) {
-			return this.name.equals( ((Symbol) o).name );
+			Symbol other = (Symbol) o;
+			
+			//interned symbols have the same id exactly when they
+			//have the same name, so we can skip comparing the names
+			if ( this.symbolId != null && other.symbolId != null ) {
+				return this.symbolId == other.symbolId;
+			}
+			return this.name.equals( other.name );
 		}
 		return false;
 	}
 	
 	@Override
 	public int hashCode() {
+		
+		//interned and uninterned symbols with the same name are
+		//equal, so the hash has to come from the name. Strings cache
+		//their hashes, so this doesn't rehash the name every time
 		return this.name.hashCode();
 	}
 	
@@ -6,11 +6,26 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Tracks any variables that have been generated
  * and any predefined functions, objects, relations, etc.
+ * <p>
+ * A SymbolTracker may be shared by multiple threads that convert
+ * statements and prove hypotheses at the same time. Ids are handed
+ * out by atomic counters and symbols are stored in concurrent maps.
+ * The mapping from user-defined variables to system-defined variables
+ * used for standardizing statements is kept separately for each
+ * thread, so each thread standardizes its statements as if it were
+ * the only one using this tracker.
+ * <p>
+ * Functions, constants and predefined constants are interned: every
+ * name is parsed to the same symbol each time, and that symbol has
+ * a dense integer id so that comparing and hashing symbols doesn't
+ * have to compare their names.
  * 
  * @author mjchao
  *
@@ -72,18 +87,9 @@ public class SymbolTracker {
 					continue;
 				}
 				
-				String[] tokens = tokenize( nextLine );
-				String dataType = tokens[ 0 ];
-				
-				if ( dataType.equals( "FUNCTION" ) ) {
-					rtn.addFunctions( Arrays.copyOfRange( tokens , 1 , tokens.length ) );
-				}
-				else if ( dataType.equals( "CONSTANT" ) ) {
-					rtn.addConstants( Arrays.copyOfRange( tokens , 1 ,  tokens.length ) );
-				}
-				else {
+				if ( !rtn.addDeclaration( nextLine ) ) {
 					f.close();
-					throw new IllegalArgumentException( "Undefined type: " + dataType + 
+					throw new IllegalArgumentException( "Undefined type: " + tokenize( nextLine )[ 0 ] + 
 														" at line " + lineNumber + 
 														" in file \"" + filename + "\".\n" +
 														"Valid types are \"FUNCTION\", \"RELATION\", and \"CONSTANT\"" );
@@ -97,68 +103,137 @@ public class SymbolTracker {
 		return rtn;
 	}
 	
-	private HashSet< String > functions = new HashSet< String >();
-	private HashSet< String > constants = new HashSet< String >();
+	/**
+	 * The interned functions and constants, by name
+	 */
+	private final ConcurrentHashMap< String , Function > functions = new ConcurrentHashMap< String , Function >();
+	private final ConcurrentHashMap< String , ObjectFOL > constants = new ConcurrentHashMap< String , ObjectFOL >();
 	
 	/**
-	 * A list of user-defined variables.
+	 * The interned predefined constants, by the tokens they were parsed from
 	 */
-	private ArrayList< Variable > variables = new ArrayList< Variable >();
-	private HashMap< String , Variable > variablesByName = new HashMap< String , Variable >();
+	private final ConcurrentHashMap< String , ObjectFOL > predefinedConstants = new ConcurrentHashMap< String , ObjectFOL >();
 	
 	/**
-	 * A list of system-defined variables. System-defined variables can only
+	 * User-defined variables, by id and by name. 
+	 */
+	private final AtomicInteger numVariables = new AtomicInteger( 0 );
+	private final ConcurrentHashMap< Integer , Variable > variablesById = new ConcurrentHashMap< Integer , Variable >();
+	private final ConcurrentHashMap< String , Variable > variablesByName = new ConcurrentHashMap< String , Variable >();
+	
+	/**
+	 * System-defined variables, by id. System-defined variables can only
 	 * be used by the logic system (i.e. should not be exposed to the user)
 	 * and can only have the form "?[number]", for example "?0", "?1", "?2", ...
+	 * A thread takes an id before it stores the variable, so while other
+	 * threads are creating variables, some ids below numSystemVariables
+	 * may not be stored yet.
+	 */
+	private final AtomicInteger numSystemVariables = new AtomicInteger( 0 );
+	private final ConcurrentHashMap< Integer , Variable > systemVariablesById = new ConcurrentHashMap< Integer , Variable >();
+	
+	/**
+	 * The system-defined variables created by each thread since it
+	 * last started converting a statement to CNF
 	 */
-	private ArrayList< Variable > systemVariables = new ArrayList< Variable >();
+	private final ThreadLocal< List< Variable > > threadSystemVariables = new ThreadLocal< List< Variable > >() {
+		
+		@Override
+		protected List< Variable > initialValue() {
+			return new ArrayList< Variable >();
+		}
+	};
 	
-	private HashMap< Variable , Variable > systemVariableMapping = new HashMap< Variable , Variable >();
+	/**
+	 * The mapping from user-defined variables to system-defined variables
+	 * used by each thread to standardize statements
+	 */
+	private final ThreadLocal< HashMap< Variable , Variable > > systemVariableMapping = new ThreadLocal< HashMap< Variable , Variable > >() {
+		
+		@Override
+		protected HashMap< Variable , Variable > initialValue() {
+			return new HashMap< Variable , Variable >();
+		}
+	};
 	
 	/**
-	 * A list of system-defined skolem functions. Skolem functions can only
+	 * System-defined skolem functions, by id. Skolem functions can only
 	 * be used by the logic system (i.e. should not be exposed to the user)
 	 * and can only have the form "$[number]", for example "$0", "$1", "$2", ...
 	 */
-	private ArrayList< SkolemFunction > skolemFunctions = new ArrayList< SkolemFunction >();
+	private final AtomicInteger numSkolemFunctions = new AtomicInteger( 0 );
+	private final ConcurrentHashMap< Integer , SkolemFunction > skolemFunctionsById = new ConcurrentHashMap< Integer , SkolemFunction >();
+	
+	/**
+	 * The number of predicates that have been created to stand
+	 * for parts of statements converted to CNF with definitions
+	 */
+	private final AtomicInteger numDefinitions = new AtomicInteger( 0 );
 	
 	public SymbolTracker() {
 		
 	}
 	
+	/**
+	 * Adds the functions or constants declared by one line of a
+	 * definition file, e.g. "FUNCTION: Func1, Func2".
+	 * 
+	 * @param line			a line of a definition file
+	 * @return				false if the line does not declare
+	 * 						functions or constants
+	 */
+	public boolean addDeclaration( String line ) {
+		String[] tokens = tokenize( line );
+		String dataType = tokens[ 0 ];
+		if ( dataType.equals( "FUNCTION" ) ) {
+			addFunctions( Arrays.copyOfRange( tokens , 1 , tokens.length ) );
+			return true;
+		}
+		else if ( dataType.equals( "CONSTANT" ) ) {
+			addConstants( Arrays.copyOfRange( tokens , 1 ,  tokens.length ) );
+			return true;
+		}
+		return false;
+	}
+	
 	public void addFunctions( String... names ) {
 		for ( String name : names ) {
-			this.functions.add( name );
+			if ( !this.functions.containsKey( name ) ) {
+				this.functions.putIfAbsent( name , new Function( name ) );
+			}
 		}
 	}
 
+	/**
+	 * @param functionName
+	 * @return				the interned function with the given name or
+	 * 						null if no such function has been added. Use
+	 * 						<code>Function.withNumArgs()</code> rather than
+	 * 						changing the number of arguments of the returned
+	 * 						function, because it is shared.
+	 */
 	public Function parseFunction( String functionName ) {
-		if ( this.functions.contains( functionName ) ) {
-			Function rtn = new Function( functionName );
-			return rtn;
-		}
-		else {
-			return null;
-		}
+		return this.functions.get( functionName );
 	}
 	
 	public void addConstants( String... names ) {
 		for ( String name : names ) {
-			this.constants.add( name );
+			if ( !this.constants.containsKey( name ) ) {
+				this.constants.putIfAbsent( name , new ObjectFOL( name ) );
+			}
 		}
 	}
 	
+	/**
+	 * @param constantName
+	 * @return				the interned constant with the given name or
+	 * 						null if no such constant has been added
+	 */
 	public ObjectFOL parseConstant( String constantName ) {
-		if ( constants.contains( constantName ) ) {
-			
-			//in FOL, constants are represented as functions
-			//that take no arguments
-			ObjectFOL rtn = new ObjectFOL( constantName );
-			return rtn;
-		}
-		else {
-			return null;
-		}
+		
+		//in FOL, constants are represented as functions
+		//that take no arguments
+		return this.constants.get( constantName );
 	}
 	
 	/**
@@ -175,21 +250,26 @@ public class SymbolTracker {
 	 * @return				a predefined constant as an ObjectFOL
 	 * 						or null if conversion failed
 	 */
-	@SuppressWarnings("static-method")
 	public ObjectFOL getPredefinedConstant( String token ) {
-		try {
-			int intValue = Integer.parseInt( token );
-			return NumbersFOL.fromInt( intValue );
-		}
-		catch ( NumberFormatException e ) {
-			//ignore
-		}
-		try {
-			double doubleValue = Double.valueOf( token ).doubleValue();
-			return NumbersFOL.fromDouble( doubleValue );
-		}
-		catch ( NumberFormatException e ) {
-			//ignore
+		if ( mayBeNumber( token ) ) {
+			ObjectFOL rtn = this.predefinedConstants.get( token );
+			if ( rtn != null ) {
+				return rtn;
+			}
+			try {
+				int intValue = Integer.parseInt( token );
+				return internPredefinedConstant( token , NumbersFOL.fromInt( intValue ) );
+			}
+			catch ( NumberFormatException e ) {
+				//ignore
+			}
+			try {
+				double doubleValue = Double.valueOf( token ).doubleValue();
+				return internPredefinedConstant( token , NumbersFOL.fromDouble( doubleValue ) );
+			}
+			catch ( NumberFormatException e ) {
+				//ignore
+			}
 		}
 		if ( token.equals( "True" ) || token.equals( "T" ) ) {
 			return BooleanFOL.True();
@@ -200,10 +280,45 @@ public class SymbolTracker {
 		return null;
 	}
 	
+	/**
+	 * Keeps the predefined constant that was parsed from the given token,
+	 * so that the token is parsed to the same constant every time.
+	 * Different tokens may be parsed to constants with the same name,
+	 * e.g. "1.5" and "1.50", and they share the same id.
+	 * 
+	 * @param token
+	 * @param parsed		the predefined constant parsed from the token
+	 * @return				the predefined constant kept for the token
+	 */
+	private ObjectFOL internPredefinedConstant( String token , ObjectFOL parsed ) {
+		ObjectFOL rtn = this.predefinedConstants.putIfAbsent( token , parsed );
+		return (rtn == null) ? parsed : rtn;
+	}
+	
+	/**
+	 * Checks if a token could possibly be parsed as a number, so that
+	 * we don't have to throw and catch exceptions for every name that
+	 * isn't a number. A number must start with a digit, a decimal point,
+	 * NaN or Infinity after an optional sign.
+	 * 
+	 * @param token
+	 * @return
+	 */
+	private static boolean mayBeNumber( String token ) {
+		if ( token.length() == 0 ) {
+			return false;
+		}
+		char c = token.charAt( 0 );
+		if ( (c == '+' || c == '-') && token.length() > 1 ) {
+			c = token.charAt( 1 );
+		}
+		return Character.isDigit( c ) || c == '.' || c == 'N' || c == 'I';
+	}
+	
 	public Variable getNewVariable() {
-		int nextVariableId = variables.size();
+		int nextVariableId = numVariables.getAndIncrement();
 		Variable rtn = new Variable( nextVariableId );
-		variables.add( rtn );
+		variablesById.put( nextVariableId , rtn );
 		variablesByName.put( rtn.getSymbolName() , rtn );
 		return rtn;
 	}
@@ -216,20 +331,51 @@ public class SymbolTracker {
 		if ( variablesByName.containsKey( name ) ) {
 			throw new IllegalArgumentException( "A variable with name \"" + name + "\" already exists." );
 		}
-		int nextVariableId = variables.size();
+		int nextVariableId = numVariables.getAndIncrement();
 		Variable rtn = new Variable( name , nextVariableId );
-		variables.add( rtn );
-		variablesByName.put( name , rtn );
-		++nextVariableId;
+		if ( variablesByName.putIfAbsent( name , rtn ) != null ) {
+			throw new IllegalArgumentException( "A variable with name \"" + name + "\" already exists." );
+		}
+		variablesById.put( nextVariableId , rtn );
 		return rtn;
 	}
 	
+	/**
+	 * Gets the user-defined variable with the given name, creating it
+	 * if it does not exist yet. If several threads ask for the same new
+	 * variable at once, they all receive the same variable. 
+	 * 
+	 * @param name
+	 * @return		the user-defined variable with the given name
+	 */
+	public Variable getOrCreateVariable( String name ) {
+		Variable rtn = variablesByName.get( name );
+		if ( rtn != null ) {
+			return rtn;
+		}
+		if ( !Variable.isValidVariableName( name ) ) {
+			throw new IllegalArgumentException( "User-specified variable names must consist of {A-Z}, {a-z}, [0-9] " +
+												"or '_' and start with a letter." );
+		}
+		
+		//note: if another thread creates the variable first, the
+		//id we took is simply never used
+		int nextVariableId = numVariables.getAndIncrement();
+		Variable newVariable = new Variable( name , nextVariableId );
+		rtn = variablesByName.putIfAbsent( name , newVariable );
+		if ( rtn != null ) {
+			return rtn;
+		}
+		variablesById.put( nextVariableId , newVariable );
+		return newVariable;
+	}
+	
 	public Variable getVariableByName( String name ) {
 		return variablesByName.get( name );
 	}
 	
 	public Variable getVariableById( int id ) {
-		return variables.get( id );
+		return variablesById.get( id );
 	}
 	
 	/**
@@ -238,30 +384,56 @@ public class SymbolTracker {
 	 * @return		a new system-defined variable.
 	 */
 	public Variable getNewSystemVariable() {
-		int nextId = systemVariables.size();
+		int nextId = numSystemVariables.getAndIncrement();
 		Variable rtn = new Variable( "?" + nextId , nextId );
-		systemVariables.add( rtn );
+		systemVariablesById.put( nextId , rtn );
+		threadSystemVariables.get().add( rtn );
 		return rtn;
 	}
 	
 	/**
 	 * @param id
 	 * @return		the system variable with the given id
+	 * @throws IllegalArgumentException		if no system variable with the
+	 * 										given id has been stored yet
 	 */
 	public Variable getSystemVariableById( int id ) {
-		if ( id >= systemVariables.size() ) {
-			throw new IllegalArgumentException( "id of system variable is out of bounds. \n" +
+		Variable rtn = systemVariablesById.get( id );
+		if ( rtn == null ) {
+			throw new IllegalArgumentException( "No system variable has been stored with the given id. \n" +
 								"id: " + id + "\n" +
-								"size: " + systemVariables.size() );
+								"size: " + numSystemVariables.get() );
 		}
-		return systemVariables.get( id );
+		return rtn;
 	}
 	
 	/**
-	 * @return		the number of system variables stored in this tracker
+	 * @return		the number of system variable ids handed out by this
+	 * 				tracker. Variables that other threads are still creating
+	 * 				are counted before they can be looked up by id.
 	 */
 	public int getNumSystemVariables() {
-		return systemVariables.size();
+		return numSystemVariables.get();
+	}
+	
+	/**
+	 * @return		the system variables that were created by the current
+	 * 				thread since it last called clearThreadSystemVariables(),
+	 * 				in the order they were created. Do not modify
+	 * 				the returned list.
+	 */
+	public List< Variable > getThreadSystemVariables() {
+		return threadSystemVariables.get();
+	}
+	
+	/**
+	 * Forgets which system-defined variables the current thread has
+	 * created. This is done at the start of every conversion to CNF,
+	 * so that the list only holds the variables of the statement being
+	 * converted. The variables themselves can still be looked up by id.
+	 */
+	public void clearThreadSystemVariables() {
+		threadSystemVariables.get().clear();
 	}
 	
 	/**
@@ -276,8 +448,23 @@ public class SymbolTracker {
 		return var.getSymbolName().startsWith( "?" );
 	}
 	
+	/**
+	 * @return		the mapping from user-defined variables to system-defined
+	 * 				variables that the current thread uses to standardize 
+	 * 				statements
+	 */
 	public HashMap< Variable , Variable > getSystemVariableMapping() {
-		return this.systemVariableMapping;
+		return this.systemVariableMapping.get();
+	}
+	
+	/**
+	 * Forgets which system-defined variables the current thread's
+	 * user-defined variables were standardized to. Statements converted
+	 * afterwards will not share any free variables with statements 
+	 * converted before.
+	 */
+	public void clearSystemVariableMapping() {
+		this.systemVariableMapping.get().clear();
 	}
 	
 	/**
@@ -287,9 +474,9 @@ public class SymbolTracker {
 	 * @return		a new system-defined skolem function.
 	 */
 	public SkolemFunction getNewSkolemFunction( Variable... vars ) {
-		int nextId = skolemFunctions.size();
+		int nextId = numSkolemFunctions.getAndIncrement();
 		SkolemFunction rtn = new SkolemFunction( nextId , vars );
-		skolemFunctions.add( rtn );
+		skolemFunctionsById.put( nextId , rtn );
 		return rtn;
 	}
 	
@@ -300,14 +487,11 @@ public class SymbolTracker {
 	 * @return		a new system-defined skolem function.
 	 */
 	public SkolemFunction getNewSkolemFunction( ArrayList< Variable > vars ) {
-		int nextId = skolemFunctions.size();
 		Variable[] varArray = new Variable[ vars.size() ];
 		for ( int i=0 ; i<vars.size() ; ++i ) {
 			varArray[ i ] = vars.get( i );
 		}
-		SkolemFunction rtn = new SkolemFunction( nextId , varArray );
-		skolemFunctions.add( rtn );
-		return rtn;
+		return getNewSkolemFunction( varArray );
 	}
 	
 	/**
@@ -315,6 +499,24 @@ public class SymbolTracker {
 	 * @return		the system-defined skolem function with the given id
 	 */
 	public SkolemFunction getSkolemFunctionById( int id ) {
-		return skolemFunctions.get( id );
+		return skolemFunctionsById.get( id );
+	}
+	
+	/**
+	 * Creates and returns a new system-defined predicate that stands
+	 * for part of a statement being converted to CNF with definitions.
+	 * 
+	 * A new predicate is made for every conversion. Its name is interned
+	 * like every function's, but the name is forgotten again once the
+	 * converted statements are no longer used.
+	 * 
+	 * @param numArgs	the number of arguments the predicate takes
+	 * @return			a new system-defined predicate
+	 */
+	public Function getNewDefinition( int numArgs ) {
+		String name = "#" + numDefinitions.getAndIncrement();
+		Function rtn = new Function( name );
+		rtn.setNumArgs( numArgs );
+		return rtn;
 	}
 }
@@ -76,6 +76,9 @@ public class Variable extends Symbol {
 	
 	@Override
 	public boolean equals( Object o ) {
+		if ( this == o ) {
+			return true;
+		}
 		if ( o instanceof Variable ) {
 			return this.name.equals( ((Variable) o).name );
 		}
@@ -0,0 +1,159 @@
+package mjchao.mazenav.logic;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction.Term;
+import mjchao.mazenav.logic.structures.SymbolTracker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BackwardChainerTest {
+
+	private static String[] toSortedStrings( List< Term > terms ) {
+		String[] rtn = new String[ terms.size() ];
+		for ( int i=0 ; i<rtn.length ; ++i ) {
+			rtn[ i ] = terms.get( i ).toString();
+		}
+		java.util.Arrays.sort( rtn );
+		return rtn;
+	}
+
+	@Test
+	public void testCrime() {
+		SymbolTracker tracker = Fixtures.crimeTracker();
+		StatementCNF[] statements = Fixtures.crime( tracker );
+		BackwardChainer chainer = new BackwardChainer( statements );
+		String[] hypotheses = new String[] {
+			"Criminal(West)" , "Criminal(Nono)" , "Weapon(M1)" , "Hostile(Nono)" , "Hostile(West)" ,
+			"Sells(West, M1, Nono)" , "Criminal(West) AND Weapon(M1)" , "Criminal(Nono) OR Hostile(Nono)"
+		};
+		for ( String hypothesis : hypotheses ) {
+			StatementCNF h = StatementCNF.fromInfixString( hypothesis , tracker );
+			boolean expected = Resolver.proveHypothesisGivenClause( tracker , h , statements );
+			Assert.assertEquals( hypothesis , expected , chainer.ask( h ) );
+		}
+		Assert.assertArrayEquals( new String[] { "Criminal(West)" } , toSortedStrings( chainer.getAnswers( StatementCNF.fromInfixString( "Criminal(x)" , tracker ) ) ) );
+	}
+
+	@Test
+	public void testRecursion() {
+		SymbolTracker tracker = Fixtures.caveTracker();
+		List< StatementCNF > cave = Fixtures.cave( tracker );
+		cave.add( StatementCNF.fromInfixString( "Adjacent(x,y) => Reachable(x,y)" , tracker ) );
+		cave.add( StatementCNF.fromInfixString( "Adjacent(x,y) AND Reachable(y,z) => Reachable(x,z)" , tracker ) );
+		BackwardChainer chainer = new BackwardChainer( cave.toArray( new StatementCNF[ cave.size() ] ) );
+
+		//the squares are adjacent both ways, so Reachable(A,z) comes up
+		//again while it is being solved
+		Assert.assertTrue( chainer.ask( StatementCNF.fromInfixString( "Reachable(A,D) AND Reachable(D,A) AND Reachable(A,A)" , tracker ) ) );
+		Assert.assertFalse( chainer.ask( StatementCNF.fromInfixString( "Reachable(A,E)" , tracker ) ) );
+		Assert.assertArrayEquals( new String[] { "Reachable(C, A)" , "Reachable(C, B)" , "Reachable(C, C)" , "Reachable(C, D)" } ,
+				toSortedStrings( chainer.getAnswers( StatementCNF.fromInfixString( "Reachable(C,z)" , tracker ) ) ) );
+		Assert.assertEquals( 16 , chainer.getAnswers( StatementCNF.fromInfixString( "Reachable(x,y)" , tracker ) ).size() );
+		Assert.assertEquals( 4 , chainer.getAnswers( StatementCNF.fromInfixString( "Reachable(x,x)" , tracker ) ).size() );
+	}
+
+	@Test
+	public void testLeftRecursion() {
+		SymbolTracker tracker = Fixtures.caveTracker();
+		List< StatementCNF > cave = Fixtures.cave( tracker );
+		cave.add( StatementCNF.fromInfixString( "Adjacent(x,y) => Path(x,y)" , tracker ) );
+		cave.add( StatementCNF.fromInfixString( "Path(x,y) AND Path(y,z) => Path(x,z)" , tracker ) );
+		BackwardChainer chainer = new BackwardChainer( cave.toArray( new StatementCNF[ cave.size() ] ) );
+		Assert.assertTrue( chainer.ask( StatementCNF.fromInfixString( "Path(D,A)" , tracker ) ) );
+		Assert.assertFalse( chainer.ask( StatementCNF.fromInfixString( "Path(E,A) OR Path(A,E)" , tracker ) ) );
+		Assert.assertEquals( 16 , chainer.getAnswers( StatementCNF.fromInfixString( "Path(x,y)" , tracker ) ).size() );
+	}
+
+	@Test
+	public void testTables() {
+		SymbolTracker tracker = Fixtures.caveTracker();
+		List< StatementCNF > cave = Fixtures.cave( tracker );
+		cave.add( StatementCNF.fromInfixString( "Adjacent(x,y) => Reachable(x,y)" , tracker ) );
+		cave.add( StatementCNF.fromInfixString( "Adjacent(x,y) AND Reachable(y,z) => Reachable(x,z)" , tracker ) );
+		BackwardChainer chainer = new BackwardChainer( cave.toArray( new StatementCNF[ cave.size() ] ) );
+		StatementCNF hypothesis = StatementCNF.fromInfixString( "Reachable(A,D)" , tracker );
+		ProofMetrics metrics = new ProofMetrics();
+		Assert.assertEquals( ProofResult.PROVED , chainer.ask( hypothesis , new ProofBudget() , metrics ) );
+		Assert.assertTrue( metrics.getUnifyAttempts() > 0 );
+
+		//the goal is answered again from its table
+		metrics = new ProofMetrics();
+		Assert.assertEquals( ProofResult.PROVED , chainer.ask( hypothesis , new ProofBudget() , metrics ) );
+		Assert.assertEquals( 0 , metrics.getUnifyAttempts() );
+
+		//until a statement is told that may add answers
+		chainer.tell( StatementCNF.fromInfixString( "Adjacent(D,E)" , tracker ) );
+		metrics = new ProofMetrics();
+		Assert.assertEquals( ProofResult.PROVED , chainer.ask( StatementCNF.fromInfixString( "Reachable(A,E)" , tracker ) , new ProofBudget() , metrics ) );
+		Assert.assertTrue( metrics.getUnifyAttempts() > 0 );
+		Assert.assertEquals( 9 , chainer.size() );
+	}
+
+	@Test
+	public void testFunctions() {
+		SymbolTracker tracker = Fixtures.naturalsTracker();
+		BackwardChainer chainer = new BackwardChainer( Fixtures.naturals( tracker ) );
+
+		//goals without variables only need the facts below them
+		Assert.assertTrue( chainer.ask( StatementCNF.fromInfixString( "Nat(Succ(Succ(Zero)))" , tracker ) ) );
+		Assert.assertTrue( chainer.ask( StatementCNF.fromInfixString( "Even(Succ(Succ(Succ(Succ(Zero)))))" , tracker ) ) );
+		Assert.assertFalse( chainer.ask( StatementCNF.fromInfixString( "Even(Succ(Succ(Succ(Zero))))" , tracker ) ) );
+
+		//but there are infinitely many natural numbers
+		StatementCNF nat = StatementCNF.fromInfixString( "Nat(x)" , tracker );
+		Assert.assertNull( chainer.getAnswers( nat , new ProofBudget( 1 , TimeUnit.HOURS , 100 ) , new ProofMetrics() ) );
+		Assert.assertNull( chainer.getAnswers( nat , new ProofBudget( 50 , TimeUnit.MILLISECONDS , Integer.MAX_VALUE ) , new ProofMetrics() ) );
+
+		//running out of budget should not prevent later proofs
+		Assert.assertTrue( chainer.ask( StatementCNF.fromInfixString( "Nat(Succ(Succ(Succ(Zero))))" , tracker ) ) );
+	}
+
+	@Test
+	public void testBudget() {
+		SymbolTracker tracker = Fixtures.caveTracker();
+		List< StatementCNF > cave = Fixtures.cave( tracker );
+		cave.add( StatementCNF.fromInfixString( "Adjacent(x,y) => Path(x,y)" , tracker ) );
+		cave.add( StatementCNF.fromInfixString( "Path(x,y) AND Path(y,z) => Path(x,z)" , tracker ) );
+		BackwardChainer chainer = new BackwardChainer( cave.toArray( new StatementCNF[ cave.size() ] ) );
+		StatementCNF hypothesis = StatementCNF.fromInfixString( "Path(D,A)" , tracker );
+		ProofBudget budget = new ProofBudget();
+		budget.cancel();
+		Assert.assertEquals( ProofResult.UNKNOWN , chainer.ask( hypothesis , budget , new ProofMetrics() ) );
+		Assert.assertEquals( ProofResult.UNKNOWN , chainer.ask( hypothesis , new ProofBudget( 1 , TimeUnit.HOURS , 2 ) , new ProofMetrics() ) );
+		Assert.assertEquals( ProofResult.PROVED , chainer.ask( hypothesis , new ProofBudget() , new ProofMetrics() ) );
+	}
+
+	@Test
+	public void testInvalid() {
+		SymbolTracker tracker = Fixtures.caveTracker();
+		BackwardChainer chainer = new BackwardChainer();
+		String[] statements = new String[] { "Adjacent(A,B) OR Adjacent(B,A)" , "!Adjacent(A,B)" , "Reachable(x,y)" };
+		for ( String statement : statements ) {
+			try {
+				chainer.tell( StatementCNF.fromInfixString( statement , tracker ) );
+				Assert.fail( statement );
+			}
+			catch ( IllegalArgumentException e ) {
+				//expected
+			}
+		}
+		Assert.assertEquals( 0 , chainer.size() );
+		try {
+			chainer.ask( StatementCNF.fromInfixString( "Reachable(A,y)" , tracker ) );
+			Assert.fail();
+		}
+		catch ( IllegalArgumentException e ) {
+			//expected
+		}
+		try {
+			chainer.getAnswers( StatementCNF.fromInfixString( "Reachable(A,y) AND Reachable(y,A)" , tracker ) );
+			Assert.fail();
+		}
+		catch ( IllegalArgumentException e ) {
+			//expected
+		}
+	}
+}
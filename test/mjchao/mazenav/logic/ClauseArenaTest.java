@@ -0,0 +1,167 @@
+package mjchao.mazenav.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+import mjchao.mazenav.logic.structures.SymbolTracker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClauseArenaTest {
+
+	private static SymbolTracker buildTracker() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "P" , "Q" , "R" , "f" , "g" );
+		tracker.addConstants( "A" , "B" );
+		return tracker;
+	}
+
+	/**
+	 * @return		the resolvents of two clauses in the arena, in the same
+	 * 				order as Resolver.resolve builds them
+	 */
+	private static List< Disjunction > resolve( ClauseArena arena , int clause1 , int clause2 ) {
+		List< Disjunction > rtn = new ArrayList< Disjunction >();
+		for ( int lit1=arena.firstLiteral( clause1 ) ; lit1<arena.clauseEnd( clause1 ) ; lit1=arena.nextLiteral( lit1 ) ) {
+			for ( int lit2=arena.firstLiteral( clause2 ) ; lit2<arena.clauseEnd( clause2 ) ; lit2=arena.nextLiteral( lit2 ) ) {
+				if ( arena.unifyComplementary( lit1 , lit2 ) ) {
+					int resolvent = arena.addResolvent( clause1 , lit1 , clause2 , lit2 );
+					rtn.add( arena.toDisjunction( resolvent ) );
+					arena.removeLastClause();
+				}
+			}
+		}
+		return rtn;
+	}
+
+	private static String[] toStrings( List< Disjunction > clauses ) {
+		String[] rtn = new String[ clauses.size() ];
+		for ( int i=0 ; i<rtn.length ; ++i ) {
+			rtn[ i ] = clauses.get( i ).toString();
+		}
+		return rtn;
+	}
+
+	@Test
+	public void testRoundTrip() {
+		SymbolTracker tracker = buildTracker();
+		StatementCNF statement = StatementCNF.fromInfixString( "FORALL(x) EXISTS(y) (P(f(x)) OR !Q(g(x, y), A) OR !R(B))" , tracker );
+		ClauseArena arena = new ClauseArena( StatementCNF.fromInfixString( "P(A)" , tracker ) );
+		for ( Disjunction d : statement.getDisjunctions() ) {
+			int clause = arena.addClause( d );
+			Assert.assertEquals( d.size() , arena.numLiterals( clause ) );
+			Assert.assertEquals( GivenClauseResolver.weight( d ) , arena.weight( clause ) );
+			Assert.assertEquals( d , arena.toDisjunction( clause ) );
+		}
+	}
+
+	@Test
+	public void testResolveMatchesResolver() {
+		SymbolTracker tracker = buildTracker();
+		List< Disjunction > clauses = new ArrayList< Disjunction >();
+		clauses.addAll( StatementCNF.fromInfixString( "FORALL(x) EXISTS(y) (P(f(x)) OR !Q(g(x, y), A))" , tracker ).getDisjunctions() );
+		clauses.addAll( StatementCNF.fromInfixString( "FORALL(x, y) (Q(x, y) OR !P(y) OR R(x))" , tracker ).getDisjunctions() );
+		clauses.addAll( StatementCNF.fromInfixString( "!P(f(A)) OR !R(z)" , tracker ).getDisjunctions() );
+		clauses.addAll( StatementCNF.fromInfixString( "p OR !q" , tracker ).getDisjunctions() );
+		clauses.addAll( StatementCNF.fromInfixString( "EXISTS(x) (q AND !P(x))" , tracker ).getDisjunctions() );
+		StatementCNF hypothesis = StatementCNF.fromInfixString( "R(z)" , tracker );
+		ClauseArena arena = new ClauseArena( hypothesis );
+		for ( Disjunction d : clauses ) {
+			arena.addClause( d );
+		}
+		int numResolvents = 0;
+		for ( int i=0 ; i<clauses.size() ; ++i ) {
+			for ( int j=0 ; j<clauses.size() ; ++j ) {
+				List< Disjunction > expected = Resolver.resolve( clauses.get( i ) , clauses.get( j ) , hypothesis );
+				Assert.assertArrayEquals( toStrings( expected ) , toStrings( resolve( arena , i , j ) ) );
+				numResolvents += expected.size();
+			}
+		}
+		Assert.assertTrue( numResolvents > 0 );
+		Assert.assertEquals( clauses.size() , arena.numClauses() );
+	}
+
+	@Test
+	public void testFactorMatchesResolver() {
+		SymbolTracker tracker = buildTracker();
+		String[] infixes = new String[] {
+			"P(x) OR P(A) OR Q(x, B)" ,
+			"P(f(x)) OR P(f(y)) OR !P(f(x))" ,
+			"R(A) OR R(B)" ,
+			"p OR p OR q"
+		};
+		ClauseArena arena = new ClauseArena( StatementCNF.fromInfixString( "P(A)" , tracker ) );
+		for ( String infix : infixes ) {
+			Disjunction d = StatementCNF.fromInfixString( infix , tracker ).getDisjunctions().get( 0 );
+			int clause = arena.addClause( d );
+			arena.factorLastClause();
+			Disjunction expected = Resolver.factor( d , StatementCNF.fromInfixString( "P(A)" , tracker ) );
+			Assert.assertEquals( expected.toString() , arena.toDisjunction( clause ).toString() );
+			Assert.assertEquals( expected.size() , arena.numLiterals( clause ) );
+		}
+	}
+
+	@Test
+	public void testSubsumes() {
+		SymbolTracker tracker = ResolverTest.FunctionRelationTester.buildTracker();
+		List< Disjunction > clauses = StatementCNFTest.disjunctionsFromInfix(
+				"Rel1(x) AND (Rel1(obj1) OR Rel2(obj1, obj2)) AND Rel2(x, x) AND Rel2(obj1, obj2) AND Rel2(obj1, obj1) AND " +
+				"!Rel1(x) AND P AND (Q OR Rel1(obj1)) AND (P OR Q) AND (Rel1(z) OR Rel2(z, w))" , tracker );
+		ClauseArena arena = new ClauseArena( ResolverTest.mockHypothesis );
+		for ( Disjunction d : clauses ) {
+			arena.addClause( d );
+		}
+		for ( int i=0 ; i<clauses.size() ; ++i ) {
+			for ( int j=0 ; j<clauses.size() ; ++j ) {
+				boolean expected = Resolver.subsumes( clauses.get( i ) , clauses.get( j ) , ResolverTest.mockHypothesis );
+				Assert.assertEquals( clauses.get( i ) + " subsumes " + clauses.get( j ) , expected , arena.subsumes( i , j ) );
+				if ( expected ) {
+					Assert.assertEquals( 0 , arena.literalSignature( i ) & ~arena.literalSignature( j ) );
+					Assert.assertEquals( 0 , arena.argumentSignature( i ) & ~arena.argumentSignature( j ) );
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testDuplicates() {
+		SymbolTracker tracker = buildTracker();
+		List< Disjunction > clauses = StatementCNFTest.disjunctionsFromInfix( "(P(x) OR Q(x, A)) AND (Q(x, A) OR P(x) OR P(x)) AND (P(B) OR Q(y, A)) AND (Q(z, A) OR P(z))" , tracker );
+		ClauseArena arena = new ClauseArena( ResolverTest.mockHypothesis );
+		for ( Disjunction d : clauses ) {
+			arena.addClause( d );
+		}
+		Assert.assertTrue( arena.sameLiterals( 0 , 1 ) );
+		Assert.assertEquals( arena.hashClause( 0 ) , arena.hashClause( 1 ) );
+		Assert.assertFalse( arena.sameLiterals( 0 , 2 ) );
+		Assert.assertFalse( arena.isVariant( 0 , 2 ) );
+		Assert.assertFalse( arena.isVariant( 0 , 1 ) );
+		Assert.assertTrue( arena.isVariant( 0 , 3 ) );
+		Assert.assertTrue( arena.isVariant( 3 , 0 ) );
+	}
+
+	@Test
+	public void testProveHypothesisArena() {
+		SymbolTracker tracker = ResolverTest.Integration1.buildTracker();
+		StatementCNF[] kb = Fixtures.crime( tracker );
+		Assert.assertTrue( Resolver.proveHypothesisArena( tracker , StatementCNF.fromInfixString( "Criminal(West)" , tracker ) , kb ) );
+		Assert.assertFalse( Resolver.proveHypothesisArena( tracker , StatementCNF.fromInfixString( "Criminal(Nono)" , tracker ) , kb ) );
+	}
+
+	@Test
+	public void testProveHypothesisArenaSkolemFunctions() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "Person" , "Heart" , "PartOf" , "Living" , "Dead" );
+		tracker.addConstants( "Adam" );
+		StatementCNF[] kb = new StatementCNF[] {
+		    StatementCNF.fromInfixString( "FORALL(x) Person(x) => (EXISTS(y) Heart(y) AND PartOf(y,x))" , tracker ) ,
+		    StatementCNF.fromInfixString( "EXISTS(x) Heart(x) AND PartOf(x,y) => Living(y)" , tracker ) ,
+		    StatementCNF.fromInfixString( "Person(Adam)" , tracker ) ,
+		    StatementCNF.fromInfixString( "Dead(x) <=> !Living(x)", tracker )
+		};
+		Assert.assertTrue( Resolver.proveHypothesisArena( tracker , StatementCNF.fromInfixString( "Living(Adam)" , tracker ) , kb ) );
+		Assert.assertFalse( Resolver.proveHypothesisArena( tracker , StatementCNF.fromInfixString( "Dead(Adam)" , tracker ) , kb ) );
+	}
+}
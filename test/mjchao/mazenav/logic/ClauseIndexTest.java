@@ -0,0 +1,64 @@
+package mjchao.mazenav.logic;
+
+import java.util.BitSet;
+import java.util.List;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+import mjchao.mazenav.logic.structures.SymbolTracker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClauseIndexTest {
+
+	private static ClauseIndex buildIndex( List< Disjunction > clauses ) {
+		ClauseIndex index = new ClauseIndex();
+		for ( int i=0 ; i<clauses.size() ; ++i ) {
+			index.add( i , clauses.get( i ) );
+		}
+		return index;
+	}
+
+	@Test
+	public void testComplementaryLiterals() {
+		//only clauses with a complementary literal should be candidates
+		SymbolTracker tracker = ResolverTest.FunctionRelationTester.buildTracker();
+		List< Disjunction > clauses = StatementCNFTest.disjunctionsFromInfix(
+				"Rel1(obj1) AND !Rel1(obj2) AND (Rel2(obj1, obj2) OR !Rel1(obj1)) AND Func1(obj1)" , tracker );
+		ClauseIndex index = buildIndex( clauses );
+
+		Disjunction query = StatementCNFTest.disjunctionsFromInfix( "Rel1(x)" , tracker ).get( 0 );
+		BitSet expected = new BitSet();
+		expected.set( 1 );
+		expected.set( 2 );
+		Assert.assertEquals( expected , index.candidatesFor( query ) );
+
+		query = StatementCNFTest.disjunctionsFromInfix( "!Rel2(x, y)" , tracker ).get( 0 );
+		expected = new BitSet();
+		expected.set( 2 );
+		Assert.assertEquals( expected , index.candidatesFor( query ) );
+
+		query = StatementCNFTest.disjunctionsFromInfix( "Rel3(x, y, z)" , tracker ).get( 0 );
+		Assert.assertTrue( index.candidatesFor( query ).isEmpty() );
+	}
+
+	@Test
+	public void testWildcardLiterals() {
+		//variables can unify with any literal, so a clause containing a
+		//variable is always a candidate and a query with a variable
+		//matches everything
+		SymbolTracker tracker = ResolverTest.FunctionRelationTester.buildTracker();
+		List< Disjunction > clauses = StatementCNFTest.disjunctionsFromInfix(
+				"Rel1(obj1) AND (P OR Rel2(obj1, obj2))" , tracker );
+		ClauseIndex index = buildIndex( clauses );
+
+		Disjunction query = StatementCNFTest.disjunctionsFromInfix( "Rel3(x, y, z)" , tracker ).get( 0 );
+		BitSet expected = new BitSet();
+		expected.set( 1 );
+		Assert.assertEquals( expected , index.candidatesFor( query ) );
+
+		query = StatementCNFTest.disjunctionsFromInfix( "Q" , tracker ).get( 0 );
+		expected.set( 0 );
+		Assert.assertEquals( expected , index.candidatesFor( query ) );
+	}
+}
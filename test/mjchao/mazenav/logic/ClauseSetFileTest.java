@@ -0,0 +1,200 @@
+package mjchao.mazenav.logic;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+import mjchao.mazenav.logic.structures.SymbolTracker;
+import mjchao.mazenav.logic.structures.Variable;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClauseSetFileTest {
+
+	private static final Pattern SYSTEM_NAME = Pattern.compile( "[?$#][0-9]+" );
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static SymbolTracker buildTracker() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "Person" , "Heart" , "PartOf" , "Living" , "Dead" );
+		tracker.addConstants( "Adam" , "Eve" );
+		return tracker;
+	}
+
+	private static KnowledgeBase buildKB( SymbolTracker tracker ) {
+		return new KnowledgeBase( tracker ,
+				StatementCNF.fromInfixString( "FORALL(x) Person(x) => (EXISTS(y) Heart(y) AND PartOf(y,x))" , tracker ) ,
+				StatementCNF.fromInfixString( "EXISTS(x) Heart(x) AND PartOf(x,y) => Living(y)" , tracker ) ,
+				StatementCNF.fromInfixString( "Person(Adam)" , tracker ) ,
+				StatementCNF.fromInfixString( "Dead(x) <=> !Living(x)", tracker ) );
+	}
+
+	/**
+	 * Renames the system-defined variables, skolem functions and
+	 * definitions in the given clauses in the order they first appear,
+	 * so that clauses loaded into different trackers can be compared.
+	 */
+	private static String canonical( List< Disjunction > clauses ) {
+		Matcher m = SYSTEM_NAME.matcher( clauses.toString() );
+		HashMap< String , String > names = new HashMap< String , String >();
+		StringBuffer rtn = new StringBuffer();
+		while ( m.find() ) {
+			if ( !names.containsKey( m.group() ) ) {
+				names.put( m.group() , m.group().charAt( 0 ) + "" + names.size() );
+			}
+			m.appendReplacement( rtn , Matcher.quoteReplacement( names.get( m.group() ) ) );
+		}
+		m.appendTail( rtn );
+		return rtn.toString();
+	}
+
+	/**
+	 * @return		the names of the system-defined variables, skolem
+	 * 				functions and definitions in the given string
+	 */
+	private static Set< String > systemNames( String clauses ) {
+		Set< String > rtn = new HashSet< String >();
+		Matcher m = SYSTEM_NAME.matcher( clauses );
+		while ( m.find() ) {
+			rtn.add( m.group() );
+		}
+		return rtn;
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		SymbolTracker tracker = buildTracker();
+		KnowledgeBase kb = buildKB( tracker );
+		String filename = folder.newFile().getPath();
+		ClauseSetFile.write( filename , kb );
+
+		//the tracker that reads the clauses doesn't need to
+		//know about any of the symbols in them
+		SymbolTracker tracker2 = new SymbolTracker();
+		KnowledgeBase kb2 = new KnowledgeBase( tracker2 );
+		Assert.assertEquals( 6 , ClauseSetFile.read( filename , kb2 ) );
+		Assert.assertEquals( kb.size() , kb2.size() );
+		Assert.assertEquals( canonical( kb.getClauses() ) , canonical( kb2.getClauses() ) );
+		Assert.assertNotNull( tracker2.parseFunction( "Living" ) );
+		Assert.assertNotNull( tracker2.parseConstant( "Adam" ) );
+
+		tracker2.addConstants( "Eve" );
+		Assert.assertTrue( kb2.ask( StatementCNF.fromInfixString( "Living(Adam)" , tracker2 ) ) );
+		Assert.assertFalse( kb2.ask( StatementCNF.fromInfixString( "Dead(Adam)" , tracker2 ) ) );
+		Assert.assertFalse( kb2.ask( StatementCNF.fromInfixString( "Living(Eve)" , tracker2 ) ) );
+	}
+
+	@Test
+	public void testNewSymbolsOnRead() throws IOException {
+		SymbolTracker tracker = buildTracker();
+		StatementCNF definitions = StatementCNF.fromInfixStringWithDefinitions( "Dead(Adam) <=> (Living(Adam) <=> (Person(Adam) <=> Heart(Adam)))" , tracker );
+		StatementCNF skolem = StatementCNF.fromInfixString( "FORALL(x) Person(x) => (EXISTS(y) Heart(y) AND PartOf(y,x))" , tracker );
+		String filename = folder.newFile().getPath();
+		ClauseSetFile.write( filename , tracker , definitions , skolem );
+
+		//reading the clauses into the tracker that wrote them, twice,
+		//should not reuse any of its variables, skolem functions or
+		//definitions
+		KnowledgeBase kb = new KnowledgeBase( tracker );
+		int numClauses = definitions.getDisjunctions().size() + skolem.getDisjunctions().size();
+		Assert.assertEquals( numClauses , ClauseSetFile.read( filename , kb ) );
+		Assert.assertEquals( numClauses , ClauseSetFile.read( filename , kb ) );
+		List< Disjunction > clauses = kb.getClauses();
+		Set< String > original = systemNames( definitions.getDisjunctions().toString() + skolem.getDisjunctions().toString() );
+		Set< String > first = systemNames( clauses.subList( 0 , numClauses ).toString() );
+		Set< String > second = systemNames( clauses.subList( numClauses , 2*numClauses ).toString() );
+		Assert.assertFalse( first.isEmpty() );
+		Assert.assertEquals( first.size() , second.size() );
+		for ( String name : first ) {
+			Assert.assertFalse( name , original.contains( name ) || second.contains( name ) );
+		}
+		Assert.assertEquals( canonical( clauses.subList( 0 , numClauses ) ) , canonical( clauses.subList( numClauses , 2*numClauses ) ) );
+	}
+
+	@Test
+	public void testNumbersAndBooleans() throws IOException {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "GreaterThan" , "Holds" );
+		StatementCNF statement = StatementCNF.fromInfixString( "GreaterThan(2, 1.5) AND Holds(True) AND !Holds(F)" , tracker );
+		String filename = folder.newFile().getPath();
+		ClauseSetFile.write( filename , tracker , statement );
+		SymbolTracker tracker2 = new SymbolTracker();
+		KnowledgeBase kb = new KnowledgeBase( tracker2 );
+		ClauseSetFile.read( filename , kb );
+		Assert.assertEquals( statement.getDisjunctions() , kb.getClauses() );
+		Assert.assertNull( tracker2.parseConstant( "2" ) );
+	}
+
+	@Test
+	public void testUserVariables() throws IOException {
+		SymbolTracker tracker = buildTracker();
+		Variable x = tracker.getOrCreateVariable( "x" );
+		x.setUniversallyQuantified( true );
+		Disjunction d = new Disjunction( tracker.parseFunction( "Person" ).withNumArgs( 1 ) , new Disjunction.Term[] { new Disjunction.Term( x ) } );
+		String filename = folder.newFile().getPath();
+		ClauseSetFile.write( filename , tracker , new StatementCNF( null , Arrays.asList( d ) ) );
+
+		//a new tracker is given the variable as it was written, and
+		//a tracker that already agrees with the file shares its variable
+		SymbolTracker tracker2 = new SymbolTracker();
+		ClauseSetFile.read( filename , new KnowledgeBase( tracker2 ) );
+		Assert.assertTrue( tracker2.getVariableByName( "x" ).universallyQuantified() );
+		KnowledgeBase kb = new KnowledgeBase( tracker );
+		ClauseSetFile.read( filename , kb );
+		Assert.assertEquals( Arrays.asList( d ) , kb.getClauses() );
+
+		//a tracker that disagrees with the file keeps its variable
+		//as it was and doesn't read the file
+		SymbolTracker tracker3 = new SymbolTracker();
+		Variable other = tracker3.getOrCreateVariable( "x" );
+		try {
+			ClauseSetFile.read( filename , new KnowledgeBase( tracker3 ) );
+			Assert.fail( "Reading a variable that conflicts with the tracker's should fail." );
+		}
+		catch ( IllegalArgumentException e ) {
+			//expected
+		}
+		Assert.assertFalse( other.universallyQuantified() );
+	}
+
+	@Test
+	public void testCorruptedFile() throws IOException {
+		SymbolTracker tracker = buildTracker();
+		File file = folder.newFile();
+		ClauseSetFile.write( file.getPath() , buildKB( tracker ) );
+		byte[] bytes = Files.readAllBytes( file.toPath() );
+
+		//a truncated file
+		Files.write( file.toPath() , Arrays.copyOf( bytes , bytes.length-3 ) );
+		try {
+			ClauseSetFile.read( file.getPath() , new KnowledgeBase( new SymbolTracker() ) );
+			Assert.fail( "Reading a truncated file should fail." );
+		}
+		catch ( IllegalArgumentException e ) {
+			//expected
+		}
+
+		//a file that isn't a clause set
+		Files.write( file.toPath() , "FUNCTION: Cat".getBytes( "UTF-8" ) );
+		try {
+			ClauseSetFile.read( file.getPath() , new KnowledgeBase( new SymbolTracker() ) );
+			Assert.fail( "Reading a text file should fail." );
+		}
+		catch ( IllegalArgumentException e ) {
+			//expected
+		}
+	}
+}
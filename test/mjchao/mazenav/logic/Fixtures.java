@@ -0,0 +1,142 @@
+package mjchao.mazenav.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mjchao.mazenav.logic.structures.SymbolTracker;
+
+/**
+ * The knowledgebases that are shared by several test suites. The
+ * benchmarks grow the same knowledgebases, so this class is packaged
+ * into the test jar and must not depend on JUnit or the other tests.
+ *
+ * @author mjchao
+ *
+ */
+class Fixtures {
+
+	/**
+	 * The crime example used by Russell and Norvig on page 330-331
+	 */
+	static final String[] CRIME = {
+		"American(x) AND Weapon(y) AND Sells(x,y,z) AND Hostile(z) => Criminal(x)" ,
+		"Owns(Nono,M1)" ,
+		"Missile(M1)" ,
+		"Missile(x) AND Owns(Nono,x) => Sells(West,x,Nono)" ,
+		"Missile(x) => Weapon(x)" ,
+		"Enemy(x, America) => Hostile(x)" ,
+		"American(West)" ,
+		"Enemy(Nono, America)"
+	};
+
+	/**
+	 * The curiosity example used by Russell and Norvig on page 348-349
+	 */
+	static final String[] CURIOSITY = {
+		"FORALL(x)(FORALL(y) Animal(y) => Loves(x,y)) => (EXISTS(y) Loves(y,x))" ,
+		"FORALL(x)(EXISTS(z) Animal(z) AND Kills(x,z)) => (FORALL(y) !Loves(y,x))" ,
+		"FORALL(x) Animal(x) => Loves(Jack, x)" ,
+		"Kills(Jack, Tuna) OR Kills(Curiosity, Tuna)" ,
+		"Cat(Tuna)" ,
+		"FORALL(x) Cat(x) => Animal(x)"
+	};
+
+	/**
+	 * Definite rules from which infinitely many facts follow:
+	 * Nat(Succ(Zero)), Nat(Succ(Succ(Zero))), ... and Even(Zero),
+	 * Even(Succ(Succ(Zero))), ...
+	 */
+	static final String[] NATURALS = {
+		"Nat(Zero)" ,
+		"Nat(x) => Nat(Succ(x))" ,
+		"Even(Zero)" ,
+		"Even(x) => Even(Succ(Succ(x)))"
+	};
+
+	/**
+	 * A cave of squares A-B-C-D that are adjacent both ways,
+	 * and a square E that can't be reached from them
+	 */
+	static final String[] CAVE = {
+		"Adjacent(A,B)" , "Adjacent(B,A)" ,
+		"Adjacent(B,C)" , "Adjacent(C,B)" ,
+		"Adjacent(C,D)" , "Adjacent(D,C)"
+	};
+
+	/**
+	 * @return		a tracker that knows America is a constant, so every
+	 * 				statement of the crime example is a definite clause.
+	 * 				With <code>ResolverTest.Integration1.buildTracker()</code>
+	 * 				America is a variable instead, and the example has to
+	 * 				be proved by resolution
+	 */
+	static SymbolTracker crimeTracker() {
+		SymbolTracker rtn = new SymbolTracker();
+		rtn.addConstants( "Nono" , "M1" , "West" , "America" );
+		rtn.addFunctions( "American" , "Missile" , "Weapon" , "Sells" ,
+				"Hostile" , "Criminal" , "Owns" , "Enemy" );
+		return rtn;
+	}
+
+	static SymbolTracker curiosityTracker() {
+		SymbolTracker rtn = new SymbolTracker();
+		rtn.addConstants( "Jack" , "Curiosity" , "Tuna" );
+		rtn.addFunctions( "Animal" , "Loves" , "Kills" , "Cat" );
+		return rtn;
+	}
+
+	/**
+	 * @return		a tracker that also knows Odd, which
+	 * 				never follows from the naturals
+	 */
+	static SymbolTracker naturalsTracker() {
+		SymbolTracker rtn = new SymbolTracker();
+		rtn.addFunctions( "Nat" , "Succ" , "Even" , "Odd" );
+		rtn.addConstants( "Zero" );
+		return rtn;
+	}
+
+	static SymbolTracker caveTracker() {
+		SymbolTracker rtn = new SymbolTracker();
+		rtn.addFunctions( "Adjacent" , "Reachable" , "Path" );
+		rtn.addConstants( "A" , "B" , "C" , "D" , "E" );
+		return rtn;
+	}
+
+	static StatementCNF[] crime( SymbolTracker tracker ) {
+		return parse( CRIME , tracker );
+	}
+
+	static StatementCNF[] curiosity( SymbolTracker tracker ) {
+		return parse( CURIOSITY , tracker );
+	}
+
+	static StatementCNF[] naturals( SymbolTracker tracker ) {
+		return parse( NATURALS , tracker );
+	}
+
+	/**
+	 * @param tracker
+	 * @return		the cave, to which the tests add their own rules
+	 */
+	static List< StatementCNF > cave( SymbolTracker tracker ) {
+		List< StatementCNF > rtn = new ArrayList< StatementCNF >();
+		for ( StatementCNF s : parse( CAVE , tracker ) ) {
+			rtn.add( s );
+		}
+		return rtn;
+	}
+
+	/**
+	 * @param infix
+	 * @param tracker
+	 * @return			the given statements, converted to CNF
+	 */
+	static StatementCNF[] parse( String[] infix , SymbolTracker tracker ) {
+		StatementCNF[] rtn = new StatementCNF[ infix.length ];
+		for ( int i=0 ; i<infix.length ; ++i ) {
+			rtn[ i ] = StatementCNF.fromInfixString( infix[ i ] , tracker );
+		}
+		return rtn;
+	}
+}
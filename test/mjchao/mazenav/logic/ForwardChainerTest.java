@@ -0,0 +1,136 @@
+package mjchao.mazenav.logic;
+
+import java.util.concurrent.TimeUnit;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+import mjchao.mazenav.logic.structures.SymbolTracker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ForwardChainerTest {
+
+	private static Disjunction clause( String infix , SymbolTracker tracker ) {
+		return StatementCNF.fromInfixString( infix , tracker ).getDisjunctions().get( 0 );
+	}
+
+	@Test
+	public void testIsDefinite() {
+		SymbolTracker tracker = ResolverTest.Integration1.buildTracker();
+		Assert.assertTrue( ForwardChainer.isDefinite( clause( "Missile(x) => Weapon(x)" , tracker ) ) );
+		Assert.assertTrue( ForwardChainer.isDefinite( clause( "Missile(M1)" , tracker ) ) );
+		Assert.assertTrue( ForwardChainer.isDefinite( clause( "Missile(x) AND Owns(Nono,x) => Sells(West,x,Nono)" , tracker ) ) );
+		Assert.assertFalse( ForwardChainer.isDefinite( clause( "Missile(x) OR Weapon(x)" , tracker ) ) );
+		Assert.assertFalse( ForwardChainer.isDefinite( clause( "!Missile(M1)" , tracker ) ) );
+
+		//every variable of the head has to appear in the body, or
+		//the derived facts would not be ground
+		Assert.assertFalse( ForwardChainer.isDefinite( clause( "Missile(x)" , tracker ) ) );
+		Assert.assertFalse( ForwardChainer.isDefinite( clause( "Missile(x) => Sells(West,x,y)" , tracker ) ) );
+	}
+
+	@Test
+	public void testIsGroundFacts() {
+		SymbolTracker tracker = ResolverTest.Integration1.buildTracker();
+		Assert.assertTrue( ForwardChainer.isGroundFacts( StatementCNF.fromInfixString( "Criminal(West)" , tracker ).getDisjunctions() ) );
+		Assert.assertTrue( ForwardChainer.isGroundFacts( StatementCNF.fromInfixString( "Weapon(M1) AND (Criminal(West) OR Hostile(Nono))" , tracker ).getDisjunctions() ) );
+		Assert.assertFalse( ForwardChainer.isGroundFacts( StatementCNF.fromInfixString( "Criminal(x)" , tracker ).getDisjunctions() ) );
+		Assert.assertFalse( ForwardChainer.isGroundFacts( StatementCNF.fromInfixString( "!Criminal(West)" , tracker ).getDisjunctions() ) );
+	}
+
+	@Test
+	public void testCrime() {
+		SymbolTracker tracker = Fixtures.crimeTracker();
+		StatementCNF[] statements = Fixtures.crime( tracker );
+		KnowledgeBase kb = new KnowledgeBase( tracker , statements );
+		String[] hypotheses = new String[] {
+			"Criminal(West)" , "Criminal(Nono)" , "Weapon(M1)" , "Hostile(Nono)" , "Hostile(West)" ,
+			"Sells(West, M1, Nono)" , "Criminal(West) AND Weapon(M1)" , "Criminal(Nono) OR Hostile(Nono)"
+		};
+		for ( String hypothesis : hypotheses ) {
+			StatementCNF h = StatementCNF.fromInfixString( hypothesis , tracker );
+			boolean expected = Resolver.proveHypothesisGivenClause( tracker , h , statements );
+			Assert.assertEquals( hypothesis , expected , kb.ask( h ) );
+		}
+	}
+
+	@Test
+	public void testTellAfterAsk() {
+		SymbolTracker tracker = Fixtures.crimeTracker();
+		KnowledgeBase kb = new KnowledgeBase( tracker );
+		kb.tell( StatementCNF.fromInfixString( "American(x) AND Weapon(y) AND Sells(x,y,z) AND Hostile(z) => Criminal(x)" , tracker ) );
+		kb.tell( StatementCNF.fromInfixString( "American(West)" , tracker ) );
+		kb.tell( StatementCNF.fromInfixString( "Sells(West, M1, Nono)" , tracker ) );
+		Assert.assertFalse( kb.ask( StatementCNF.fromInfixString( "Criminal(West)" , tracker ) ) );
+
+		//rules told after a query are joined with the facts that were
+		//already processed
+		kb.tell( StatementCNF.fromInfixString( "Missile(x) => Weapon(x)" , tracker ) );
+		kb.tell( StatementCNF.fromInfixString( "Enemy(x, America) => Hostile(x)", tracker ) );
+		kb.tell( StatementCNF.fromInfixString( "Missile(M1)" , tracker) );
+		Assert.assertFalse( kb.ask( StatementCNF.fromInfixString( "Criminal(West)" , tracker ) ) );
+		kb.tell( StatementCNF.fromInfixString( "Enemy(Nono, America)" , tracker ) );
+		Assert.assertTrue( kb.ask( StatementCNF.fromInfixString( "Criminal(West)" , tracker ) ) );
+
+		//once a clause that isn't definite is told, the knowledgebase
+		//has to be resolved instead
+		kb.tell( StatementCNF.fromInfixString( "!Criminal(West) OR Owns(West, M1) OR Owns(Nono, West)" , tracker ) );
+		Assert.assertTrue( kb.ask( StatementCNF.fromInfixString( "Owns(West, M1) OR Owns(Nono, West)" , tracker ) ) );
+	}
+
+	@Test
+	public void testGroundRules() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "Safe" , "Visited" , "Breeze" );
+		ForwardChainer chainer = new ForwardChainer();
+		ProofMetrics metrics = new ProofMetrics();
+		chainer.addClause( clause( "Visited(1,1) AND Visited(1,2) => Safe(2,1)" , tracker ) , metrics );
+		chainer.addClause( clause( "Safe(2,1) AND Safe(1,2) => Safe(2,2)" , tracker ) , metrics );
+		chainer.addClause( clause( "Visited(1,2) => Safe(1,2)" , tracker ) , metrics );
+		chainer.addClause( clause( "Visited(1,1)" , tracker ) , metrics );
+		StatementCNF safe = StatementCNF.fromInfixString( "Safe(2,2)" , tracker );
+		Assert.assertEquals( ProofResult.NOT_PROVED , chainer.prove( safe.getDisjunctions() , new ProofBudget() , metrics ) );
+		chainer.addClause( clause( "Visited(1,2)" , tracker ) , metrics );
+		Assert.assertEquals( ProofResult.PROVED , chainer.prove( safe.getDisjunctions() , new ProofBudget() , metrics ) );
+		Assert.assertTrue( chainer.isDerived( clause( "Safe(2,1)" , tracker ).getTerm( 0 ) ) );
+		Assert.assertFalse( chainer.isDerived( clause( "Breeze(2,1)" , tracker ).getTerm( 0 ) ) );
+
+		//each fact is derived once, no matter how many rules derive it
+		chainer.addClause( clause( "Visited(1,1) => Safe(2,1)" , tracker ) , metrics );
+		Assert.assertEquals( ProofResult.PROVED , chainer.prove( safe.getDisjunctions() , new ProofBudget() , metrics ) );
+		Assert.assertEquals( 5 , metrics.getClausesKept() );
+		Assert.assertTrue( metrics.getDuplicatesRejected() > 0 );
+	}
+
+	@Test
+	public void testInfiniteFacts() {
+		SymbolTracker tracker = Fixtures.naturalsTracker();
+		KnowledgeBase kb = new KnowledgeBase( tracker );
+		for ( StatementCNF statement : Fixtures.naturals( tracker ) ) {
+			kb.tell( statement );
+		}
+		Assert.assertTrue( kb.ask( StatementCNF.fromInfixString( "Nat(Succ(Succ(Zero)))" , tracker ) ) );
+		Assert.assertTrue( kb.ask( StatementCNF.fromInfixString( "Even(Succ(Succ(Succ(Succ(Zero)))))" , tracker ) ) );
+
+		//infinitely many facts follow, so a fact that doesn't follow is
+		//only given up on once the budget runs out
+		StatementCNF odd = StatementCNF.fromInfixString( "Even(Succ(Zero))" , tracker );
+		Assert.assertEquals( ProofResult.UNKNOWN , kb.ask( odd , new ProofBudget( 1 , TimeUnit.HOURS , 100 ) ) );
+		Assert.assertEquals( ProofResult.UNKNOWN , kb.ask( odd , new ProofBudget( 50 , TimeUnit.MILLISECONDS , Integer.MAX_VALUE ) ) );
+	}
+
+	@Test
+	public void testBudget() {
+		SymbolTracker tracker = Fixtures.crimeTracker();
+		KnowledgeBase kb = new KnowledgeBase( tracker , Fixtures.crime( tracker ) );
+		StatementCNF hypothesis = StatementCNF.fromInfixString( "Criminal(West)" , tracker );
+		ProofBudget budget = new ProofBudget();
+		budget.cancel();
+		Assert.assertEquals( ProofResult.UNKNOWN , kb.ask( hypothesis , budget ) );
+
+		//running out of budget should not prevent later proofs
+		ProofMetrics metrics = new ProofMetrics();
+		Assert.assertEquals( ProofResult.PROVED , kb.ask( hypothesis , new ProofBudget() , metrics ) );
+		Assert.assertTrue( metrics.getUnifySuccesses() > 0 );
+	}
+}
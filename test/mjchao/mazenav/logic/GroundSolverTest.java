@@ -0,0 +1,143 @@
+package mjchao.mazenav.logic;
+
+import java.util.concurrent.TimeUnit;
+
+import mjchao.mazenav.logic.structures.SymbolTracker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GroundSolverTest {
+
+	private static SymbolTracker buildWumpusTracker() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "Pit" , "Breeze" , "Wumpus" );
+		return tracker;
+	}
+
+	/**
+	 * The Wumpus World knowledgebase from Russell and Norvig page 246-247
+	 */
+	private static StatementCNF[] buildWumpusKB( SymbolTracker tracker ) {
+		return new StatementCNF[] {
+			StatementCNF.fromInfixString( "!Pit(1,1)" , tracker ) ,
+			StatementCNF.fromInfixString( "Breeze(1,1) <=> (Pit(1,2) OR Pit(2,1))" , tracker ) ,
+			StatementCNF.fromInfixString( "Breeze(2,1) <=> (Pit(1,1) OR Pit(2,2) OR Pit(3,1))" , tracker ) ,
+			StatementCNF.fromInfixString( "!Breeze(1,1)" , tracker ) ,
+			StatementCNF.fromInfixString( "Breeze(2,1)" , tracker )
+		};
+	}
+
+	/**
+	 * Builds a knowledgebase that says n+1 pigeons are each in one of n
+	 * holes and no two pigeons share a hole, which is unsatisfiable
+	 */
+	private static KnowledgeBase buildPigeonholeKB( SymbolTracker tracker , int numHoles ) {
+		KnowledgeBase rtn = new KnowledgeBase( tracker );
+		for ( int p=0 ; p<=numHoles ; ++p ) {
+			StringBuilder somewhere = new StringBuilder();
+			for ( int h=0 ; h<numHoles ; ++h ) {
+				somewhere.append( h == 0 ? "" : " OR " ).append( "In(" + p + "," + h + ")" );
+			}
+			rtn.tell( StatementCNF.fromInfixString( somewhere.toString() , tracker ) );
+		}
+		for ( int h=0 ; h<numHoles ; ++h ) {
+			for ( int p=0 ; p<=numHoles ; ++p ) {
+				for ( int q=p+1 ; q<=numHoles ; ++q ) {
+					rtn.tell( StatementCNF.fromInfixString( "!In(" + p + "," + h + ") OR !In(" + q + "," + h + ")" , tracker ) );
+				}
+			}
+		}
+		return rtn;
+	}
+
+	@Test
+	public void testIsGround() {
+		SymbolTracker tracker = buildWumpusTracker();
+		tracker.addConstants( "A" );
+		Assert.assertTrue( GroundSolver.isGround( StatementCNF.fromInfixString( "Pit(1,2) OR !Breeze(A, 2.5)" , tracker ).getDisjunctions() ) );
+		Assert.assertFalse( GroundSolver.isGround( StatementCNF.fromInfixString( "Pit(1,x)" , tracker ).getDisjunctions() ) );
+		Assert.assertFalse( GroundSolver.isGround( StatementCNF.fromInfixString( "EXISTS(x) Pit(x,1)" , tracker ).getDisjunctions() ) );
+		Assert.assertFalse( GroundSolver.isGround( StatementCNF.fromInfixString( "P OR Pit(1,1)" , tracker ).getDisjunctions() ) );
+	}
+
+	@Test
+	public void testLuby() {
+		int[] expected = { 1 , 1 , 2 , 1 , 1 , 2 , 4 , 1 , 1 , 2 , 1 , 1 , 2 , 4 , 8 , 1 };
+		for ( int i=0 ; i<expected.length ; ++i ) {
+			Assert.assertEquals( expected[ i ] , GroundSolver.luby( i ) );
+		}
+	}
+
+	@Test
+	public void testWumpus() {
+		SymbolTracker tracker = buildWumpusTracker();
+		StatementCNF[] statements = buildWumpusKB( tracker );
+		KnowledgeBase kb = new KnowledgeBase( tracker , statements );
+		String[] hypotheses = new String[] {
+			"!Pit(1,2)" , "!Pit(2,1)" , "Pit(2,2) OR Pit(3,1)" , "!Pit(1,2) AND !Pit(2,1)" ,
+			"Pit(2,2)" , "Pit(3,1)" , "!Pit(2,2)" , "Pit(1,2)" , "Wumpus(1,3)"
+		};
+		for ( String hypothesis : hypotheses ) {
+			StatementCNF h = StatementCNF.fromInfixString( hypothesis , tracker );
+			boolean expected = Resolver.proveHypothesisGivenClause( tracker , h , statements );
+			Assert.assertEquals( hypothesis , expected , kb.ask( h ) );
+			Assert.assertEquals( hypothesis , expected , Resolver.proveHypothesis( tracker , h , statements ) );
+		}
+
+		//the solver keeps what it learned, but each hypothesis
+		//only applies to its own query
+		Assert.assertTrue( kb.ask( StatementCNF.fromInfixString( "!Pit(1,2)" , tracker ) ) );
+		Assert.assertFalse( kb.ask( StatementCNF.fromInfixString( "Pit(2,2)" , tracker ) ) );
+
+		//statements told after a query are used by later queries
+		kb.tell( StatementCNF.fromInfixString( "!Pit(3,1)" , tracker ) );
+		Assert.assertTrue( kb.ask( StatementCNF.fromInfixString( "Pit(2,2)" , tracker ) ) );
+	}
+
+	@Test
+	public void testInconsistent() {
+		SymbolTracker tracker = buildWumpusTracker();
+		KnowledgeBase kb = new KnowledgeBase( tracker , buildWumpusKB( tracker ) );
+		Assert.assertFalse( kb.ask( StatementCNF.fromInfixString( "Wumpus(1,1)" , tracker ) ) );
+		kb.tell( StatementCNF.fromInfixString( "!Breeze(2,1) OR Pit(1,1)" , tracker ) );
+		Assert.assertTrue( kb.ask( StatementCNF.fromInfixString( "Wumpus(1,1)" , tracker ) ) );
+		Assert.assertTrue( kb.ask( StatementCNF.fromInfixString( "!Wumpus(1,1)" , tracker ) ) );
+	}
+
+	@Test
+	public void testNotGround() {
+		//once a clause with variables is told, the knowledgebase
+		//has to be resolved instead
+		SymbolTracker tracker = buildWumpusTracker();
+		KnowledgeBase kb = new KnowledgeBase( tracker , buildWumpusKB( tracker ) );
+		Assert.assertFalse( kb.ask( StatementCNF.fromInfixString( "Wumpus(1,2)" , tracker ) ) );
+		kb.tell( StatementCNF.fromInfixString( "FORALL(x) !Pit(x,2) => Wumpus(x,2)" , tracker ) );
+		Assert.assertTrue( kb.ask( StatementCNF.fromInfixString( "Wumpus(1,2)" , tracker ) ) );
+	}
+
+	@Test
+	public void testPigeonhole() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "In" , "Wumpus" );
+		KnowledgeBase kb = buildPigeonholeKB( tracker , 5 );
+		ProofMetrics metrics = new ProofMetrics();
+		Assert.assertEquals( ProofResult.PROVED , kb.ask( StatementCNF.fromInfixString( "Wumpus(1,1)" , tracker ) , new ProofBudget() , metrics ) );
+		Assert.assertTrue( metrics.getClausesGenerated() > 0 );
+	}
+
+	@Test
+	public void testBudget() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "In" , "Wumpus" );
+		StatementCNF hypothesis = StatementCNF.fromInfixString( "Wumpus(1,1)" , tracker );
+		KnowledgeBase kb = buildPigeonholeKB( tracker , 5 );
+		ProofBudget budget = new ProofBudget();
+		budget.cancel();
+		Assert.assertEquals( ProofResult.UNKNOWN , kb.ask( hypothesis , budget ) );
+		Assert.assertEquals( ProofResult.UNKNOWN , kb.ask( hypothesis , new ProofBudget( 1 , TimeUnit.HOURS , kb.size() + 2 ) ) );
+
+		//running out of budget should not prevent later proofs
+		Assert.assertEquals( ProofResult.PROVED , kb.ask( hypothesis , new ProofBudget() ) );
+	}
+}
@@ -0,0 +1,150 @@
+package mjchao.mazenav.logic;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+import mjchao.mazenav.logic.structures.SymbolTracker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KnowledgeBaseLoaderTest {
+
+	private static int load( String input , SymbolTracker tracker , KnowledgeBase kb , int numThreads ) throws IOException {
+		return new KnowledgeBaseLoader( tracker , numThreads ).load( new StringReader( input ) , "test" , kb );
+	}
+
+	/**
+	 * Builds a file of ground facts about a grid, with more
+	 * statements than fit in one batch
+	 */
+	private static String buildGrid( int size ) {
+		StringBuilder rtn = new StringBuilder();
+		rtn.append( "FUNCTION: Adjacent, Pit, Breeze\n" );
+		rtn.append( "STATEMENT: FORALL(x, y) Pit(x) AND Adjacent(x, y) => Breeze(y)\n" );
+		for ( int i=0 ; i<size ; ++i ) {
+			rtn.append( "CONSTANT: Sq" + i + "\n" );
+		}
+		for ( int i=0 ; i+1<size ; ++i ) {
+			rtn.append( "STATEMENT: Adjacent(Sq" + i + ", Sq" + (i+1) + ")\n" );
+			rtn.append( "STATEMENT: Adjacent(Sq" + (i+1) + ", Sq" + i + ")\n" );
+			rtn.append( "STATEMENT: " + (i % 7 == 0 ? "" : "!") + "Pit(Sq" + i + ")\n" );
+		}
+		return rtn.toString();
+	}
+
+	@Test
+	public void testLoadFile() throws IOException {
+		SymbolTracker tracker = new SymbolTracker();
+		KnowledgeBase kb = new KnowledgeBase( tracker );
+		int numStatements = new KnowledgeBaseLoader( tracker ).load( "test/mjchao/mazenav/logic/livingworld.txt" , kb );
+		Assert.assertEquals( 4 , numStatements );
+		Assert.assertEquals( 6 , kb.size() );
+		Assert.assertTrue( kb.ask( StatementCNF.fromInfixString( "Living(Adam)" , tracker ) ) );
+		Assert.assertFalse( kb.ask( StatementCNF.fromInfixString( "Dead(Adam)" , tracker ) ) );
+		Assert.assertFalse( kb.ask( StatementCNF.fromInfixString( "Living(Eve)" , tracker ) ) );
+	}
+
+	@Test
+	public void testDeclarationsApplyToLaterStatements() throws IOException {
+		SymbolTracker tracker = new SymbolTracker();
+		KnowledgeBase kb = new KnowledgeBase( tracker );
+		String input = "FUNCTION: Cat, Animal\n" +
+						"\n" +
+						"  # comments and blank lines are skipped\n" +
+						"STATEMENT: FORALL(x) Cat(x) => Animal(x)\n" +
+						"CONSTANT: Tuna\n" +
+						"STATEMENT: Cat(Tuna)\n";
+		Assert.assertEquals( 2 , load( input , tracker , kb , 1 ) );
+		Assert.assertEquals( 2 , kb.size() );
+		Assert.assertNotNull( tracker.parseConstant( "Tuna" ) );
+		Assert.assertTrue( kb.ask( StatementCNF.fromInfixString( "Animal(Tuna)" , tracker ) ) );
+	}
+
+	@Test
+	public void testThreadsAgree() throws IOException {
+		//converting on several threads should tell the knowledgebase
+		//the same clauses in the same order as one thread
+		String input = buildGrid( 500 );
+		SymbolTracker tracker1 = new SymbolTracker();
+		KnowledgeBase kb1 = new KnowledgeBase( tracker1 );
+		SymbolTracker tracker4 = new SymbolTracker();
+		KnowledgeBase kb4 = new KnowledgeBase( tracker4 );
+		Assert.assertEquals( 1 + 3*499 , load( input , tracker1 , kb1 , 1 ) );
+		Assert.assertEquals( 1 + 3*499 , load( input , tracker4 , kb4 , 4 ) );
+		Assert.assertTrue( 3*499 > 2*KnowledgeBaseLoader.BATCH_SIZE );
+
+		List< Disjunction > clauses1 = kb1.buildRefutationClauses( StatementCNF.fromInfixString( "Breeze(Sq2)" , tracker1 ) );
+		List< Disjunction > clauses4 = kb4.buildRefutationClauses( StatementCNF.fromInfixString( "Breeze(Sq2)" , tracker4 ) );
+		Assert.assertEquals( clauses1.size() , clauses4.size() );
+		for ( int i=0 ; i<clauses1.size() ; ++i ) {
+			Assert.assertEquals( clauses1.get( i ).toString() , clauses4.get( i ).toString() );
+		}
+		Assert.assertTrue( kb4.ask( StatementCNF.fromInfixString( "Breeze(Sq1)" , tracker4 ) ) );
+		Assert.assertFalse( kb4.ask( StatementCNF.fromInfixString( "Breeze(Sq3)" , tracker4 ) ) );
+	}
+
+	/**
+	 * @return		what the variable in the only clause about the
+	 * 				given predicate is standardized to
+	 */
+	private static String variableOf( List< Disjunction > clauses , String predicate ) {
+		String rtn = null;
+		for ( Disjunction d : clauses ) {
+			String clause = d.toString();
+			int start = clause.indexOf( predicate + "(" );
+			if ( start >= 0 ) {
+				Assert.assertNull( "More than one clause about " + predicate , rtn );
+				start += predicate.length() + 1;
+				rtn = clause.substring( start , clause.indexOf( ")" , start ) );
+			}
+		}
+		return rtn;
+	}
+
+	@Test
+	public void testFreeVariablesAcrossBatches() throws IOException {
+		//a free variable refers to the same variable in every
+		//statement, even when they are converted by different threads
+		String input = "FUNCTION: Cat, Animal\n" +
+						"STATEMENT: Cat(x)\n" +
+						buildGrid( 300 ) +
+						"STATEMENT: Animal(x)\n";
+		for ( int numThreads : new int[] { 1 , 3 } ) {
+			SymbolTracker tracker = new SymbolTracker();
+			KnowledgeBase kb = new KnowledgeBase( tracker );
+			Assert.assertEquals( 3 + 3*299 , load( input , tracker , kb , numThreads ) );
+			List< Disjunction > clauses = kb.buildRefutationClauses( StatementCNF.fromInfixString( "Breeze(Sq2)" , tracker ) );
+			Assert.assertNotNull( variableOf( clauses , "Cat" ) );
+			Assert.assertEquals( variableOf( clauses , "Cat" ) , variableOf( clauses , "Animal" ) );
+		}
+	}
+
+	@Test
+	public void testInvalidStatement() throws IOException {
+		String input = buildGrid( 100 ) + "STATEMENT: Pit(Sq1) AND\n" + buildGrid( 100 );
+		for ( int numThreads : new int[] { 1 , 3 } ) {
+			SymbolTracker tracker = new SymbolTracker();
+			try {
+				load( input , tracker , new KnowledgeBase( tracker ) , numThreads );
+				Assert.fail( "Loading an invalid statement should fail." );
+			}
+			catch ( IllegalArgumentException e ) {
+				Assert.assertTrue( e.getMessage() , e.getMessage().contains( "line 400" ) );
+			}
+		}
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testUndefinedType() throws IOException {
+		SymbolTracker tracker = new SymbolTracker();
+		load( "FUNCTION: Cat\nRELATION: Likes\n" , tracker , new KnowledgeBase( tracker ) , 1 );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testInvalidNumThreads() {
+		new KnowledgeBaseLoader( new SymbolTracker() , 0 );
+	}
+}
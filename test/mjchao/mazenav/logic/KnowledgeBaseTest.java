@@ -0,0 +1,164 @@
+package mjchao.mazenav.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import mjchao.mazenav.logic.structures.SymbolTracker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KnowledgeBaseTest {
+
+	private static SymbolTracker buildTracker() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "Person" , "Heart" , "PartOf" , "Living" , "Dead" );
+		tracker.addConstants( "Adam" , "Eve" );
+		return tracker;
+	}
+
+	@Test
+	public void testAskMultipleHypotheses() {
+		//the same knowledgebase should be reusable for many queries
+		SymbolTracker tracker = buildTracker();
+		KnowledgeBase kb = new KnowledgeBase( tracker ,
+				StatementCNF.fromInfixString( "FORALL(x) Person(x) => (EXISTS(y) Heart(y) AND PartOf(y,x))" , tracker ) ,
+				StatementCNF.fromInfixString( "EXISTS(x) Heart(x) AND PartOf(x,y) => Living(y)" , tracker ) ,
+				StatementCNF.fromInfixString( "Person(Adam)" , tracker ) ,
+				StatementCNF.fromInfixString( "Dead(x) <=> !Living(x)", tracker ) );
+		Assert.assertEquals( 6 , kb.size() );
+		for ( int i=0 ; i<3 ; ++i ) {
+			Assert.assertTrue( kb.ask( StatementCNF.fromInfixString( "Living(Adam)" , tracker ) ) );
+			Assert.assertFalse( kb.ask( StatementCNF.fromInfixString( "Dead(Adam)" , tracker ) ) );
+			Assert.assertFalse( kb.ask( StatementCNF.fromInfixString( "Living(Eve)" , tracker ) ) );
+		}
+	}
+
+	@Test
+	public void testTellAfterAsk() {
+		//statements told after a query should be used by later queries
+		SymbolTracker tracker = buildTracker();
+		KnowledgeBase kb = new KnowledgeBase( tracker ,
+				StatementCNF.fromInfixString( "FORALL(x) Person(x) => Living(x)" , tracker ) );
+		Assert.assertFalse( kb.ask( StatementCNF.fromInfixString( "Living(Eve)" , tracker ) ) );
+		kb.tell( StatementCNF.fromInfixString( "Person(Eve)" , tracker ) );
+		Assert.assertTrue( kb.ask( StatementCNF.fromInfixString( "Living(Eve)" , tracker ) ) );
+		Assert.assertFalse( kb.ask( StatementCNF.fromInfixString( "Living(Adam)" , tracker ) ) );
+	}
+
+	@Test
+	public void testAgreesWithProveHypothesis() {
+		//asking the knowledgebase should give the same results as
+		//converting the whole knowledgebase on every query
+		SymbolTracker tracker = ResolverTest.Integration2.buildTracker();
+		StatementCNF[] statements = new StatementCNF[] {
+			StatementCNF.fromInfixString( "FORALL(x)(FORALL(y) Animal(y) => Loves(x,y)) => (EXISTS(y) Loves(y,x))" , tracker ) ,
+			StatementCNF.fromInfixString( "FORALL(x)(EXISTS(z) Animal(z) AND Kills(x,z)) => (FORALL(y) !Loves(y,x))", tracker ) ,
+			StatementCNF.fromInfixString( "FORALL(x) Animal(x) => Loves(Jack, x)" , tracker ) ,
+			StatementCNF.fromInfixString( "Kills(Jack, Tuna) OR Kills(Curiosity, Tuna)" , tracker ) ,
+			StatementCNF.fromInfixString( "Cat(Tuna)" , tracker ),
+			StatementCNF.fromInfixString( "FORALL(x) Cat(x) => Animal(x)" , tracker )
+		};
+		KnowledgeBase kb = new KnowledgeBase( tracker , statements );
+		String[] hypotheses = new String[] { "Kills(Curiosity, Tuna)" , "Animal(Tuna)" , "Cat(Jack)" };
+		for ( String hypothesis : hypotheses ) {
+			StatementCNF h = StatementCNF.fromInfixString( hypothesis , tracker );
+			boolean expected = Resolver.applyResolution( tracker , Resolver.buildRefutationStatement( tracker , h , statements ) , h );
+			Assert.assertEquals( expected , kb.ask( h ) );
+		}
+	}
+
+	@Test
+	public void testTellOneFactPerStep() {
+		//resolvents kept from earlier queries should not change the
+		//results of queries after each new statement is told
+		SymbolTracker tracker = buildTracker();
+		String[] facts = new String[] {
+			"FORALL(x) Person(x) => (EXISTS(y) Heart(y) AND PartOf(y,x))" ,
+			"Person(Adam)" ,
+			"EXISTS(x) Heart(x) AND PartOf(x,y) => Living(y)" ,
+			"Person(Eve)" ,
+			"Dead(x) <=> !Living(x)"
+		};
+		String[] hypotheses = new String[] { "Living(Adam)" , "Living(Eve)" , "Dead(Eve)" , "Person(Eve)" };
+		List< StatementCNF > told = new ArrayList< StatementCNF >();
+		KnowledgeBase kb = new KnowledgeBase( tracker );
+		for ( String fact : facts ) {
+			StatementCNF statement = StatementCNF.fromInfixString( fact , tracker );
+			kb.tell( statement );
+			told.add( statement );
+			StatementCNF[] statements = told.toArray( new StatementCNF[ told.size() ] );
+			for ( String hypothesis : hypotheses ) {
+				StatementCNF h = StatementCNF.fromInfixString( hypothesis , tracker );
+				boolean expected = Resolver.applyResolution( tracker , Resolver.buildRefutationStatement( tracker , h , statements ) , h );
+				Assert.assertEquals( fact + " |- " + hypothesis , expected , kb.ask( h ) );
+			}
+		}
+	}
+
+	@Test
+	public void testRepeatedAsks() {
+		//infinitely many clauses follow from the knowledgebase, so
+		//asking the same hypothesis again should not do any more work.
+		//the first query also resolves the knowledgebase's own clauses
+		//with each other, which later queries don't do again
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "Nat" , "Succ" , "Even" );
+		tracker.addConstants( "Zero" );
+		KnowledgeBase kb = new KnowledgeBase( tracker ,
+				StatementCNF.fromInfixString( "FORALL(x) Nat(x) => Nat(Succ(x))" , tracker ) ,
+				StatementCNF.fromInfixString( "FORALL(x) Nat(x) => Nat(Succ(Succ(x)))" , tracker ) ,
+				StatementCNF.fromInfixString( "Nat(Zero) OR Even(Zero)" , tracker ) );
+		StatementCNF hypothesis = StatementCNF.fromInfixString( "Nat(Succ(Succ(Zero))) OR Even(Zero)" , tracker );
+		long firstGenerated = -1;
+		long secondGenerated = -1;
+		for ( int i=0 ; i<10 ; ++i ) {
+			ProofMetrics metrics = new ProofMetrics();
+			ProofBudget budget = new ProofBudget( 10 , TimeUnit.SECONDS , Integer.MAX_VALUE );
+			Assert.assertEquals( ProofResult.PROVED , kb.ask( hypothesis , budget , metrics ) );
+			if ( firstGenerated < 0 ) {
+				firstGenerated = metrics.getClausesGenerated();
+			}
+			else if ( secondGenerated < 0 ) {
+				secondGenerated = metrics.getClausesGenerated();
+				Assert.assertTrue( secondGenerated <= firstGenerated );
+			}
+			else {
+				Assert.assertEquals( secondGenerated , metrics.getClausesGenerated() );
+			}
+		}
+	}
+
+	@Test
+	public void testTellOnlyAddsNewClauses() {
+		//the clauses that queries share are kept after a statement is
+		//told, so only the new clause is factored. it doesn't resolve
+		//with anything, so the query does the same work as before
+		SymbolTracker tracker = ResolverTest.Integration1.buildTracker();
+		KnowledgeBase kb = new KnowledgeBase( tracker ,
+				StatementCNF.fromInfixString( "Missile(M1) OR Enemy(Nono, West)" , tracker ) ,
+				StatementCNF.fromInfixString( "Missile(x) => Weapon(x)" , tracker ) );
+		StatementCNF hypothesis = StatementCNF.fromInfixString( "Weapon(M1) OR Enemy(Nono, West)" , tracker );
+		Assert.assertTrue( kb.ask( hypothesis ) );
+		kb.tell( StatementCNF.fromInfixString( "Owns(Nono, M1)" , tracker ) );
+		ProofMetrics afterTell = new ProofMetrics();
+		ProofMetrics again = new ProofMetrics();
+		Assert.assertTrue( kb.ask( hypothesis , afterTell ) );
+		Assert.assertTrue( kb.ask( hypothesis , again ) );
+		Assert.assertEquals( again.getFactorCalls() + 1 , afterTell.getFactorCalls() );
+		Assert.assertEquals( again.getClausesGenerated() , afterTell.getClausesGenerated() );
+	}
+
+	@Test
+	public void testContradictoryKnowledgebase() {
+		//anything follows from a knowledgebase that contradicts itself
+		SymbolTracker tracker = buildTracker();
+		KnowledgeBase kb = new KnowledgeBase( tracker ,
+				StatementCNF.fromInfixString( "Living(Adam)" , tracker ) );
+		Assert.assertFalse( kb.ask( StatementCNF.fromInfixString( "Dead(Eve)" , tracker ) ) );
+		kb.tell( StatementCNF.fromInfixString( "!Living(Adam)" , tracker ) );
+		Assert.assertTrue( kb.ask( StatementCNF.fromInfixString( "Dead(Eve)" , tracker ) ) );
+		Assert.assertTrue( kb.ask( StatementCNF.fromInfixString( "Living(Eve)" , tracker ) ) );
+	}
+}
@@ -0,0 +1,105 @@
+package mjchao.mazenav.logic;
+
+import java.util.concurrent.TimeUnit;
+
+import mjchao.mazenav.logic.structures.SymbolTracker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProofBudgetTest {
+
+	@Test
+	public void testUnlimited() {
+		SymbolTracker tracker = ResolverTest.Integration2.buildTracker();
+		KnowledgeBase kb = new KnowledgeBase( tracker ,
+				StatementCNF.fromInfixString( "FORALL(x) Cat(x) => Animal(x)" , tracker ) ,
+				StatementCNF.fromInfixString( "Cat(Tuna)" , tracker ) );
+		Assert.assertEquals( ProofResult.PROVED , kb.ask( StatementCNF.fromInfixString( "Animal(Tuna)" , tracker ) , new ProofBudget() ) );
+		Assert.assertEquals( ProofResult.NOT_PROVED , kb.ask( StatementCNF.fromInfixString( "Animal(Jack)" , tracker ) , new ProofBudget() ) );
+	}
+
+	@Test
+	public void testClauseLimit() {
+		SymbolTracker tracker = Fixtures.curiosityTracker();
+		StatementCNF[] statements = Fixtures.curiosity( tracker );
+		KnowledgeBase kb = new KnowledgeBase( tracker , statements );
+		ProofBudget budget = new ProofBudget( 1 , TimeUnit.HOURS , kb.size() + 1 );
+		StatementCNF hypothesis = StatementCNF.fromInfixString( "Kills(Curiosity, Tuna)" , tracker );
+		Assert.assertEquals( ProofResult.UNKNOWN , kb.ask( hypothesis , budget ) );
+
+		//running out of budget should not prevent later proofs
+		Assert.assertEquals( ProofResult.PROVED , kb.ask( hypothesis , new ProofBudget() ) );
+		Assert.assertEquals( ProofResult.PROVED , Resolver.proveHypothesis( tracker , hypothesis , new ProofBudget() , statements ) );
+	}
+
+	@Test
+	public void testClauseLimitOnlyCountsProof() {
+		//infinitely many clauses follow from the knowledgebase alone, but
+		//only the few clauses that the proof needs count towards the limit
+		SymbolTracker tracker = Fixtures.naturalsTracker();
+		KnowledgeBase kb = new KnowledgeBase( tracker ,
+				StatementCNF.fromInfixString( "FORALL(x) Nat(x) => Nat(Succ(x))" , tracker ) ,
+				StatementCNF.fromInfixString( "FORALL(x) Nat(x) => Nat(Succ(Succ(x)))" , tracker ) ,
+				StatementCNF.fromInfixString( "Nat(Zero) OR Even(Zero)" , tracker ) );
+		StatementCNF hypothesis = StatementCNF.fromInfixString( "Nat(Succ(Zero)) OR Even(Zero)" , tracker );
+		for ( int i=0 ; i<3 ; ++i ) {
+			ProofBudget budget = new ProofBudget( 10 , TimeUnit.SECONDS , 10*kb.size() );
+			Assert.assertEquals( ProofResult.PROVED , kb.ask( hypothesis , budget ) );
+		}
+	}
+
+	@Test
+	public void testDeadline() {
+		SymbolTracker tracker = Fixtures.naturalsTracker();
+		KnowledgeBase kb = new KnowledgeBase( tracker , Fixtures.naturals( tracker ) );
+		long start = System.nanoTime();
+		ProofBudget budget = new ProofBudget( 200 , TimeUnit.MILLISECONDS , Integer.MAX_VALUE );
+		Assert.assertEquals( ProofResult.UNKNOWN , kb.ask( StatementCNF.fromInfixString( "Odd(Zero)" , tracker ) , budget ) );
+		Assert.assertTrue( System.nanoTime() - start < TimeUnit.SECONDS.toNanos( 10 ) );
+
+		//a provable hypothesis should still be proved even though
+		//infinitely many clauses follow from the knowledgebase
+		ProofBudget budget2 = new ProofBudget( 10 , TimeUnit.SECONDS , Integer.MAX_VALUE );
+		Assert.assertEquals( ProofResult.PROVED , kb.ask( StatementCNF.fromInfixString( "Nat(Succ(Succ(Zero)))" , tracker ) , budget2 ) );
+		Assert.assertTrue( kb.ask( StatementCNF.fromInfixString( "Nat(Succ(Succ(Succ(Zero))))" , tracker ) ) );
+	}
+
+	@Test
+	public void testCancel() throws InterruptedException {
+		SymbolTracker tracker = Fixtures.naturalsTracker();
+		final KnowledgeBase kb = new KnowledgeBase( tracker , Fixtures.naturals( tracker ) );
+		final StatementCNF hypothesis = StatementCNF.fromInfixString( "Odd(Zero)" , tracker );
+		final ProofBudget budget = new ProofBudget();
+		final ProofResult[] result = new ProofResult[ 1 ];
+		Thread prover = new Thread() {
+
+			@Override
+			public void run() {
+				result[ 0 ] = kb.ask( hypothesis , budget );
+			}
+		};
+		prover.start();
+		Thread.sleep( 100 );
+		budget.cancel();
+		prover.join( 10000 );
+		Assert.assertFalse( prover.isAlive() );
+		Assert.assertTrue( budget.isCancelled() );
+		Assert.assertEquals( ProofResult.UNKNOWN , result[ 0 ] );
+	}
+
+	@Test
+	public void testCancelledBeforeStart() {
+		SymbolTracker tracker = ResolverTest.Integration2.buildTracker();
+		KnowledgeBase kb = new KnowledgeBase( tracker ,
+				StatementCNF.fromInfixString( "Cat(Tuna)" , tracker ) );
+		ProofBudget budget = new ProofBudget();
+		budget.cancel();
+		Assert.assertEquals( ProofResult.UNKNOWN , kb.ask( StatementCNF.fromInfixString( "Cat(Tuna)" , tracker ) , budget ) );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testInvalidClauseLimit() {
+		new ProofBudget( 1 , TimeUnit.SECONDS , 0 );
+	}
+}
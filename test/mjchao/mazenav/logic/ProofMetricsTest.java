@@ -0,0 +1,103 @@
+package mjchao.mazenav.logic;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import mjchao.mazenav.logic.structures.SymbolTracker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProofMetricsTest {
+
+	@Test
+	public void testCountsProof() {
+		SymbolTracker tracker = ResolverTest.Integration1.buildTracker();
+		KnowledgeBase kb = new KnowledgeBase( tracker , Fixtures.crime( tracker ) );
+		ProofMetrics metrics = new ProofMetrics();
+		Assert.assertTrue( kb.ask( StatementCNF.fromInfixString( "Criminal(West)" , tracker ) , metrics ) );
+
+		ProofMetrics.Snapshot snapshot = metrics.snapshot();
+		Assert.assertEquals( 1 , snapshot.getProofs() );
+		Assert.assertTrue( snapshot.getRounds() > 0 );
+		Assert.assertTrue( snapshot.getUnifySuccesses() > 0 );
+		Assert.assertTrue( snapshot.getUnifyAttempts() >= snapshot.getUnifySuccesses() );
+		Assert.assertTrue( snapshot.getClausesKept() > 0 );
+		Assert.assertEquals( snapshot.getClausesGenerated() , snapshot.getClausesKept() +
+				snapshot.getDuplicatesRejected() + snapshot.getSubsumedRejected() );
+		Assert.assertTrue( snapshot.getFactorCalls() >= kb.size() );
+		Assert.assertTrue( snapshot.getConversionNanos() > 0 );
+		Assert.assertTrue( snapshot.getResolutionNanos() > 0 );
+
+		//the snapshot should not change after more proofs
+		Assert.assertFalse( kb.ask( StatementCNF.fromInfixString( "Criminal(Nono)" , tracker ) , metrics ) );
+		Assert.assertEquals( 1 , snapshot.getProofs() );
+		Assert.assertEquals( 2 , metrics.getProofs() );
+	}
+
+	@Test
+	public void testKnowledgeNotFactoredAgain() {
+		//the knowledgebase's clauses are only factored and resolved with
+		//each other by the first query, so later queries do less work
+		SymbolTracker tracker = ResolverTest.Integration1.buildTracker();
+		KnowledgeBase kb = new KnowledgeBase( tracker , Fixtures.crime( tracker ) );
+		ProofMetrics first = new ProofMetrics();
+		ProofMetrics second = new ProofMetrics();
+		ProofMetrics third = new ProofMetrics();
+		Assert.assertTrue( kb.ask( StatementCNF.fromInfixString( "Criminal(West)" , tracker ) , first ) );
+		Assert.assertTrue( kb.ask( StatementCNF.fromInfixString( "Criminal(West)" , tracker ) , second ) );
+		Assert.assertTrue( kb.ask( StatementCNF.fromInfixString( "Criminal(West)" , tracker ) , third ) );
+		Assert.assertTrue( first.getFactorCalls() >= second.getFactorCalls() + kb.size() );
+		Assert.assertTrue( first.getRounds() > second.getRounds() );
+		Assert.assertEquals( second.getFactorCalls() , third.getFactorCalls() );
+		Assert.assertEquals( second.getClausesGenerated() , third.getClausesGenerated() );
+	}
+
+	@Test
+	public void testTotals() {
+		SymbolTracker tracker = ResolverTest.Integration1.buildTracker();
+		KnowledgeBase kb = new KnowledgeBase( tracker , Fixtures.crime( tracker ) );
+		ProofMetrics.Snapshot before = ProofMetrics.totals();
+		ProofMetrics metrics = new ProofMetrics();
+		kb.ask( StatementCNF.fromInfixString( "Criminal(West)" , tracker ) , metrics );
+		ProofMetrics.Snapshot after = ProofMetrics.totals();
+		Assert.assertTrue( after.getProofs() >= before.getProofs() + 1 );
+		Assert.assertTrue( after.getRounds() >= before.getRounds() + metrics.getRounds() );
+	}
+
+	@Test
+	public void testReusedMetricsAddedToTotalsOnce() {
+		SymbolTracker tracker = ResolverTest.Integration1.buildTracker();
+		KnowledgeBase kb = new KnowledgeBase( tracker , Fixtures.crime( tracker ) );
+		ProofMetrics.Snapshot before = ProofMetrics.totals();
+		ProofMetrics metrics = new ProofMetrics();
+		for ( int i=0 ; i<3 ; ++i ) {
+			kb.ask( StatementCNF.fromInfixString( "Criminal(West)" , tracker ) , metrics );
+		}
+		ProofMetrics.Snapshot after = ProofMetrics.totals();
+		Assert.assertEquals( 3 , metrics.getProofs() );
+		Assert.assertEquals( metrics.getProofs() , after.getProofs() - before.getProofs() );
+		Assert.assertEquals( metrics.getRounds() , after.getRounds() - before.getRounds() );
+		Assert.assertEquals( metrics.getClausesGenerated() , after.getClausesGenerated() - before.getClausesGenerated() );
+		Assert.assertEquals( metrics.getResolutionNanos() , after.getResolutionNanos() - before.getResolutionNanos() );
+	}
+
+	@Test
+	public void testRegisterMBean() throws Exception {
+		ProofMetrics.registerMBean();
+
+		//registering again should do nothing
+		ProofMetrics.registerMBean();
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName( ProofMetrics.MBEAN_NAME );
+		long before = (Long) server.getAttribute( name , "Proofs" );
+		SymbolTracker tracker = ResolverTest.Integration1.buildTracker();
+		Resolver.proveHypothesis( tracker , StatementCNF.fromInfixString( "Criminal(West)" , tracker ) ,
+				StatementCNF.fromInfixString( "American(x) => Criminal(x)" , tracker ) ,
+				StatementCNF.fromInfixString( "American(West)" , tracker ) );
+		Assert.assertTrue( (Long) server.getAttribute( name , "Proofs" ) > before );
+	}
+}
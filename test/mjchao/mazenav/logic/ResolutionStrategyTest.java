@@ -0,0 +1,200 @@
+package mjchao.mazenav.logic;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+import mjchao.mazenav.logic.structures.SymbolTracker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResolutionStrategyTest {
+
+	private static final String[] CRIME_PRECEDENCE = { "Jailed" , "Fled" , "Criminal" , "Hostile" , "Sells" , "Weapon" };
+
+	private static SymbolTracker buildCrimeTracker() {
+		SymbolTracker tracker = Fixtures.crimeTracker();
+		tracker.addFunctions( "Jailed" , "Fled" );
+		return tracker;
+	}
+
+	/**
+	 * The crime knowledgebase, with a rule that isn't a definite clause
+	 * so that hypotheses are proved by resolution
+	 */
+	private static KnowledgeBase buildCrime( SymbolTracker tracker ) {
+		KnowledgeBase rtn = new KnowledgeBase( tracker , Fixtures.crime( tracker ) );
+		rtn.tell( StatementCNF.fromInfixString( "Criminal(x) => Jailed(x) OR Fled(x)" , tracker ) );
+		return rtn;
+	}
+
+	private static ResolutionStrategy[] buildStrategies( String... precedence ) {
+		return new ResolutionStrategy[] {
+			new UnrestrictedResolution() ,
+			new SetOfSupport() ,
+			new OrderedResolution( precedence ) ,
+			new Hyperresolution() ,
+			new UnitPreference() ,
+			new UnitPreference( new SetOfSupport() )
+		};
+	}
+
+	private static ProofResult ask( KnowledgeBase kb , String hypothesis , SymbolTracker tracker , ProofMetrics metrics , ResolutionStrategy strategy ) {
+		ProofBudget budget = new ProofBudget( 30 , TimeUnit.SECONDS , 20000 );
+		return kb.ask( StatementCNF.fromInfixString( hypothesis , tracker ) , budget , metrics , strategy );
+	}
+
+	@Test
+	public void testCrime() {
+		SymbolTracker tracker = buildCrimeTracker();
+		String[] hypotheses = new String[] {
+			"Criminal(West)" , "Jailed(West) OR Fled(West)" , "Hostile(Nono)" ,
+			"Criminal(Nono)" , "Jailed(Nono) OR Fled(Nono)" , "Jailed(West)"
+		};
+		boolean[] expected = new boolean[] {
+			true , true , true ,
+			false , false , false
+		};
+		for ( ResolutionStrategy strategy : buildStrategies( CRIME_PRECEDENCE ) ) {
+			for ( int i=0 ; i<hypotheses.length ; ++i ) {
+				KnowledgeBase kb = buildCrime( tracker );
+				ProofResult result = ask( kb , hypotheses[ i ] , tracker , new ProofMetrics() , strategy );
+				Assert.assertEquals( strategy.getClass().getSimpleName() + " |- " + hypotheses[ i ] ,
+						expected[ i ] ? ProofResult.PROVED : ProofResult.NOT_PROVED , result );
+			}
+		}
+	}
+
+	@Test
+	public void testCuriosity() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addConstants( "Jack" , "Curiosity" , "Tuna" );
+		tracker.addFunctions( "Animal" , "Loves" , "Kills" , "Cat" );
+		String[] hypotheses = new String[] { "Kills(Curiosity, Tuna)" , "Animal(Tuna)" };
+		for ( ResolutionStrategy strategy : buildStrategies( "Kills" , "Loves" , "Animal" , "Cat" ) ) {
+			for ( String hypothesis : hypotheses ) {
+				KnowledgeBase kb = new KnowledgeBase( tracker ,
+						StatementCNF.fromInfixString( "FORALL(x)(FORALL(y) Animal(y) => Loves(x,y)) => (EXISTS(y) Loves(y,x))" , tracker ) ,
+						StatementCNF.fromInfixString( "FORALL(x)(EXISTS(z) Animal(z) AND Kills(x,z)) => (FORALL(y) !Loves(y,x))" , tracker ) ,
+						StatementCNF.fromInfixString( "FORALL(x) Animal(x) => Loves(Jack, x)" , tracker ) ,
+						StatementCNF.fromInfixString( "Kills(Jack, Tuna) OR Kills(Curiosity, Tuna)" , tracker ) ,
+						StatementCNF.fromInfixString( "Cat(Tuna)" , tracker ) ,
+						StatementCNF.fromInfixString( "FORALL(x) Cat(x) => Animal(x)" , tracker ) );
+				Assert.assertEquals( strategy.getClass().getSimpleName() + " |- " + hypothesis ,
+						ProofResult.PROVED , ask( kb , hypothesis , tracker , new ProofMetrics() , strategy ) );
+			}
+		}
+	}
+
+	@Test
+	public void testFewerClauses() {
+		SymbolTracker tracker = buildCrimeTracker();
+		ProofMetrics unrestricted = new ProofMetrics();
+		ask( buildCrime( tracker ) , "Criminal(West)" , tracker , unrestricted , new UnrestrictedResolution() );
+		ResolutionStrategy[] strategies = new ResolutionStrategy[] {
+			new SetOfSupport() , new OrderedResolution( CRIME_PRECEDENCE ) , new Hyperresolution() , new UnitPreference()
+		};
+		for ( ResolutionStrategy strategy : strategies ) {
+			ProofMetrics metrics = new ProofMetrics();
+			Assert.assertEquals( ProofResult.PROVED , ask( buildCrime( tracker ) , "Criminal(West)" , tracker , metrics , strategy ) );
+			Assert.assertTrue( strategy.getClass().getSimpleName() ,
+					metrics.getClausesGenerated() < unrestricted.getClausesGenerated() );
+		}
+	}
+
+	@Test
+	public void testSetOfSupport() {
+		//the hypothesis doesn't resolve with anything, so no clauses
+		//are inferred at all once the knowledgebase's own clauses have
+		//been resolved with each other by the first query
+		SymbolTracker tracker = buildCrimeTracker();
+		tracker.addConstants( "Jack" );
+		KnowledgeBase kb = buildCrime( tracker );
+		Assert.assertEquals( ProofResult.NOT_PROVED , ask( kb , "Missile(Jack)" , tracker , new ProofMetrics() , new SetOfSupport() ) );
+		ProofMetrics metrics = new ProofMetrics();
+		Assert.assertEquals( ProofResult.NOT_PROVED , ask( kb , "Missile(Jack)" , tracker , metrics , new SetOfSupport() ) );
+		Assert.assertEquals( 0 , metrics.getClausesGenerated() );
+	}
+
+	@Test
+	public void testOrderedResolution() {
+		SymbolTracker tracker = buildCrimeTracker();
+		OrderedResolution strategy = new OrderedResolution( CRIME_PRECEDENCE );
+		List< Disjunction > clauses = StatementCNFTest.disjunctionsFromInfix( "!Sells(x,y,z) OR Criminal(x) OR Owns(x,y)" , tracker );
+		Disjunction clause = clauses.get( 0 );
+		for ( int i=0 ; i<clause.size() ; ++i ) {
+			boolean isCriminal = clause.getTerm( i ).getValue().getSymbolName().equals( "Criminal" );
+			Assert.assertEquals( isCriminal , strategy.mayResolveOn( clause , i ) );
+		}
+
+		//predicates that aren't in the precedence tie with each other
+		clause = StatementCNFTest.disjunctionsFromInfix( "Owns(x,y) OR !Missile(y)" , tracker ).get( 0 );
+		Assert.assertTrue( strategy.mayResolveOn( clause , 0 ) );
+		Assert.assertTrue( strategy.mayResolveOn( clause , 1 ) );
+
+		try {
+			new OrderedResolution( "Criminal" , "Sells" , "Criminal" );
+			Assert.fail( "Allowed a predicate twice in the precedence" );
+		}
+		catch ( IllegalArgumentException expected ) {
+			//expected
+		}
+	}
+
+	@Test
+	public void testKeepsUnifiableClauses() {
+		//a clause that unifies with a kept clause is only a copy of it
+		//if they are the same up to renaming their variables. the proof
+		//needs a clause that unifies with one that was kept earlier,
+		//and the set of support can't infer it another way
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addConstants( "A" , "B" );
+		tracker.addFunctions( "P" , "Q" , "R" );
+		String[] statements = new String[] {
+			"FORALL(x) Q(A,x) OR !R(x,B)" ,
+			"FORALL(x) FORALL(y) Q(A,y) OR !R(y,B) OR P(A,x)" ,
+			"FORALL(x) FORALL(y) !P(x,B) OR !P(y,y)" ,
+			"FORALL(x) P(A,x) OR Q(A,x)" ,
+			"!R(B,A)" ,
+			"FORALL(x) FORALL(y) Q(B,x) OR !P(x,y)" ,
+			"FORALL(y) P(y,A) OR R(y,A) OR P(y,y)" ,
+			"FORALL(y) R(y,y)"
+		};
+		KnowledgeBase kb = new KnowledgeBase( tracker );
+		for ( String statement : statements ) {
+			kb.tell( StatementCNF.fromInfixString( statement , tracker ) );
+		}
+		Assert.assertEquals( ProofResult.PROVED , ask( kb , "Q(B,B)" , tracker , new ProofMetrics() , new SetOfSupport() ) );
+	}
+
+	@Test
+	public void testHyperresolution() {
+		SymbolTracker tracker = buildCrimeTracker();
+		List< Disjunction > clauses = StatementCNFTest.disjunctionsFromInfix( "(Jailed(x) OR Fled(x)) AND (!Criminal(x) OR Jailed(x)) AND (!Criminal(x) OR !Hostile(x))" , tracker );
+		Assert.assertTrue( Hyperresolution.isPositive( clauses.get( 0 ) ) );
+		Assert.assertFalse( Hyperresolution.isPositive( clauses.get( 1 ) ) );
+		Assert.assertFalse( Hyperresolution.isPositive( clauses.get( 2 ) ) );
+		Hyperresolution strategy = new Hyperresolution();
+		Assert.assertTrue( strategy.mayResolve( clauses.get( 0 ) , clauses.get( 1 ) ) );
+		Assert.assertTrue( strategy.mayResolve( clauses.get( 1 ) , clauses.get( 0 ) ) );
+		Assert.assertFalse( strategy.mayResolve( clauses.get( 1 ) , clauses.get( 2 ) ) );
+	}
+
+	@Test
+	public void testUnitPreference() {
+		SymbolTracker tracker = buildCrimeTracker();
+		List< Disjunction > clauses = StatementCNFTest.disjunctionsFromInfix( "Criminal(West) AND (Jailed(x) OR Fled(x))" , tracker );
+		UnitPreference strategy = new UnitPreference( new Hyperresolution() );
+		Assert.assertTrue( strategy.isPreferred( clauses.get( 0 ) ) );
+		Assert.assertFalse( strategy.isPreferred( clauses.get( 1 ) ) );
+		Assert.assertFalse( strategy.isSupportRequired() );
+		Assert.assertTrue( new UnitPreference( new SetOfSupport() ).isSupportRequired() );
+
+		//the pairs without a unit clause that were put off still
+		//have to be resolved before giving up
+		ProofMetrics metrics = new ProofMetrics();
+		Assert.assertEquals( ProofResult.NOT_PROVED , ask( buildCrime( tracker ) , "Jailed(Nono) OR Fled(Nono)" , tracker , metrics , new UnitPreference() ) );
+		Assert.assertTrue( metrics.getClausesGenerated() > 0 );
+	}
+}
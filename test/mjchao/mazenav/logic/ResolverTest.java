@@ -3,6 +3,7 @@ package mjchao.mazenav.logic;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import mjchao.mazenav.logic.Resolver.Substitution;
 import mjchao.mazenav.logic.StatementCNF.Disjunction;
@@ -245,6 +246,53 @@ public class ResolverTest {
 		Assert.assertTrue( subs.toString().equals( "[?2/Func1(?1), ?3/Func1(?0), ?4/Func1(?1), ?5/Func1(?1)]" ) );
 	}
 	
+	@Test
+	public void testUnifyFailureUndoesSubstitutions() {
+		//test that a failed unification does not leave behind the
+		//substitutions it made before it failed. here, a/Func1(b) is
+		//made before obj1 and Func1(c) fail to unify
+		SymbolTracker tracker = FunctionTester.buildTracker();
+		tracker.addConstants( "obj1" );
+		String infixTerms = "Func3(a,b,obj1) AND Func3(Func1(b),d,Func1(c))";
+		List< Term > terms = StatementCNFTest.termsListFromInfix( infixTerms , tracker );
+		
+		Term b = terms.get( 0 ).getArgs()[ 1 ];
+		Term d = terms.get( 1 ).getArgs()[ 1 ];
+		
+		List<Substitution> prevSubs = new ArrayList< Substitution >();
+		Substitution prevSub1 = new Substitution( d , b );
+		prevSubs.add( prevSub1 );
+		
+		List< Substitution > subs = Resolver.unify( terms.get( 0 ) , terms.get( 1 ) , prevSubs );
+		Assert.assertTrue( subs == null );
+		Assert.assertEquals( "[?2/?1]" , prevSubs.toString() );
+	}
+	
+	@Test
+	public void testUnifyChainedSubstitutions() {
+		//test that substitutions are followed through a long chain
+		//of variables: x0/x1, x1/x2, ..., x19/obj1 so unifying x0
+		//with obj1 succeeds without new substitutions
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addConstants( "obj1" , "obj2" );
+		StringBuilder infixTerms = new StringBuilder();
+		for ( int i=0 ; i<20 ; ++i ) {
+			infixTerms.append( "x" + i + " AND " );
+		}
+		infixTerms.append( "obj1 AND obj2" );
+		List< Term > terms = StatementCNFTest.termsListFromInfix( infixTerms.toString() , tracker );
+		
+		List<Substitution> prevSubs = new ArrayList< Substitution >();
+		for ( int i=0 ; i<20 ; ++i ) {
+			prevSubs.add( new Substitution( terms.get( i ) , terms.get( i+1 ) ) );
+		}
+		
+		List< Substitution > subs = Resolver.unify( terms.get( 0 ) , terms.get( 20 ) , prevSubs );
+		Assert.assertEquals( 20 , subs.size() );
+		Assert.assertTrue( Resolver.unify( terms.get( 0 ) , terms.get( 21 ) , prevSubs ) == null );
+		Assert.assertEquals( 20 , prevSubs.size() );
+	}
+	
 	//--------------test cases for unify with skolem functions----------------//
 	
 	@Test
@@ -389,6 +437,47 @@ public class ResolverTest {
 	
 	//TODO test with skolem functions
 	
+	@Test
+	public void testSubsumesBAT1() {
+		//Rel1(x) subsumes Rel1(obj1) OR Rel2(obj1, obj2) but not the other way around
+		SymbolTracker tracker = FunctionRelationTester.buildTracker();
+		List< Disjunction > disjunctions = StatementCNFTest.disjunctionsFromInfix( "Rel1(x) AND (Rel1(obj1) OR Rel2(obj1, obj2))" , tracker );
+		Assert.assertTrue( Resolver.subsumes( disjunctions.get( 0 ) , disjunctions.get( 1 ) , mockHypothesis ) );
+		Assert.assertFalse( Resolver.subsumes( disjunctions.get( 1 ) , disjunctions.get( 0 ) , mockHypothesis ) );
+	}
+	
+	@Test
+	public void testSubsumesBAT2() {
+		//variables must be substituted consistently: Rel2(x, x) does not subsume
+		//Rel2(obj1, obj2), but does subsume Rel2(obj1, obj1)
+		SymbolTracker tracker = FunctionRelationTester.buildTracker();
+		List< Disjunction > disjunctions = StatementCNFTest.disjunctionsFromInfix( "Rel2(x, x) AND Rel2(obj1, obj2) AND Rel2(obj1, obj1)" , tracker );
+		Assert.assertFalse( Resolver.subsumes( disjunctions.get( 0 ) , disjunctions.get( 1 ) , mockHypothesis ) );
+		Assert.assertTrue( Resolver.subsumes( disjunctions.get( 0 ) , disjunctions.get( 2 ) , mockHypothesis ) );
+	}
+	
+	@Test
+	public void testSubsumesBAT3() {
+		//polarities must match and propositions cannot be substituted
+		SymbolTracker tracker = FunctionRelationTester.buildTracker();
+		List< Disjunction > disjunctions = StatementCNFTest.disjunctionsFromInfix( "!Rel1(x) AND Rel1(obj1) AND P AND (Q OR Rel1(obj1)) AND (P OR Q)" , tracker );
+		Assert.assertFalse( Resolver.subsumes( disjunctions.get( 0 ) , disjunctions.get( 1 ) , mockHypothesis ) );
+		Assert.assertFalse( Resolver.subsumes( disjunctions.get( 2 ) , disjunctions.get( 3 ) , mockHypothesis ) );
+		Assert.assertTrue( Resolver.subsumes( disjunctions.get( 2 ) , disjunctions.get( 4 ) , mockHypothesis ) );
+	}
+	
+	@Test
+	public void testSubsumesMultipleTerms() {
+		//Rel1(x) OR Rel1(y) subsumes Rel1(obj1) because both terms can map onto
+		//the same term, but Rel1(x) OR Rel2(x, y) requires a consistent x
+		SymbolTracker tracker = FunctionRelationTester.buildTracker();
+		List< Disjunction > disjunctions = StatementCNFTest.disjunctionsFromInfix( 
+				"(Rel1(x) OR Rel1(y)) AND Rel1(obj1) AND (Rel1(z) OR Rel2(z, w)) AND (Rel1(obj1) OR Rel2(obj2, obj1)) AND (Rel2(obj1, obj2) OR Rel1(obj2))" , tracker );
+		Assert.assertTrue( Resolver.subsumes( disjunctions.get( 0 ) , disjunctions.get( 1 ) , mockHypothesis ) );
+		Assert.assertFalse( Resolver.subsumes( disjunctions.get( 2 ) , disjunctions.get( 3 ) , mockHypothesis ) );
+		Assert.assertFalse( Resolver.subsumes( disjunctions.get( 2 ) , disjunctions.get( 4 ) , mockHypothesis ) );
+	}
+	
 	@Test
 	public void testProveHypothesisBAT1() {
 		//basic modus ponens:
@@ -1147,4 +1236,115 @@ public class ResolverTest {
 		StatementCNF hypothesis = StatementCNF.fromInfixString( "Dead(Adam)" , tracker );
 		Assert.assertFalse( Resolver.proveHypothesis( tracker , hypothesis , kb ) );
 	}
+	
+	@Test
+	public void testGivenClauseBAT1() {
+		//the given-clause algorithm should agree with the
+		//level-by-level resolution algorithm on basic modus ponens
+		SymbolTracker tracker = new SymbolTracker();
+		StatementCNF kb1 = StatementCNF.fromInfixString( "P => Q" , tracker );
+		StatementCNF kb2 = StatementCNF.fromInfixString( "P" , tracker );
+		Assert.assertTrue( Resolver.proveHypothesisGivenClause( tracker , StatementCNF.fromInfixString( "Q" , tracker ) , kb1 , kb2 ) );
+		Assert.assertFalse( Resolver.proveHypothesisGivenClause( tracker , StatementCNF.fromInfixString( "!Q" , tracker ) , kb1 , kb2 ) );
+	}
+	
+	@Test
+	public void testGivenClauseIntegration1() {
+		SymbolTracker tracker = Integration1.buildTracker();
+		StatementCNF[] kb = Fixtures.crime( tracker );
+		Assert.assertTrue( Resolver.proveHypothesisGivenClause( tracker , StatementCNF.fromInfixString( "Criminal(West)" , tracker ) , kb ) );
+		Assert.assertFalse( Resolver.proveHypothesisGivenClause( tracker , StatementCNF.fromInfixString( "Criminal(Nono)" , tracker ) , kb ) );
+	}
+	
+	@Test
+	public void testGivenClauseIntegration2() {
+		SymbolTracker tracker = Fixtures.curiosityTracker();
+		StatementCNF[] kb = Fixtures.curiosity( tracker );
+		StatementCNF hypothesis = StatementCNF.fromInfixString( "Kills(Curiosity, Tuna)" , tracker );
+		Assert.assertTrue( Resolver.proveHypothesisGivenClause( tracker , hypothesis , kb ) );
+	}
+	
+	@Test
+	public void testGivenClauseIntegration3() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "Person" , "Heart" , "PartOf" , "Living" , "Dead" );
+		tracker.addConstants( "Adam" );
+		
+		StatementCNF[] kb = new StatementCNF[] {
+		    StatementCNF.fromInfixString( "FORALL(x) Person(x) => (EXISTS(y) Heart(y) AND PartOf(y,x))" , tracker ) ,
+		    StatementCNF.fromInfixString( "EXISTS(x) Heart(x) AND PartOf(x,y) => Living(y)" , tracker ) ,
+		    StatementCNF.fromInfixString( "Person(Adam)" , tracker ) ,
+		    StatementCNF.fromInfixString( "Dead(x) <=> !Living(x)", tracker )
+		};
+		Assert.assertTrue( Resolver.proveHypothesisGivenClause( tracker , StatementCNF.fromInfixString( "Living(Adam)" , tracker ) , kb ) );
+		Assert.assertFalse( Resolver.proveHypothesisGivenClause( tracker , StatementCNF.fromInfixString( "Dead(Adam)" , tracker ) , kb ) );
+	}
+	
+	@Test
+	public void testParallelIntegration1() {
+		//resolving clause pairs in parallel should give the
+		//same results as resolving them sequentially
+		SymbolTracker tracker = Integration1.buildTracker();
+		StatementCNF[] kb = Fixtures.crime( tracker );
+		ForkJoinPool pool = new ForkJoinPool( 4 );
+		try {
+			StatementCNF hypothesis = StatementCNF.fromInfixString( "Criminal(West)" , tracker );
+			StatementCNF statement = Resolver.buildRefutationStatement( tracker , hypothesis , kb );
+			Assert.assertTrue( Resolver.applyResolution( tracker , statement , hypothesis , pool ) );
+			
+			hypothesis = StatementCNF.fromInfixString( "Criminal(Nono)" , tracker );
+			statement = Resolver.buildRefutationStatement( tracker , hypothesis , kb );
+			Assert.assertFalse( Resolver.applyResolution( tracker , statement , hypothesis , pool ) );
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+	
+	@Test
+	public void testParallelIntegration2() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "Person" , "Heart" , "PartOf" , "Living" , "Dead" );
+		tracker.addConstants( "Adam" );
+		
+		StatementCNF[] kb = new StatementCNF[] {
+		    StatementCNF.fromInfixString( "FORALL(x) Person(x) => (EXISTS(y) Heart(y) AND PartOf(y,x))" , tracker ) ,
+		    StatementCNF.fromInfixString( "EXISTS(x) Heart(x) AND PartOf(x,y) => Living(y)" , tracker ) ,
+		    StatementCNF.fromInfixString( "Person(Adam)" , tracker ) ,
+		    StatementCNF.fromInfixString( "Dead(x) <=> !Living(x)", tracker )
+		};
+		Assert.assertTrue( Resolver.proveHypothesisParallel( tracker , StatementCNF.fromInfixString( "Living(Adam)" , tracker ) , kb ) );
+		Assert.assertFalse( Resolver.proveHypothesisParallel( tracker , StatementCNF.fromInfixString( "Dead(Adam)" , tracker ) , kb ) );
+	}
+	
+	@Test
+	public void testConcurrentProofsSharedTracker() throws InterruptedException {
+		//several threads should be able to convert statements and
+		//prove hypotheses with the same tracker at the same time
+		final SymbolTracker tracker = Integration1.buildTracker();
+		final int numThreads = 4;
+		final boolean[] proved = new boolean[ numThreads ];
+		final boolean[] disproved = new boolean[ numThreads ];
+		Thread[] threads = new Thread[ numThreads ];
+		for ( int i=0 ; i<numThreads ; ++i ) {
+			final int idx = i;
+			threads[ i ] = new Thread() {
+				
+				@Override
+				public void run() {
+					StatementCNF[] kb = Fixtures.crime( tracker );
+					proved[ idx ] = Resolver.proveHypothesis( tracker , StatementCNF.fromInfixString( "Criminal(West)" , tracker ) , kb );
+					disproved[ idx ] = !Resolver.proveHypothesis( tracker , StatementCNF.fromInfixString( "Criminal(Nono)" , tracker ) , kb );
+				}
+			};
+			threads[ i ].start();
+		}
+		for ( Thread t : threads ) {
+			t.join();
+		}
+		for ( int i=0 ; i<numThreads ; ++i ) {
+			Assert.assertTrue( proved[ i ] );
+			Assert.assertTrue( disproved[ i ] );
+		}
+	}
 }
@@ -0,0 +1,177 @@
+package mjchao.mazenav.logic;
+
+import mjchao.mazenav.logic.structures.SymbolTracker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReteNetworkTest {
+
+	private static SymbolTracker buildWumpusTracker() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "Adjacent" , "Visited" , "NoBreeze" , "NoStench" , "NoPit" , "NoWumpus" , "Safe" );
+		return tracker;
+	}
+
+	private static ReteNetwork buildWumpusNetwork( SymbolTracker tracker ) {
+		ReteNetwork rtn = new ReteNetwork();
+		rtn.addRules( StatementCNF.fromInfixString( "Visited(x) AND NoBreeze(x) AND Adjacent(x,y) => NoPit(y)" , tracker ) );
+		rtn.addRules( StatementCNF.fromInfixString( "Visited(x) AND NoStench(x) AND Adjacent(x,y) => NoWumpus(y)" , tracker ) );
+		rtn.addRules( StatementCNF.fromInfixString( "NoPit(x) AND NoWumpus(x) => Safe(x)" , tracker ) );
+		rtn.assertFacts( StatementCNF.fromInfixString( "Adjacent(11,12) AND Adjacent(12,11) AND Adjacent(11,21) AND Adjacent(21,11)" , tracker ) );
+		rtn.assertFacts( StatementCNF.fromInfixString( "Adjacent(12,22) AND Adjacent(22,12) AND Adjacent(21,22) AND Adjacent(22,21)" , tracker ) );
+		return rtn;
+	}
+
+	private static boolean holds( ReteNetwork network , String hypothesis , SymbolTracker tracker ) {
+		return network.holds( StatementCNF.fromInfixString( hypothesis , tracker ) );
+	}
+
+	@Test
+	public void testAssert() {
+		SymbolTracker tracker = buildWumpusTracker();
+		ReteNetwork network = buildWumpusNetwork( tracker );
+		Assert.assertEquals( 8 , network.numFacts() );
+		Assert.assertFalse( holds( network , "Safe(12)" , tracker ) );
+
+		Assert.assertTrue( network.assertFacts( StatementCNF.fromInfixString( "Visited(11) AND NoBreeze(11)" , tracker ) ) );
+		Assert.assertTrue( holds( network , "NoPit(12) AND NoPit(21)" , tracker ) );
+		Assert.assertFalse( holds( network , "Safe(12)" , tracker ) );
+		Assert.assertTrue( network.assertFacts( StatementCNF.fromInfixString( "NoStench(11)" , tracker ) ) );
+		Assert.assertTrue( holds( network , "Safe(12) AND Safe(21)" , tracker ) );
+		Assert.assertFalse( holds( network , "Safe(22)" , tracker ) );
+		Assert.assertTrue( holds( network , "Safe(22) OR Safe(21)" , tracker ) );
+
+		//asserting a fact again changes nothing
+		Assert.assertFalse( network.assertFacts( StatementCNF.fromInfixString( "NoStench(11)" , tracker ) ) );
+		Assert.assertEquals( 8 + 3 + 6 , network.numFacts() );
+	}
+
+	@Test
+	public void testRetract() {
+		SymbolTracker tracker = buildWumpusTracker();
+		ReteNetwork network = buildWumpusNetwork( tracker );
+		int numTokens = network.numTokens();
+		network.assertFacts( StatementCNF.fromInfixString( "Visited(11) AND NoBreeze(11) AND NoStench(11)" , tracker ) );
+		network.assertFacts( StatementCNF.fromInfixString( "Visited(22) AND NoBreeze(22) AND NoStench(22)" , tracker ) );
+		Assert.assertTrue( holds( network , "Safe(12) AND Safe(21)" , tracker ) );
+
+		//[1,2] is still safe because of the percepts in [2,2]
+		Assert.assertTrue( network.retractFacts( StatementCNF.fromInfixString( "NoBreeze(11)" , tracker ) ) );
+		Assert.assertTrue( holds( network , "Safe(12) AND Safe(21)" , tracker ) );
+		Assert.assertFalse( holds( network , "NoPit(22)" , tracker ) );
+		Assert.assertTrue( holds( network , "NoWumpus(12)" , tracker ) );
+		Assert.assertTrue( network.retractFacts( StatementCNF.fromInfixString( "Visited(22)" , tracker ) ) );
+		Assert.assertFalse( holds( network , "Safe(12) OR Safe(21)" , tracker ) );
+		Assert.assertTrue( holds( network , "NoWumpus(12) AND NoWumpus(21)" , tracker ) );
+
+		//derived facts and facts that were never asserted can't be retracted
+		Assert.assertFalse( network.retractFacts( StatementCNF.fromInfixString( "NoWumpus(12)" , tracker ) ) );
+		Assert.assertFalse( network.retractFacts( StatementCNF.fromInfixString( "Visited(21)" , tracker ) ) );
+
+		network.retractFacts( StatementCNF.fromInfixString( "Visited(11) AND NoStench(11) AND NoBreeze(22) AND NoStench(22)" , tracker ) );
+		Assert.assertEquals( 8 , network.numFacts() );
+		Assert.assertEquals( numTokens , network.numTokens() );
+
+		network.assertFacts( StatementCNF.fromInfixString( "Visited(11) AND NoBreeze(11) AND NoStench(11)" , tracker ) );
+		Assert.assertTrue( holds( network , "Safe(12) AND Safe(21)" , tracker ) );
+	}
+
+	@Test
+	public void testRetractCycle() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "Connected" , "Link" );
+		tracker.addConstants( "A" , "B" , "C" );
+		ReteNetwork network = new ReteNetwork();
+		network.addRules( StatementCNF.fromInfixString( "Link(x,y) => Connected(x,y)" , tracker ) );
+		network.addRules( StatementCNF.fromInfixString( "Connected(x,y) => Connected(y,x)" , tracker ) );
+		network.addRules( StatementCNF.fromInfixString( "Connected(x,y) AND Connected(y,z) => Connected(x,z)" , tracker ) );
+		network.assertFacts( StatementCNF.fromInfixString( "Link(A,B) AND Link(B,C)" , tracker ) );
+		Assert.assertTrue( holds( network , "Connected(C,A) AND Connected(A,A)" , tracker ) );
+
+		//the facts about C only support each other once Link(B,C)
+		//is retracted, so they are retracted too
+		network.retractFacts( StatementCNF.fromInfixString( "Link(B,C)" , tracker ) );
+		Assert.assertTrue( holds( network , "Connected(B,A) AND Connected(A,A)" , tracker ) );
+		Assert.assertFalse( holds( network , "Connected(C,A) OR Connected(C,C) OR Connected(B,C)" , tracker ) );
+
+		network.retractFacts( StatementCNF.fromInfixString( "Link(A,B)" , tracker ) );
+		Assert.assertEquals( 0 , network.numFacts() );
+		Assert.assertEquals( 0 , network.numTokens() );
+	}
+
+	@Test
+	public void testRulesAfterFacts() {
+		SymbolTracker tracker = buildWumpusTracker();
+		ReteNetwork network = new ReteNetwork();
+		network.assertFacts( StatementCNF.fromInfixString( "Visited(11) AND NoBreeze(11) AND NoStench(11) AND Adjacent(11,12)" , tracker ) );
+		network.addRules( StatementCNF.fromInfixString( "NoPit(x) AND NoWumpus(x) => Safe(x)" , tracker ) );
+		network.addRules( StatementCNF.fromInfixString( "Visited(x) AND NoBreeze(x) AND Adjacent(x,y) => NoPit(y)" , tracker ) );
+		Assert.assertFalse( holds( network , "Safe(12)" , tracker ) );
+		network.addRules( StatementCNF.fromInfixString( "Visited(x) AND NoStench(x) AND Adjacent(x,y) => NoWumpus(y)" , tracker ) );
+		Assert.assertTrue( holds( network , "Safe(12)" , tracker ) );
+
+		//facts in a statement of rules are asserted
+		network.addRules( StatementCNF.fromInfixString( "Adjacent(11,21) AND (NoPit(x) => Visited(x))" , tracker ) );
+		Assert.assertTrue( holds( network , "Safe(21) AND Visited(12) AND Visited(21)" , tracker ) );
+	}
+
+	@Test
+	public void testSharing() {
+		SymbolTracker tracker = buildWumpusTracker();
+		ReteNetwork network = buildWumpusNetwork( tracker );
+
+		//Visited(x) and Visited(y) share an alpha memory and a join node,
+		//and the rules for NoPit and NoWumpus differ after the first literal
+		Assert.assertEquals( 6 , network.numAlphaMemories() );
+		Assert.assertEquals( 7 , network.numJoinNodes() );
+		network.addRules( StatementCNF.fromInfixString( "Visited(y) AND NoBreeze(y) AND Adjacent(y,z) => Safe(z)" , tracker ) );
+		Assert.assertEquals( 6 , network.numAlphaMemories() );
+		Assert.assertEquals( 7 , network.numJoinNodes() );
+		network.addRules( StatementCNF.fromInfixString( "Visited(x) AND Adjacent(x,x) => Safe(x)" , tracker ) );
+		Assert.assertEquals( 7 , network.numAlphaMemories() );
+		Assert.assertEquals( 8 , network.numJoinNodes() );
+	}
+
+	@Test
+	public void testSelfJoin() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "Square" , "Pair" );
+		ReteNetwork network = new ReteNetwork();
+		network.addRules( StatementCNF.fromInfixString( "Square(x) AND Square(y) => Pair(x,y)" , tracker ) );
+		network.assertFacts( StatementCNF.fromInfixString( "Square(1)" , tracker ) );
+		network.assertFacts( StatementCNF.fromInfixString( "Square(2) AND Square(3)" , tracker ) );
+		Assert.assertEquals( 3 + 9 , network.numFacts() );
+		Assert.assertTrue( holds( network , "Pair(1,1) AND Pair(2,3) AND Pair(3,2)" , tracker ) );
+		network.retractFacts( StatementCNF.fromInfixString( "Square(2)" , tracker ) );
+		Assert.assertEquals( 2 + 4 , network.numFacts() );
+		Assert.assertFalse( holds( network , "Pair(2,2) OR Pair(2,3) OR Pair(3,2)" , tracker ) );
+	}
+
+	@Test
+	public void testInvalid() {
+		SymbolTracker tracker = buildWumpusTracker();
+		ReteNetwork network = buildWumpusNetwork( tracker );
+		String[] rules = new String[] { "Visited(x) OR NoPit(x)" , "!NoPit(x)" , "Visited(x) => NoPit(y)" };
+		for ( String rule : rules ) {
+			try {
+				network.addRules( StatementCNF.fromInfixString( rule , tracker ) );
+				Assert.fail( rule );
+			}
+			catch ( IllegalArgumentException e ) {
+				//expected
+			}
+		}
+		String[] facts = new String[] { "Visited(x)" , "!Visited(11)" , "Visited(11) OR Visited(12)" };
+		for ( String fact : facts ) {
+			try {
+				network.assertFacts( StatementCNF.fromInfixString( fact , tracker ) );
+				Assert.fail( fact );
+			}
+			catch ( IllegalArgumentException e ) {
+				//expected
+			}
+		}
+		Assert.assertEquals( 8 , network.numFacts() );
+	}
+}
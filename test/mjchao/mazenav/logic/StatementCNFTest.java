@@ -454,4 +454,162 @@ public class StatementCNFTest {
 		List< Disjunction > disjunctions = disjunctionsFromInfix( infix , tracker );
 		Assert.assertTrue( disjunctions.get( 0 ).equals( disjunctions.get( 1 ) ) );
 	}
+	
+	@Test
+	public void testDisjunctionHashCode() throws IOException {
+		//equal disjunctions must have equal hashes, even if their
+		//terms are reordered or repeated
+		SymbolTracker tracker = SymbolTracker.fromDataFile( "test/mjchao/mazenav/logic/structures/integerworld.txt" );
+		String infix = "(GreaterThan(x,x) OR GreaterThan(x,x) OR GreaterThan(SumInt(z,z),SumInt(u,u))) AND (GreaterThan(SumInt(z,z),SumInt(u,u)) OR GreaterThan(x,x))";
+		List< Disjunction > disjunctions = disjunctionsFromInfix( infix , tracker );
+		Assert.assertTrue( disjunctions.get( 0 ).equals( disjunctions.get( 1 ) ) );
+		Assert.assertEquals( disjunctions.get( 0 ).hashCode() , disjunctions.get( 1 ).hashCode() );
+	}
+	
+	@Test
+	public void testTermsShared() throws IOException {
+		//structurally equal terms should be the same instance
+		SymbolTracker tracker = SymbolTracker.fromDataFile( "test/mjchao/mazenav/logic/structures/integerworld.txt" );
+		String infix = "GreaterThan(SumInt(z,z),x) AND (GreaterThan(SumInt(z,z),x) OR !GreaterThan(SumInt(z,z),x))";
+		List< Disjunction > disjunctions = disjunctionsFromInfix( infix , tracker );
+		Term t1 = disjunctions.get( 0 ).getTerm( 0 );
+		Term t2 = disjunctions.get( 1 ).getTerm( 0 );
+		Term t3 = disjunctions.get( 1 ).getTerm( 1 );
+		Assert.assertSame( t1 , t2 );
+		Assert.assertSame( t1.getArgs()[ 0 ] , t3.getArgs()[ 0 ] );
+		Assert.assertSame( t1 , t3.negation() );
+		Assert.assertEquals( "!GreaterThan(SumInt(?0, ?0), ?1)" , t3.toString() );
+	}
+	
+	@Test
+	public void testSubstituteArgDoesNotModify() throws IOException {
+		//substituting arguments creates a new term and shares the
+		//subterms that did not change
+		SymbolTracker tracker = SymbolTracker.fromDataFile( "test/mjchao/mazenav/logic/structures/integerworld.txt" );
+		String infix = "GreaterThan(SumInt(z,z),x) AND y";
+		List< Disjunction > disjunctions = disjunctionsFromInfix( infix , tracker );
+		Term t = disjunctions.get( 0 ).getTerm( 0 );
+		Term x = t.getArgs()[ 1 ];
+		Term y = disjunctions.get( 1 ).getTerm( 0 );
+		Term substituted = t.substituteArg( x , y );
+		Assert.assertEquals( "GreaterThan(SumInt(?0, ?0), ?1)" , t.toString() );
+		Assert.assertEquals( "GreaterThan(SumInt(?0, ?0), ?2)" , substituted.toString() );
+		Assert.assertSame( t.getArgs()[ 0 ] , substituted.getArgs()[ 0 ] );
+		Assert.assertSame( t , t.substituteArg( y , x ) );
+	}
+	
+	/**
+	 * Builds a chain of ANDs or ORs of the given number of
+	 * predicates, which parses into a tree as deep as the chain is long.
+	 */
+	private static String buildChain( String operator , int length ) {
+		StringBuilder infix = new StringBuilder( "P(x0)" );
+		for ( int i=1 ; i<length ; ++i ) {
+			infix.append( " " ).append( operator ).append( " P(x" ).append( i % 16 ).append( ")" );
+		}
+		return infix.toString();
+	}
+	
+	@Test
+	public void testDeepConjunction() {
+		//converting a 100k node expression should not overflow the call stack
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "P" );
+		StatementCNF statement = StatementCNF.fromInfixString( buildChain( "AND" , 50000 ) , tracker );
+		Assert.assertEquals( 50000 , statement.getDisjunctions().size() );
+		
+		//negating the conjunction turns it into a single long disjunction
+		StatementCNF negated = StatementCNF.negate( statement , tracker );
+		Assert.assertEquals( 1 , negated.getDisjunctions().size() );
+	}
+	
+	@Test
+	public void testDeepQuantifiedImplication() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "P" , "Q" );
+		String infix = "FORALL(x0) " + buildChain( "OR" , 20000 ) + " => EXISTS(y) Q(y)";
+		StatementCNF statement = StatementCNF.fromInfixString( infix , tracker );
+		Assert.assertEquals( 20000 , statement.getDisjunctions().size() );
+		Assert.assertEquals( 2 , statement.getDisjunctions().get( 0 ).size() );
+	}
+	
+	/**
+	 * Builds a biconditional nested the given number of times, e.g.
+	 * P0(C0) &lt;=&gt; (P1(C0) &lt;=&gt; P2(C0))
+	 */
+	private static String buildNestedBiconditional( int length , SymbolTracker tracker ) {
+		tracker.addConstants( "C0" );
+		StringBuilder infix = new StringBuilder();
+		for ( int i=0 ; i<length ; ++i ) {
+			tracker.addFunctions( "P" + i );
+			if ( i > 0 ) {
+				infix.append( " <=> (" );
+			}
+			infix.append( "P" ).append( i ).append( "(C0)" );
+		}
+		for ( int i=1 ; i<length ; ++i ) {
+			infix.append( ")" );
+		}
+		return infix.toString();
+	}
+	
+	@Test
+	public void testDefinitionsNotNeeded() {
+		//if distributing does not create extra clauses,
+		//no definitions should be introduced
+		String[] infixes = new String[] {
+			"A OR (B AND C)" ,
+			"FORALL(x) Breeze(x) <=> (EXISTS(y) Adjacent(x,y) AND Pit(y))" ,
+			"(A AND B) OR (C AND D)"
+		};
+		for ( String infix : infixes ) {
+			SymbolTracker tracker = new SymbolTracker();
+			tracker.addFunctions( "Breeze" , "Adjacent" , "Pit" );
+			String expected = StatementCNF.fromInfixString( infix , tracker ).toString();
+			SymbolTracker tracker2 = new SymbolTracker();
+			tracker2.addFunctions( "Breeze" , "Adjacent" , "Pit" );
+			Assert.assertEquals( expected , StatementCNF.fromInfixStringWithDefinitions( infix , tracker2 ).toString() );
+		}
+	}
+	
+	@Test
+	public void testDefinitionsDisjunction() {
+		//distributing would create 9 clauses
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "P" , "Q" );
+		tracker.addConstants( "C" );
+		String infix = "FORALL(x) (P(x) AND Q(x) AND A) OR (P(C) AND Q(C) AND B)";
+		StatementCNF statement = StatementCNF.fromInfixStringWithDefinitions( infix , tracker );
+		Assert.assertEquals( "(!#0(?0) OR P(?0)) AND (!#0(?0) OR Q(?0)) AND (#0(?0) OR #1()) AND (!#0(?0) OR ?1) AND " +
+				"(!#1() OR P(C)) AND (!#1() OR Q(C)) AND (!#1() OR ?2)" , statement.toString() );
+	}
+	
+	@Test
+	public void testDefinitionsNestedBiconditionals() {
+		//eliminating the arrows from nested biconditionals doubles
+		//the length of the statement at each level
+		SymbolTracker tracker = new SymbolTracker();
+		Assert.assertEquals( 2619 , StatementCNF.fromInfixString( buildNestedBiconditional( 6 , tracker ) , tracker ).getDisjunctions().size() );
+		Assert.assertTrue( StatementCNF.fromInfixStringWithDefinitions( buildNestedBiconditional( 6 , tracker ) , tracker ).getDisjunctions().size() < 6 * 6 );
+		
+		//with definitions, the number of clauses only grows linearly
+		int clauses32 = StatementCNF.fromInfixStringWithDefinitions( buildNestedBiconditional( 32 , tracker ) , tracker ).getDisjunctions().size();
+		int clauses64 = StatementCNF.fromInfixStringWithDefinitions( buildNestedBiconditional( 64 , tracker ) , tracker ).getDisjunctions().size();
+		Assert.assertTrue( clauses32 < 6 * 32 );
+		Assert.assertEquals( clauses32 + 6 * 32 , clauses64 );
+	}
+	
+	@Test
+	public void testDefinitionsProof() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "Breeze" , "Pit" , "Adjacent" );
+		tracker.addConstants( "C11" , "C12" , "C21" );
+		StatementCNF[] kb = new StatementCNF[] {
+			StatementCNF.fromInfixStringWithDefinitions( "FORALL(x) Breeze(x) <=> (Pit(x) <=> (Adjacent(x, C12) AND Pit(C12)))" , tracker ) ,
+			StatementCNF.fromInfixStringWithDefinitions( "Adjacent(C11, C12) AND Pit(C12)" , tracker ) ,
+			StatementCNF.fromInfixStringWithDefinitions( "!Pit(C11)" , tracker )
+		};
+		Assert.assertTrue( Resolver.proveHypothesisGivenClause( tracker , StatementCNF.fromInfixStringWithDefinitions( "!Breeze(C11)" , tracker ) , kb ) );
+		Assert.assertFalse( Resolver.proveHypothesisGivenClause( tracker , StatementCNF.fromInfixStringWithDefinitions( "Breeze(C11)" , tracker ) , kb ) );
+	}
 }
@@ -0,0 +1,123 @@
+package mjchao.mazenav.logic;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import mjchao.mazenav.logic.Resolver.Resolvent;
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+import mjchao.mazenav.logic.structures.SymbolTracker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SubsumptionIndexTest {
+
+	private static final String[] CONSTANTS = { "A" , "B" , "x" , "y" };
+
+	private static SymbolTracker buildTracker() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "P" , "Q" , "F" );
+		tracker.addConstants( "A" , "B" );
+		return tracker;
+	}
+
+	private static String randomArg( Random rnd , int depth ) {
+		if ( depth < 2 && rnd.nextInt( 4 ) == 0 ) {
+			return "F(" + randomArg( rnd , depth+1 ) + ")";
+		}
+		return CONSTANTS[ rnd.nextInt( CONSTANTS.length ) ];
+	}
+
+	/**
+	 * @return		a random clause with up to 3 literals
+	 */
+	private static Disjunction randomClause( Random rnd , SymbolTracker tracker ) {
+		StringBuilder clause = new StringBuilder( "FORALL(x, y) " );
+		int numLiterals = 1 + rnd.nextInt( 3 );
+		for ( int i=0 ; i<numLiterals ; ++i ) {
+			if ( i > 0 ) {
+				clause.append( " OR " );
+			}
+			if ( rnd.nextBoolean() ) {
+				clause.append( "!" );
+			}
+			clause.append( rnd.nextBoolean() ? "P(" : "Q(" );
+			clause.append( randomArg( rnd , 0 ) ).append( ", " ).append( randomArg( rnd , 0 ) ).append( ")" );
+		}
+		return StatementCNFTest.disjunctionsFromInfix( clause.toString() , tracker ).get( 0 );
+	}
+
+	private static void assertAgrees( SubsumptionIndex index , List< Resolvent > indexed , Disjunction query ) {
+		Set< Resolvent > subsumedBy = new HashSet< Resolvent >();
+		boolean subsumed = false;
+		for ( Resolvent r : indexed ) {
+			if ( Resolver.subsumes( query , r.disjunction , ResolverTest.mockHypothesis ) ) {
+				subsumedBy.add( r );
+			}
+			subsumed |= Resolver.subsumes( r.disjunction , query , ResolverTest.mockHypothesis );
+		}
+		Assert.assertEquals( query.toString() , subsumedBy , new HashSet< Resolvent >( index.findSubsumedBy( query ) ) );
+		Resolvent subsuming = index.findSubsuming( query );
+		Assert.assertEquals( query.toString() , subsumed , subsuming != null );
+		if ( subsuming != null ) {
+			Assert.assertTrue( indexed.contains( subsuming ) );
+		}
+	}
+
+	@Test
+	public void testAgreesWithSubsumes() {
+		//the index should find exactly the clauses that
+		//checking every indexed clause finds
+		SymbolTracker tracker = buildTracker();
+		Random rnd = new Random( 3 );
+		SubsumptionIndex index = new SubsumptionIndex( ResolverTest.mockHypothesis );
+		List< Resolvent > indexed = new ArrayList< Resolvent >();
+		for ( int i=0 ; i<300 ; ++i ) {
+			Resolvent r = new Resolvent( randomClause( rnd , tracker ) );
+			index.add( r );
+			indexed.add( r );
+		}
+		for ( int i=0 ; i<200 ; ++i ) {
+			assertAgrees( index , indexed , randomClause( rnd , tracker ) );
+		}
+
+		//removed clauses are never found again
+		for ( int i=0 ; i<indexed.size() ; i+=2 ) {
+			index.remove( indexed.get( i ) );
+		}
+		List< Resolvent > remaining = new ArrayList< Resolvent >();
+		for ( int i=1 ; i<indexed.size() ; i+=2 ) {
+			remaining.add( indexed.get( i ) );
+		}
+		Assert.assertEquals( remaining.size() , index.size() );
+		for ( int i=0 ; i<200 ; ++i ) {
+			assertAgrees( index , remaining , randomClause( rnd , tracker ) );
+		}
+	}
+
+	@Test
+	public void testLiteralsMappedTogether() {
+		//several literals of a clause may subsume the same literal,
+		//so the features can't count literals
+		SymbolTracker tracker = buildTracker();
+		SubsumptionIndex index = new SubsumptionIndex( ResolverTest.mockHypothesis );
+		Resolvent general = new Resolvent( StatementCNFTest.disjunctionsFromInfix( "FORALL(x, y) P(x, y) OR P(y, x)" , tracker ).get( 0 ) );
+		index.add( general );
+		Disjunction specific = StatementCNFTest.disjunctionsFromInfix( "P(A, A)" , tracker ).get( 0 );
+		Assert.assertSame( general , index.findSubsuming( specific ) );
+
+		//a deeper literal can be subsumed by a shallower one,
+		//but can't subsume it
+		Disjunction deeper = StatementCNFTest.disjunctionsFromInfix( "P(F(F(A)), F(F(A)))" , tracker ).get( 0 );
+		Assert.assertSame( general , index.findSubsuming( deeper ) );
+		Resolvent deepIndexed = new Resolvent( deeper );
+		index.add( deepIndexed );
+		List< Resolvent > subsumed = index.findSubsumedBy( deeper );
+		Assert.assertEquals( 1 , subsumed.size() );
+		Assert.assertSame( deepIndexed , subsumed.get( 0 ) );
+		Assert.assertNull( index.findSubsuming( StatementCNFTest.disjunctionsFromInfix( "FORALL(x) Q(x, x)" , tracker ).get( 0 ) ) );
+	}
+}
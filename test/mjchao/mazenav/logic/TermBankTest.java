@@ -0,0 +1,68 @@
+package mjchao.mazenav.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction;
+import mjchao.mazenav.logic.StatementCNF.Disjunction.Term;
+import mjchao.mazenav.logic.structures.SymbolTracker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TermBankTest {
+
+	private static SymbolTracker buildTracker() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "P" , "F" , "G" );
+		tracker.addConstants( "A" , "B" );
+		return tracker;
+	}
+
+	@Test
+	public void testSharedInstance() {
+		SymbolTracker tracker = buildTracker();
+		Term t1 = StatementCNFTest.disjunctionsFromInfix( "P(A, F(B))" , tracker ).get( 0 ).getTerm( 0 );
+		Term t2 = StatementCNFTest.disjunctionsFromInfix( "P(A, F(B)) OR G(A)" , tracker ).get( 0 ).getTerm( 0 );
+		Assert.assertTrue( t1.banked );
+		Assert.assertSame( t1 , t2 );
+		Assert.assertSame( t1 , TermBank.intern( t1 ) );
+	}
+
+	@Test
+	public void testConcurrentIntern() throws Exception {
+		//threads that build the same terms at the same time
+		//should all end up with the same instances
+		final SymbolTracker tracker = buildTracker();
+		final String infix = "P(A, F(G(B))) OR P(F(A), B) OR G(F(F(A)))";
+		ExecutorService pool = Executors.newFixedThreadPool( 4 );
+		try {
+			List< Future< Disjunction > > results = new ArrayList< Future< Disjunction > >();
+			for ( int i=0 ; i<16 ; ++i ) {
+				results.add( pool.submit( new Callable< Disjunction >() {
+
+					@Override
+					public Disjunction call() {
+						return StatementCNFTest.disjunctionsFromInfix( infix , tracker ).get( 0 );
+					}
+				} ) );
+			}
+			Disjunction first = results.get( 0 ).get();
+			for ( Future< Disjunction > result : results ) {
+				Disjunction d = result.get();
+				Assert.assertEquals( first.size() , d.size() );
+				for ( int i=0 ; i<d.size() ; ++i ) {
+					Assert.assertTrue( d.getTerm( i ).banked );
+					Assert.assertSame( first.getTerm( i ) , d.getTerm( i ) );
+				}
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+}
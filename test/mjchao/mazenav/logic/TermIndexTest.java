@@ -0,0 +1,69 @@
+package mjchao.mazenav.logic;
+
+import java.util.Collections;
+import java.util.List;
+
+import mjchao.mazenav.logic.StatementCNF.Disjunction.Term;
+import mjchao.mazenav.logic.structures.SymbolTracker;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TermIndexTest {
+
+	/**
+	 * Builds an index of the terms in the given infix expression, which
+	 * should be a conjunction of single terms. Each term is associated
+	 * with its position in the expression.
+	 */
+	private static TermIndex< Integer > buildIndex( String infix , SymbolTracker tracker ) {
+		List< Term > terms = StatementCNFTest.termsListFromInfix( infix , tracker );
+		TermIndex< Integer > index = new TermIndex< Integer >();
+		for ( int i=0 ; i<terms.size() ; ++i ) {
+			index.insert( terms.get( i ) , i );
+		}
+		return index;
+	}
+
+	private static List< Integer > retrieve( TermIndex< Integer > index , String infix , SymbolTracker tracker ) {
+		Term query = StatementCNFTest.termsListFromInfix( infix , tracker ).get( 0 );
+		List< Integer > rtn = index.retrieveUnifiable( query );
+		Collections.sort( rtn );
+		return rtn;
+	}
+
+	@Test
+	public void testRetrieveConstants() {
+		//constant arguments must match exactly unless one of them is a variable
+		SymbolTracker tracker = ResolverTest.FunctionRelationTester.buildTracker();
+		TermIndex< Integer > index = buildIndex( "Rel2(obj1, obj2) AND Rel2(obj2, obj2) AND Rel2(x, obj1) AND Rel1(obj1)" , tracker );
+		Assert.assertEquals( "[0, 2]" , retrieve( index , "Rel2(obj1, y)" , tracker ).toString() );
+		Assert.assertEquals( "[0, 1]" , retrieve( index , "Rel2(z, obj2)" , tracker ).toString() );
+		Assert.assertEquals( "[0, 1, 2]" , retrieve( index , "Rel2(u, v)" , tracker ).toString() );
+		Assert.assertEquals( "[]" , retrieve( index , "Rel3(u, v, w)" , tracker ).toString() );
+	}
+
+	@Test
+	public void testRetrieveNestedFunctions() {
+		//a variable in the query or the index matches an entire subterm
+		SymbolTracker tracker = ResolverTest.FunctionRelationTester.buildTracker();
+		TermIndex< Integer > index = buildIndex( "Rel2(Func1(obj1), obj2) AND Rel2(Func2(obj1, obj2), obj2) AND Rel2(x, obj2)" , tracker );
+		Assert.assertEquals( "[0, 1, 2]" , retrieve( index , "Rel2(y, obj2)" , tracker ).toString() );
+		Assert.assertEquals( "[0, 2]" , retrieve( index , "Rel2(Func1(z), obj2)" , tracker ).toString() );
+		Assert.assertEquals( "[1, 2]" , retrieve( index , "Rel2(Func2(z, obj2), w)" , tracker ).toString() );
+		Assert.assertEquals( "[2]" , retrieve( index , "Rel2(Func2(z, obj1), w)" , tracker ).toString() );
+	}
+
+	@Test
+	public void testRemove() {
+		SymbolTracker tracker = ResolverTest.FunctionRelationTester.buildTracker();
+		List< Term > terms = StatementCNFTest.termsListFromInfix( "Rel1(obj1) AND Rel1(x)" , tracker );
+		TermIndex< Integer > index = new TermIndex< Integer >();
+		index.insert( terms.get( 0 ) , 0 );
+		index.insert( terms.get( 1 ) , 1 );
+		Assert.assertTrue( index.remove( terms.get( 1 ) , 1 ) );
+		Assert.assertFalse( index.remove( terms.get( 1 ) , 1 ) );
+		Assert.assertEquals( 1 , index.size() );
+		Assert.assertEquals( "[0]" , retrieve( index , "Rel1(y)" , tracker ).toString() );
+	}
+}
@@ -3,6 +3,7 @@ package mjchao.mazenav.logic;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -376,4 +377,63 @@ public class TokenizerTest {
 					NumbersFOL.fromInt( 90 ) , Symbol.RIGHT_PAREN , Symbol.RIGHT_PAREN );
 		Assert.assertTrue( tokens.equals( expected ) );
 	}
+	
+	@Test
+	public void tokenizeFunctionArguments() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "F" , "G" , "H" );
+		tracker.addConstants( "A" );
+		Tokenizer test = new Tokenizer( "F(G(x, H()), (A), y) AND G(F(x)) AND H(x, y" , tracker );
+		List< Symbol > tokens = getTokens( test );
+		List< Integer > numArgs = new ArrayList< Integer >();
+		for ( Symbol s : tokens ) {
+			if ( s instanceof Function ) {
+				numArgs.add( ((Function) s).getNumArgs() );
+			}
+		}
+		
+		//the last function was never closed, so only its arguments
+		//that are followed by a comma are counted
+		Assert.assertEquals( Arrays.asList( 3 , 2 , 0 , 1 , 1 , 1 ) , numArgs );
+	}
+	
+	@Test
+	public void tokenizeFunctionNamesWithoutParentheses() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "Cat" );
+		Tokenizer test = new Tokenizer( "Cat AND Cat(x) OR Cat" , tracker );
+		List< Symbol > tokens = getTokens( test );
+		List< Symbol > expected = Arrays.asList( tracker.getVariableByName( "Cat" ) , Operator.AND , 
+				tracker.parseFunction( "Cat" ) , Symbol.LEFT_PAREN , tracker.getVariableByName( "x" ) ,
+				Symbol.RIGHT_PAREN , Operator.OR , tracker.getVariableByName( "Cat" ) );
+		Assert.assertEquals( expected , tokens );
+	}
+	
+	@Test
+	public void tokenizeAcrossLines() {
+		SymbolTracker tracker = new SymbolTracker();
+		Tokenizer test = new Tokenizer( "x\tAND\n\ty\r\nOR\n-2.5" , tracker );
+		List< Symbol > tokens = getTokens( test );
+		List< Symbol > expected = Arrays.asList( tracker.getVariableByName( "x" ) , Operator.AND ,
+				tracker.getVariableByName( "y" ) , Operator.OR , NumbersFOL.fromDouble( -2.5 ) );
+		Assert.assertEquals( expected , tokens );
+	}
+	
+	@Test
+	public void tokenizeLongStatement() {
+		SymbolTracker tracker = new SymbolTracker();
+		tracker.addFunctions( "P" );
+		StringBuilder statement = new StringBuilder();
+		int numConjuncts = 200000;
+		for ( int i=0 ; i<numConjuncts ; ++i ) {
+			if ( i > 0 ) {
+				statement.append( " AND " );
+			}
+			statement.append( "P(x" + i + ",y)" );
+		}
+		Tokenizer test = new Tokenizer( statement.toString() , tracker );
+		List< Symbol > tokens = getTokens( test );
+		Assert.assertEquals( 7*numConjuncts - 1 , tokens.size() );
+		Assert.assertEquals( 2 , ((Function) tokens.get( tokens.size()-6 )).getNumArgs() );
+	}
 }
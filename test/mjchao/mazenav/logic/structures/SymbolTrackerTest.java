@@ -1,8 +1,14 @@
 package mjchao.mazenav.logic.structures;
 
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import mjchao.mazenav.logic.StatementCNF;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -65,4 +71,206 @@ public class SymbolTrackerTest {
 		Assert.assertTrue( test.parseConstant( "AcuteAngle" ) == null );
 		Assert.assertTrue( test.parseConstant( "ObtuseAngle" ) == null );
 	}
+	
+	@Test
+	public void concurrentSystemVariables() throws InterruptedException {
+		//system variables created by different threads at the same
+		//time should all have different ids
+		final SymbolTracker test = new SymbolTracker();
+		final int numThreads = 8;
+		final int numPerThread = 500;
+		final int[] numSeen = new int[ numThreads ];
+		Thread[] threads = new Thread[ numThreads ];
+		for ( int i=0 ; i<numThreads ; ++i ) {
+			final int idx = i;
+			threads[ i ] = new Thread() {
+				
+				@Override
+				public void run() {
+					for ( int j=0 ; j<numPerThread ; ++j ) {
+						test.getNewSystemVariable();
+						test.getNewSkolemFunction();
+					}
+					
+					numSeen[ idx ] = test.getThreadSystemVariables().size();
+				}
+			};
+			threads[ i ].start();
+		}
+		for ( Thread t : threads ) {
+			t.join();
+		}
+		
+		
+		//each thread only sees the variables it created
+		for ( int n : numSeen ) {
+			Assert.assertEquals( numPerThread , n );
+		}
+		Assert.assertEquals( numThreads * numPerThread , test.getNumSystemVariables() );
+		Set< String > names = new HashSet< String >();
+		for ( int i=0 ; i<test.getNumSystemVariables() ; ++i ) {
+			names.add( test.getSystemVariableById( i ).getSymbolName() );
+			Assert.assertTrue( test.getSkolemFunctionById( i ) != null );
+		}
+		Assert.assertEquals( numThreads * numPerThread , names.size() );
+		Assert.assertEquals( 0 , test.getThreadSystemVariables().size() );
+	}
+	
+	@Test
+	public void concurrentSystemVariableLookup() throws InterruptedException {
+		//a variable can be looked up as soon as it is created. an id
+		//another thread is still creating a variable for is rejected
+		//instead of looking up nothing
+		final SymbolTracker test = new SymbolTracker();
+		final int numThreads = 4;
+		final int numPerThread = 2000;
+		final AtomicBoolean missing = new AtomicBoolean( false );
+		Thread[] threads = new Thread[ numThreads ];
+		for ( int i=0 ; i<numThreads ; ++i ) {
+			threads[ i ] = new Thread() {
+				
+				@Override
+				public void run() {
+					for ( int j=0 ; j<numPerThread ; ++j ) {
+						Variable created = test.getNewSystemVariable();
+						if ( test.getSystemVariableById( (int) created.getId() ) != created ) {
+							missing.set( true );
+						}
+						try {
+							if ( test.getSystemVariableById( test.getNumSystemVariables() - 1 ) == null ) {
+								missing.set( true );
+							}
+						}
+						catch ( IllegalArgumentException e ) {
+							//still being created by another thread
+						}
+					}
+				}
+			};
+			threads[ i ].start();
+		}
+		for ( Thread t : threads ) {
+			t.join();
+		}
+		Assert.assertFalse( missing.get() );
+		Assert.assertEquals( numThreads * numPerThread , test.getNumSystemVariables() );
+	}
+	
+	@Test
+	public void threadSystemVariablesPerConversion() {
+		//only the variables of the statement being converted are
+		//remembered, no matter how many were converted before
+		SymbolTracker test = new SymbolTracker();
+		test.addFunctions( "Loves" );
+		for ( int i=0 ; i<100 ; ++i ) {
+			StatementCNF.fromInfixString( "FORALL(x) EXISTS(y) Loves(x,y)" , test );
+			Assert.assertEquals( 2 , test.getThreadSystemVariables().size() );
+		}
+		test.clearThreadSystemVariables();
+		Assert.assertEquals( 0 , test.getThreadSystemVariables().size() );
+		Assert.assertEquals( 200 , test.getNumSystemVariables() );
+	}
+	
+	@Test
+	public void concurrentGetOrCreateVariable() throws InterruptedException {
+		//threads asking for the same new variable should all
+		//get the same one
+		final SymbolTracker test = new SymbolTracker();
+		final int numThreads = 8;
+		final Variable[] results = new Variable[ numThreads ];
+		Thread[] threads = new Thread[ numThreads ];
+		for ( int i=0 ; i<numThreads ; ++i ) {
+			final int idx = i;
+			threads[ i ] = new Thread() {
+				
+				@Override
+				public void run() {
+					results[ idx ] = test.getOrCreateVariable( "x" );
+				}
+			};
+			threads[ i ].start();
+		}
+		for ( Thread t : threads ) {
+			t.join();
+		}
+		for ( Variable v : results ) {
+			Assert.assertTrue( v == test.getVariableByName( "x" ) );
+		}
+	}
+	
+	@Test
+	public void internedSymbols() {
+		SymbolTracker test = new SymbolTracker();
+		test.addFunctions( "Loves" );
+		test.addConstants( "Adam" );
+		
+		//every name is parsed to the same symbol
+		Function loves = test.parseFunction( "Loves" );
+		Assert.assertTrue( loves == test.parseFunction( "Loves" ) );
+		Assert.assertTrue( test.parseConstant( "Adam" ) == test.parseConstant( "Adam" ) );
+		Assert.assertTrue( test.getPredefinedConstant( "2" ) == test.getPredefinedConstant( "2" ) );
+		Assert.assertTrue( test.getPredefinedConstant( "True" ) == test.getPredefinedConstant( "T" ) );
+		Assert.assertEquals( test.getPredefinedConstant( "1.5" ).getSymbolId() , test.getPredefinedConstant( "1.50" ).getSymbolId() );
+		Assert.assertTrue( loves.getSymbolId() != Symbol.NOT_INTERNED );
+		Assert.assertTrue( loves.getSymbolId() != test.parseConstant( "Adam" ).getSymbolId() );
+		
+		//definitions are made for every conversion, and are interned
+		//like every other function
+		Function definition = test.getNewDefinition( 1 );
+		Assert.assertTrue( definition.getSymbolId() != Symbol.NOT_INTERNED );
+		Assert.assertEquals( definition , new Function( definition.getSymbolName() ) );
+		Assert.assertEquals( definition.getSymbolId() , new Function( definition.getSymbolName() ).getSymbolId() );
+		Assert.assertFalse( definition.equals( test.getNewDefinition( 1 ) ) );
+		
+		//the number of arguments belongs to a shared variant
+		//of the function
+		Function loves2 = loves.withNumArgs( 2 );
+		Assert.assertTrue( loves2 == loves.withNumArgs( 2 ) );
+		Assert.assertTrue( loves2 == loves.withNumArgs( 1 ).withNumArgs( 2 ) );
+		Assert.assertEquals( 2 , loves2.getNumArgs() );
+		Assert.assertEquals( 1 , loves.withNumArgs( 1 ).getNumArgs() );
+		Assert.assertEquals( loves , loves2 );
+		Assert.assertEquals( loves.getSymbolId() , loves2.getSymbolId() );
+		try {
+			loves2.setNumArgs( 3 );
+			Assert.fail( "Changing the number of arguments to a shared variant should fail." );
+		}
+		catch ( IllegalStateException e ) {
+			//expected
+		}
+		
+		//symbols with the same name are equal no matter which
+		//tracker made them
+		SymbolTracker other = new SymbolTracker();
+		other.addFunctions( "Adam" , "Loves" );
+		Assert.assertEquals( loves.getSymbolId() , other.parseFunction( "Loves" ).getSymbolId() );
+		Assert.assertEquals( loves , other.parseFunction( "Loves" ) );
+		Assert.assertEquals( test.parseConstant( "Adam" ) , other.parseFunction( "Adam" ) );
+		Assert.assertEquals( loves , new Function( "Loves" ) );
+		Assert.assertEquals( new Function( "Loves" ) , loves );
+		Assert.assertEquals( new Function( "Loves" ).hashCode() , loves.hashCode() );
+		Assert.assertEquals( NumbersFOL.fromInt( 2 ) , test.getPredefinedConstant( "2" ) );
+		Assert.assertFalse( loves.equals( test.parseConstant( "Adam" ) ) );
+	}
+	
+	@Test
+	public void internedNamesReclaimed() {
+		
+		//a name is forgotten once no symbol with the name is
+		//reachable, and its id is given to another name
+		Function symbol = new Function( "Reclaimed" );
+		int id = symbol.getSymbolId();
+		int numNames = Symbol.numInternedNames();
+		WeakReference< Function > collected = new WeakReference< Function >( symbol );
+		symbol = null;
+		for ( int i=0 ; i<100 && (collected.get() != null || Symbol.numInternedNames() >= numNames) ; ++i ) {
+			System.gc();
+		}
+		Assert.assertNull( collected.get() );
+		Assert.assertTrue( Symbol.numInternedNames() < numNames );
+		
+		//the freed id is the smallest one, so the next new name gets
+		//it unless another id was freed as well
+		Assert.assertTrue( new Function( "ReclaimedAgain" ).getSymbolId() <= id );
+	}
 }